@@ -0,0 +1,182 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Searches the state space of a net depth-first with bitstate hashing, for quick bug
+ * hunting on nets whose state space does not fit into memory.
+ * <p>
+ * Visited markings are remembered only as bits of a {@link BitstateSet} of fixed size, so
+ * the search uses little memory and runs at the speed of random memory access. Markings
+ * that are wrongly taken as seen are skipped, so the search may miss states and is not a
+ * proof; the result tells which share of the states was probably covered. Everything it
+ * finds is real: every dead marking comes with the firing sequence on the search stack
+ * that reaches it. The firing rule is that of the {@link ReachabilityExplorer}, and
+ * {@link StubbornSets} and a {@link Symmetry} can shrink the search as there.
+ * </p>
+ */
+public class BitstateExplorer {
+
+    private final NetTopology topology;
+    private int log2Bits = 27;
+    private int hashes = 3;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxStates = Long.MAX_VALUE;
+    private int maxDeadlocks = 100;
+    private boolean partialOrderReduction;
+    private Symmetry symmetry;
+
+    /**
+     * Creates an explorer for a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public BitstateExplorer(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an explorer for a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     */
+    public BitstateExplorer(NetTopology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @return the counts, the estimated coverage and the dead markings found
+     */
+    public BitstateResult explore() {
+        long start = System.currentTimeMillis();
+        BitstateSet visited = new BitstateSet(log2Bits, hashes);
+        StubbornSets stubborn = partialOrderReduction ? new StubbornSets(topology) : null;
+        ArrayList<Marking> markings = new ArrayList<>();
+        ArrayList<int[]> choices = new ArrayList<>();
+        int[] positions = new int[64];
+        List<Marking> deadlocks = new ArrayList<>();
+        List<int[]> deadlockPaths = new ArrayList<>();
+        long deadlockCount = 0;
+        long edges = 0;
+        boolean complete = true;
+
+        Marking initial = topology.getInitialMarking();
+        visited.add(key(initial));
+        markings.add(initial);
+        choices.add(expand(stubborn, initial));
+        if (choices.get(0).length == 0) {
+            deadlockCount++;
+            deadlocks.add(initial);
+            deadlockPaths.add(new int[0]);
+        }
+        while (!markings.isEmpty()) {
+            int top = markings.size() - 1;
+            int[] firable = choices.get(top);
+            if (positions[top] == firable.length) {
+                markings.remove(top);
+                choices.remove(top);
+                positions[top] = 0;
+                continue;
+            }
+            int t = firable[positions[top]++];
+            edges++;
+            Marking next = topology.successor(markings.get(top), t);
+            if (!visited.add(key(next))) {
+                continue;
+            }
+            if (visited.getAddedCount() > maxStates) {
+                complete = false;
+                break;
+            }
+            int[] successors = expand(stubborn, next);
+            if (successors.length == 0) {
+                deadlockCount++;
+                if (deadlocks.size() < maxDeadlocks) {
+                    int[] path = new int[top + 1];
+                    for (int level = 0; level <= top; level++) {
+                        path[level] = choices.get(level)[positions[level] - 1];
+                    }
+                    deadlocks.add(next);
+                    deadlockPaths.add(path);
+                }
+                continue;
+            }
+            if (markings.size() >= maxDepth) {
+                complete = false;
+                continue;
+            }
+            if (markings.size() == positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            markings.add(next);
+            choices.add(successors);
+        }
+        return new BitstateResult(visited, edges, deadlockCount, deadlocks, deadlockPaths, complete, System.currentTimeMillis() - start);
+    }
+
+    /** Returns the transitions to fire in a marking. */
+    private int[] expand(StubbornSets stubborn, Marking marking) {
+        int[] firable = topology.getFirable(marking);
+        return stubborn == null ? firable : stubborn.reduce(marking, firable);
+    }
+
+    /** Returns the token counts under which a marking is hashed. */
+    private int[] key(Marking marking) {
+        return symmetry == null ? marking.tokens : symmetry.canonical(marking.tokens);
+    }
+
+    /**
+     * @param log2Bits the logarithm of the number of bits, 27 (16 MB) by default and at most
+     *                 36 (8 GB)
+     */
+    public void setLog2Bits(int log2Bits) {
+        this.log2Bits = log2Bits;
+    }
+
+    /**
+     * @param hashes the number of bits set per marking, 3 by default
+     */
+    public void setHashes(int hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * @param maxDepth the length of the search stack beyond which markings are not expanded
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param maxStates the number of new markings after which the search stops
+     */
+    public void setMaxStates(long maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @param maxDeadlocks the number of dead markings to keep with their firing sequences
+     */
+    public void setMaxDeadlocks(int maxDeadlocks) {
+        this.maxDeadlocks = maxDeadlocks;
+    }
+
+    /**
+     * @param partialOrderReduction true to fire the transitions of stubborn sets only, which keeps the dead markings
+     */
+    public void setPartialOrderReduction(boolean partialOrderReduction) {
+        this.partialOrderReduction = partialOrderReduction;
+    }
+
+    /**
+     * @param symmetry the symmetries of the net to hash one marking per orbit, or null
+     */
+    public void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+}
@@ -0,0 +1,62 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a search with a {@link BitstateExplorer}: the counts of an
+ * {@link ExplorationResult}, which are lower bounds here, together with the estimated share
+ * of the state space that was covered and firing sequences to the dead markings found.
+ */
+public class BitstateResult extends ExplorationResult {
+
+    private final BitstateSet visited;
+    private final List<int[]> deadlockPaths;
+
+    /**
+     * Creates a result.
+     *
+     * @param visited       The bits of the visited markings.
+     * @param edges         Number of firings computed.
+     * @param deadlockCount Number of dead states found.
+     * @param deadlocks     Some of the dead states.
+     * @param deadlockPaths Firing sequences to these dead states.
+     * @param complete      Whether the search ended without hitting a limit.
+     * @param elapsed       Milliseconds the search took.
+     */
+    public BitstateResult(BitstateSet visited, long edges, long deadlockCount, List<Marking> deadlocks, List<int[]> deadlockPaths, boolean complete, long elapsed) {
+        super(null, visited.getAddedCount(), edges, deadlockCount, deadlocks, complete, elapsed);
+        this.visited = visited;
+        this.deadlockPaths = Collections.unmodifiableList(new ArrayList<>(deadlockPaths));
+    }
+
+    /**
+     * @return the estimated share of the visited markings that were recognised as new
+     */
+    public double getCoverage() {
+        return visited.getCoverage();
+    }
+
+    /**
+     * @return the probability that a further marking would be taken as seen
+     */
+    public double getFalsePositiveProbability() {
+        return visited.getFalsePositiveProbability();
+    }
+
+    /**
+     * @return the firing sequences to the dead markings of {@link #getDeadlocks()}, in the same order
+     */
+    public List<int[]> getDeadlockPaths() {
+        return deadlockPaths;
+    }
+
+    /**
+     * @return the bits of the visited markings
+     */
+    public BitstateSet getVisited() {
+        return visited;
+    }
+}
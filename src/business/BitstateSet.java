@@ -0,0 +1,139 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * A set of markings remembered only as bits in a fixed bit array, for bitstate hashing.
+ * <p>
+ * Every marking sets k bits chosen by k hash functions, derived by double hashing from two
+ * independent 64-bit hashes. A marking counts as seen if all its bits are set, which may be
+ * wrong when other markings happen to have set them; the search then misses that marking and
+ * what only it leads to. The memory is fixed in advance and never grows.
+ * </p>
+ * A BitstateSet is not thread-safe.
+ */
+public class BitstateSet {
+
+    private final long[] bits;
+    private final long mask;
+    private final int hashes;
+    private long added;
+    private long setBits;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param log2Bits The logarithm of the number of bits, at most 36 (8 GB), the largest
+     *                 array of longs Java can allocate.
+     * @param hashes   The number of hash functions, usually 2 or 3.
+     */
+    public BitstateSet(int log2Bits, int hashes) {
+        if (log2Bits < 6 || log2Bits > 36) {
+            throw new IllegalArgumentException("Between 2^6 and 2^36 bits");
+        }
+        bits = new long[(int) (1L << (log2Bits - 6))];
+        mask = (1L << log2Bits) - 1;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Adds a marking unless all its bits are set already.
+     *
+     * @param marking The token counts.
+     * @return true if the marking is new, false if it was probably seen before
+     */
+    public boolean add(int[] marking) {
+        long h1 = hash(marking, 0x9e3779b97f4a7c15L);
+        long h2 = hash(marking, 0xc2b2ae3d27d4eb4fL) | 1;
+        boolean isNew = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long flag = 1L << (bit & 63);
+            if ((bits[word] & flag) == 0) {
+                bits[word] |= flag;
+                setBits++;
+                isNew = true;
+            }
+        }
+        if (isNew) {
+            added++;
+        }
+        return isNew;
+    }
+
+    /** Hashes token counts with a seed and a final avalanche. */
+    private static long hash(int[] marking, long seed) {
+        long h = seed;
+        for (int i = 0; i < marking.length; i++) {
+            h = (h ^ marking[i]) * 0xff51afd7ed558ccdL;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Returns the probability that a marking not in the set is taken as seen, for the
+     * current number of markings.
+     *
+     * @return the probability
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositive(added);
+    }
+
+    /**
+     * Estimates the share of the markings added to the set that were recognised as new:
+     * the average over all additions of the chance not to hit set bits only, assuming
+     * independent uniform hashes.
+     *
+     * @return a number between 0 and 1
+     */
+    public double getCoverage() {
+        if (added == 0) {
+            return 1;
+        }
+        int samples = (int) Math.min(added, 1000);
+        double sum = 0;
+        for (int i = 0; i < samples; i++) {
+            sum += falsePositive((long) ((i + 0.5) * added / samples));
+        }
+        return 1 - sum / samples;
+    }
+
+    /** Returns the false positive probability after a number of additions. */
+    private double falsePositive(long count) {
+        double m = (double) mask + 1;
+        return Math.pow(1 - Math.exp(-hashes * (double) count / m), hashes);
+    }
+
+    /**
+     * @return the number of markings recognised as new
+     */
+    public long getAddedCount() {
+        return added;
+    }
+
+    /**
+     * @return the share of bits set
+     */
+    public double getFillRatio() {
+        return setBits / ((double) mask + 1);
+    }
+
+    /**
+     * @return the number of bits
+     */
+    public long getBitCount() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of hash functions
+     */
+    public int getHashCount() {
+        return hashes;
+    }
+}
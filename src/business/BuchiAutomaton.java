@@ -0,0 +1,348 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * A Büchi automaton accepting the runs that satisfy an LTL {@link Formula}, used by the
+ * {@link ModelChecker} to search runs violating a property.
+ * <p>
+ * The formula is brought into negation normal form and expanded into a tableau with the
+ * construction of Gerth, Peled, Vardi and Wolper: every node holds the subformulas that hold
+ * at a step and those that must hold at the next one, and splits on disjunctions, untils and
+ * releases. Each until gives a set of nodes where it is fulfilled, and a run must visit all
+ * of them infinitely often. A counter over these sets turns the result into an automaton with
+ * one set of accepting states. A state reads a step of a run, i.e. a marking and the
+ * transition fired next, and can only be left if its literals hold on that step. A state
+ * accepting every continuation marks a finite bad prefix, such as a violation of an
+ * invariant.
+ * </p>
+ */
+final class BuchiAutomaton {
+
+    /** Kinds of formulas in negation normal form. */
+    private static final int TRUE = 0;
+    private static final int FALSE = 1;
+    private static final int LITERAL = 2;
+    private static final int AND = 3;
+    private static final int OR = 4;
+    private static final int NEXT = 5;
+    private static final int UNTIL = 6;
+    private static final int RELEASE = 7;
+
+    /** The subformulas, numbered in the order they were first built. */
+    private final ArrayList<Integer> kinds = new ArrayList<>();
+    private final ArrayList<Integer> lefts = new ArrayList<>();
+    private final ArrayList<Integer> rights = new ArrayList<>();
+    private final ArrayList<Formula> atoms = new ArrayList<>();
+    private final ArrayList<Boolean> negated = new ArrayList<>();
+    private final HashMap<String, Integer> numbers = new HashMap<>();
+
+    /** Literal subformulas and their negations that every state needs. */
+    private final Formula[][] labelAtoms;
+    private final boolean[][] labelNegated;
+    private final int[][] successors;
+    private final boolean[] initial;
+    private final boolean[] accepting;
+    private final boolean[] universal;
+
+    /**
+     * Builds the automaton of a formula.
+     *
+     * @param formula An LTL formula.
+     * @throws IllegalArgumentException if the formula has CTL operators
+     */
+    BuchiAutomaton(Formula formula) {
+        int root = normalize(formula, false);
+        ArrayList<Node> nodes = new ArrayList<>();
+        Node start = new Node();
+        start.initial = true;
+        start.pending.set(root);
+        expand(start, nodes);
+
+        ArrayList<Integer> untils = new ArrayList<>();
+        for (int f = 0; f < kinds.size(); f++) {
+            if (kinds.get(f) == UNTIL) {
+                untils.add(f);
+            }
+        }
+        int sets = Math.max(1, untils.size());
+        int count = nodes.size();
+        boolean[][] fulfilled = new boolean[count][sets];
+        for (int n = 0; n < count; n++) {
+            BitSet old = nodes.get(n).old;
+            for (int k = 0; k < sets; k++) {
+                fulfilled[n][k] = untils.isEmpty() || !old.get(untils.get(k)) || old.get(rights.get(untils.get(k)));
+            }
+        }
+
+        labelAtoms = new Formula[count * sets][];
+        labelNegated = new boolean[count * sets][];
+        successors = new int[count * sets][];
+        initial = new boolean[count * sets];
+        accepting = new boolean[count * sets];
+        universal = new boolean[count * sets];
+        for (int n = 0; n < count; n++) {
+            Node node = nodes.get(n);
+            ArrayList<Integer> literals = new ArrayList<>();
+            for (int f = node.old.nextSetBit(0); f >= 0; f = node.old.nextSetBit(f + 1)) {
+                if (kinds.get(f) == LITERAL) {
+                    literals.add(f);
+                }
+            }
+            ArrayList<Integer> next = new ArrayList<>();
+            for (int m = 0; m < count; m++) {
+                if (nodes.get(m).incoming.contains(n) && fulfilled[m][0]) {
+                    next.add(m);
+                }
+            }
+            for (int m = 0; m < count; m++) {
+                if (nodes.get(m).incoming.contains(n) && !fulfilled[m][0]) {
+                    next.add(m);
+                }
+            }
+            for (int k = 0; k < sets; k++) {
+                int state = n * sets + k;
+                labelAtoms[state] = new Formula[literals.size()];
+                labelNegated[state] = new boolean[literals.size()];
+                for (int i = 0; i < literals.size(); i++) {
+                    labelAtoms[state][i] = atoms.get(literals.get(i));
+                    labelNegated[state][i] = negated.get(literals.get(i));
+                }
+                int nextCounter = fulfilled[n][k] ? (k + 1) % sets : k;
+                successors[state] = new int[next.size()];
+                for (int i = 0; i < next.size(); i++) {
+                    successors[state][i] = next.get(i) * sets + nextCounter;
+                }
+                initial[state] = node.initial && k == 0;
+                accepting[state] = k == 0 && fulfilled[n][0];
+                universal[state] = literals.isEmpty() && next.contains(n) && allFulfilled(fulfilled[n]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of states
+     */
+    int getStateCount() {
+        return successors.length;
+    }
+
+    /**
+     * @param state a state
+     * @return true if runs may start in the state
+     */
+    boolean isInitial(int state) {
+        return initial[state];
+    }
+
+    /**
+     * @param state a state
+     * @return true if an accepting run passes the state infinitely often
+     */
+    boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * @param state a state
+     * @return true if the state accepts every continuation of a run: it reads any step, can
+     *         follow itself, and fulfills every until
+     */
+    boolean isUniversal(int state) {
+        return universal[state];
+    }
+
+    private static boolean allFulfilled(boolean[] fulfilled) {
+        for (boolean f : fulfilled) {
+            if (!f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param state a state
+     * @return the states that may read the next step, those of nodes fulfilling the first
+     *         until listed first so that a depth-first search meets accepting states early
+     */
+    int[] getSuccessors(int state) {
+        return successors[state];
+    }
+
+    /**
+     * Checks whether a state can read a step.
+     *
+     * @param state      The state.
+     * @param tokens     The marking.
+     * @param firable    The transitions that can fire in the marking.
+     * @param transition The transition fired next, -1 in a dead marking.
+     * @return true if all literals of the state hold
+     */
+    boolean matches(int state, int[] tokens, int[] firable, int transition) {
+        for (int i = 0; i < labelAtoms[state].length; i++) {
+            if (labelAtoms[state][i].holdsOnStep(tokens, firable, transition) == labelNegated[state][i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of a subformula in negation normal form, numbering it if it is new.
+     */
+    private int number(int kind, int left, int right, Formula atom, boolean not) {
+        String key = kind + " " + left + " " + right + " " + (atom == null ? "" : atom.toString()) + " " + not;
+        Integer known = numbers.get(key);
+        if (known != null) {
+            return known;
+        }
+        int f = kinds.size();
+        kinds.add(kind);
+        lefts.add(left);
+        rights.add(right);
+        atoms.add(atom);
+        negated.add(not);
+        numbers.put(key, f);
+        return f;
+    }
+
+    /**
+     * Numbers a formula or its negation in negation normal form, where negations only stand
+     * before atomic propositions.
+     */
+    private int normalize(Formula formula, boolean not) {
+        switch (formula.getKind()) {
+            case Formula.TRUE:
+                return number(not ? FALSE : TRUE, -1, -1, null, false);
+            case Formula.FALSE:
+                return number(not ? TRUE : FALSE, -1, -1, null, false);
+            case Formula.ATOM:
+                return number(LITERAL, -1, -1, formula, not);
+            case Formula.NOT:
+                return normalize(formula.getLeft(), !not);
+            case Formula.AND:
+                return number(not ? OR : AND, normalize(formula.getLeft(), not), normalize(formula.getRight(), not), null, false);
+            case Formula.OR:
+                return number(not ? AND : OR, normalize(formula.getLeft(), not), normalize(formula.getRight(), not), null, false);
+            case Formula.IMPLIES:
+                return number(not ? AND : OR, normalize(formula.getLeft(), !not), normalize(formula.getRight(), not), null, false);
+            case Formula.NEXT:
+                return number(NEXT, normalize(formula.getLeft(), not), -1, null, false);
+            case Formula.FINALLY:
+                return number(not ? RELEASE : UNTIL, number(not ? FALSE : TRUE, -1, -1, null, false), normalize(formula.getLeft(), not), null, false);
+            case Formula.GLOBALLY:
+                return number(not ? UNTIL : RELEASE, number(not ? TRUE : FALSE, -1, -1, null, false), normalize(formula.getLeft(), not), null, false);
+            case Formula.UNTIL:
+                return number(not ? RELEASE : UNTIL, normalize(formula.getLeft(), not), normalize(formula.getRight(), not), null, false);
+            case Formula.RELEASE:
+                return number(not ? UNTIL : RELEASE, normalize(formula.getLeft(), not), normalize(formula.getRight(), not), null, false);
+            default:
+                throw new IllegalArgumentException("Not an LTL formula: " + formula);
+        }
+    }
+
+    /**
+     * Expands a node of the tableau until no pending subformula is left, then stores it or
+     * merges it with an equal stored node.
+     */
+    private void expand(Node node, ArrayList<Node> nodes) {
+        int f = node.pending.nextSetBit(0);
+        if (f < 0) {
+            for (Node stored : nodes) {
+                if (stored.old.equals(node.old) && stored.next.equals(node.next)) {
+                    stored.incoming.addAll(node.incoming);
+                    stored.initial |= node.initial;
+                    return;
+                }
+            }
+            node.number = nodes.size();
+            nodes.add(node);
+            Node successor = new Node();
+            successor.incoming.add(node.number);
+            successor.pending.or(node.next);
+            expand(successor, nodes);
+            return;
+        }
+        node.pending.clear(f);
+        if (node.old.get(f)) {
+            expand(node, nodes);
+            return;
+        }
+        int left = lefts.get(f);
+        int right = rights.get(f);
+        switch (kinds.get(f)) {
+            case FALSE:
+                return;
+            case TRUE:
+                node.old.set(f);
+                expand(node, nodes);
+                return;
+            case LITERAL:
+                int complement = number(LITERAL, -1, -1, atoms.get(f), !negated.get(f));
+                if (node.old.get(complement)) {
+                    return;
+                }
+                node.old.set(f);
+                expand(node, nodes);
+                return;
+            case AND:
+                node.old.set(f);
+                node.pending.set(left);
+                node.pending.set(right);
+                expand(node, nodes);
+                return;
+            case NEXT:
+                node.old.set(f);
+                node.next.set(left);
+                expand(node, nodes);
+                return;
+            default:
+                Node other = node.copy();
+                node.old.set(f);
+                other.old.set(f);
+                if (kinds.get(f) == OR) {
+                    node.pending.set(left);
+                    other.pending.set(right);
+                } else if (kinds.get(f) == UNTIL) {
+                    node.pending.set(left);
+                    node.next.set(f);
+                    other.pending.set(right);
+                } else {
+                    node.pending.set(right);
+                    node.next.set(f);
+                    other.pending.set(left);
+                    other.pending.set(right);
+                }
+                expand(node, nodes);
+                expand(other, nodes);
+        }
+    }
+
+    /**
+     * A node of the tableau: the nodes it can follow, the subformulas still to expand, those
+     * that hold at its step and those that must hold at the next step.
+     */
+    private static class Node {
+
+        final ArrayList<Integer> incoming = new ArrayList<>();
+        final BitSet pending = new BitSet();
+        final BitSet old = new BitSet();
+        final BitSet next = new BitSet();
+        boolean initial;
+        int number = -1;
+
+        Node copy() {
+            Node node = new Node();
+            node.incoming.addAll(incoming);
+            node.pending.or(pending);
+            node.old.or(old);
+            node.next.or(next);
+            node.initial = initial;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * A state store that many threads can fill at the same time, split into stripes that are
+ * each a {@link HashedStateStore} with its own lock.
+ * <p>
+ * The stripe of a marking is chosen by its hash, so threads adding different markings
+ * rarely wait for each other. A marking gets the number of its stripe plus the number of
+ * stripes times its number within the stripe; numbers are unique but neither dense nor in
+ * the order of adding, so this store is meant for the {@link ParallelReachabilityExplorer},
+ * which only needs to know whether a marking is new. Numbers have to fit into an int, which
+ * limits a stripe to 2<sup>31</sup> divided by the number of stripes markings.
+ * </p>
+ */
+public class ConcurrentStateStore implements StateStore {
+
+    private final HashedStateStore[] stripes;
+    private final int mask;
+    private final int shift;
+
+    /**
+     * Creates a store with enough stripes for the processors of this machine.
+     */
+    public ConcurrentStateStore() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param stripes The number of stripes, rounded up to a power of two.
+     */
+    public ConcurrentStateStore(int stripes) {
+        int count = Integer.highestOneBit(Math.max(1, stripes));
+        if (count < stripes) {
+            count <<= 1;
+        }
+        this.stripes = new HashedStateStore[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new HashedStateStore();
+        }
+        mask = count - 1;
+        shift = Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the stripe of the marking is full
+     */
+    @Override
+    public int add(int[] marking) {
+        int stripe = stripe(marking);
+        HashedStateStore store = stripes[stripe];
+        int index;
+        synchronized (store) {
+            index = store.add(marking);
+        }
+        if (index > Integer.MAX_VALUE >> shift) {
+            throw new IllegalStateException("More than " + ((Integer.MAX_VALUE >> shift) + 1) + " states in a stripe");
+        }
+        return index < 0 ? -(((-index - 1) << shift | stripe) + 1) : index << shift | stripe;
+    }
+
+    @Override
+    public int indexOf(int[] marking) {
+        int stripe = stripe(marking);
+        HashedStateStore store = stripes[stripe];
+        int index;
+        synchronized (store) {
+            index = store.indexOf(marking);
+        }
+        return index < 0 ? -1 : index << shift | stripe;
+    }
+
+    @Override
+    public int[] get(int index) {
+        HashedStateStore store = stripes[index & mask];
+        synchronized (store) {
+            return store.get(index >>> shift);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (HashedStateStore store : stripes) {
+            synchronized (store) {
+                size += store.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of bytes taken by the encoded states of all stripes
+     */
+    public long getEncodedBytes() {
+        long bytes = 0;
+        for (HashedStateStore store : stripes) {
+            synchronized (store) {
+                bytes += store.getEncodedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /** Chooses the stripe of a marking by a hash independent of the one used within a stripe. */
+    private int stripe(int[] marking) {
+        int h = 0;
+        for (int i = 0; i < marking.length; i++) {
+            h = h * 0x9e3779b1 + marking[i];
+        }
+        h ^= h >>> 15;
+        h *= 0x2c1b3c6d;
+        h ^= h >>> 12;
+        return h & mask;
+    }
+}
@@ -0,0 +1,208 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Computes a coverability set of a net with the Karp-Miller construction, which always
+ * terminates and tells which places are unbounded, where a reachability exploration would
+ * run out of memory.
+ * <p>
+ * The construction explores markings depth-first. When a new marking is at least as large
+ * as one of its ancestors and larger in some places, the firing sequence in between can be
+ * repeated forever, so those places get the count {@link #OMEGA}, meaning arbitrarily many
+ * tokens. A new marking that is covered by a marking found before is pruned, since every
+ * marking coverable from it is coverable from the other one. Covered markings are dropped
+ * from the set used for these checks, but their subtrees are still explored, which keeps the
+ * pruning complete.
+ * </p>
+ * <p>
+ * Coverage needs monotonic firing: more tokens must never disable a transition. Places with
+ * a capacity break this, so markings are only compared if they agree on those places; such
+ * places are bounded anyway. Priorities and a mix of immediate and timed transitions break
+ * it too and are not supported. Like the other analyses this one counts tokens.
+ * </p>
+ */
+public class CoverabilityAnalysis {
+
+    /** Token count standing for arbitrarily many tokens. */
+    public static final int OMEGA = Integer.MAX_VALUE;
+
+    private final NetTopology topology;
+    private int maxNodes = Integer.MAX_VALUE;
+
+    /**
+     * Creates the analysis of a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public CoverabilityAnalysis(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates the analysis of a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     * @throws IllegalArgumentException if the net has priorities or both immediate and timed transitions
+     */
+    public CoverabilityAnalysis(NetTopology topology) {
+        if (!new StubbornSets(topology).isApplicable()) {
+            throw new IllegalArgumentException("Coverability analysis does not support priorities or mixed timing");
+        }
+        this.topology = topology;
+    }
+
+    /**
+     * Runs the construction.
+     *
+     * @return the coverability set
+     * @throws IllegalStateException if the node limit is exceeded
+     */
+    public CoverabilitySet analyse() {
+        ArrayList<int[]> markings = new ArrayList<>();
+        ArrayList<Integer> parents = new ArrayList<>();
+        ArrayList<Integer> transitions = new ArrayList<>();
+        ArrayList<int[]> maximal = new ArrayList<>();
+        int[] firstOmega = new int[topology.getPlaceCount()];
+        Arrays.fill(firstOmega, -1);
+
+        int[] initial = topology.getInitialMarking().tokens;
+        markings.add(initial);
+        parents.add(-1);
+        transitions.add(-1);
+        maximal.add(initial);
+        ArrayList<Integer> stack = new ArrayList<>();
+        stack.add(0);
+        while (!stack.isEmpty()) {
+            int node = stack.remove(stack.size() - 1);
+            int[] marking = markings.get(node);
+            for (int t = 0; t < topology.getTransitionCount(); t++) {
+                if (!isEnabled(marking, t)) {
+                    continue;
+                }
+                int[] next = fire(marking, t);
+                accelerate(next, node, markings, parents);
+                if (isCovered(next, maximal)) {
+                    continue;
+                }
+                if (markings.size() >= maxNodes) {
+                    throw new IllegalStateException("More than " + maxNodes + " coverability nodes");
+                }
+                int child = markings.size();
+                markings.add(next);
+                parents.add(node);
+                transitions.add(t);
+                for (int p = 0; p < next.length; p++) {
+                    if (next[p] == OMEGA && firstOmega[p] < 0) {
+                        firstOmega[p] = child;
+                    }
+                }
+                for (Iterator<int[]> i = maximal.iterator(); i.hasNext();) {
+                    if (covers(next, i.next())) {
+                        i.remove();
+                    }
+                }
+                maximal.add(next);
+                stack.add(child);
+            }
+        }
+
+        int[][] paths = new int[firstOmega.length][];
+        for (int p = 0; p < firstOmega.length; p++) {
+            if (firstOmega[p] >= 0) {
+                int length = 0;
+                for (int n = firstOmega[p]; parents.get(n) >= 0; n = parents.get(n)) {
+                    length++;
+                }
+                paths[p] = new int[length];
+                for (int n = firstOmega[p]; parents.get(n) >= 0; n = parents.get(n)) {
+                    paths[p][--length] = transitions.get(n);
+                }
+            }
+        }
+        return new CoverabilitySet(topology, maximal, paths, markings.size());
+    }
+
+    /**
+     * Replaces counts by {@link #OMEGA} where a marking strictly grows over an ancestor it covers.
+     */
+    private void accelerate(int[] next, int parent, ArrayList<int[]> markings, ArrayList<Integer> parents) {
+        for (int n = parent; n >= 0; n = parents.get(n)) {
+            int[] ancestor = markings.get(n);
+            if (covers(next, ancestor)) {
+                for (int p = 0; p < next.length; p++) {
+                    if (next[p] > ancestor[p]) {
+                        next[p] = OMEGA;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Checks whether a marking is covered by one of a set. */
+    private boolean isCovered(int[] marking, ArrayList<int[]> set) {
+        for (int[] other : set) {
+            if (covers(other, marking)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether one marking covers another: at least as many tokens everywhere and the
+     * same number in places with a capacity.
+     */
+    private boolean covers(int[] larger, int[] smaller) {
+        for (int p = 0; p < larger.length; p++) {
+            if (larger[p] < smaller[p] || (topology.getCapacity(p) != 0 && larger[p] != smaller[p])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Checks whether a transition is enabled in a marking with {@link #OMEGA} counts. */
+    private boolean isEnabled(int[] marking, int t) {
+        for (int i = 0; i < topology.getInputCount(t); i++) {
+            if (marking[topology.getInputPlace(t, i)] < topology.getInputWeight(t, i)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < topology.getOutputCount(t); i++) {
+            int p = topology.getOutputPlace(t, i);
+            if (topology.getCapacity(p) != 0 && marking[p] >= topology.getCapacity(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Fires a transition on a marking with {@link #OMEGA} counts, which stay. */
+    private int[] fire(int[] marking, int t) {
+        int[] next = marking.clone();
+        for (int i = 0; i < topology.getInputCount(t); i++) {
+            int p = topology.getInputPlace(t, i);
+            if (next[p] != OMEGA) {
+                next[p] -= topology.getInputWeight(t, i);
+            }
+        }
+        for (int i = 0; i < topology.getOutputCount(t); i++) {
+            int p = topology.getOutputPlace(t, i);
+            if (next[p] != OMEGA) {
+                next[p] += topology.getOutputWeight(t, i);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @param maxNodes the number of markings after which the construction fails
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+}
@@ -0,0 +1,128 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The maximal markings found by a {@link CoverabilityAnalysis}, where a count of
+ * {@link CoverabilityAnalysis#OMEGA} means that the place can hold arbitrarily many tokens.
+ * A marking can be covered by a reachable marking exactly if it is covered by one of these.
+ */
+public class CoverabilitySet {
+
+    private final NetTopology topology;
+    private final List<int[]> markings;
+    private final int[][] paths;
+    private final int nodes;
+
+    /**
+     * Creates a coverability set.
+     *
+     * @param topology The net.
+     * @param markings The maximal markings.
+     * @param paths    For every unbounded place the firing sequence to the first marking
+     *                 where it became unbounded, null for bounded places.
+     * @param nodes    The number of markings the construction kept.
+     */
+    public CoverabilitySet(NetTopology topology, List<int[]> markings, int[][] paths, int nodes) {
+        this.topology = topology;
+        this.markings = new ArrayList<>(markings);
+        this.paths = paths;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @return true if every place is bounded
+     */
+    public boolean isBounded() {
+        return getUnboundedPlaces().length == 0;
+    }
+
+    /**
+     * @return the indices of the unbounded places
+     */
+    public int[] getUnboundedPlaces() {
+        int count = 0;
+        for (int p = 0; p < paths.length; p++) {
+            if (paths[p] != null) {
+                count++;
+            }
+        }
+        int[] places = new int[count];
+        count = 0;
+        for (int p = 0; p < paths.length; p++) {
+            if (paths[p] != null) {
+                places[count++] = p;
+            }
+        }
+        return places;
+    }
+
+    /**
+     * Returns the largest number of tokens a place can hold.
+     *
+     * @param place the index of a place
+     * @return the bound, or {@link CoverabilityAnalysis#OMEGA} if the place is unbounded
+     */
+    public int getBound(int place) {
+        int bound = 0;
+        for (int[] marking : markings) {
+            bound = Math.max(bound, marking[place]);
+        }
+        return bound;
+    }
+
+    /**
+     * Returns a firing sequence after which a place became unbounded; from there a part of
+     * the sequence can be repeated to add tokens to the place forever.
+     *
+     * @param place the index of a place
+     * @return the indices of the transitions, or null if the place is bounded
+     */
+    public int[] getUnboundedPath(int place) {
+        return paths[place] == null ? null : paths[place].clone();
+    }
+
+    /**
+     * @param marking a marking
+     * @return true if a reachable marking has at least as many tokens in every place
+     */
+    public boolean isCoverable(Marking marking) {
+        for (int[] maximal : markings) {
+            boolean covers = true;
+            for (int p = 0; p < maximal.length && covers; p++) {
+                covers = maximal[p] >= marking.get(p);
+            }
+            if (covers) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the maximal markings, with {@link CoverabilityAnalysis#OMEGA} for unbounded counts
+     */
+    public List<Marking> getMarkings() {
+        List<Marking> list = new ArrayList<>();
+        for (int[] marking : markings) {
+            list.add(new Marking(marking));
+        }
+        return list;
+    }
+
+    /**
+     * @return the number of markings the construction kept
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * @return the net
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+}
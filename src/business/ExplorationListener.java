@@ -0,0 +1,19 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Receives progress reports of a running {@link ParallelReachabilityExplorer}.
+ * The ExplorationListener interface is an example of the Observer design pattern.
+ * Reports come from the thread that started the exploration while the workers go on.
+ */
+public interface ExplorationListener {
+
+    /**
+     * Called at regular intervals during the exploration.
+     *
+     * @param states  The number of states found so far.
+     * @param edges   The number of firings computed so far.
+     * @param elapsed The milliseconds since the exploration started.
+     */
+    public void progress(long states, long edges, long elapsed);
+}
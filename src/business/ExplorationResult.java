@@ -0,0 +1,91 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of an exploration that counts the state space without keeping its edges, as done
+ * by the {@link ParallelReachabilityExplorer}.
+ */
+public class ExplorationResult {
+
+    private final StateStore store;
+    private final long states;
+    private final long edges;
+    private final long deadlockCount;
+    private final List<Marking> deadlocks;
+    private final boolean complete;
+    private final long elapsed;
+
+    /**
+     * Creates a result.
+     *
+     * @param store         The store holding the states, or null if states are not stored.
+     * @param states        Number of states found.
+     * @param edges         Number of firings computed.
+     * @param deadlockCount Number of dead states found.
+     * @param deadlocks     Some of the dead states.
+     * @param complete      Whether every reachable state was explored.
+     * @param elapsed       Milliseconds the exploration took.
+     */
+    public ExplorationResult(StateStore store, long states, long edges, long deadlockCount, List<Marking> deadlocks, boolean complete, long elapsed) {
+        this.store = store;
+        this.states = states;
+        this.edges = edges;
+        this.deadlockCount = deadlockCount;
+        this.deadlocks = Collections.unmodifiableList(new ArrayList<>(deadlocks));
+        this.complete = complete;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return the store holding the states, e.g. to look up markings, or null if states are not stored
+     */
+    public StateStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the number of states found
+     */
+    public long getStateCount() {
+        return states;
+    }
+
+    /**
+     * @return the number of firings computed
+     */
+    public long getEdgeCount() {
+        return edges;
+    }
+
+    /**
+     * @return the number of dead states found
+     */
+    public long getDeadlockCount() {
+        return deadlockCount;
+    }
+
+    /**
+     * @return the first dead states found, at most as many as the explorer was asked to keep
+     */
+    public List<Marking> getDeadlocks() {
+        return deadlocks;
+    }
+
+    /**
+     * @return true if every reachable state was explored, false if a limit stopped the exploration
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the milliseconds the exploration took
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+}
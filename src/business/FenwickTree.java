@@ -0,0 +1,115 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Binary indexed (Fenwick) tree over non-negative weights. Changing a weight, computing a
+ * prefix sum and finding the element at a given cumulative weight all take O(log n), which
+ * makes it the sampling structure for weighted random choices among elements whose weights
+ * change one at a time.
+ */
+public class FenwickTree {
+
+    /** Partial sums, 1-based. */
+    private final double[] tree;
+    /** Current weight of every element. */
+    private final double[] weights;
+
+    /**
+     * Creates a tree of n elements, all of weight 0.
+     *
+     * @param n Number of elements.
+     */
+    public FenwickTree(int n) {
+        this.tree = new double[n + 1];
+        this.weights = new double[n];
+    }
+
+    /**
+     * Sets the weight of an element.
+     *
+     * @param i      The element index, from 0.
+     * @param weight The new weight, not negative.
+     */
+    public void set(int i, double weight) {
+        double delta = weight - weights[i];
+        if (delta == 0) {
+            return;
+        }
+        weights[i] = weight;
+        for (int k = i + 1; k < tree.length; k += k & -k) {
+            tree[k] += delta;
+        }
+    }
+
+    /**
+     * @param i The element index, from 0.
+     * @return the weight of the element
+     */
+    public double get(int i) {
+        return weights[i];
+    }
+
+    /**
+     * Returns the sum of the weights of the elements before an index.
+     *
+     * @param i The index, from 0 to the size.
+     * @return the prefix sum
+     */
+    public double prefix(int i) {
+        double sum = 0;
+        for (int k = i; k > 0; k -= k & -k) {
+            sum += tree[k];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the sum of all weights
+     */
+    public double total() {
+        return prefix(weights.length);
+    }
+
+    /**
+     * Finds the element covering a cumulative weight: the first element whose prefix sum
+     * including itself exceeds the value. Elements of weight 0 are never returned unless
+     * rounding errors push the value past the last positive weight, in which case the last
+     * element of positive weight is returned.
+     *
+     * @param value A value between 0 and {@link #total()}.
+     * @return the element index, or -1 if all weights are 0
+     */
+    public int find(double value) {
+        int position = 0;
+        int step = Integer.highestOneBit(Math.max(1, weights.length));
+        for (; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= value) {
+                position = next;
+                value -= tree[next];
+            }
+        }
+        // position is the number of elements whose cumulative weight does not exceed value
+        if (position < weights.length && weights[position] > 0) {
+            return position;
+        }
+        for (int i = Math.min(position, weights.length - 1); i >= 0; i--) {
+            if (weights[i] > 0) {
+                return i;
+            }
+        }
+        for (int i = position; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of elements
+     */
+    public int size() {
+        return weights.length;
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+
+/**
+ * Describes a single transition firing: which transition fired, at which step and
+ * simulation clock, and which tokens were consumed from and produced into which places.
+ * <p>
+ * Events are created by {@link Transition#fire(long)} on the simulation thread and handed
+ * to {@link FiringListener}s. They only hold references to the moved tokens, so creating
+ * one costs no string formatting; text is produced lazily by {@link #toString()}, usually
+ * on a background {@link TraceWriter} thread.
+ * </p>
+ */
+public class FiringEvent {
+
+    /** Separator line written after every firing in text traces. */
+    public static final String SEPARATOR = "----------------------------";
+
+    /** Sequence number of this firing within the run (1 based). */
+    private long step;
+
+    /** Simulation clock at which the transition fired. */
+    private long clock;
+
+    /** Exact simulated time of the firing, which may lie between two clock ticks. */
+    private double time;
+
+    /** The transition that fired. */
+    private Transition transition;
+
+    /** Places tokens were consumed from, aligned with {@link #consumed}. */
+    private ArrayList<Place> consumedPlaces = new ArrayList<>();
+
+    /** Tokens consumed by the firing. */
+    private ArrayList<Token> consumed = new ArrayList<>();
+
+    /** Places tokens were produced into, aligned with {@link #produced}. */
+    private ArrayList<Place> producedPlaces = new ArrayList<>();
+
+    /** Tokens produced by the firing. */
+    private ArrayList<Token> produced = new ArrayList<>();
+
+    /**
+     * Creates a firing event for a transition.
+     *
+     * @param transition The transition that fired.
+     * @param clock      The simulation clock at firing time.
+     */
+    public FiringEvent(Transition transition, long clock) {
+        this.transition = transition;
+        this.clock = clock;
+        this.time = clock;
+    }
+
+    /**
+     * Records a token consumed from a place.
+     *
+     * @param place The input place.
+     * @param token The consumed token.
+     */
+    public void addConsumed(Place place, Token token) {
+        this.consumedPlaces.add(place);
+        this.consumed.add(token);
+    }
+
+    /**
+     * Records a token produced into a place.
+     *
+     * @param place The output place.
+     * @param token The produced token.
+     */
+    public void addProduced(Place place, Token token) {
+        this.producedPlaces.add(place);
+        this.produced.add(token);
+    }
+
+    /**
+     * Returns the text trace of this firing: a "- " line per consumed token, the fired
+     * transition, a "+ " line per produced token and a separator line. The transition and
+     * separator lines are those of the old simulator log, but where that log printed the
+     * expression of every arc, these lines print the contents of every token moved.
+     *
+     * @return the formatted firing, terminated by a line break
+     */
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (Token token : consumed) {
+            s.append("- ").append(token).append('\n');
+        }
+        if (!transition.getLabel().equals(transition.getId())) {
+            s.append(transition.getLabel()).append(" (").append(transition.getId()).append(") fired!\n");
+        } else {
+            s.append(transition.getId()).append(" fired.\n");
+        }
+        for (Token token : produced) {
+            s.append("+ ").append(token).append('\n');
+        }
+        s.append(SEPARATOR).append('\n');
+        return s.toString();
+    }
+
+    /**
+     * @return the step
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @param step the step to set
+     */
+    public void setStep(long step) {
+        this.step = step;
+    }
+
+    /**
+     * @return the clock
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the exact simulated time, equal to the clock unless time is continuous
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @param time the exact simulated time to set
+     */
+    public void setTime(double time) {
+        this.time = time;
+    }
+
+    /**
+     * @return the transition
+     */
+    public Transition getTransition() {
+        return transition;
+    }
+
+    /**
+     * @return the places tokens were consumed from
+     */
+    public ArrayList<Place> getConsumedPlaces() {
+        return consumedPlaces;
+    }
+
+    /**
+     * @return the consumed tokens
+     */
+    public ArrayList<Token> getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return the places tokens were produced into
+     */
+    public ArrayList<Place> getProducedPlaces() {
+        return producedPlaces;
+    }
+
+    /**
+     * @return the produced tokens
+     */
+    public ArrayList<Token> getProduced() {
+        return produced;
+    }
+}
@@ -0,0 +1,33 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Receives the firings of a running {@link Simulation}.
+ * The FiringListener interface is an example of the Observer design pattern.
+ * Listeners are registered on a simulation and are notified on the simulation thread,
+ * so implementations must return quickly; expensive work such as formatting or I/O
+ * belongs on another thread (see {@link TraceWriter}).
+ */
+public interface FiringListener {
+
+    /**
+     * Called once on the simulation thread before the first transition fires.
+     *
+     * @param simulation the simulation that is starting
+     */
+    public void simulationStarted(Simulation simulation);
+
+    /**
+     * Called on the simulation thread after every transition firing.
+     *
+     * @param event the firing that just happened
+     */
+    public void transitionFired(FiringEvent event);
+
+    /**
+     * Called once on the simulation thread after the last transition fired.
+     *
+     * @param simulation the simulation that finished
+     */
+    public void simulationFinished(Simulation simulation);
+}
@@ -0,0 +1,443 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+
+/**
+ * A temporal property of a net in linear (LTL) or branching (CTL) time, checked by the
+ * {@link ModelChecker}.
+ * <p>
+ * Atomic propositions compare the tokens of a place with a number, e.g. {@code p3 > 0} or
+ * {@code buffer <= 4}, say that a transition fires, e.g. {@code t5 fires}, or say that no
+ * transition can fire, {@code dead}; {@code true} and {@code false} are constants. They are
+ * combined with {@code !}, {@code &&}, {@code ||}, {@code ->} and parentheses. LTL adds
+ * {@code X}, {@code F}, {@code G} and the binary {@code U} and {@code R}; CTL adds {@code EX},
+ * {@code AX}, {@code EF}, {@code AF}, {@code EG}, {@code AG}, {@code E[a U b]} and
+ * {@code A[a U b]}. The two cannot be mixed in one formula. Place and transition ids are
+ * recognized by what follows them, so an id may also be an operator name.
+ * </p>
+ * <p>
+ * On a run, {@code t fires} holds at a step if t is the transition fired next. CTL speaks
+ * of states, where it holds if t can fire next. A dead marking repeats forever, with no
+ * transition firing.
+ * </p>
+ * A Formula is immutable.
+ */
+public final class Formula {
+
+    /** Kinds of formulas. */
+    public static final int TRUE = 0;
+    public static final int FALSE = 1;
+    public static final int ATOM = 2;
+    public static final int NOT = 3;
+    public static final int AND = 4;
+    public static final int OR = 5;
+    public static final int IMPLIES = 6;
+    public static final int NEXT = 7;
+    public static final int FINALLY = 8;
+    public static final int GLOBALLY = 9;
+    public static final int UNTIL = 10;
+    public static final int RELEASE = 11;
+    public static final int EX = 12;
+    public static final int AX = 13;
+    public static final int EF = 14;
+    public static final int AF = 15;
+    public static final int EG = 16;
+    public static final int AG = 17;
+    public static final int EU = 18;
+    public static final int AU = 19;
+
+    /** Kinds of atomic propositions. */
+    static final int TOKENS = 0;
+    static final int FIRES = 1;
+    static final int DEAD = 2;
+
+    /** Comparisons of token counts. */
+    static final int LESS = 0;
+    static final int LESS_EQUAL = 1;
+    static final int GREATER = 2;
+    static final int GREATER_EQUAL = 3;
+    static final int EQUAL = 4;
+    static final int NOT_EQUAL = 5;
+
+    private static final String[] COMPARISONS = {"<", "<=", ">", ">=", "==", "!="};
+    private static final String[] UNARY = {"X", "F", "G", "EX", "AX", "EF", "AF", "EG", "AG"};
+    private static final int[] UNARY_KINDS = {NEXT, FINALLY, GLOBALLY, EX, AX, EF, AF, EG, AG};
+
+    private final int kind;
+    private final Formula left;
+    private final Formula right;
+    private final int atom;
+    private final int index;
+    private final int comparison;
+    private final int value;
+    private final String id;
+
+    private Formula(int kind, Formula left, Formula right, int atom, int index, int comparison, int value, String id) {
+        this.kind = kind;
+        this.left = left;
+        this.right = right;
+        this.atom = atom;
+        this.index = index;
+        this.comparison = comparison;
+        this.value = value;
+        this.id = id;
+    }
+
+    private static Formula operator(int kind, Formula left, Formula right) {
+        return new Formula(kind, left, right, 0, -1, 0, 0, null);
+    }
+
+    /**
+     * @param formula a formula
+     * @return its negation
+     */
+    public static Formula not(Formula formula) {
+        return operator(NOT, formula, null);
+    }
+
+    /**
+     * Parses a formula.
+     *
+     * @param text     The formula, e.g. {@code G (req fires -> F ack fires)} or {@code AG EF p1 > 0}.
+     * @param topology The net whose place and transition ids the formula uses.
+     * @return the formula
+     * @throws IllegalArgumentException if the text is not a formula over the net, or mixes LTL and CTL
+     */
+    public static Formula parse(String text, NetTopology topology) {
+        Parser parser = new Parser(text, topology);
+        Formula formula = parser.implication();
+        if (parser.position < parser.tokens.size()) {
+            throw parser.error("Unexpected " + parser.tokens.get(parser.position));
+        }
+        if (!formula.isLtl() && !formula.isCtl()) {
+            throw new IllegalArgumentException("Formula mixes LTL and CTL operators: " + text);
+        }
+        return formula;
+    }
+
+    /**
+     * @return the kind of the formula, e.g. {@link #UNTIL}
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the operand of a unary operator or the left operand of a binary one, or null
+     */
+    public Formula getLeft() {
+        return left;
+    }
+
+    /**
+     * @return the right operand of a binary operator, or null
+     */
+    public Formula getRight() {
+        return right;
+    }
+
+    /**
+     * @return true if the formula has no CTL operators
+     */
+    public boolean isLtl() {
+        if (kind >= EX) {
+            return false;
+        }
+        return (left == null || left.isLtl()) && (right == null || right.isLtl());
+    }
+
+    /**
+     * @return true if the formula has no LTL operators
+     */
+    public boolean isCtl() {
+        if (kind >= NEXT && kind <= RELEASE) {
+            return false;
+        }
+        return (left == null || left.isCtl()) && (right == null || right.isCtl());
+    }
+
+    /**
+     * Evaluates an atomic proposition at a step of a run.
+     *
+     * @param tokens     The marking.
+     * @param firable    The transitions that can fire in the marking.
+     * @param transition The transition fired next, -1 in a dead marking.
+     */
+    boolean holdsOnStep(int[] tokens, int[] firable, int transition) {
+        if (atom == FIRES) {
+            return transition == index;
+        }
+        return holdsInState(tokens, firable);
+    }
+
+    /**
+     * Evaluates an atomic proposition in a state.
+     *
+     * @param tokens  The marking.
+     * @param firable The transitions that can fire in the marking.
+     */
+    boolean holdsInState(int[] tokens, int[] firable) {
+        switch (atom) {
+            case FIRES:
+                for (int t : firable) {
+                    if (t == index) {
+                        return true;
+                    }
+                }
+                return false;
+            case DEAD:
+                return firable.length == 0;
+            default:
+                int count = tokens[index];
+                switch (comparison) {
+                    case LESS:
+                        return count < value;
+                    case LESS_EQUAL:
+                        return count <= value;
+                    case GREATER:
+                        return count > value;
+                    case GREATER_EQUAL:
+                        return count >= value;
+                    case EQUAL:
+                        return count == value;
+                    default:
+                        return count != value;
+                }
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case TRUE:
+                return "true";
+            case FALSE:
+                return "false";
+            case ATOM:
+                if (atom == DEAD) {
+                    return "dead";
+                }
+                return atom == FIRES ? id + " fires" : id + " " + COMPARISONS[comparison] + " " + value;
+            case NOT:
+                return "!" + operand(left);
+            case AND:
+                return operand(left) + " && " + operand(right);
+            case OR:
+                return operand(left) + " || " + operand(right);
+            case IMPLIES:
+                return operand(left) + " -> " + operand(right);
+            case UNTIL:
+                return operand(left) + " U " + operand(right);
+            case RELEASE:
+                return operand(left) + " R " + operand(right);
+            case EU:
+                return "E[" + operand(left) + " U " + operand(right) + "]";
+            case AU:
+                return "A[" + operand(left) + " U " + operand(right) + "]";
+            default:
+                for (int i = 0; i < UNARY_KINDS.length; i++) {
+                    if (UNARY_KINDS[i] == kind) {
+                        return UNARY[i] + " " + operand(left);
+                    }
+                }
+                throw new IllegalStateException("Unknown kind " + kind);
+        }
+    }
+
+    /** Returns an operand, in parentheses unless it is atomic or unary. */
+    private static String operand(Formula formula) {
+        boolean binary = formula.kind == AND || formula.kind == OR || formula.kind == IMPLIES
+                || formula.kind == UNTIL || formula.kind == RELEASE || formula.kind == ATOM && formula.atom == TOKENS;
+        return binary ? "(" + formula + ")" : formula.toString();
+    }
+
+    /**
+     * A recursive descent parser. Binary operators bind from weakest to strongest as
+     * {@code ->}, {@code ||}, {@code &&}, {@code U} and {@code R}; unary operators bind
+     * strongest.
+     */
+    private static class Parser {
+
+        final ArrayList<String> tokens = new ArrayList<>();
+        final NetTopology topology;
+        final String text;
+        int position;
+
+        Parser(String text, NetTopology topology) {
+            this.text = text;
+            this.topology = topology;
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (Character.isLetterOrDigit(c) || c == '_') {
+                    int start = i;
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_' || text.charAt(i) == '.')) {
+                        i++;
+                    }
+                    tokens.add(text.substring(start, i));
+                } else if (i + 1 < text.length() && isPair(text.substring(i, i + 2))) {
+                    tokens.add(text.substring(i, i + 2));
+                    i += 2;
+                } else if ("()[]!<>=".indexOf(c) >= 0) {
+                    tokens.add(c == '=' ? "==" : String.valueOf(c));
+                    i++;
+                } else {
+                    throw error("Unexpected character '" + c + "'");
+                }
+            }
+        }
+
+        private static boolean isPair(String s) {
+            return s.equals("&&") || s.equals("||") || s.equals("->") || s.equals("<=") || s.equals(">=")
+                    || s.equals("==") || s.equals("!=");
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in formula: " + text);
+        }
+
+        String peek(int ahead) {
+            return position + ahead < tokens.size() ? tokens.get(position + ahead) : null;
+        }
+
+        boolean accept(String token) {
+            if (token.equals(peek(0))) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected " + token + (peek(0) == null ? " at the end" : " before " + peek(0)));
+            }
+        }
+
+        Formula implication() {
+            Formula formula = disjunction();
+            if (accept("->")) {
+                formula = operator(IMPLIES, formula, implication());
+            }
+            return formula;
+        }
+
+        Formula disjunction() {
+            Formula formula = conjunction();
+            while (accept("||")) {
+                formula = operator(OR, formula, conjunction());
+            }
+            return formula;
+        }
+
+        Formula conjunction() {
+            Formula formula = until();
+            while (accept("&&")) {
+                formula = operator(AND, formula, until());
+            }
+            return formula;
+        }
+
+        Formula until() {
+            Formula formula = unary();
+            if (!isAtomStart() && accept("U")) {
+                formula = operator(UNTIL, formula, until());
+            } else if (!isAtomStart() && accept("R")) {
+                formula = operator(RELEASE, formula, until());
+            }
+            return formula;
+        }
+
+        Formula unary() {
+            String token = peek(0);
+            if (token == null) {
+                throw error("Unexpected end");
+            }
+            if (isAtomStart()) {
+                return atom();
+            }
+            if (accept("!")) {
+                return not(unary());
+            }
+            if (accept("(")) {
+                Formula formula = implication();
+                expect(")");
+                return formula;
+            }
+            if (("E".equals(token) || "A".equals(token)) && "[".equals(peek(1))) {
+                position += 2;
+                Formula formula = implication();
+                expect("]");
+                if (formula.kind != UNTIL) {
+                    throw error("Expected an until formula after " + token + "[");
+                }
+                return operator(token.equals("E") ? EU : AU, formula.left, formula.right);
+            }
+            for (int i = 0; i < UNARY.length; i++) {
+                if (UNARY[i].equals(token)) {
+                    position++;
+                    return operator(UNARY_KINDS[i], unary(), null);
+                }
+            }
+            if (accept("true")) {
+                return operator(TRUE, null, null);
+            }
+            if (accept("false")) {
+                return operator(FALSE, null, null);
+            }
+            if (accept("dead")) {
+                return new Formula(ATOM, null, null, DEAD, -1, 0, 0, null);
+            }
+            throw error("Unexpected " + token);
+        }
+
+        /** Checks whether the next token is an id followed by a comparison or "fires". */
+        boolean isAtomStart() {
+            String next = peek(1);
+            if (next == null || peek(0).equals("(") || peek(0).equals("!")) {
+                return false;
+            }
+            if (next.equals("fires")) {
+                return true;
+            }
+            for (String comparison : COMPARISONS) {
+                if (comparison.equals(next)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Formula atom() {
+            String name = tokens.get(position++);
+            String operator = tokens.get(position++);
+            if (operator.equals("fires")) {
+                int transition = topology.indexOfTransition(name);
+                if (transition < 0) {
+                    throw error("Unknown transition " + name);
+                }
+                return new Formula(ATOM, null, null, FIRES, transition, 0, 0, name);
+            }
+            int place = topology.indexOfPlace(name);
+            if (place < 0) {
+                throw error("Unknown place " + name);
+            }
+            String number = peek(0);
+            int value;
+            try {
+                value = Integer.parseInt(number);
+            } catch (NumberFormatException | NullPointerException ex) {
+                throw error("Expected a number after " + name + " " + operator);
+            }
+            position++;
+            int comparison = 0;
+            while (!COMPARISONS[comparison].equals(operator)) {
+                comparison++;
+            }
+            return new Formula(ATOM, null, null, TOKENS, place, comparison, value, name);
+        }
+    }
+}
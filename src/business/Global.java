@@ -9,11 +9,13 @@ package business;
  * 
  * The Global class is an example of the Singleton design pattern. 
  * This pattern ensures that a class has only one instance and provides a global point of access to it.
+ * Editor windows keep their net and mode in a {@link Session} instead; the net held here is
+ * the default net used by code that does not pass a net explicitly.
  */
 public class Global {
 
 /** 
-     * Holds the current instance of the PetriNet model for the application.
+     * Holds the default instance of the PetriNet model, used when no net or session is given.
      */
     public static PetriNet petriNet = new PetriNet();
 
@@ -0,0 +1,212 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.Arrays;
+
+/**
+ * A state store in memory that keeps markings as compact byte strings in one large array
+ * and finds them through an open-addressing hash table.
+ * <p>
+ * Every token count is written as a variable-length number of 7-bit groups, so a place with
+ * fewer than 128 tokens takes one byte. The hash table holds only state numbers and uses
+ * linear probing; the hash of every state is kept so growing the table does not decode
+ * states. There are no objects per state, which keeps millions of states cheap for the
+ * garbage collector.
+ * </p>
+ * A HashedStateStore is not thread-safe.
+ */
+public class HashedStateStore implements StateStore {
+
+    private static final int INITIAL_TABLE = 1 << 10;
+
+    /** The encoded states one after another. */
+    private byte[] data = new byte[1 << 12];
+    private int dataSize;
+    /** Start of every state in data; the entry after the last state marks the end. */
+    private int[] offsets = new int[INITIAL_TABLE + 1];
+    private int[] hashes = new int[INITIAL_TABLE];
+    private int size;
+
+    /** State numbers plus one, 0 for empty slots. */
+    private int[] table = new int[INITIAL_TABLE];
+    private byte[] buffer = new byte[64];
+
+    @Override
+    public int add(int[] marking) {
+        int length = encode(marking);
+        int hash = hash(buffer, length);
+        int slot = find(hash, length);
+        if (table[slot] != 0) {
+            return -table[slot];
+        }
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        if (dataSize + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + length));
+        }
+        System.arraycopy(buffer, 0, data, dataSize, length);
+        dataSize += length;
+        hashes[size] = hash;
+        offsets[size + 1] = dataSize;
+        table[slot] = ++size;
+        if (size * 4 > table.length * 3) {
+            rehash(table.length * 2);
+        }
+        return size - 1;
+    }
+
+    @Override
+    public int indexOf(int[] marking) {
+        int length = encode(marking);
+        int slot = find(hash(buffer, length), length);
+        return table[slot] - 1;
+    }
+
+    @Override
+    public int[] get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("No state " + index);
+        }
+        return decode(data, offsets[index], offsets[index + 1]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes taken by the encoded states
+     */
+    public long getEncodedBytes() {
+        return dataSize;
+    }
+
+    /**
+     * Writes a marking into the buffer.
+     *
+     * @return the number of bytes written
+     */
+    private int encode(int[] marking) {
+        if (buffer.length < marking.length * 5) {
+            buffer = new byte[marking.length * 5];
+        }
+        return encode(marking, buffer);
+    }
+
+    /**
+     * Writes token counts as groups of 7 bits, lowest first, with the high bit set on all
+     * groups but the last of a count.
+     *
+     * @param marking The token counts.
+     * @param bytes   The target, at least five bytes per count.
+     * @return the number of bytes written
+     */
+    static int encode(int[] marking, byte[] bytes) {
+        int length = 0;
+        for (int i = 0; i < marking.length; i++) {
+            int value = marking[i];
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative token count " + value);
+            }
+            while (value >= 0x80) {
+                bytes[length++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+        return length;
+    }
+
+    /**
+     * Reads token counts written by {@link #encode(int[], byte[])}.
+     *
+     * @param bytes The encoded counts.
+     * @param start The first byte.
+     * @param end   The byte after the last.
+     * @return the token counts
+     */
+    static int[] decode(byte[] bytes, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] >= 0) {
+                count++;
+            }
+        }
+        int[] marking = new int[count];
+        int p = 0;
+        int value = 0;
+        int shift = 0;
+        for (int i = start; i < end; i++) {
+            value |= (bytes[i] & 0x7f) << shift;
+            if (bytes[i] >= 0) {
+                marking[p++] = value;
+                value = 0;
+                shift = 0;
+            } else {
+                shift += 7;
+            }
+        }
+        return marking;
+    }
+
+    /**
+     * Hashes encoded bytes with FNV-1a and a final mix, so similar markings spread over the table.
+     */
+    static int hash(byte[] bytes, int length) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /**
+     * Returns the slot holding the encoded marking in the buffer, or the empty slot where it belongs.
+     */
+    private int find(int hash, int length) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int index = table[slot] - 1;
+            if (hashes[index] == hash && equalsBuffer(index, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Compares a stored state with the buffer. */
+    private boolean equalsBuffer(int index, int length) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[start + i] != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Moves all states into a table of a new size. */
+    private void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hashes[index] & mask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = index + 1;
+        }
+        table = newTable;
+    }
+}
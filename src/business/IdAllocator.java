@@ -0,0 +1,40 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out increasing numbers for the ids of net objects.
+ * Allocation is atomic, so objects may be created concurrently by several threads without
+ * getting the same number. Every net has its own allocator for the objects created through
+ * it, and one shared allocator numbers objects created on their own.
+ */
+public class IdAllocator {
+
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Returns the next number.
+     *
+     * @return a number never returned before by this allocator, unless it was reset
+     */
+    public long next() {
+        return next.getAndIncrement();
+    }
+
+    /**
+     * Returns the number the next call to {@link #next()} will return.
+     *
+     * @return the next number
+     */
+    public long peek() {
+        return next.get();
+    }
+
+    /**
+     * Starts numbering from 0 again.
+     */
+    public void reset() {
+        next.set(0);
+    }
+}
@@ -0,0 +1,208 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * The incidence matrix of a net in sparse form: entry (p, t) is the number of tokens
+ * transition t puts into place p minus the number it takes from it.
+ * <p>
+ * Only non-zero entries are kept, both by rows (compressed sparse rows, one row per place)
+ * and by columns (compressed sparse columns, one column per transition), so a row or a
+ * column can be walked in time proportional to its entries. Arcs in both directions between
+ * a place and a transition cancel out.
+ * </p>
+ */
+public class IncidenceMatrix {
+
+    private final int rows;
+    private final int columns;
+    private final int[] rowStart;
+    private final int[] rowColumns;
+    private final int[] rowValues;
+    private final int[] columnStart;
+    private final int[] columnRows;
+    private final int[] columnValues;
+
+    /**
+     * Creates the incidence matrix of a net from its input and output arcs.
+     *
+     * @param net The net.
+     */
+    public IncidenceMatrix(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates the incidence matrix of a topology.
+     *
+     * @param topology The topology.
+     */
+    public IncidenceMatrix(NetTopology topology) {
+        rows = topology.getPlaceCount();
+        columns = topology.getTransitionCount();
+        int[] effect = new int[rows];
+        columnStart = new int[columns + 1];
+        int count = 0;
+        for (int t = 0; t < columns; t++) {
+            count += topology.getInputCount(t) + topology.getOutputCount(t);
+        }
+        int[] entryRows = new int[count];
+        int[] entryValues = new int[count];
+        count = 0;
+        for (int t = 0; t < columns; t++) {
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                effect[topology.getInputPlace(t, i)] -= topology.getInputWeight(t, i);
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                effect[topology.getOutputPlace(t, i)] += topology.getOutputWeight(t, i);
+            }
+            for (int p = 0; p < rows; p++) {
+                if (effect[p] != 0) {
+                    entryRows[count] = p;
+                    entryValues[count++] = effect[p];
+                    effect[p] = 0;
+                }
+            }
+            columnStart[t + 1] = count;
+        }
+        columnRows = new int[count];
+        columnValues = new int[count];
+        System.arraycopy(entryRows, 0, columnRows, 0, count);
+        System.arraycopy(entryValues, 0, columnValues, 0, count);
+
+        rowStart = new int[rows + 1];
+        for (int k = 0; k < count; k++) {
+            rowStart[columnRows[k] + 1]++;
+        }
+        for (int p = 0; p < rows; p++) {
+            rowStart[p + 1] += rowStart[p];
+        }
+        rowColumns = new int[count];
+        rowValues = new int[count];
+        int[] next = rowStart.clone();
+        for (int t = 0; t < columns; t++) {
+            for (int k = columnStart[t]; k < columnStart[t + 1]; k++) {
+                int position = next[columnRows[k]]++;
+                rowColumns[position] = t;
+                rowValues[position] = columnValues[k];
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows, i.e. of places
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns, i.e. of transitions
+     */
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /**
+     * @return the number of non-zero entries
+     */
+    public int getEntryCount() {
+        return rowColumns.length;
+    }
+
+    /**
+     * @param place      the index of a place
+     * @param transition the index of a transition
+     * @return the change of the number of tokens of the place when the transition fires
+     */
+    public int get(int place, int transition) {
+        for (int k = rowStart[place]; k < rowStart[place + 1]; k++) {
+            if (rowColumns[k] == transition) {
+                return rowValues[k];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param place the index of a place
+     * @return the position of the first entry of the row in {@link #getRowColumn(int)} and {@link #getRowValue(int)}
+     */
+    public int getRowStart(int place) {
+        return rowStart[place];
+    }
+
+    /**
+     * @param place the index of a place
+     * @return the position after the last entry of the row
+     */
+    public int getRowEnd(int place) {
+        return rowStart[place + 1];
+    }
+
+    /**
+     * @param k the position of an entry in row order
+     * @return the column of the entry
+     */
+    public int getRowColumn(int k) {
+        return rowColumns[k];
+    }
+
+    /**
+     * @param k the position of an entry in row order
+     * @return the value of the entry
+     */
+    public int getRowValue(int k) {
+        return rowValues[k];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the position of the first entry of the column in {@link #getColumnRow(int)} and {@link #getColumnValue(int)}
+     */
+    public int getColumnStart(int transition) {
+        return columnStart[transition];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the position after the last entry of the column
+     */
+    public int getColumnEnd(int transition) {
+        return columnStart[transition + 1];
+    }
+
+    /**
+     * @param k the position of an entry in column order
+     * @return the row of the entry
+     */
+    public int getColumnRow(int k) {
+        return columnRows[k];
+    }
+
+    /**
+     * @param k the position of an entry in column order
+     * @return the value of the entry
+     */
+    public int getColumnValue(int k) {
+        return columnValues[k];
+    }
+
+    /**
+     * Multiplies the matrix with a vector of transition counts, giving the change of the
+     * marking after firing every transition that often.
+     *
+     * @param firings The number of firings of every transition.
+     * @return the change of every place
+     */
+    public long[] multiply(long[] firings) {
+        long[] change = new long[rows];
+        for (int t = 0; t < columns; t++) {
+            if (firings[t] != 0) {
+                for (int k = columnStart[t]; k < columnStart[t + 1]; k++) {
+                    change[columnRows[k]] = Math.addExact(change[columnRows[k]], Math.multiplyExact(firings[t], (long) columnValues[k]));
+                }
+            }
+        }
+        return change;
+    }
+}
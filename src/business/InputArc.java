@@ -26,11 +26,14 @@ import java.util.Iterator;
  */
 public class InputArc extends Arc implements Inscription {
 
+    /** Evaluation expression of an arc that only requires a token in its place. */
+    public static final String DEFAULT_EVALUATE = "getTokenSet().size()>0";
+
     /** 
      * A text string representing the default expression that this arc evaluates.
      * By default, it checks if the size of the token set is greater than 0.
      */
-    private String evaluateText = "getTokenSet().size()>0";
+    private String evaluateText = DEFAULT_EVALUATE;
 
     /** 
      * A text string representing the default expression that this arc executes.
@@ -46,19 +49,10 @@ public class InputArc extends Arc implements Inscription {
      * @param transition The transition associated with this arc.
      */
     public InputArc(Place place, Transition transition) {
-        this.id = generateId();  // Call a method to generate a unique ID for this arc.
+        this.id = "i" + this.id;
         this.place = place;
         this.transition = transition;
     }
-    
-    /**
-     * Generates a unique identifier for the InputArc.
-     *
-     * @return A unique identifier string.
-     */
-    private String generateId() {
-        return "i" + System.currentTimeMillis();
-    }
 
     /**
      * Constructs a new instance of InputArc, initializing its attributes with the given parameters.
@@ -0,0 +1,297 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A small integer linear program over non-negative variables, solved with a two-phase
+ * simplex method on a dense tableau and depth-first branch and bound, used by
+ * {@link StateEquation}.
+ * <p>
+ * The program only asks for a feasible integer point; among the points of every relaxation the
+ * simplex method picks one with the smallest sum of variables, which keeps the branches of
+ * programs with unbounded solution sets short. Pivots follow Bland's rule, so degenerate
+ * programs do not cycle. Arithmetic is in doubles with a fixed tolerance, which suits the
+ * small coefficients of nets; callers check integer solutions exactly.
+ * </p>
+ */
+final class IntegerProgram {
+
+    /** Senses of constraints. */
+    static final int LESS = -1;
+    static final int EQUAL = 0;
+    static final int GREATER = 1;
+
+    /** Outcomes of {@link #solve()}. */
+    static final int FEASIBLE = 0;
+    static final int INFEASIBLE = 1;
+    static final int UNKNOWN = 2;
+
+    private static final double EPSILON = 1e-9;
+    private static final double INTEGRALITY = 1e-6;
+
+    private final int variables;
+    private final ArrayList<double[]> rows = new ArrayList<>();
+    private final ArrayList<Integer> senses = new ArrayList<>();
+    private final ArrayList<Double> bounds = new ArrayList<>();
+    private int maxNodes = 1000;
+    private long[] solution;
+    /** Whether a relaxation ran out of iterations, so infeasibility is not proven. */
+    private boolean undecided;
+
+    /**
+     * Creates a program without constraints.
+     *
+     * @param variables The number of variables.
+     */
+    IntegerProgram(int variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Adds a constraint: the sum of coefficients times variables is less than, equal to or
+     * greater than a bound.
+     */
+    void addConstraint(double[] coefficients, int sense, double bound) {
+        rows.add(coefficients);
+        senses.add(sense);
+        bounds.add(bound);
+    }
+
+    void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @return the integer point found by the last feasible {@link #solve()}
+     */
+    long[] getSolution() {
+        return solution;
+    }
+
+    /**
+     * Searches an integer point satisfying all constraints.
+     *
+     * @return {@link #FEASIBLE}, {@link #INFEASIBLE}, or {@link #UNKNOWN} if the node limit was reached
+     */
+    int solve() {
+        solution = null;
+        undecided = false;
+        ArrayDeque<long[][]> open = new ArrayDeque<>();
+        long[] lower = new long[variables];
+        long[] upper = new long[variables];
+        Arrays.fill(upper, -1);
+        open.push(new long[][] {lower, upper});
+        int nodes = 0;
+        while (!open.isEmpty()) {
+            if (++nodes > maxNodes) {
+                return UNKNOWN;
+            }
+            long[][] node = open.pop();
+            double[] x = relax(node[0], node[1]);
+            if (x == null) {
+                continue;
+            }
+            int branch = -1;
+            double worst = INTEGRALITY;
+            for (int j = 0; j < variables; j++) {
+                double fraction = Math.abs(x[j] - Math.rint(x[j]));
+                if (fraction > worst) {
+                    worst = fraction;
+                    branch = j;
+                }
+            }
+            if (branch < 0) {
+                solution = new long[variables];
+                for (int j = 0; j < variables; j++) {
+                    solution[j] = Math.round(x[j]);
+                }
+                return FEASIBLE;
+            }
+            long[] upLower = node[0].clone();
+            upLower[branch] = (long) Math.ceil(x[branch]);
+            open.push(new long[][] {upLower, node[1]});
+            long[] downUpper = node[1].clone();
+            downUpper[branch] = (long) Math.floor(x[branch]);
+            open.push(new long[][] {node[0], downUpper});
+        }
+        return undecided ? UNKNOWN : INFEASIBLE;
+    }
+
+    /**
+     * Solves the linear relaxation within bounds on the variables.
+     *
+     * @param lower The lower bound of every variable.
+     * @param upper The upper bound of every variable, -1 for none.
+     * @return a point with the smallest sum of variables, or null if there is none or the
+     *         simplex method gave up
+     */
+    private double[] relax(long[] lower, long[] upper) {
+        ArrayList<double[]> a = new ArrayList<>(rows);
+        ArrayList<Integer> sense = new ArrayList<>(senses);
+        ArrayList<Double> b = new ArrayList<>(bounds);
+        for (int j = 0; j < variables; j++) {
+            if (lower[j] > 0) {
+                double[] row = new double[variables];
+                row[j] = 1;
+                a.add(row);
+                sense.add(GREATER);
+                b.add((double) lower[j]);
+            }
+            if (upper[j] >= 0) {
+                double[] row = new double[variables];
+                row[j] = 1;
+                a.add(row);
+                sense.add(LESS);
+                b.add((double) upper[j]);
+            }
+        }
+        int m = a.size();
+        int slacks = 0;
+        int artificials = 0;
+        int[] kind = new int[m];
+        for (int i = 0; i < m; i++) {
+            kind[i] = b.get(i) < 0 ? -sense.get(i) : sense.get(i);
+            if (kind[i] != EQUAL) {
+                slacks++;
+            }
+            if (kind[i] != LESS) {
+                artificials++;
+            }
+        }
+        int columns = variables + slacks + artificials;
+        double[][] t = new double[m][columns + 1];
+        int[] basis = new int[m];
+        int slack = variables;
+        int artificial = variables + slacks;
+        for (int i = 0; i < m; i++) {
+            double sign = b.get(i) < 0 ? -1 : 1;
+            double[] row = a.get(i);
+            for (int j = 0; j < variables; j++) {
+                t[i][j] = sign * row[j];
+            }
+            t[i][columns] = sign * b.get(i);
+            if (kind[i] == LESS) {
+                t[i][slack] = 1;
+                basis[i] = slack++;
+            } else {
+                if (kind[i] == GREATER) {
+                    t[i][slack++] = -1;
+                }
+                t[i][artificial] = 1;
+                basis[i] = artificial++;
+            }
+        }
+
+        double[] cost = new double[columns];
+        for (int j = variables + slacks; j < columns; j++) {
+            cost[j] = 1;
+        }
+        if (!simplex(t, basis, cost, columns)) {
+            undecided = true;
+            return null;
+        }
+        double infeasibility = 0;
+        for (int i = 0; i < m; i++) {
+            if (basis[i] >= variables + slacks) {
+                infeasibility += t[i][columns];
+            }
+        }
+        if (infeasibility > INTEGRALITY) {
+            return null;
+        }
+        for (int i = 0; i < m; i++) {
+            if (basis[i] >= variables + slacks) {
+                for (int j = 0; j < variables + slacks; j++) {
+                    if (Math.abs(t[i][j]) > EPSILON) {
+                        pivot(t, basis, i, j);
+                        break;
+                    }
+                }
+            }
+        }
+
+        cost = new double[columns];
+        for (int j = 0; j < variables; j++) {
+            cost[j] = 1;
+        }
+        if (!simplex(t, basis, cost, variables + slacks)) {
+            undecided = true;
+            return null;
+        }
+        double[] x = new double[variables];
+        for (int i = 0; i < m; i++) {
+            if (basis[i] < variables) {
+                x[basis[i]] = t[i][columns];
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Minimizes a cost over a tableau in canonical form with Bland's rule.
+     *
+     * @param limit The columns below this may enter the basis.
+     * @return false if the cost is unbounded or the iterations ran out
+     */
+    private static boolean simplex(double[][] t, int[] basis, double[] cost, int limit) {
+        int m = t.length;
+        int rhs = cost.length;
+        int maxIterations = 50 * (m + rhs) + 1000;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int enter = -1;
+            for (int j = 0; j < limit && enter < 0; j++) {
+                double reduced = cost[j];
+                for (int i = 0; i < m; i++) {
+                    reduced -= cost[basis[i]] * t[i][j];
+                }
+                if (reduced < -EPSILON) {
+                    enter = j;
+                }
+            }
+            if (enter < 0) {
+                return true;
+            }
+            int leave = -1;
+            double best = 0;
+            for (int i = 0; i < m; i++) {
+                if (t[i][enter] > EPSILON) {
+                    double ratio = t[i][rhs] / t[i][enter];
+                    if (leave < 0 || ratio < best - EPSILON || (ratio < best + EPSILON && basis[i] < basis[leave])) {
+                        leave = i;
+                        best = ratio;
+                    }
+                }
+            }
+            if (leave < 0) {
+                return false;
+            }
+            pivot(t, basis, leave, enter);
+        }
+        return false;
+    }
+
+    /** Makes a column basic in a row. */
+    private static void pivot(double[][] t, int[] basis, int row, int column) {
+        double[] pivotRow = t[row];
+        double factor = pivotRow[column];
+        for (int j = 0; j < pivotRow.length; j++) {
+            pivotRow[j] /= factor;
+        }
+        for (int i = 0; i < t.length; i++) {
+            if (i != row && t[i][column] != 0) {
+                double f = t[i][column];
+                double[] target = t[i];
+                for (int j = 0; j < target.length; j++) {
+                    target[j] -= f * pivotRow[j];
+                    if (Math.abs(target[j]) < EPSILON * EPSILON) {
+                        target[j] = 0;
+                    }
+                }
+            }
+        }
+        basis[row] = column;
+    }
+}
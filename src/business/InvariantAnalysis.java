@@ -0,0 +1,473 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Computes the minimal P- and T-semiflows of a net from its {@link IncidenceMatrix} with the
+ * Farkas algorithm, and derives conservation and bounds from them without exploring states.
+ * <p>
+ * The algorithm starts from the matrix next to an identity matrix and removes one column of
+ * the matrix after the other: rows with a zero in the column stay, and every pair of rows with
+ * opposite signs in it is combined into a row with a zero there. Once all columns are zero the
+ * identity part holds the semiflows. The column producing the fewest combinations is removed
+ * first, rows are sparse and divided by the greatest common divisor of their entries, and rows
+ * whose support contains the support of another row are dropped as soon as they appear, which
+ * also removes duplicates. This keeps exactly the semiflows of minimal support. Their number
+ * can still grow exponentially with the net, so a limit on the rows stops the computation.
+ * </p>
+ * <p>
+ * The matrix counts tokens, so guards and arc conditions are ignored: every semiflow holds for
+ * the real net as well, but token values are not considered.
+ * </p>
+ */
+public class InvariantAnalysis {
+
+    private final NetTopology topology;
+    private final IncidenceMatrix matrix;
+    private int maxRows = 100000;
+
+    private List<Semiflow> pInvariants;
+    private List<Semiflow> tInvariants;
+
+    /**
+     * Creates an analysis of a net.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public InvariantAnalysis(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an analysis of a topology.
+     *
+     * @param topology The topology.
+     */
+    public InvariantAnalysis(NetTopology topology) {
+        this.topology = topology;
+        this.matrix = new IncidenceMatrix(topology);
+    }
+
+    /**
+     * @return the incidence matrix
+     */
+    public IncidenceMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Returns the minimal P-semiflows, computed on the first call.
+     *
+     * @return the semiflows over the places
+     * @throws IllegalStateException if the computation needs more rows than allowed
+     * @throws ArithmeticException   if a weight does not fit into a long
+     */
+    public List<Semiflow> getPInvariants() {
+        if (pInvariants == null) {
+            int rows = matrix.getRowCount();
+            int[][] columns = new int[rows][];
+            long[][] values = new long[rows][];
+            for (int p = 0; p < rows; p++) {
+                int start = matrix.getRowStart(p);
+                int length = matrix.getRowEnd(p) - start;
+                columns[p] = new int[length];
+                values[p] = new long[length];
+                for (int k = 0; k < length; k++) {
+                    columns[p][k] = matrix.getRowColumn(start + k);
+                    values[p][k] = matrix.getRowValue(start + k);
+                }
+            }
+            pInvariants = farkas(columns, values, matrix.getColumnCount(), false);
+        }
+        return pInvariants;
+    }
+
+    /**
+     * Returns the minimal T-semiflows, computed on the first call.
+     *
+     * @return the semiflows over the transitions
+     * @throws IllegalStateException if the computation needs more rows than allowed
+     * @throws ArithmeticException   if a weight does not fit into a long
+     */
+    public List<Semiflow> getTInvariants() {
+        if (tInvariants == null) {
+            int rows = matrix.getColumnCount();
+            int[][] columns = new int[rows][];
+            long[][] values = new long[rows][];
+            for (int t = 0; t < rows; t++) {
+                int start = matrix.getColumnStart(t);
+                int length = matrix.getColumnEnd(t) - start;
+                columns[t] = new int[length];
+                values[t] = new long[length];
+                for (int k = 0; k < length; k++) {
+                    columns[t][k] = matrix.getColumnRow(start + k);
+                    values[t][k] = matrix.getColumnValue(start + k);
+                }
+            }
+            tInvariants = farkas(columns, values, matrix.getRowCount(), true);
+        }
+        return tInvariants;
+    }
+
+    /**
+     * @return true if every place is in the support of a P-semiflow, so the net keeps a
+     *         weighted token sum with positive weights and is bounded from any marking
+     */
+    public boolean isConservative() {
+        return covers(getPInvariants(), topology.getPlaceCount());
+    }
+
+    /**
+     * @return true if every transition is in the support of a T-semiflow, which a live and
+     *         bounded net needs
+     */
+    public boolean isRepetitive() {
+        return covers(getTInvariants(), topology.getTransitionCount());
+    }
+
+    /**
+     * @return the places in the support of no P-semiflow, whose tokens are not bounded by an invariant
+     */
+    public int[] getUncoveredPlaces() {
+        return uncovered(getPInvariants(), topology.getPlaceCount());
+    }
+
+    /**
+     * @return the transitions in the support of no T-semiflow
+     */
+    public int[] getUncoveredTransitions() {
+        return uncovered(getTInvariants(), topology.getTransitionCount());
+    }
+
+    /**
+     * Returns the bound on the tokens of a place that the P-semiflows give for the initial
+     * marking: the weighted token sum of a semiflow is constant, so the place can hold at
+     * most that sum divided by its own weight.
+     *
+     * @param place the index of a place
+     * @return the smallest such bound, or -1 if no P-semiflow covers the place
+     */
+    public long getBound(int place) {
+        int[] initial = topology.getInitialMarking().tokens;
+        long bound = -1;
+        for (Semiflow semiflow : getPInvariants()) {
+            long weight = semiflow.getWeightOf(place);
+            if (weight > 0) {
+                long value = semiflow.value(initial) / weight;
+                if (bound < 0 || value < bound) {
+                    bound = value;
+                }
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Checks whether a marking keeps the token sums of all P-semiflows of the initial marking,
+     * a necessary condition for it to be reachable.
+     *
+     * @param marking a marking
+     * @return false if the marking is certainly not reachable
+     */
+    public boolean satisfiesInvariants(Marking marking) {
+        int[] initial = topology.getInitialMarking().tokens;
+        for (Semiflow semiflow : getPInvariants()) {
+            if (semiflow.value(initial) != semiflow.value(marking.tokens)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a semiflow as a weighted sum of place or transition ids, e.g. to show it to the user.
+     *
+     * @param semiflow    a semiflow
+     * @param transitions whether it is a T-semiflow
+     * @return the text, e.g. "2*p1 + p2"
+     */
+    public String getText(Semiflow semiflow, boolean transitions) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < semiflow.size(); i++) {
+            if (i > 0) {
+                text.append(" + ");
+            }
+            if (semiflow.getWeight(i) != 1) {
+                text.append(semiflow.getWeight(i)).append('*');
+            }
+            int index = semiflow.getIndex(i);
+            text.append(transitions ? topology.getTransitionId(index) : topology.getPlaceId(index));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param maxRows the number of intermediate rows after which the computation fails, 100000 by default
+     */
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    private static boolean covers(List<Semiflow> semiflows, int count) {
+        return uncovered(semiflows, count).length == 0;
+    }
+
+    private static int[] uncovered(List<Semiflow> semiflows, int count) {
+        boolean[] covered = new boolean[count];
+        for (Semiflow semiflow : semiflows) {
+            for (int i = 0; i < semiflow.size(); i++) {
+                covered[semiflow.getIndex(i)] = true;
+            }
+        }
+        int size = 0;
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (!covered[i]) {
+                result[size++] = i;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Runs the Farkas algorithm.
+     *
+     * @param columns     The non-zero columns of every row, ascending.
+     * @param values      Their values.
+     * @param width       The number of columns.
+     * @param transitions Whether the rows are transitions, for messages.
+     * @return the minimal semiflows over the rows
+     */
+    private List<Semiflow> farkas(int[][] columns, long[][] values, int width, boolean transitions) {
+        ArrayList<Row> rows = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            rows.add(new Row(columns[i], values[i], new int[]{i}, new long[]{1}));
+        }
+        boolean[] removed = new boolean[width];
+        int[] positive = new int[width];
+        int[] negative = new int[width];
+        while (true) {
+            Arrays.fill(positive, 0);
+            Arrays.fill(negative, 0);
+            for (Row row : rows) {
+                for (int k = 0; k < row.columns.length; k++) {
+                    if (row.values[k] > 0) {
+                        positive[row.columns[k]]++;
+                    } else {
+                        negative[row.columns[k]]++;
+                    }
+                }
+            }
+            int column = -1;
+            long best = Long.MAX_VALUE;
+            for (int j = 0; j < width; j++) {
+                if (!removed[j] && positive[j] + negative[j] > 0) {
+                    long combinations = (long) positive[j] * negative[j];
+                    if (combinations < best) {
+                        best = combinations;
+                        column = j;
+                    }
+                }
+            }
+            if (column < 0) {
+                break;
+            }
+            removed[column] = true;
+            if (rows.size() - positive[column] - negative[column] + best > maxRows) {
+                throw new IllegalStateException("More than " + maxRows + " rows when removing "
+                        + (transitions ? "place " + topology.getPlaceId(column) : "transition " + topology.getTransitionId(column)));
+            }
+            rows = eliminate(rows, column);
+        }
+        ArrayList<Semiflow> semiflows = new ArrayList<>();
+        for (Row row : rows) {
+            semiflows.add(new Semiflow(row.indices, row.weights));
+        }
+        Collections.sort(semiflows, new Comparator<Semiflow>() {
+            @Override
+            public int compare(Semiflow a, Semiflow b) {
+                for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                    if (a.getIndex(i) != b.getIndex(i)) {
+                        return a.getIndex(i) - b.getIndex(i);
+                    }
+                }
+                return a.size() - b.size();
+            }
+        });
+        return semiflows;
+    }
+
+    /**
+     * Removes one column: keeps the rows with a zero in it and adds the combinations of rows
+     * with opposite signs, leaving out rows of non-minimal support.
+     */
+    private static ArrayList<Row> eliminate(ArrayList<Row> rows, int column) {
+        ArrayList<Row> kept = new ArrayList<>();
+        ArrayList<Row> positive = new ArrayList<>();
+        ArrayList<Row> negative = new ArrayList<>();
+        for (Row row : rows) {
+            long value = row.get(column);
+            if (value > 0) {
+                positive.add(row);
+            } else if (value < 0) {
+                negative.add(row);
+            } else {
+                kept.add(row);
+            }
+        }
+        ArrayList<Row> candidates = new ArrayList<>(kept);
+        for (Row a : positive) {
+            for (Row b : negative) {
+                candidates.add(combine(a, b, column));
+            }
+        }
+        Collections.sort(candidates, new Comparator<Row>() {
+            @Override
+            public int compare(Row a, Row b) {
+                return a.indices.length - b.indices.length;
+            }
+        });
+        ArrayList<Row> result = new ArrayList<>();
+        HashSet<BitSet> supports = new HashSet<>();
+        for (Row candidate : candidates) {
+            if (supports.contains(candidate.support)) {
+                continue;
+            }
+            boolean minimal = true;
+            for (Row row : result) {
+                if (row.indices.length < candidate.indices.length && contains(candidate.support, row.support)) {
+                    minimal = false;
+                    break;
+                }
+            }
+            if (minimal) {
+                result.add(candidate);
+                supports.add(candidate.support);
+            }
+        }
+        return result;
+    }
+
+    /** Checks whether a support holds every index of another. */
+    private static boolean contains(BitSet outer, BitSet inner) {
+        BitSet rest = (BitSet) inner.clone();
+        rest.andNot(outer);
+        return rest.isEmpty();
+    }
+
+    /**
+     * Combines a row with a positive and a row with a negative value in a column into a row
+     * with a zero there.
+     */
+    private static Row combine(Row a, Row b, int column) {
+        long va = a.get(column);
+        long vb = -b.get(column);
+        long g = gcd(va, vb);
+        long fa = vb / g;
+        long fb = va / g;
+        Row row = new Row(a, fa, b, fb);
+        long divisor = 0;
+        for (long value : row.values) {
+            divisor = gcd(divisor, Math.abs(value));
+        }
+        for (long weight : row.weights) {
+            divisor = gcd(divisor, weight);
+        }
+        if (divisor > 1) {
+            for (int k = 0; k < row.values.length; k++) {
+                row.values[k] /= divisor;
+            }
+            for (int k = 0; k < row.weights.length; k++) {
+                row.weights[k] /= divisor;
+            }
+        }
+        return row;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * A row of the tableau: the sparse remaining matrix part and the sparse identity part.
+     */
+    private static class Row {
+
+        final int[] columns;
+        final long[] values;
+        final int[] indices;
+        final long[] weights;
+        final BitSet support = new BitSet();
+
+        Row(int[] columns, long[] values, int[] indices, long[] weights) {
+            this.columns = columns;
+            this.values = values;
+            this.indices = indices;
+            this.weights = weights;
+            for (int i : indices) {
+                support.set(i);
+            }
+        }
+
+        /** Creates the sum fa * a + fb * b, leaving out zeros. */
+        Row(Row a, long fa, Row b, long fb) {
+            int[][] merged = new int[1][];
+            long[][] mergedValues = new long[1][];
+            merge(a.columns, a.values, fa, b.columns, b.values, fb, merged, mergedValues);
+            columns = merged[0];
+            values = mergedValues[0];
+            merge(a.indices, a.weights, fa, b.indices, b.weights, fb, merged, mergedValues);
+            indices = merged[0];
+            weights = mergedValues[0];
+            for (int i : indices) {
+                support.set(i);
+            }
+        }
+
+        long get(int column) {
+            int k = Arrays.binarySearch(columns, column);
+            return k >= 0 ? values[k] : 0;
+        }
+
+        /** Adds two sparse vectors with factors, with checks against overflow. */
+        private static void merge(int[] ia, long[] va, long fa, int[] ib, long[] vb, long fb, int[][] indices, long[][] values) {
+            int[] resultIndices = new int[ia.length + ib.length];
+            long[] resultValues = new long[ia.length + ib.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < ia.length || j < ib.length) {
+                long value;
+                int index;
+                if (j == ib.length || (i < ia.length && ia[i] < ib[j])) {
+                    index = ia[i];
+                    value = Math.multiplyExact(va[i++], fa);
+                } else if (i == ia.length || ib[j] < ia[i]) {
+                    index = ib[j];
+                    value = Math.multiplyExact(vb[j++], fb);
+                } else {
+                    index = ia[i];
+                    value = Math.addExact(Math.multiplyExact(va[i++], fa), Math.multiplyExact(vb[j++], fb));
+                }
+                if (value != 0) {
+                    resultIndices[size] = index;
+                    resultValues[size++] = value;
+                }
+            }
+            indices[0] = Arrays.copyOf(resultIndices, size);
+            values[0] = Arrays.copyOf(resultValues, size);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A file mapped into memory in segments of equal size, addressed by long positions, so it
+ * can grow beyond the 2 GB a single mapping can hold. Ints and longs must be stored at
+ * positions that are multiples of their size, so they never cross a segment boundary.
+ * <p>
+ * The first segment starts at a page and is mapped again at twice the size whenever the
+ * file outgrows it, until it has the full segment size, so small files take little disk.
+ * </p>
+ */
+class MappedFile implements Closeable {
+
+    /** Smallest size of the first segment. */
+    private static final long FIRST_SEGMENT = 4096;
+
+    private final File file;
+    private final RandomAccessFile access;
+    private final FileChannel channel;
+    private final int segmentBits;
+    private final long segmentMask;
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Creates an empty file, replacing an existing one.
+     *
+     * @param file        The file.
+     * @param segmentBits The logarithm of the segment size, at most 30.
+     * @throws IOException if the file cannot be created
+     */
+    MappedFile(File file, int segmentBits) throws IOException {
+        this.file = file;
+        this.segmentBits = segmentBits;
+        segmentMask = (1L << segmentBits) - 1;
+        access = new RandomAccessFile(file, "rw");
+        access.setLength(0);
+        channel = access.getChannel();
+    }
+
+    /**
+     * Maps segments until a number of bytes fits, growing the first segment before adding
+     * others. Growing maps the first segment anew, so no buffer of it may be kept.
+     *
+     * @param size The number of bytes.
+     * @throws IOException if the file cannot be extended
+     */
+    void ensure(long size) throws IOException {
+        long full = 1L << segmentBits;
+        long first = segments.isEmpty() ? 0 : segments.get(0).capacity();
+        if (first < full && first < size) {
+            long grown = Math.min(full, Math.max(first * 2, FIRST_SEGMENT));
+            while (grown < Math.min(full, size)) {
+                grown *= 2;
+            }
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+            if (segments.isEmpty()) {
+                segments.add(segment);
+            } else {
+                unmap(segments.set(0, segment));
+            }
+        }
+        while ((long) segments.size() << segmentBits < size) {
+            long position = (long) segments.size() << segmentBits;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, 1L << segmentBits));
+        }
+    }
+
+    byte get(long position) {
+        return segments.get((int) (position >>> segmentBits)).get((int) (position & segmentMask));
+    }
+
+    int getInt(long position) {
+        return segments.get((int) (position >>> segmentBits)).getInt((int) (position & segmentMask));
+    }
+
+    void putInt(long position, int value) {
+        segments.get((int) (position >>> segmentBits)).putInt((int) (position & segmentMask), value);
+    }
+
+    long getLong(long position) {
+        return segments.get((int) (position >>> segmentBits)).getLong((int) (position & segmentMask));
+    }
+
+    void putLong(long position, long value) {
+        segments.get((int) (position >>> segmentBits)).putLong((int) (position & segmentMask), value);
+    }
+
+    /**
+     * Copies bytes out of the file.
+     */
+    void get(long position, byte[] bytes, int length) {
+        int done = 0;
+        while (done < length) {
+            MappedByteBuffer segment = segments.get((int) (position >>> segmentBits));
+            int offset = (int) (position & segmentMask);
+            int count = Math.min(length - done, segment.capacity() - offset);
+            ByteBuffer view = segment.duplicate();
+            view.position(offset);
+            view.get(bytes, done, count);
+            done += count;
+            position += count;
+        }
+    }
+
+    /**
+     * Copies bytes into the file, which must be large enough.
+     */
+    void put(long position, byte[] bytes, int length) {
+        int done = 0;
+        while (done < length) {
+            MappedByteBuffer segment = segments.get((int) (position >>> segmentBits));
+            int offset = (int) (position & segmentMask);
+            int count = Math.min(length - done, segment.capacity() - offset);
+            ByteBuffer view = segment.duplicate();
+            view.position(offset);
+            view.put(bytes, done, count);
+            done += count;
+            position += count;
+        }
+    }
+
+    /**
+     * @return the file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Unmaps the segments and closes the file, so it can be deleted at once and its address
+     * space is free again. The file must not be read or written afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            unmap(segment);
+        }
+        segments.clear();
+        channel.close();
+        access.close();
+    }
+
+    /**
+     * Releases a mapping now rather than when the buffer is garbage collected. There is no
+     * public API for this, so it uses the cleaner of the JDK by reflection, and leaves the
+     * mapping to the garbage collector where that is not accessible.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException ex) {
+            // Java 8 has no invokeCleaner, but the buffer itself has a cleaner
+            try {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                Logger.getLogger(MappedFile.class.getName()).log(Level.FINE, "mapping left to the garbage collector", e);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Logger.getLogger(MappedFile.class.getName()).log(Level.FINE, "mapping left to the garbage collector", ex);
+        }
+    }
+}
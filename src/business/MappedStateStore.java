@@ -0,0 +1,269 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * A state store kept in memory-mapped files, for state spaces larger than the heap.
+ * <p>
+ * Markings are encoded as by the {@link HashedStateStore} and appended to a data file. An
+ * index file holds the position, length and hash of every state, and a table file the
+ * open-addressing hash table of state numbers, which is rebuilt into a new file of twice
+ * the size when it is half full. The operating system pages the files in and out, so the
+ * heap only holds a small direct-mapped cache of recently seen markings, which answers most
+ * lookups of a breadth-first search without touching the files.
+ * </p>
+ * <p>
+ * The store creates its files in a directory and deletes them when it is closed. All
+ * methods are synchronized, so the store can also serve the
+ * {@link ParallelReachabilityExplorer}, though one thread at a time.
+ * </p>
+ */
+public class MappedStateStore implements StateStore, Closeable {
+
+    /** Bytes per index entry: position, length and hash. */
+    private static final int ENTRY = 16;
+
+    private final File directory;
+    private final boolean temporary;
+    private final int segmentBits;
+    private final MappedFile data;
+    private final MappedFile index;
+    private MappedFile table;
+    private long slots = 1 << 12;
+    private long dataSize;
+    private int size;
+    private int tables;
+
+    private final int cacheMask;
+    private final int[] cacheHash;
+    private final int[] cacheIndex;
+    private final byte[][] cacheBytes;
+
+    private byte[] buffer = new byte[64];
+    private byte[] stored = new byte[64];
+
+    /**
+     * Creates a store in a new temporary directory.
+     *
+     * @throws IOException if the files cannot be created
+     */
+    public MappedStateStore() throws IOException {
+        this(Files.createTempDirectory("states").toFile(), true, 30, 16);
+    }
+
+    /**
+     * Creates a store in a directory, e.g. on a fast local disk.
+     *
+     * @param directory An existing directory.
+     * @throws IOException if the files cannot be created
+     */
+    public MappedStateStore(File directory) throws IOException {
+        this(directory, false, 30, 16);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param directory   An existing directory.
+     * @param temporary   Whether the directory is deleted on closing too.
+     * @param segmentBits The logarithm of the size of the mapped segments, at most 30.
+     * @param cacheBits   The logarithm of the number of cached markings.
+     * @throws IOException if the files cannot be created
+     */
+    public MappedStateStore(File directory, boolean temporary, int segmentBits, int cacheBits) throws IOException {
+        this.directory = directory;
+        this.temporary = temporary;
+        this.segmentBits = segmentBits;
+        data = new MappedFile(new File(directory, "states.dat"), segmentBits);
+        index = new MappedFile(new File(directory, "states.idx"), segmentBits);
+        table = newTable();
+        cacheMask = (1 << cacheBits) - 1;
+        cacheHash = new int[1 << cacheBits];
+        cacheIndex = new int[1 << cacheBits];
+        cacheBytes = new byte[1 << cacheBits][];
+        Arrays.fill(cacheIndex, -1);
+    }
+
+    @Override
+    public synchronized int add(int[] marking) {
+        int length = encode(marking);
+        int hash = HashedStateStore.hash(buffer, length);
+        int cached = cached(hash, length);
+        if (cached >= 0) {
+            return -cached - 1;
+        }
+        try {
+            long slot = find(hash, length);
+            int entry = table.getInt(slot * 4);
+            if (entry != 0) {
+                cache(hash, entry - 1, length);
+                return -entry;
+            }
+            data.ensure(dataSize + length);
+            data.put(dataSize, buffer, length);
+            index.ensure((long) (size + 1) * ENTRY);
+            long position = (long) size * ENTRY;
+            index.putLong(position, dataSize);
+            index.putInt(position + 8, length);
+            index.putInt(position + 12, hash);
+            dataSize += length;
+            table.putInt(slot * 4, ++size);
+            cache(hash, size - 1, length);
+            if ((long) size * 2 > slots) {
+                rehash();
+            }
+            return size - 1;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public synchronized int indexOf(int[] marking) {
+        int length = encode(marking);
+        int hash = HashedStateStore.hash(buffer, length);
+        int cached = cached(hash, length);
+        if (cached >= 0) {
+            return cached;
+        }
+        return table.getInt(find(hash, length) * 4) - 1;
+    }
+
+    @Override
+    public synchronized int[] get(int state) {
+        if (state < 0 || state >= size) {
+            throw new IndexOutOfBoundsException("No state " + state);
+        }
+        int length = load(state);
+        return HashedStateStore.decode(stored, 0, length);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes taken by the encoded states
+     */
+    public synchronized long getEncodedBytes() {
+        return dataSize;
+    }
+
+    /**
+     * Closes and deletes the files.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        index.close();
+        table.close();
+        data.getFile().delete();
+        index.getFile().delete();
+        table.getFile().delete();
+        if (temporary) {
+            directory.delete();
+        }
+    }
+
+    /** Writes a marking into the buffer and returns its length. */
+    private int encode(int[] marking) {
+        if (buffer.length < marking.length * 5) {
+            buffer = new byte[marking.length * 5];
+        }
+        return HashedStateStore.encode(marking, buffer);
+    }
+
+    /** Returns the number of the marking in the buffer if it is cached, -1 otherwise. */
+    private int cached(int hash, int length) {
+        int slot = hash & cacheMask;
+        byte[] bytes = cacheBytes[slot];
+        if (cacheIndex[slot] < 0 || cacheHash[slot] != hash || bytes.length != length) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer[i]) {
+                return -1;
+            }
+        }
+        return cacheIndex[slot];
+    }
+
+    /** Remembers the marking in the buffer, replacing the one in its slot. */
+    private void cache(int hash, int state, int length) {
+        int slot = hash & cacheMask;
+        cacheHash[slot] = hash;
+        cacheIndex[slot] = state;
+        cacheBytes[slot] = Arrays.copyOf(buffer, length);
+    }
+
+    /** Reads the encoded bytes of a state into the stored array and returns their number. */
+    private int load(int state) {
+        long position = (long) state * ENTRY;
+        int length = index.getInt(position + 8);
+        if (stored.length < length) {
+            stored = new byte[Math.max(length, stored.length * 2)];
+        }
+        data.get(index.getLong(position), stored, length);
+        return length;
+    }
+
+    /** Returns the slot of the marking in the buffer, or the empty slot where it belongs. */
+    private long find(int hash, int length) {
+        long mask = slots - 1;
+        long slot = hash & mask;
+        while (true) {
+            int entry = table.getInt(slot * 4);
+            if (entry == 0) {
+                return slot;
+            }
+            long position = (long) (entry - 1) * ENTRY;
+            if (index.getInt(position + 12) == hash && index.getInt(position + 8) == length && load(entry - 1) == length && sameBytes(length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** Compares the stored array with the buffer. */
+    private boolean sameBytes(int length) {
+        for (int i = 0; i < length; i++) {
+            if (stored[i] != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Creates an empty table file for the current number of slots. */
+    private MappedFile newTable() throws IOException {
+        MappedFile file = new MappedFile(new File(directory, "states.tab" + tables++), segmentBits);
+        file.ensure(slots * 4);
+        return file;
+    }
+
+    /** Moves all states into a table file of twice the size. */
+    private void rehash() throws IOException {
+        MappedFile old = table;
+        slots *= 2;
+        table = newTable();
+        long mask = slots - 1;
+        for (int state = 0; state < size; state++) {
+            long slot = index.getInt((long) state * ENTRY + 12) & mask;
+            while (table.getInt(slot * 4) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.putInt(slot * 4, state + 1);
+        }
+        old.close();
+        old.getFile().delete();
+    }
+}
@@ -0,0 +1,108 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The state of a net as the number of tokens in each place, indexed like the places of a
+ * {@link NetTopology}.
+ * <p>
+ * A marking is a plain array of counts, so copying it is cheap and many markings can share
+ * one topology, each run by its own engine or thread. Markings are compared by content and
+ * can be used as keys of hash tables, e.g. to store the states of a state space.
+ * </p>
+ * A marking is not thread-safe; every thread works on its own copy.
+ */
+public class Marking implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of tokens of every place. */
+    final int[] tokens;
+
+    /**
+     * Creates a marking from token counts.
+     *
+     * @param tokens The number of tokens of every place; copied.
+     */
+    public Marking(int[] tokens) {
+        this.tokens = tokens.clone();
+    }
+
+    /**
+     * Creates an empty marking.
+     *
+     * @param places The number of places.
+     */
+    public Marking(int places) {
+        this.tokens = new int[places];
+    }
+
+    /**
+     * @return an independent copy of this marking
+     */
+    public Marking copy() {
+        return new Marking(tokens);
+    }
+
+    /**
+     * Returns the number of tokens of a place.
+     *
+     * @param place The index of the place.
+     * @return the number of tokens
+     */
+    public int get(int place) {
+        return tokens[place];
+    }
+
+    /**
+     * Sets the number of tokens of a place.
+     *
+     * @param place The index of the place.
+     * @param count The number of tokens.
+     */
+    public void set(int place, int count) {
+        tokens[place] = count;
+    }
+
+    /**
+     * @return the number of places
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * @return the number of tokens in all places
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            total += tokens[i];
+        }
+        return total;
+    }
+
+    /**
+     * @return a copy of the token counts
+     */
+    public int[] toArray() {
+        return tokens.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Marking && Arrays.equals(tokens, ((Marking) obj).tokens);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(tokens);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(tokens);
+    }
+}
@@ -0,0 +1,179 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.codehaus.janino.SimpleCompiler;
+
+/**
+ * Stops a simulation when a boolean expression over the marking becomes true.
+ * <p>
+ * The expression is plain Java in which every place id stands for the number of tokens in
+ * that place, e.g. {@code p3 >= 10 || (p1 == 0 && p2 == 0)}. It is compiled once, like the
+ * net itself, into a small class. The condition is also a {@link FiringListener}, which the
+ * simulation registers with it: the token counts are read from all places when the run
+ * starts and then only from the places of every firing, so checking the condition costs
+ * one call plus the places the last transition changed.
+ * </p>
+ */
+public class MarkingCondition implements StopCondition, FiringListener {
+
+    /** Base class of the compiled expression. */
+    public static abstract class Predicate {
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param marking Token count of every place, in place order.
+         * @return the value of the expression
+         */
+        public abstract boolean evaluate(int[] marking);
+    }
+
+    /** Counter used to give every compiled expression its own class name. */
+    private static int count = 0;
+
+    private final String expression;
+    private final String[] placeIds;
+    private final Predicate predicate;
+    private final int[] marking;
+
+    /** The net the places below belong to. */
+    private PetriNet net;
+    private Place[] places;
+    /** Index of every place id in the marking. */
+    private final HashMap<String, Integer> indices = new HashMap<>();
+    /** Whether the marking is kept up to date by firing events. */
+    private boolean listening;
+
+    /**
+     * Compiles a marking condition over the places of a net.
+     *
+     * @param net        The net whose place ids the expression uses.
+     * @param expression Boolean Java expression over place ids.
+     * @throws IllegalArgumentException if the expression does not compile
+     */
+    public MarkingCondition(PetriNet net, String expression) {
+        this.expression = expression;
+        ArrayList<Place> netPlaces = net.getPlaces();
+        this.placeIds = new String[netPlaces.size()];
+        for (int i = 0; i < placeIds.length; i++) {
+            placeIds[i] = netPlaces.get(i).getId();
+            indices.put(placeIds[i], i);
+        }
+        this.marking = new int[placeIds.length];
+
+        String className = nextClassName();
+        try {
+            SimpleCompiler compiler = new SimpleCompiler();
+            compiler.cook(new StringReader(generateSource(className)));
+            Class<?> cl = compiler.getClassLoader().loadClass(className);
+            this.predicate = (Predicate) cl.getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            throw new IllegalArgumentException("Invalid marking condition: " + expression + " (" + ex.getMessage() + ")", ex);
+        }
+    }
+
+    /** Returns a class name not used by another compiled expression. */
+    private static synchronized String nextClassName() {
+        return "MarkingCondition" + (++count);
+    }
+
+    /**
+     * Generates the source of the class evaluating the expression.
+     *
+     * @param className Name of the generated class.
+     * @return the source code
+     */
+    private String generateSource(String className) {
+        StringBuilder source = new StringBuilder();
+        source.append("import business.*;").append(NetClass.EOL);
+        source.append("public class ").append(className).append(" extends MarkingCondition.Predicate {").append(NetClass.EOL);
+        source.append("  public boolean evaluate(int[] marking) {").append(NetClass.EOL);
+        for (int i = 0; i < placeIds.length; i++) {
+            source.append("    int ").append(placeIds[i]).append(" = marking[").append(i).append("];").append(NetClass.EOL);
+        }
+        source.append("    return ").append(expression).append(";").append(NetClass.EOL);
+        source.append("  }").append(NetClass.EOL);
+        source.append("}").append(NetClass.EOL);
+        return source.toString();
+    }
+
+    @Override
+    public boolean isReached(Simulation simulation) {
+        if (!listening || net != simulation.getNet()) {
+            refresh(simulation.getNet());
+        }
+        return predicate.evaluate(marking);
+    }
+
+    @Override
+    public void simulationStarted(Simulation simulation) {
+        refresh(simulation.getNet());
+        listening = true;
+    }
+
+    @Override
+    public void transitionFired(FiringEvent event) {
+        update(event.getConsumedPlaces());
+        update(event.getProducedPlaces());
+    }
+
+    @Override
+    public void simulationFinished(Simulation simulation) {
+        listening = false;
+    }
+
+    /** Reads the token counts of the places a firing changed. */
+    private void update(ArrayList<Place> changed) {
+        for (int k = 0; k < changed.size(); k++) {
+            Integer i = indices.get(changed.get(k).getId());
+            if (i != null && places[i] != null) {
+                marking[i] = places[i].getTokens().size();
+            }
+        }
+    }
+
+    /**
+     * Reads the token counts of all places.
+     *
+     * @param net The net being simulated.
+     */
+    private void refresh(PetriNet net) {
+        // The simulation runs on a compiled copy of the edited net; look the places up again
+        if (this.net != net) {
+            bind(net);
+        }
+        for (int i = 0; i < places.length; i++) {
+            marking[i] = places[i] == null ? 0 : places[i].getTokens().size();
+        }
+    }
+
+    /**
+     * Looks up the places of the expression in a net.
+     *
+     * @param net The net being simulated.
+     */
+    private void bind(PetriNet net) {
+        this.net = net;
+        this.places = new Place[placeIds.length];
+        for (int i = 0; i < placeIds.length; i++) {
+            NetObject element = net.getNetElement(placeIds[i]);
+            places[i] = element instanceof Place ? (Place) element : null;
+        }
+    }
+
+    /**
+     * @return the expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return "marking condition " + expression;
+    }
+}
@@ -0,0 +1,391 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A store of multi-valued decision diagram nodes that represent sets of markings, used by
+ * the {@link SymbolicExplorer}.
+ * <p>
+ * Level k of a diagram stands for place k - 1, and a node at level k has one child at level
+ * k - 1 per token count of its place; counts past the last child lead to the empty set, so
+ * places need no bound. Diagrams are quasi-reduced: every path visits every level, and equal
+ * nodes are stored once. Node 0 is the empty set and node 1 the set holding the empty
+ * marking at level 0.
+ * </p>
+ * <p>
+ * Nodes live in flat int arrays rather than objects: the children of all nodes are
+ * appended to one pool, and a unique table with open addressing maps a node's contents to
+ * its number. Results of operations are remembered in a fixed-size cache that simply
+ * overwrites older entries, so it never grows with the diagram. Nodes are never freed; a
+ * forest belongs to one exploration.
+ * </p>
+ * A forest is not thread-safe.
+ */
+public class MddForest {
+
+    /** The empty set. */
+    public static final int EMPTY = 0;
+    /** The set holding the empty marking, at level 0. */
+    public static final int ONE = 1;
+
+    /** Operation codes of the cache. */
+    static final int UNION = 0;
+    static final int DIFFERENCE = 1;
+    static final int SATURATE = 2;
+    static final int FIRE = 3;
+    static final int FILTER = 4;
+
+    private final int levels;
+    private int[] nodeLevel = new int[1 << 12];
+    private int[] nodeStart = new int[1 << 12];
+    private int[] nodeLength = new int[1 << 12];
+    private int nodeCount = 2;
+    private int[] pool = new int[1 << 14];
+    private int poolSize;
+    private int maxNodes = Integer.MAX_VALUE;
+
+    private int[] table = new int[1 << 12];
+
+    private final int[] cacheOp;
+    private final int[] cacheA;
+    private final int[] cacheB;
+    private final int[] cacheResult;
+    private final int cacheMask;
+
+    /**
+     * Creates a forest with a cache of 2^18 entries.
+     *
+     * @param levels The number of levels, i.e. of places.
+     */
+    public MddForest(int levels) {
+        this(levels, 18);
+    }
+
+    /**
+     * Creates a forest.
+     *
+     * @param levels    The number of levels, i.e. of places.
+     * @param cacheBits The logarithm of the number of cache entries.
+     */
+    public MddForest(int levels, int cacheBits) {
+        this.levels = levels;
+        int size = 1 << cacheBits;
+        cacheOp = new int[size];
+        cacheA = new int[size];
+        cacheB = new int[size];
+        cacheResult = new int[size];
+        cacheMask = size - 1;
+        Arrays.fill(cacheOp, -1);
+    }
+
+    /**
+     * Returns the node with given children, creating it if there is none yet.
+     *
+     * @param level    The level of the node.
+     * @param children The children; entries past length are ignored.
+     * @param length   The number of children to use.
+     * @return the node, or {@link #EMPTY} if all children are empty
+     */
+    public int make(int level, int[] children, int length) {
+        while (length > 0 && children[length - 1] == EMPTY) {
+            length--;
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        int hash = level * 0x9e3779b1;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ children[i]) * 0x01000193;
+        }
+        hash ^= hash >>> 15;
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int node = table[slot];
+            if (nodeLevel[node] == level && nodeLength[node] == length && sameChildren(node, children, length)) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (nodeCount >= maxNodes) {
+            throw new IllegalStateException("More than " + maxNodes + " decision diagram nodes");
+        }
+        int node = nodeCount++;
+        if (node == nodeLevel.length) {
+            nodeLevel = Arrays.copyOf(nodeLevel, node * 2);
+            nodeStart = Arrays.copyOf(nodeStart, node * 2);
+            nodeLength = Arrays.copyOf(nodeLength, node * 2);
+        }
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        }
+        System.arraycopy(children, 0, pool, poolSize, length);
+        nodeLevel[node] = level;
+        nodeStart[node] = poolSize;
+        nodeLength[node] = length;
+        poolSize += length;
+        table[slot] = node;
+        if (nodeCount * 2 > table.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    /** Compares the children of a node with an array. */
+    private boolean sameChildren(int node, int[] children, int length) {
+        int start = nodeStart[node];
+        for (int i = 0; i < length; i++) {
+            if (pool[start + i] != children[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Doubles the unique table. */
+    private void rehash() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        int mask = table.length - 1;
+        for (int node : old) {
+            if (node == 0) {
+                continue;
+            }
+            int hash = nodeLevel[node] * 0x9e3779b1;
+            for (int i = 0; i < nodeLength[node]; i++) {
+                hash = (hash ^ pool[nodeStart[node] + i]) * 0x01000193;
+            }
+            hash ^= hash >>> 15;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
+        }
+    }
+
+    /**
+     * Returns the diagram of a single marking.
+     *
+     * @param marking The token counts, place k - 1 at level k.
+     * @return the node at the top level
+     */
+    public int singleton(int[] marking) {
+        int node = ONE;
+        for (int k = 1; k <= levels; k++) {
+            int value = marking[k - 1];
+            int[] children = new int[value + 1];
+            children[value] = node;
+            node = make(k, children, value + 1);
+        }
+        return node;
+    }
+
+    /**
+     * @param node a node
+     * @param i    a token count
+     * @return the child of the node for the count, {@link #EMPTY} past the last child
+     */
+    public int child(int node, int i) {
+        return i < nodeLength[node] ? pool[nodeStart[node] + i] : EMPTY;
+    }
+
+    /**
+     * @param node a node other than {@link #EMPTY}
+     * @return the number of children, one more than the largest count with a child
+     */
+    public int length(int node) {
+        return nodeLength[node];
+    }
+
+    /**
+     * @param node a node
+     * @return the level of the node
+     */
+    public int level(int node) {
+        return node <= ONE ? 0 : nodeLevel[node];
+    }
+
+    /**
+     * Returns the union of two sets at the same level.
+     *
+     * @param a a node
+     * @param b a node
+     * @return the node of the union
+     */
+    public int union(int a, int b) {
+        if (a == EMPTY || a == b) {
+            return b;
+        }
+        if (b == EMPTY) {
+            return a;
+        }
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        int cached = cacheGet(UNION, a, b);
+        if (cached >= 0) {
+            return cached;
+        }
+        int length = Math.max(nodeLength[a], nodeLength[b]);
+        int[] children = new int[length];
+        for (int i = 0; i < length; i++) {
+            children[i] = union(child(a, i), child(b, i));
+        }
+        int result = make(nodeLevel[a], children, length);
+        cachePut(UNION, a, b, result);
+        return result;
+    }
+
+    /**
+     * Returns the markings of one set that are not in another, both at the same level.
+     *
+     * @param a a node
+     * @param b a node
+     * @return the node of the difference
+     */
+    public int difference(int a, int b) {
+        if (a == EMPTY || a == b) {
+            return EMPTY;
+        }
+        if (b == EMPTY) {
+            return a;
+        }
+        int cached = cacheGet(DIFFERENCE, a, b);
+        if (cached >= 0) {
+            return cached;
+        }
+        int length = nodeLength[a];
+        int[] children = new int[length];
+        for (int i = 0; i < length; i++) {
+            children[i] = difference(child(a, i), child(b, i));
+        }
+        int result = make(nodeLevel[a], children, length);
+        cachePut(DIFFERENCE, a, b, result);
+        return result;
+    }
+
+    /**
+     * Checks whether a set holds a marking.
+     *
+     * @param node    the node at the top level
+     * @param marking the token counts
+     * @return true if the marking is in the set
+     */
+    public boolean contains(int node, int[] marking) {
+        for (int k = levels; k >= 1 && node != EMPTY; k--) {
+            node = child(node, marking[k - 1]);
+        }
+        return node == ONE;
+    }
+
+    /**
+     * Returns some marking of a set.
+     *
+     * @param node the node at the top level
+     * @return the token counts, or null if the set is empty
+     */
+    public int[] pick(int node) {
+        if (node == EMPTY) {
+            return null;
+        }
+        int[] marking = new int[levels];
+        for (int k = levels; k >= 1; k--) {
+            int i = 0;
+            while (child(node, i) == EMPTY) {
+                i++;
+            }
+            marking[k - 1] = i;
+            node = child(node, i);
+        }
+        return marking;
+    }
+
+    /**
+     * Counts the markings of a set.
+     *
+     * @param node a node
+     * @return the number of markings
+     */
+    public BigInteger count(int node) {
+        return count(node, new HashMap<Integer, BigInteger>());
+    }
+
+    /** Counts the markings below a node, remembering the counts of visited nodes. */
+    private BigInteger count(int node, HashMap<Integer, BigInteger> counts) {
+        if (node <= ONE) {
+            return node == ONE ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        BigInteger known = counts.get(node);
+        if (known != null) {
+            return known;
+        }
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < nodeLength[node]; i++) {
+            total = total.add(count(pool[nodeStart[node] + i], counts));
+        }
+        counts.put(node, total);
+        return total;
+    }
+
+    /**
+     * Looks up a cached result.
+     *
+     * @return the result, or -1 if it is not cached
+     */
+    int cacheGet(int op, int a, int b) {
+        int slot = slot(op, a, b);
+        if (cacheOp[slot] == op && cacheA[slot] == a && cacheB[slot] == b) {
+            return cacheResult[slot];
+        }
+        return -1;
+    }
+
+    /** Caches a result, replacing whatever was in its slot. */
+    void cachePut(int op, int a, int b, int result) {
+        int slot = slot(op, a, b);
+        cacheOp[slot] = op;
+        cacheA[slot] = a;
+        cacheB[slot] = b;
+        cacheResult[slot] = result;
+    }
+
+    private int slot(int op, int a, int b) {
+        int h = (a * 0x9e3779b1) ^ (b * 0x85ebca6b) ^ (op * 0xc2b2ae35);
+        h ^= h >>> 16;
+        return h & cacheMask;
+    }
+
+    /**
+     * @return the number of levels
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return the number of nodes created, including the two terminal nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of ints taken by the children of all nodes
+     */
+    public long getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @param maxNodes the number of nodes after which operations fail with an IllegalStateException
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+}
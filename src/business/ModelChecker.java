@@ -0,0 +1,583 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Checks LTL and CTL properties of a net, given as {@link Formula}s, over its reachable
+ * markings.
+ * <p>
+ * LTL properties are checked on the fly: the runs violating the property are accepted by a
+ * {@link BuchiAutomaton} of its negation, and a nested depth-first search looks for an
+ * accepting cycle in the product of the automaton and the net, generating markings only as
+ * far as the search goes. The first such cycle stops the search and gives a counterexample
+ * run; so does the first product state whose automaton state accepts any continuation, which
+ * finds violations of invariants in unbounded nets, where runs need not return to a marking. Product states are kept in a {@link HashedStateStore} as the marking followed by the
+ * automaton state.
+ * </p>
+ * <p>
+ * CTL properties are checked by labelling the states of the {@link ReachabilityGraph} with
+ * the subformulas that hold there, using backward fixpoints over the edges. A violated
+ * property whose outermost operator is AG, AF or AX, or A[a U b], gets a counterexample run.
+ * </p>
+ * <p>
+ * Markings are explored like the {@link ReachabilityExplorer} does, counting tokens and
+ * following priorities; dead markings repeat forever.
+ * </p>
+ */
+public class ModelChecker {
+
+    private final NetTopology topology;
+    private final int places;
+    private int maxStates = 1000000;
+
+    /**
+     * Creates a checker for a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public ModelChecker(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates a checker for a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     */
+    public ModelChecker(NetTopology topology) {
+        this.topology = topology;
+        this.places = topology.getPlaceCount();
+    }
+
+    /**
+     * Parses and checks a property, as CTL if it has CTL operators and as LTL otherwise.
+     *
+     * @param property the property, see {@link Formula}
+     * @return the result
+     * @throws IllegalArgumentException if the property is not a formula over the net
+     */
+    public ModelCheckingResult check(String property) {
+        Formula formula = Formula.parse(property, topology);
+        return formula.isLtl() ? checkLtl(formula) : checkCtl(formula);
+    }
+
+    /**
+     * Checks an LTL property on all runs from the initial marking.
+     *
+     * @param formula an LTL formula
+     * @return the result, with a counterexample if the property is violated
+     * @throws IllegalArgumentException if the formula has CTL operators
+     */
+    public ModelCheckingResult checkLtl(Formula formula) {
+        if (!formula.isLtl()) {
+            throw new IllegalArgumentException("Not an LTL formula: " + formula);
+        }
+        BuchiAutomaton automaton = new BuchiAutomaton(Formula.not(formula));
+        HashedStateStore store = new HashedStateStore();
+        BitSet blue = new BitSet();
+        BitSet red = new BitSet();
+        int[] initial = topology.getInitialMarking().tokens;
+        ArrayList<Frame> stack = new ArrayList<>();
+        for (int q = 0; q < automaton.getStateCount(); q++) {
+            if (!automaton.isInitial(q)) {
+                continue;
+            }
+            int root = index(store, initial, q);
+            if (blue.get(root)) {
+                continue;
+            }
+            blue.set(root);
+            stack.add(new Frame(root, automaton, store));
+            if (stack.get(0).universal) {
+                return new ModelCheckingResult(topology, false, true, new int[0], null, store.size());
+            }
+            while (!stack.isEmpty()) {
+                if (store.size() > maxStates) {
+                    return new ModelCheckingResult(topology, true, false, null, null, store.size());
+                }
+                Frame top = stack.get(stack.size() - 1);
+                if (top.position < top.count) {
+                    int next = top.targets[top.position++];
+                    if (!blue.get(next)) {
+                        blue.set(next);
+                        Frame frame = new Frame(next, automaton, store);
+                        stack.add(frame);
+                        if (frame.universal) {
+                            int[] steps = path(stack, stack.size() - 1);
+                            int[] end = steps[steps.length - 1] < 0 ? new int[0] : null;
+                            return new ModelCheckingResult(topology, false, true, firings(steps), end, store.size());
+                        }
+                    }
+                    continue;
+                }
+                if (top.accepting) {
+                    int[] cycle = redSearch(top.state, automaton, store, red);
+                    if (cycle != null) {
+                        return new ModelCheckingResult(topology, false, true, firings(path(stack, stack.size() - 1)), firings(cycle), store.size());
+                    }
+                }
+                stack.remove(stack.size() - 1);
+            }
+        }
+        return new ModelCheckingResult(topology, true, true, null, null, store.size());
+    }
+
+    /**
+     * Searches a cycle back to an accepting product state, skipping states a previous such
+     * search visited.
+     *
+     * @return the transitions of the cycle, or null if there is none
+     */
+    private int[] redSearch(int seed, BuchiAutomaton automaton, StateStore store, BitSet red) {
+        ArrayList<Frame> stack = new ArrayList<>();
+        red.set(seed);
+        stack.add(new Frame(seed, automaton, store));
+        while (!stack.isEmpty()) {
+            Frame top = stack.get(stack.size() - 1);
+            if (top.position == top.count) {
+                stack.remove(stack.size() - 1);
+                continue;
+            }
+            int next = top.targets[top.position++];
+            if (next == seed) {
+                return path(stack, stack.size());
+            }
+            if (!red.get(next)) {
+                red.set(next);
+                stack.add(new Frame(next, automaton, store));
+            }
+        }
+        return null;
+    }
+
+    /** Returns the transitions taken from the lowest frames of a search stack. */
+    private static int[] path(ArrayList<Frame> stack, int frames) {
+        int[] path = new int[frames];
+        for (int i = 0; i < path.length; i++) {
+            Frame frame = stack.get(i);
+            path[i] = frame.transitions[frame.position - 1];
+        }
+        return path;
+    }
+
+    /** Returns the number of a product state, adding it to the store if it is new. */
+    private int index(StateStore store, int[] tokens, int automatonState) {
+        int[] key = new int[places + 1];
+        System.arraycopy(tokens, 0, key, 0, places);
+        key[places] = automatonState;
+        int index = store.add(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /** Leaves out the steps of a dead marking, which fire no transition. */
+    private static int[] firings(int[] steps) {
+        int count = 0;
+        for (int t : steps) {
+            if (t >= 0) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int t : steps) {
+            if (t >= 0) {
+                result[count++] = t;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A product state on a search stack with its successors, the transition leading to each,
+     * and the position of the next successor to visit.
+     */
+    private class Frame {
+
+        final int state;
+        final boolean accepting;
+        final boolean universal;
+        int[] targets = new int[4];
+        int[] transitions = new int[4];
+        int count;
+        int position;
+
+        Frame(int state, BuchiAutomaton automaton, StateStore store) {
+            this.state = state;
+            int[] key = store.get(state);
+            int q = key[places];
+            accepting = automaton.isAccepting(q);
+            universal = automaton.isUniversal(q);
+            int[] tokens = new int[places];
+            System.arraycopy(key, 0, tokens, 0, places);
+            Marking marking = new Marking(tokens);
+            int[] firable = topology.getFirable(marking);
+            if (firable.length == 0) {
+                if (automaton.matches(q, tokens, firable, -1)) {
+                    for (int next : automaton.getSuccessors(q)) {
+                        add(index(store, tokens, next), -1);
+                    }
+                }
+                return;
+            }
+            for (int t : firable) {
+                if (automaton.matches(q, tokens, firable, t)) {
+                    int[] successor = topology.successor(marking, t).tokens;
+                    for (int next : automaton.getSuccessors(q)) {
+                        add(index(store, successor, next), t);
+                    }
+                }
+            }
+        }
+
+        private void add(int target, int transition) {
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+                transitions = Arrays.copyOf(transitions, count * 2);
+            }
+            targets[count] = target;
+            transitions[count++] = transition;
+        }
+    }
+
+    /**
+     * Checks a CTL property in the initial marking.
+     *
+     * @param formula a CTL formula
+     * @return the result, with a counterexample if the property is violated and its outermost
+     *         operator is a universal one
+     * @throws IllegalArgumentException if the formula has LTL operators
+     */
+    public ModelCheckingResult checkCtl(Formula formula) {
+        if (!formula.isCtl()) {
+            throw new IllegalArgumentException("Not a CTL formula: " + formula);
+        }
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        explorer.setMaxStates(maxStates);
+        ReachabilityGraph graph = explorer.explore();
+        if (!graph.isComplete()) {
+            return new ModelCheckingResult(topology, false, false, null, null, graph.getStateCount());
+        }
+        Labelling labelling = new Labelling(graph);
+        if (labelling.label(formula).get(0)) {
+            return new ModelCheckingResult(topology, true, true, null, null, graph.getStateCount());
+        }
+        int[][] run = labelling.counterexample(formula);
+        if (run == null) {
+            return new ModelCheckingResult(topology, false, true, null, null, graph.getStateCount());
+        }
+        return new ModelCheckingResult(topology, false, true, run[0], run[1], graph.getStateCount());
+    }
+
+    /**
+     * @param maxStates the number of states after which a check stops undecided, one million by default
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * The states of a complete reachability graph where CTL subformulas hold, with a dead
+     * state counting as its own successor.
+     */
+    private class Labelling {
+
+        final ReachabilityGraph graph;
+        final int states;
+        /** Predecessors of every state in compressed form. */
+        final int[] predecessorStart;
+        final int[] predecessors;
+
+        Labelling(ReachabilityGraph graph) {
+            this.graph = graph;
+            states = graph.getStateCount();
+            predecessorStart = new int[states + 1];
+            for (int s = 0; s < states; s++) {
+                for (int e = graph.getFirstEdge(s); e < graph.getEdgeEnd(s); e++) {
+                    predecessorStart[graph.getEdgeTarget(e) + 1]++;
+                }
+                if (isDead(s)) {
+                    predecessorStart[s + 1]++;
+                }
+            }
+            for (int s = 0; s < states; s++) {
+                predecessorStart[s + 1] += predecessorStart[s];
+            }
+            predecessors = new int[predecessorStart[states]];
+            int[] next = predecessorStart.clone();
+            for (int s = 0; s < states; s++) {
+                for (int e = graph.getFirstEdge(s); e < graph.getEdgeEnd(s); e++) {
+                    predecessors[next[graph.getEdgeTarget(e)]++] = s;
+                }
+                if (isDead(s)) {
+                    predecessors[next[s]++] = s;
+                }
+            }
+        }
+
+        boolean isDead(int s) {
+            return graph.getFirstEdge(s) == graph.getEdgeEnd(s);
+        }
+
+        /** Returns the transitions that can fire in a state. */
+        int[] firable(int s) {
+            int[] firable = new int[graph.getEdgeEnd(s) - graph.getFirstEdge(s)];
+            for (int e = graph.getFirstEdge(s); e < graph.getEdgeEnd(s); e++) {
+                firable[e - graph.getFirstEdge(s)] = graph.getEdgeTransition(e);
+            }
+            return firable;
+        }
+
+        /** Returns the states where a formula holds. */
+        BitSet label(Formula formula) {
+            Formula left = formula.getLeft();
+            Formula right = formula.getRight();
+            BitSet result;
+            switch (formula.getKind()) {
+                case Formula.TRUE:
+                    return all();
+                case Formula.FALSE:
+                    return new BitSet();
+                case Formula.ATOM:
+                    result = new BitSet();
+                    for (int s = 0; s < states; s++) {
+                        if (formula.holdsInState(graph.getMarking(s).tokens, firable(s))) {
+                            result.set(s);
+                        }
+                    }
+                    return result;
+                case Formula.NOT:
+                    return complement(label(left));
+                case Formula.AND:
+                    result = label(left);
+                    result.and(label(right));
+                    return result;
+                case Formula.OR:
+                    result = label(left);
+                    result.or(label(right));
+                    return result;
+                case Formula.IMPLIES:
+                    result = complement(label(left));
+                    result.or(label(right));
+                    return result;
+                case Formula.EX:
+                    return existsNext(label(left));
+                case Formula.AX:
+                    return complement(existsNext(complement(label(left))));
+                case Formula.EF:
+                    return existsUntil(all(), label(left));
+                case Formula.AF:
+                    return complement(existsGlobally(complement(label(left))));
+                case Formula.EG:
+                    return existsGlobally(label(left));
+                case Formula.AG:
+                    return complement(existsUntil(all(), complement(label(left))));
+                case Formula.EU:
+                    return existsUntil(label(left), label(right));
+                case Formula.AU:
+                    return complement(violatesAlwaysUntil(label(left), label(right)));
+                default:
+                    throw new IllegalArgumentException("Not a CTL formula: " + formula);
+            }
+        }
+
+        BitSet all() {
+            BitSet result = new BitSet();
+            result.set(0, states);
+            return result;
+        }
+
+        BitSet complement(BitSet set) {
+            BitSet result = all();
+            result.andNot(set);
+            return result;
+        }
+
+        /** Returns the states violating A[a U b]: E[!b U (!a && !b)] or EG !b. */
+        BitSet violatesAlwaysUntil(BitSet a, BitSet b) {
+            BitSet notB = complement(b);
+            BitSet neither = complement(a);
+            neither.andNot(b);
+            BitSet result = existsUntil(notB, neither);
+            result.or(existsGlobally(notB));
+            return result;
+        }
+
+        /** Returns the states with a successor in a set. */
+        BitSet existsNext(BitSet set) {
+            BitSet result = new BitSet();
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                for (int k = predecessorStart[s]; k < predecessorStart[s + 1]; k++) {
+                    result.set(predecessors[k]);
+                }
+            }
+            return result;
+        }
+
+        /** Returns the states from which a path through a stays in a until it reaches b. */
+        BitSet existsUntil(BitSet a, BitSet b) {
+            BitSet result = (BitSet) b.clone();
+            ArrayDeque<Integer> work = new ArrayDeque<>();
+            for (int s = b.nextSetBit(0); s >= 0; s = b.nextSetBit(s + 1)) {
+                work.add(s);
+            }
+            while (!work.isEmpty()) {
+                int s = work.poll();
+                for (int k = predecessorStart[s]; k < predecessorStart[s + 1]; k++) {
+                    int p = predecessors[k];
+                    if (!result.get(p) && a.get(p)) {
+                        result.set(p);
+                        work.add(p);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the states from which a path stays in a set forever, by removing states
+         * without a successor in the set until none is left.
+         */
+        BitSet existsGlobally(BitSet set) {
+            BitSet result = (BitSet) set.clone();
+            int[] inside = new int[states];
+            ArrayDeque<Integer> work = new ArrayDeque<>();
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                for (int k = predecessorStart[s]; k < predecessorStart[s + 1]; k++) {
+                    inside[predecessors[k]]++;
+                }
+            }
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                if (inside[s] == 0) {
+                    result.clear(s);
+                    work.add(s);
+                }
+            }
+            while (!work.isEmpty()) {
+                int s = work.poll();
+                for (int k = predecessorStart[s]; k < predecessorStart[s + 1]; k++) {
+                    int p = predecessors[k];
+                    if (result.get(p) && --inside[p] == 0) {
+                        result.clear(p);
+                        work.add(p);
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns a run from the initial state violating a universal formula, as its prefix
+         * and cycle, or null if the outermost operator gives none.
+         */
+        int[][] counterexample(Formula formula) {
+            Formula left = formula.getLeft();
+            switch (formula.getKind()) {
+                case Formula.AX:
+                    BitSet bad = complement(label(left));
+                    for (int e = graph.getFirstEdge(0); e < graph.getEdgeEnd(0); e++) {
+                        if (bad.get(graph.getEdgeTarget(e))) {
+                            return new int[][] {{graph.getEdgeTransition(e)}, null};
+                        }
+                    }
+                    return new int[][] {{}, new int[0]};
+                case Formula.AG:
+                    bad = complement(label(left));
+                    return new int[][] {graph.getPath(bad.nextSetBit(0)), null};
+                case Formula.AF:
+                    BitSet stay = existsGlobally(complement(label(left)));
+                    return lasso(stay);
+                case Formula.AU:
+                    BitSet a = label(left);
+                    BitSet b = label(formula.getRight());
+                    BitSet notB = complement(b);
+                    BitSet neither = complement(a);
+                    neither.andNot(b);
+                    BitSet reach = existsUntil(notB, neither);
+                    if (reach.get(0)) {
+                        return new int[][] {pathWithin(notB, neither), null};
+                    }
+                    BitSet globally = existsGlobally(notB);
+                    return lasso(globally);
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Returns a shortest firing sequence from the initial state through states of a set
+         * to a state of a target set.
+         */
+        int[] pathWithin(BitSet within, BitSet target) {
+            int[] parent = new int[states];
+            int[] via = new int[states];
+            Arrays.fill(parent, -2);
+            parent[0] = -1;
+            ArrayDeque<Integer> work = new ArrayDeque<>();
+            work.add(0);
+            while (!work.isEmpty()) {
+                int s = work.poll();
+                if (target.get(s)) {
+                    ArrayList<Integer> path = new ArrayList<>();
+                    for (int x = s; parent[x] >= 0; x = parent[x]) {
+                        path.add(0, via[x]);
+                    }
+                    int[] result = new int[path.size()];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = path.get(i);
+                    }
+                    return result;
+                }
+                if (!within.get(s)) {
+                    continue;
+                }
+                for (int e = graph.getFirstEdge(s); e < graph.getEdgeEnd(s); e++) {
+                    int t = graph.getEdgeTarget(e);
+                    if (parent[t] == -2) {
+                        parent[t] = s;
+                        via[t] = graph.getEdgeTransition(e);
+                        work.add(t);
+                    }
+                }
+            }
+            return new int[0];
+        }
+
+        /**
+         * Follows edges inside a set from the initial state until a state repeats or a dead
+         * state is reached, giving a prefix and a cycle.
+         */
+        int[][] lasso(BitSet set) {
+            int[] seen = new int[states];
+            Arrays.fill(seen, -1);
+            ArrayList<Integer> run = new ArrayList<>();
+            int s = 0;
+            while (seen[s] < 0) {
+                seen[s] = run.size();
+                if (isDead(s)) {
+                    return new int[][] {toArray(run, 0, run.size()), new int[0]};
+                }
+                int next = -1;
+                for (int e = graph.getFirstEdge(s); e < graph.getEdgeEnd(s) && next < 0; e++) {
+                    if (set.get(graph.getEdgeTarget(e))) {
+                        next = graph.getEdgeTarget(e);
+                        run.add(graph.getEdgeTransition(e));
+                    }
+                }
+                s = next;
+            }
+            return new int[][] {toArray(run, 0, seen[s]), toArray(run, seen[s], run.size())};
+        }
+
+        int[] toArray(ArrayList<Integer> list, int from, int to) {
+            int[] result = new int[to - from];
+            for (int i = from; i < to; i++) {
+                result[i - from] = list.get(i);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Outcome of checking a {@link Formula} with the {@link ModelChecker}: whether the property
+ * holds and, if not, a run violating it where one could be given.
+ * <p>
+ * A counterexample run fires the transitions of a prefix and then either repeats the
+ * transitions of a cycle forever or stays in a dead marking. A property of a search that
+ * reached its limit without a counterexample is undecided.
+ * </p>
+ */
+public class ModelCheckingResult {
+
+    private final NetTopology topology;
+    private final boolean satisfied;
+    private final boolean complete;
+    private final int[] prefix;
+    private final int[] cycle;
+    private final boolean deadlock;
+    private final long stateCount;
+
+    /**
+     * Creates a result.
+     *
+     * @param topology   The net.
+     * @param satisfied  Whether the property holds.
+     * @param complete   Whether the search ended without reaching a limit.
+     * @param prefix     The transitions fired up to the cycle of a counterexample, or null.
+     * @param cycle      The transitions of the cycle, empty if the run ends in a dead marking, or null.
+     * @param stateCount The number of states visited.
+     */
+    ModelCheckingResult(NetTopology topology, boolean satisfied, boolean complete, int[] prefix, int[] cycle, long stateCount) {
+        this.topology = topology;
+        this.satisfied = satisfied;
+        this.complete = complete;
+        this.prefix = prefix;
+        this.cycle = cycle;
+        this.deadlock = cycle != null && cycle.length == 0;
+        this.stateCount = stateCount;
+    }
+
+    /**
+     * @return true if the property holds; if the search was not complete, this only means
+     *         no counterexample was found
+     */
+    public boolean isSatisfied() {
+        return satisfied;
+    }
+
+    /**
+     * @return true if the search ended without reaching a limit
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if the property was shown to be violated by a counterexample run
+     */
+    public boolean hasCounterexample() {
+        return prefix != null;
+    }
+
+    /**
+     * @return the indices of the transitions fired up to the cycle of the counterexample, or null
+     */
+    public int[] getPrefix() {
+        return prefix == null ? null : prefix.clone();
+    }
+
+    /**
+     * @return the indices of the transitions repeated forever, empty if the counterexample
+     *         ends in a dead marking, or null if it is a finite path
+     */
+    public int[] getCycle() {
+        return cycle == null ? null : cycle.clone();
+    }
+
+    /**
+     * @return true if the counterexample ends in a dead marking
+     */
+    public boolean endsInDeadlock() {
+        return deadlock;
+    }
+
+    /**
+     * @return the number of states visited
+     */
+    public long getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns the counterexample as transition ids, e.g. to show it to the user: the prefix,
+     * then the cycle in parentheses followed by "*", or "dead" if the run ends in a dead marking.
+     *
+     * @return the text, or null if there is no counterexample
+     */
+    public String getCounterexampleText() {
+        if (prefix == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int t : prefix) {
+            text.append(topology.getTransitionId(t)).append(' ');
+        }
+        if (deadlock) {
+            text.append("dead");
+        } else if (cycle != null) {
+            text.append('(');
+            for (int i = 0; i < cycle.length; i++) {
+                if (i > 0) {
+                    text.append(' ');
+                }
+                text.append(topology.getTransitionId(cycle[i]));
+            }
+            text.append(")*");
+        }
+        return text.toString().trim();
+    }
+
+    @Override
+    public String toString() {
+        if (hasCounterexample()) {
+            return "violated: " + getCounterexampleText();
+        }
+        if (!complete) {
+            return "undecided after " + stateCount + " states";
+        }
+        return satisfied ? "satisfied" : "violated";
+    }
+}
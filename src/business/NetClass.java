@@ -27,18 +27,46 @@ public class NetClass {
     private StringBuffer netSource;
     /** Represents a line separator. */
     static final String EOL = System.getProperty("line.separator");
+    /** The net the code is generated for. */
+    private final PetriNet net;
+    /** The custom declarations of the generated class. */
+    private final String declarationText;
 
     /**
-     * Default constructor for the NetClass.
+     * Default constructor for the NetClass, generating the code of the default net.
      */
     public NetClass() {
+        this(Global.petriNet);
+    }
+
+    /**
+     * Creates a NetClass generating the code of a given net.
+     *
+     * @param net The net.
+     */
+    public NetClass(PetriNet net) {
+        this(net, net.getDeclarationText());
+    }
+
+    /**
+     * Creates a NetClass generating the code of a given net with other custom declarations,
+     * e.g. with different values of the constants declared there.
+     *
+     * @param net             The net.
+     * @param declarationText The custom declarations to use instead of those of the net.
+     */
+    public NetClass(PetriNet net, String declarationText) {
+        this.net = net;
+        this.declarationText = declarationText;
         this.generateNetSource();
     }
 
     /**
-     * Compiles a string and creates a new PetriNet instance.
+     * Compiles a string and creates a new PetriNet instance. The net the code was generated
+     * for is left unchanged; callers decide whether the instance replaces it.
      *
      * @param javaSource The Java source code to compile.
+     * @return the compiled net, or null if the source could not be read
      * @throws CompileException if there is a compilation error.
      * @throws ParseException if there is a parsing error.
      * @throws ScanException if there is a scanning error.
@@ -46,14 +74,33 @@ public class NetClass {
      * @throws InstantiationException if there is an instantiation error.
      * @throws IllegalAccessException if there is an access error.
      */
-    public void compile(String javaSource) throws CompileException, ParseException, ScanException, ClassNotFoundException, InstantiationException, IllegalAccessException {
+    public PetriNet compile(String javaSource) throws CompileException, ParseException, ScanException, ClassNotFoundException, InstantiationException, IllegalAccessException {
+        Class<?> cl = compileClass(javaSource);
+        if (cl == null) {
+            return null;
+        }
+        return (PetriNet) cl.newInstance();
+    }
+
+    /**
+     * Compiles a string into the class of the net without creating an instance. Every
+     * instance of the class is a fresh copy of the net in its initial marking.
+     *
+     * @param javaSource The Java source code to compile.
+     * @return the class, or null if the source could not be read
+     * @throws CompileException if there is a compilation error.
+     * @throws ParseException if there is a parsing error.
+     * @throws ScanException if there is a scanning error.
+     * @throws ClassNotFoundException if the class is not found.
+     */
+    public Class<?> compileClass(String javaSource) throws CompileException, ParseException, ScanException, ClassNotFoundException {
         SimpleCompiler compiler = new SimpleCompiler();
         try {
             compiler.cook(new StringReader(javaSource));
-            Class<?> cl = compiler.getClassLoader().loadClass(Global.petriNet.getLabel());
-            Global.petriNet = (PetriNet) cl.newInstance();
+            return compiler.getClassLoader().loadClass(net.getLabel());
         } catch (IOException ex) {
             Logger.getLogger(NetClass.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
         }
     }
 
@@ -67,24 +114,24 @@ public class NetClass {
         this.netSource.append("/* This is an autogenerated Petri-Netz (PetriNet) Simulator Java file. */").append(EOL);
         // Imports
         this.netSource.append("import business.*;").append(EOL);
-        if (!Global.petriNet.getImportText().isEmpty()) {
-            this.netSource.append(Global.petriNet.getImportText()).append(EOL);
+        if (!net.getImportText().isEmpty()) {
+            this.netSource.append(net.getImportText()).append(EOL);
         }
 
-        if (!Global.petriNet.getImplementText().isEmpty()) {
-            this.netSource.append("public class ").append(Global.petriNet.getLabel()).append(" extends PetriNet implements ").append(Global.petriNet.getImplementText()).append(" {").append(EOL).append(EOL);
+        if (!net.getImplementText().isEmpty()) {
+            this.netSource.append("public class ").append(net.getLabel()).append(" extends PetriNet implements ").append(net.getImplementText()).append(" {").append(EOL).append(EOL);
         } else {
-            this.netSource.append("public class ").append(Global.petriNet.getLabel()).append(" extends PetriNet {").append(EOL);
+            this.netSource.append("public class ").append(net.getLabel()).append(" extends PetriNet {").append(EOL);
         }
 
         // Declarations
         this.netSource.append(EOL).append("  /** Custom declarations. */").append(EOL);
-        if (!Global.petriNet.getDeclarationText().isEmpty()) {
-            this.netSource.append("  ").append(Global.petriNet.getDeclarationText()).append(EOL);
+        if (!declarationText.isEmpty()) {
+            this.netSource.append("  ").append(declarationText).append(EOL);
         }
 
         // Places declaration
-        ArrayList<Place> places = Global.petriNet.getPlaces();
+        ArrayList<Place> places = net.getPlaces();
         if (!places.isEmpty()) {
             this.netSource.append(EOL).append("  /** Places declaration. */").append(EOL);
 
@@ -95,7 +142,7 @@ public class NetClass {
         }
 
         // Transitions declaration
-        ArrayList<Transition> transitions = Global.petriNet.getTransitions();
+        ArrayList<Transition> transitions = net.getTransitions();
         if (!transitions.isEmpty()) {
             this.netSource.append(EOL).append("  /** Transitions declaration. */").append(EOL);
             for (int i = 0; i < transitions.size(); i++) {
@@ -104,12 +151,22 @@ public class NetClass {
                 this.netSource.append("         public boolean evaluate(){").append(EOL);
                 this.netSource.append("                 " + transition.getGuardText()).append(EOL);
                 this.netSource.append("         }").append(EOL);
+                // Numeric rates and delays are handled by Transition itself and may change after compilation
+                if (transition.getTiming() == Transition.EXPONENTIAL && !transition.hasConstantDelay()) {
+                    this.netSource.append("         public double delay(java.util.Random random) {").append(EOL);
+                    this.netSource.append("                 return -Math.log(1 - random.nextDouble()) / (" + transition.getDelayText() + ");").append(EOL);
+                    this.netSource.append("         }").append(EOL);
+                } else if (transition.getTiming() == Transition.GENERAL && !transition.hasConstantDelay()) {
+                    this.netSource.append("         public double delay(java.util.Random random) {").append(EOL);
+                    this.netSource.append("                 return " + transition.getDelayText() + ";").append(EOL);
+                    this.netSource.append("         }").append(EOL);
+                }
                 this.netSource.append("  };").append(EOL);
             }
         }
 
         // Input Arcs declaration
-        ArrayList<InputArc> inputArcs = Global.petriNet.getInputArcs();
+        ArrayList<InputArc> inputArcs = net.getInputArcs();
         if (!inputArcs.isEmpty()) {
             this.netSource.append(EOL).append("  /** Input Arcs declaration. */").append(EOL);
             for (int i = 0; i < inputArcs.size(); i++) {
@@ -126,7 +183,7 @@ public class NetClass {
         }
 
         // Output Arcs
-        ArrayList<OutputArc> outputArcs = Global.petriNet.getOutputArcs();
+        ArrayList<OutputArc> outputArcs = net.getOutputArcs();
         if (!outputArcs.isEmpty()) {
             this.netSource.append(EOL).append("  /** Output Arcs declaration. */").append(EOL);
             for (int i = 0; i < outputArcs.size(); i++) {
@@ -152,18 +209,18 @@ public class NetClass {
             }
         }
 
-        this.netSource.append("  /** Class " + Global.petriNet.getLabel() + " constructor. */").append(EOL);
-        this.netSource.append("  public ").append(Global.petriNet.getLabel()).append("() {").append(EOL);
-        this.netSource.append("     setId(\"").append(Global.petriNet.getId()).append("\");").append(EOL);
-        this.netSource.append("     setLabel(\"").append(Global.petriNet.getLabel()).append("\");").append(EOL);
-        if (!Global.petriNet.getDeclarationText().isEmpty()) {
-            this.netSource.append("     setDeclarationText(\"").append(addSlashes(Global.petriNet.getDeclarationText())).append("\");").append(EOL);
+        this.netSource.append("  /** Class " + net.getLabel() + " constructor. */").append(EOL);
+        this.netSource.append("  public ").append(net.getLabel()).append("() {").append(EOL);
+        this.netSource.append("     setId(\"").append(net.getId()).append("\");").append(EOL);
+        this.netSource.append("     setLabel(\"").append(net.getLabel()).append("\");").append(EOL);
+        if (!declarationText.isEmpty()) {
+            this.netSource.append("     setDeclarationText(\"").append(addSlashes(declarationText)).append("\");").append(EOL);
         }
-        if (!Global.petriNet.getImplementText().isEmpty()) {
-            this.netSource.append("     setImplementText(\"").append(addSlashes(Global.petriNet.getImplementText())).append("\");").append(EOL);
+        if (!net.getImplementText().isEmpty()) {
+            this.netSource.append("     setImplementText(\"").append(addSlashes(net.getImplementText())).append("\");").append(EOL);
         }
-        if (!Global.petriNet.getImportText().isEmpty()) {
-            this.netSource.append("     setImportText(\"").append(addSlashes(Global.petriNet.getImportText())).append("\");").append(EOL);
+        if (!net.getImportText().isEmpty()) {
+            this.netSource.append("     setImportText(\"").append(addSlashes(net.getImportText())).append("\");").append(EOL);
         }
 
         for (int i = 0; i < places.size(); i++) {
@@ -183,6 +240,16 @@ public class NetClass {
         for (int i = 0; i < transitions.size(); i++) {
             Transition transition = (Transition) transitions.get(i);
             this.netSource.append("     " + transition.getId() + ".setLabel(\"" + transition.getLabel() + "\");").append(EOL);
+            if (transition.getWeight() != 1) {
+                this.netSource.append("     " + transition.getId() + ".setWeight(" + transition.getWeight() + ");").append(EOL);
+            }
+            if (transition.getPriority() != 0) {
+                this.netSource.append("     " + transition.getId() + ".setPriority(" + transition.getPriority() + ");").append(EOL);
+            }
+            if (!transition.isImmediate()) {
+                this.netSource.append("     " + transition.getId() + ".setTiming(" + transition.getTiming() + ");").append(EOL);
+                this.netSource.append("     " + transition.getId() + ".setDelayText(\"" + addSlashes(transition.getDelayText()) + "\");").append(EOL);
+            }
             this.netSource.append("     addTransition(" + transition.getId() + ");").append(EOL);
         }
 
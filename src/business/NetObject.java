@@ -8,11 +8,13 @@ package business;
  * In this case, NetObject is an abstract class that could be used as a prototype for creating other objects. 
  * It has a constructor that assigns a unique ID to each new object, which is a common feature in prototypes. 
  * The ID is incremented each time a new object is created, ensuring that each object has a unique identifier.
+ * Net objects added to a net also get a dense index among the objects of their kind in that net,
+ * which engines use as an array offset instead of looking the object up by its id.
  */
 public abstract class NetObject {
 
-    /** Latest id assigned to a net object*/
-    public static long LATEST_ID = 0;
+    /** Allocator of the ids of net objects created on their own*/
+    private static final IdAllocator IDS = new IdAllocator();
     
     /** Id of this net object*/
     protected String id;
@@ -20,12 +22,33 @@ public abstract class NetObject {
     /** Label of this net object*/
     protected String label = "";
 
+    /** Position of this object among the objects of its kind in its net, or -1*/
+    private int index = -1;
+
     /**
-     * Constructor that assigns the LATEST_ID to this object and increments it by 1.
+     * Constructor that assigns the next id of the shared allocator to this object.
      */
     public NetObject() {
-        this.id = "" + LATEST_ID;
-        LATEST_ID++;
+        this.id = "" + IDS.next();
+    }
+
+    /**
+     * Get the index of the net object among the places, transitions, input arcs or output
+     * arcs of its net. Indices run from 0 to the number of such objects minus 1.
+     *
+     * @return the index, or -1 if the object is not part of a net
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Set the index of the net object; maintained by the net it is added to.
+     *
+     * @param index the index to set
+     */
+    void setIndex(int index) {
+        this.index = index;
     }
 
     /**
@@ -0,0 +1,454 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The immutable structure of a net: places, transitions, arcs and their constant
+ * attributes, with places and transitions numbered by their {@link NetObject#getIndex() index}.
+ * <p>
+ * The state lives apart in {@link Marking} objects, so one topology can be shared by any
+ * number of markings and threads without copying or recompiling the net. A topology counts
+ * tokens: every arc moves one token, several arcs between the same place and transition add
+ * up, and token values and timestamps are ignored. Guards and arc conditions other than the
+ * defaults depend on token values and cannot be decided on counts; such transitions are
+ * reported by {@link #isDataDependent(int)} and are treated as if their condition held.
+ * </p>
+ * The NetTopology class is an example of the Flyweight design pattern: the shared intrinsic
+ * state is the structure, and the extrinsic state is the marking passed to every method.
+ */
+public final class NetTopology {
+
+    private final String label;
+    private final String[] placeIds;
+    private final String[] transitionIds;
+    private final HashMap<String, Integer> placeIndex = new HashMap<>();
+    private final HashMap<String, Integer> transitionIndex = new HashMap<>();
+    private final int[] capacity;
+    private final int[] initial;
+
+    /** Input places and arc multiplicities of every transition. */
+    private final int[][] inputPlaces;
+    private final int[][] inputWeights;
+    /** Output places and arc multiplicities of every transition. */
+    private final int[][] outputPlaces;
+    private final int[][] outputWeights;
+
+    private final int[] priority;
+    private final double[] weight;
+    private final int[] timing;
+    private final double[] rate;
+    private final boolean[] dataDependent;
+    private final boolean exact;
+
+    /**
+     * Captures the structure and the current marking of a net. Later changes to the net do
+     * not affect the topology.
+     *
+     * @param net The net, usually the compiled net of a simulation.
+     */
+    public NetTopology(PetriNet net) {
+        ArrayList<Place> places = net.getPlaces();
+        ArrayList<Transition> transitions = net.getTransitions();
+        int p = places.size();
+        int n = transitions.size();
+        label = net.getLabel();
+        placeIds = new String[p];
+        capacity = new int[p];
+        initial = new int[p];
+        for (int i = 0; i < p; i++) {
+            Place place = places.get(i);
+            placeIds[i] = place.getId();
+            placeIndex.put(placeIds[i], i);
+            capacity[i] = place.getCapacity();
+            initial[i] = place.getTokens().size();
+        }
+
+        transitionIds = new String[n];
+        priority = new int[n];
+        weight = new double[n];
+        timing = new int[n];
+        rate = new double[n];
+        dataDependent = new boolean[n];
+        inputPlaces = new int[n][];
+        inputWeights = new int[n][];
+        outputPlaces = new int[n][];
+        outputWeights = new int[n][];
+        boolean allExact = true;
+        for (int t = 0; t < n; t++) {
+            Transition transition = transitions.get(t);
+            transitionIds[t] = transition.getId();
+            transitionIndex.put(transitionIds[t], t);
+            priority[t] = transition.getPriority();
+            weight[t] = transition.getWeight();
+            timing[t] = transition.getTiming();
+            rate[t] = transition.getDelayValue();
+            dataDependent[t] = !Transition.DEFAULT_GUARD.equals(transition.getGuardText().trim());
+
+            LinkedHashMap<Integer, Integer> inputs = new LinkedHashMap<>();
+            for (InputArc arc : net.getInputArcs(transition)) {
+                add(inputs, placeIndex.get(arc.getPlace().getId()));
+                if (!InputArc.DEFAULT_EVALUATE.equals(arc.getEvaluateText())) {
+                    dataDependent[t] = true;
+                }
+            }
+            LinkedHashMap<Integer, Integer> outputs = new LinkedHashMap<>();
+            for (OutputArc arc : net.getOutputArcs(transition)) {
+                add(outputs, placeIndex.get(arc.getPlace().getId()));
+            }
+            inputPlaces[t] = keys(inputs);
+            inputWeights[t] = values(inputs);
+            outputPlaces[t] = keys(outputs);
+            outputWeights[t] = values(outputs);
+            allExact &= !dataDependent[t];
+        }
+        exact = allExact;
+    }
+
+    /** Counts one more arc to a place. */
+    private static void add(LinkedHashMap<Integer, Integer> arcs, Integer place) {
+        if (place == null) {
+            throw new IllegalArgumentException("Arc to a place outside the net");
+        }
+        Integer count = arcs.get(place);
+        arcs.put(place, count == null ? 1 : count + 1);
+    }
+
+    /** Returns the places of a map of arcs. */
+    private static int[] keys(LinkedHashMap<Integer, Integer> arcs) {
+        int[] array = new int[arcs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : arcs.entrySet()) {
+            array[i++] = entry.getKey();
+        }
+        return array;
+    }
+
+    /** Returns the multiplicities of a map of arcs. */
+    private static int[] values(LinkedHashMap<Integer, Integer> arcs) {
+        int[] array = new int[arcs.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : arcs.entrySet()) {
+            array[i++] = entry.getValue();
+        }
+        return array;
+    }
+
+    /**
+     * @return the marking of the net when the topology was captured
+     */
+    public Marking getInitialMarking() {
+        return new Marking(initial);
+    }
+
+    /**
+     * Checks whether a transition may fire: its input places hold enough tokens and none of
+     * its output places with a capacity is full.
+     *
+     * @param marking    The marking.
+     * @param transition The index of the transition.
+     * @return true if the transition is enabled
+     */
+    public boolean isEnabled(Marking marking, int transition) {
+        int[] tokens = marking.tokens;
+        int[] places = inputPlaces[transition];
+        int[] weights = inputWeights[transition];
+        for (int i = 0; i < places.length; i++) {
+            if (tokens[places[i]] < weights[i]) {
+                return false;
+            }
+        }
+        places = outputPlaces[transition];
+        for (int i = 0; i < places.length; i++) {
+            int limit = capacity[places[i]];
+            if (limit != 0 && tokens[places[i]] >= limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fires a transition, changing the marking in place. The transition must be enabled.
+     *
+     * @param marking    The marking.
+     * @param transition The index of the transition.
+     */
+    public void fire(Marking marking, int transition) {
+        int[] tokens = marking.tokens;
+        int[] places = inputPlaces[transition];
+        int[] weights = inputWeights[transition];
+        for (int i = 0; i < places.length; i++) {
+            tokens[places[i]] -= weights[i];
+        }
+        places = outputPlaces[transition];
+        weights = outputWeights[transition];
+        for (int i = 0; i < places.length; i++) {
+            tokens[places[i]] += weights[i];
+        }
+    }
+
+    /**
+     * Returns the marking reached by firing a transition, leaving the marking unchanged.
+     *
+     * @param marking    The marking.
+     * @param transition The index of an enabled transition.
+     * @return the new marking
+     */
+    public Marking successor(Marking marking, int transition) {
+        Marking next = marking.copy();
+        fire(next, transition);
+        return next;
+    }
+
+    /**
+     * Returns the transitions that may fire next, as the simulations choose them: enabled
+     * immediate transitions of the highest priority if there are any, otherwise all enabled
+     * timed transitions.
+     *
+     * @param marking The marking.
+     * @return the indices of the transitions, empty in a dead marking
+     */
+    public int[] getFirable(Marking marking) {
+        int count = 0;
+        int[] firable = new int[transitionIds.length];
+        int best = Integer.MIN_VALUE;
+        for (int t = 0; t < transitionIds.length; t++) {
+            if (timing[t] == Transition.IMMEDIATE && priority[t] >= best && isEnabled(marking, t)) {
+                if (priority[t] > best) {
+                    best = priority[t];
+                    count = 0;
+                }
+                firable[count++] = t;
+            }
+        }
+        if (count == 0) {
+            for (int t = 0; t < transitionIds.length; t++) {
+                if (timing[t] != Transition.IMMEDIATE && isEnabled(marking, t)) {
+                    firable[count++] = t;
+                }
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(firable, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Checks whether a marking is vanishing, i.e. left in zero time because an immediate
+     * transition is enabled.
+     *
+     * @param marking The marking.
+     * @return true if an immediate transition is enabled
+     */
+    public boolean isVanishing(Marking marking) {
+        for (int t = 0; t < transitionIds.length; t++) {
+            if (timing[t] == Transition.IMMEDIATE && isEnabled(marking, t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Chooses the next transition at random: among firable immediate transitions with
+     * probability proportional to their weights, among timed ones proportional to their
+     * rates, or their weights if a rate is not a number.
+     *
+     * @param marking The marking.
+     * @param random  The random generator.
+     * @return the index of the transition, or -1 in a dead marking
+     */
+    public int select(Marking marking, Random random) {
+        int[] firable = getFirable(marking);
+        if (firable.length == 0) {
+            return -1;
+        }
+        double total = 0;
+        for (int i = 0; i < firable.length; i++) {
+            total += choiceWeight(firable[i]);
+        }
+        double u = random.nextDouble() * total;
+        for (int i = 0; i < firable.length - 1; i++) {
+            u -= choiceWeight(firable[i]);
+            if (u < 0) {
+                return firable[i];
+            }
+        }
+        return firable[firable.length - 1];
+    }
+
+    /** Returns the weight of a transition in a random choice. */
+    private double choiceWeight(int transition) {
+        if (timing[transition] == Transition.EXPONENTIAL && !Double.isNaN(rate[transition])) {
+            return rate[transition];
+        }
+        return weight[transition];
+    }
+
+    /**
+     * @return the label of the net
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the number of places
+     */
+    public int getPlaceCount() {
+        return placeIds.length;
+    }
+
+    /**
+     * @return the number of transitions
+     */
+    public int getTransitionCount() {
+        return transitionIds.length;
+    }
+
+    /**
+     * @param place the index of a place
+     * @return the id of the place
+     */
+    public String getPlaceId(int place) {
+        return placeIds[place];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the id of the transition
+     */
+    public String getTransitionId(int transition) {
+        return transitionIds[transition];
+    }
+
+    /**
+     * @param placeId the id of a place
+     * @return the index of the place, or -1 if there is no such place
+     */
+    public int indexOfPlace(String placeId) {
+        Integer index = placeIndex.get(placeId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param transitionId the id of a transition
+     * @return the index of the transition, or -1 if there is no such transition
+     */
+    public int indexOfTransition(String transitionId) {
+        Integer index = transitionIndex.get(transitionId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param place the index of a place
+     * @return the capacity of the place, 0 if unlimited
+     */
+    public int getCapacity(int place) {
+        return capacity[place];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the number of distinct input places of the transition
+     */
+    public int getInputCount(int transition) {
+        return inputPlaces[transition].length;
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @param i          the position of the input place, less than {@link #getInputCount(int)}
+     * @return the index of the input place
+     */
+    public int getInputPlace(int transition, int i) {
+        return inputPlaces[transition][i];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @param i          the position of the input place
+     * @return the number of tokens the transition takes from the input place
+     */
+    public int getInputWeight(int transition, int i) {
+        return inputWeights[transition][i];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the number of distinct output places of the transition
+     */
+    public int getOutputCount(int transition) {
+        return outputPlaces[transition].length;
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @param i          the position of the output place, less than {@link #getOutputCount(int)}
+     * @return the index of the output place
+     */
+    public int getOutputPlace(int transition, int i) {
+        return outputPlaces[transition][i];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @param i          the position of the output place
+     * @return the number of tokens the transition puts into the output place
+     */
+    public int getOutputWeight(int transition, int i) {
+        return outputWeights[transition][i];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the priority of the transition
+     */
+    public int getPriority(int transition) {
+        return priority[transition];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the weight of the transition
+     */
+    public double getWeight(int transition) {
+        return weight[transition];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the timing of the transition, one of the timing constants of {@link Transition}
+     */
+    public int getTiming(int transition) {
+        return timing[transition];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return the rate or delay of the transition, NaN if it is an expression
+     */
+    public double getRate(int transition) {
+        return rate[transition];
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return true if the transition has a guard or arc condition that depends on token values
+     */
+    public boolean isDataDependent(int transition) {
+        return dataDependent[transition];
+    }
+
+    /**
+     * @return true if no transition depends on token values, so token counts decide enabling exactly
+     */
+    public boolean isExact() {
+        return exact;
+    }
+}
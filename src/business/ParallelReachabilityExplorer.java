@@ -0,0 +1,312 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Explores the state space of a net on all processors and counts its states, firings and
+ * dead states, for state spaces too large to keep as a {@link ReachabilityGraph}.
+ * <p>
+ * New markings are collected in batches, and every batch is a task of a work-stealing
+ * {@link ForkJoinPool}: a worker expands its own newest batch first, which makes the search
+ * depth-first within one worker, while idle workers steal the oldest batches of the others.
+ * All workers share one {@link ConcurrentStateStore} or any other thread-safe store. The
+ * firing rule is that of the {@link ReachabilityExplorer}, and partial-order reduction
+ * by {@link StubbornSets} can be switched on to keep the dead markings only. With a
+ * {@link Symmetry} only canonical markings are stored.
+ * </p>
+ * <p>
+ * The exploration stops early, leaving the result incomplete, when the number of states or
+ * the used heap exceeds a limit or a worker runs out of memory. Any other failure of a
+ * worker stops all workers and is thrown by {@link #explore()}. Listeners get the progress from the thread that called
+ * {@link #explore()} while it waits for the workers.
+ * </p>
+ * The ParallelReachabilityExplorer class is an example of the Master/Worker design pattern.
+ */
+public class ParallelReachabilityExplorer {
+
+    /** Number of new markings per task. */
+    private static final int BATCH = 64;
+
+    private final NetTopology topology;
+    private final ArrayList<ExplorationListener> listeners = new ArrayList<>();
+    private StateStore store;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long maxStates = Long.MAX_VALUE;
+    private long maxMemory;
+    private int maxDeadlocks = 100;
+    private long reportInterval = 1000;
+    private boolean partialOrderReduction;
+    private Symmetry symmetry;
+
+    private ForkJoinPool pool;
+    private StateStore states;
+    private StubbornSets stubborn;
+    private final AtomicLong stateCount = new AtomicLong();
+    private final LongAdder edgeCount = new LongAdder();
+    private final AtomicLong deadlockCount = new AtomicLong();
+    private final List<Marking> deadlocks = new ArrayList<>();
+    private volatile boolean stopped;
+    private volatile Throwable failure;
+
+    /**
+     * Creates an explorer for a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public ParallelReachabilityExplorer(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an explorer for a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     */
+    public ParallelReachabilityExplorer(NetTopology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * Explores the state space and waits until all workers are done.
+     *
+     * @return the counts of the exploration
+     * @throws RuntimeException if a worker failed
+     * @throws Error if a worker failed for another reason than running out of memory
+     */
+    public synchronized ExplorationResult explore() {
+        states = store == null ? new ConcurrentStateStore() : store;
+        stateCount.set(0);
+        edgeCount.reset();
+        deadlockCount.set(0);
+        deadlocks.clear();
+        stopped = false;
+        failure = null;
+        stubborn = partialOrderReduction ? new StubbornSets(topology) : null;
+
+        long start = System.currentTimeMillis();
+        long lastReport = start;
+        pool = new ForkJoinPool(threads);
+        try {
+            int[] initial = key(topology.getInitialMarking().tokens);
+            if (states.add(initial) >= 0) {
+                stateCount.incrementAndGet();
+            }
+            pool.execute(new Expand(new int[][] {initial}, 1));
+            long poll = Math.max(1, Math.min(reportInterval, 100));
+            while (!pool.awaitQuiescence(poll, TimeUnit.MILLISECONDS)) {
+                if (maxMemory > 0 && usedMemory() > maxMemory) {
+                    stopped = true;
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= reportInterval) {
+                    lastReport = now;
+                    fireProgress(now - start);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            pool = null;
+        }
+        if (failure instanceof OutOfMemoryError) {
+            Logger.getLogger(ParallelReachabilityExplorer.class.getName()).log(Level.WARNING, "Exploration stopped incomplete", failure);
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        fireProgress(elapsed);
+        synchronized (deadlocks) {
+            return new ExplorationResult(states, stateCount.get(), edgeCount.sum(), deadlockCount.get(), deadlocks, !stopped, elapsed);
+        }
+    }
+
+    /**
+     * Stops a running exploration; the result will be incomplete.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /** Returns the heap in use. */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Sends the current counts to the listeners. */
+    private void fireProgress(long elapsed) {
+        for (ExplorationListener listener : listeners) {
+            listener.progress(stateCount.get(), edgeCount.sum(), elapsed);
+        }
+    }
+
+    /** Schedules a task, on the own deque if called by a worker. */
+    private void submit(Expand task) {
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Expands a batch of markings and schedules their new successors.
+     */
+    private class Expand extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] markings;
+        private final int count;
+
+        Expand(int[][] markings, int count) {
+            this.markings = markings;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                int[][] batch = new int[BATCH][];
+                int size = 0;
+                for (int i = 0; i < count && !stopped; i++) {
+                    Marking marking = new Marking(markings[i]);
+                    int[] firable = topology.getFirable(marking);
+                    if (firable.length == 0) {
+                        addDeadlock(marking);
+                    }
+                    if (stubborn != null) {
+                        firable = stubborn.reduce(marking, firable);
+                    }
+                    edgeCount.add(firable.length);
+                    for (int j = 0; j < firable.length; j++) {
+                        int[] successor = key(topology.successor(marking, firable[j]).tokens);
+                        if (states.add(successor) < 0) {
+                            continue;
+                        }
+                        if (stateCount.incrementAndGet() > maxStates) {
+                            stopped = true;
+                            return;
+                        }
+                        batch[size++] = successor;
+                        if (size == BATCH) {
+                            submit(new Expand(batch, size));
+                            batch = new int[BATCH][];
+                            size = 0;
+                        }
+                    }
+                }
+                if (size > 0 && !stopped) {
+                    submit(new Expand(batch, size));
+                }
+            } catch (Throwable ex) {
+                // Also errors: a lost batch must not leave a result that looks complete.
+                failure = ex;
+                stopped = true;
+            }
+        }
+    }
+
+    /** Returns the token counts under which a marking is stored. */
+    private int[] key(int[] tokens) {
+        return symmetry == null ? tokens : symmetry.canonical(tokens);
+    }
+
+    /** Records a dead state. */
+    private void addDeadlock(Marking marking) {
+        deadlockCount.incrementAndGet();
+        synchronized (deadlocks) {
+            if (deadlocks.size() < maxDeadlocks) {
+                deadlocks.add(marking);
+            }
+        }
+    }
+
+    /**
+     * @return the topology explored
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @param listener a listener to receive progress reports
+     */
+    public void addExplorationListener(ExplorationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener to be removed
+     */
+    public void removeExplorationListener(ExplorationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param store an empty thread-safe store for the visited states, or null for a new {@link ConcurrentStateStore}
+     */
+    public void setStore(StateStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param threads the number of worker threads, by default the number of processors
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param partialOrderReduction true to fire the transitions of stubborn sets only, which keeps the dead markings
+     */
+    public void setPartialOrderReduction(boolean partialOrderReduction) {
+        this.partialOrderReduction = partialOrderReduction;
+    }
+
+    /**
+     * @param symmetry the symmetries of the net to store one marking per orbit, or null
+     */
+    public void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * @param maxStates the number of states after which the exploration stops
+     */
+    public void setMaxStates(long maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @param maxMemory the bytes of used heap after which the exploration stops, 0 for no limit
+     */
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * @param maxDeadlocks the number of dead states to keep in the result
+     */
+    public void setMaxDeadlocks(int maxDeadlocks) {
+        this.maxDeadlocks = maxDeadlocks;
+    }
+
+    /**
+     * @param reportInterval the milliseconds between progress reports
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+}
@@ -0,0 +1,330 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.janino.CompileException;
+import org.codehaus.janino.Parser.ParseException;
+import org.codehaus.janino.Scanner.ScanException;
+
+/**
+ * Runs headless simulations of a net for many combinations of parameter values in parallel.
+ * <p>
+ * The points of a sweep are either the full grid of the parameter values or a Latin
+ * hypercube sample of their ranges. Every point is simulated on its own fresh instance of the
+ * compiled net class, with its own random generator seeded from the seed of the sweep and
+ * the index of the point, so results do not depend on the number of threads.
+ * </p>
+ * <p>
+ * The net is compiled once for all points that only differ in data: capacities, initial
+ * markings and numeric rates are set on the fresh instance. Constants of the custom
+ * declarations are part of the code, so the net is compiled once per combination of their
+ * values and the class is reused by every point with that combination.
+ * </p>
+ * The ParameterSweep class is an example of the Template Method design pattern: the sweep
+ * drives every run, and a {@link Configurator} fills in the stop conditions and listeners.
+ */
+public class ParameterSweep {
+
+    /**
+     * Prepares the simulation of a point before it runs, typically by adding stop conditions.
+     * Called on the thread that runs the point.
+     */
+    public interface Configurator {
+
+        /**
+         * Configures a simulation.
+         *
+         * @param simulation The simulation of the point.
+         * @param point      The point.
+         */
+        void configure(Simulation simulation, SweepPoint point);
+    }
+
+    private final PetriNet template;
+    private final ArrayList<SweepParameter> parameters = new ArrayList<>();
+    private Configurator configurator;
+    private long seed = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Compiled net classes keyed by their custom declarations. */
+    private final HashMap<String, Class<?>> classes = new HashMap<>();
+
+    /**
+     * Creates a sweep over an edited net, which is not modified.
+     *
+     * @param template The net to simulate.
+     */
+    public ParameterSweep(PetriNet template) {
+        this.template = template;
+    }
+
+    /**
+     * Adds a parameter to the sweep.
+     *
+     * @param parameter The parameter.
+     * @throws IllegalArgumentException if the target of the parameter does not exist in the net
+     */
+    public void addParameter(SweepParameter parameter) {
+        NetObject target = template.getNetElement(parameter.getTarget());
+        switch (parameter.getKind()) {
+            case SweepParameter.CAPACITY:
+            case SweepParameter.MARKING:
+                if (!(target instanceof Place)) {
+                    throw new IllegalArgumentException("No place " + parameter.getTarget());
+                }
+                break;
+            case SweepParameter.RATE:
+                if (!(target instanceof Transition) || ((Transition) target).isImmediate()) {
+                    throw new IllegalArgumentException("No timed transition " + parameter.getTarget());
+                }
+                if (!((Transition) target).hasConstantDelay()) {
+                    throw new IllegalArgumentException("The delay of " + parameter.getTarget()
+                            + " is an expression; declare a constant for it instead");
+                }
+                break;
+            default:
+                if (!constantPattern(parameter.getTarget()).matcher(template.getDeclarationText()).find()) {
+                    throw new IllegalArgumentException("No constant " + parameter.getTarget() + " in the declarations");
+                }
+        }
+        parameters.add(parameter);
+    }
+
+    /** Returns the pattern matching the initializer of a declared constant. */
+    private static Pattern constantPattern(String name) {
+        return Pattern.compile("(\\b" + Pattern.quote(name) + "\\s*=\\s*)[^;]+;");
+    }
+
+    /**
+     * Returns every combination of the values of the parameters.
+     *
+     * @return the points of the grid
+     */
+    public ArrayList<SweepPoint> gridPoints() {
+        int size = 1;
+        for (SweepParameter parameter : parameters) {
+            size *= parameter.getValues().length;
+        }
+        ArrayList<SweepPoint> points = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            double[] values = new double[parameters.size()];
+            int rest = index;
+            // The last parameter varies fastest
+            for (int i = parameters.size() - 1; i >= 0; i--) {
+                double[] levels = parameters.get(i).getValues();
+                values[i] = levels[rest % levels.length];
+                rest /= levels.length;
+            }
+            points.add(new SweepPoint(index, parameters, values));
+        }
+        return points;
+    }
+
+    /**
+     * Returns a Latin hypercube sample: the range of every parameter is cut into as many
+     * strata as there are points, and every stratum of every parameter holds exactly one point.
+     *
+     * @param count  Number of points.
+     * @param random The random generator of the sample.
+     * @return the points of the sample
+     */
+    public ArrayList<SweepPoint> latinHypercube(int count, Random random) {
+        double[][] values = new double[count][parameters.size()];
+        int[] strata = new int[count];
+        for (int i = 0; i < parameters.size(); i++) {
+            for (int k = 0; k < count; k++) {
+                strata[k] = k;
+            }
+            // Fisher-Yates shuffle of the strata
+            for (int k = count - 1; k > 0; k--) {
+                int j = random.nextInt(k + 1);
+                int swap = strata[k];
+                strata[k] = strata[j];
+                strata[j] = swap;
+            }
+            for (int k = 0; k < count; k++) {
+                values[k][i] = parameters.get(i).valueAt((strata[k] + random.nextDouble()) / count);
+            }
+        }
+        ArrayList<SweepPoint> points = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            points.add(new SweepPoint(k, parameters, values[k]));
+        }
+        return points;
+    }
+
+    /**
+     * Simulates every point, in parallel, and waits for all runs to end.
+     *
+     * @param points The points.
+     * @return the result of every point, in the order of the points
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public ArrayList<SweepResult> run(List<SweepPoint> points) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            ArrayList<Future<SweepResult>> futures = new ArrayList<>(points.size());
+            for (final SweepPoint point : points) {
+                futures.add(executor.submit(new Callable<SweepResult>() {
+                    public SweepResult call() {
+                        return run(point);
+                    }
+                }));
+            }
+            ArrayList<SweepResult> results = new ArrayList<>(points.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException ex) {
+                    results.add(new SweepResult(points.get(i), new RuntimeException(ex.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Simulates one point on the calling thread.
+     *
+     * @param point The point.
+     * @return the result of the run
+     */
+    public SweepResult run(SweepPoint point) {
+        try {
+            PetriNet net = instantiate(point);
+            apply(net, point);
+            Simulation simulation = isTimed() ? new StochasticSimulation(net) : new TimedSimulation(net);
+            simulation.setRandom(new Random(seed + point.getIndex()));
+            SimulationStatistics statistics = new SimulationStatistics();
+            simulation.setStatistics(statistics);
+            if (configurator != null) {
+                configurator.configure(simulation, point);
+            }
+            simulation.run();
+            return new SweepResult(point, statistics, simulation.getSteps(), simulation.getSimulatedTime(), simulation.getStopReason());
+        } catch (Exception ex) {
+            return new SweepResult(point, ex);
+        }
+    }
+
+    /** Checks whether the net has timed transitions and needs a stochastic simulation. */
+    private boolean isTimed() {
+        for (Transition transition : template.getTransitions()) {
+            if (!transition.isImmediate()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a fresh copy of the net in its initial marking, compiled with the constants of
+     * a point. Net objects take their ids from a shared counter, so instances are created one
+     * at a time.
+     */
+    private synchronized PetriNet instantiate(SweepPoint point) throws CompileException, ParseException, ScanException, ReflectiveOperationException {
+        String declarations = template.getDeclarationText();
+        for (int i = 0; i < parameters.size(); i++) {
+            SweepParameter parameter = parameters.get(i);
+            if (parameter.isCompiled()) {
+                Matcher matcher = constantPattern(parameter.getTarget()).matcher(declarations);
+                matcher.find();
+                declarations = declarations.substring(0, matcher.start()) + matcher.group(1)
+                        + SweepPoint.literal(point.getValue(i)) + ";" + declarations.substring(matcher.end());
+            }
+        }
+        Class<?> cl = classes.get(declarations);
+        if (cl == null) {
+            NetClass n = new NetClass(template, declarations);
+            cl = n.compileClass(n.getNetSource().toString());
+            if (cl == null) {
+                throw new IllegalStateException("Net " + template.getLabel() + " could not be compiled");
+            }
+            classes.put(declarations, cl);
+        }
+        return (PetriNet) cl.getDeclaredConstructor().newInstance();
+    }
+
+    /** Sets the data parameters of a point on a fresh copy of the net. */
+    private void apply(PetriNet net, SweepPoint point) {
+        for (int i = 0; i < parameters.size(); i++) {
+            SweepParameter parameter = parameters.get(i);
+            NetObject target = net.getNetElement(parameter.getTarget());
+            double value = point.getValue(i);
+            switch (parameter.getKind()) {
+                case SweepParameter.CAPACITY:
+                    ((Place) target).setCapacity((int) value);
+                    break;
+                case SweepParameter.MARKING:
+                    setMarking((Place) target, (int) value);
+                    break;
+                case SweepParameter.RATE:
+                    ((Transition) target).setDelayText(SweepPoint.literal(value));
+                    break;
+                default:
+                    // Compiled into the class
+            }
+        }
+    }
+
+    /**
+     * Replaces the tokens of a place by copies of its first initial token, or by tokens
+     * holding 1 if the place is initially empty.
+     */
+    private static void setMarking(Place place, int count) {
+        TokenSet initial = place.getTokens();
+        Token model = initial.size() > 0 ? initial.get(0) : new Token(Integer.valueOf(1), 0, "new Integer(1)");
+        TokenSet tokens = new TokenSet();
+        for (int k = 0; k < count; k++) {
+            tokens.add(new Token(model.getObject(), model.getTimestamp(), model.getInitialMarkingExpression()));
+        }
+        place.setTokens(tokens);
+    }
+
+    /**
+     * @return the parameters of the sweep
+     */
+    public ArrayList<SweepParameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @param configurator prepares the simulation of every point, e.g. with stop conditions
+     */
+    public void setConfigurator(Configurator configurator) {
+        this.configurator = configurator;
+    }
+
+    /**
+     * @param seed the seed from which the random generator of every point is derived
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param threads the number of points simulated at the same time
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return the number of distinct net classes compiled so far
+     */
+    public synchronized int getCompiledClassCount() {
+        return classes.size();
+    }
+}
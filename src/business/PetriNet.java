@@ -18,6 +18,10 @@ import java.util.Iterator;
  * The class provides methods for checking whether the Petri Net has enabled transitions
  * and for accessing various lists of elements within the Petri Net.
  * 
+ * Elements may be created, added and removed by several threads at once, since all these
+ * methods lock the net. Reading the element lists while another thread changes them is not
+ * safe.
+ *
  * The PetriNet class is an example of the Composite design pattern. 
  * This pattern is used when you need to treat a group of objects in the same way as a single instance of an object. 
  * The Composite pattern composes objects into tree structures to represent part-whole hierarchies.
@@ -37,6 +41,14 @@ public class PetriNet extends NetObject {
     private ArrayList<OutputArc> outputArcs = new ArrayList<>();
     /** Contains all net objects of the net. */
     private HashMap<String, NetObject> netElements = new HashMap<>();
+    /** Allocator of the ids of objects created through this net. */
+    private final IdAllocator ids = new IdAllocator();
+    /** Input arcs of every transition, by transition index, valid while arcsIndexed is true. */
+    private ArrayList<ArrayList<InputArc>> inputArcsOf;
+    /** Output arcs of every transition, by transition index, valid while arcsIndexed is true. */
+    private ArrayList<ArrayList<OutputArc>> outputArcsOf;
+    /** False when the arcs or transitions changed since the arcs were last grouped. */
+    private volatile boolean arcsIndexed = false;
     /** String that represents the classes and libraries that will be imported in the autogenerated class. */
     private String importText = "";
     /** String that represents the methods and attributes that will be created in the autogenerated class. */
@@ -56,72 +68,137 @@ public class PetriNet extends NetObject {
         Iterator<Transition> i = getTransitions().iterator();
         while (isDead && i.hasNext()) {
             Transition transition = i.next();
-            isDead = !(transition.enabled(0));
+            isDead = !(transition.enabled(this, 0));
         }
         return isDead;
     }
 
+    /**
+     * Returns an id that no object of this net has, made of a prefix and the next number of
+     * the allocator of this net.
+     *
+     * @param prefix The prefix, e.g. "p" for a place.
+     * @return the id
+     */
+    public synchronized String nextId(String prefix) {
+        String id;
+        do {
+            id = prefix + ids.next();
+        } while (netElements.containsKey(id));
+        return id;
+    }
+
+    /** Creates a place with a new id of this net and adds it to this net */
+    public synchronized Place createPlace() {
+        Place place = new Place(nextId("p"));
+        addPlace(place);
+        return place;
+    }
+
+    /** Creates a transition with a new id of this net and adds it to this net */
+    public synchronized Transition createTransition() {
+        Transition transition = new Transition(nextId("t"));
+        addTransition(transition);
+        return transition;
+    }
+
+    /** Creates an input arc with a new id of this net and adds it to this net */
+    public synchronized InputArc createInputArc(Place place, Transition transition) {
+        InputArc inputArc = new InputArc(nextId("i"), place, transition, "1");
+        addInputArc(inputArc);
+        return inputArc;
+    }
+
+    /** Creates an output arc with a new id of this net and adds it to this net */
+    public synchronized OutputArc createOutputArc(Place place, Transition transition) {
+        OutputArc outputArc = new OutputArc(nextId("o"), place, transition, "1");
+        addOutputArc(outputArc);
+        return outputArc;
+    }
+
     /** Adds a place to this net */
-    public void addPlace(Place place) {
+    public synchronized void addPlace(Place place) {
+        place.setIndex(this.places.size());
         this.places.add(place);
         this.netElements.put(place.getId(), place);
     }
 
     /** Adds a transition to this net */
-    public void addTransition(Transition transition) {
+    public synchronized void addTransition(Transition transition) {
+        transition.setIndex(this.transitions.size());
         this.transitions.add(transition);
         this.netElements.put(transition.getId(), transition);
+        this.arcsIndexed = false;
     }
 
     /** Adds an input arc to this net */
-    public void addInputArc(InputArc inputArc) {
+    public synchronized void addInputArc(InputArc inputArc) {
+        inputArc.setIndex(this.inputArcs.size());
         this.inputArcs.add(inputArc);
         this.netElements.put(inputArc.getId(), inputArc);
+        this.arcsIndexed = false;
     }
 
     /** Adds an output arc to this net */
-    public void addOutputArc(OutputArc outputArc) {
+    public synchronized void addOutputArc(OutputArc outputArc) {
+        outputArc.setIndex(this.outputArcs.size());
         this.outputArcs.add(outputArc);
         this.netElements.put(outputArc.getId(), outputArc);
+        this.arcsIndexed = false;
     }
 
     /** Removes a place from this net */
-    public void removePlace(Place place) {
+    public synchronized void removePlace(Place place) {
         this.removeInputArcs(place.getId());
         this.removeOutputArcs(place.getId());
         this.places.remove(place);
         this.netElements.remove(place.getId());
+        place.setIndex(-1);
+        reindex(this.places);
     }
 
     /** Removes a transition from this net */
-    public void removeTransition(Transition transition) {
+    public synchronized void removeTransition(Transition transition) {
         this.removeInputArcs(transition.getId());
         this.removeOutputArcs(transition.getId());
         this.transitions.remove(transition);
         this.netElements.remove(transition.getId());
+        transition.setIndex(-1);
+        reindex(this.transitions);
+        this.arcsIndexed = false;
     }
 
     /** Removes an input arc from this net */
-    public void removeInputArc(InputArc inputArc) {
+    public synchronized void removeInputArc(InputArc inputArc) {
         this.inputArcs.remove(inputArc);
         this.netElements.remove(inputArc.getId());
+        inputArc.setIndex(-1);
+        reindex(this.inputArcs);
+        this.arcsIndexed = false;
     }
 
     /** Removes an output arc from this net */
-    public void removeOutputArc(OutputArc outputArc) {
+    public synchronized void removeOutputArc(OutputArc outputArc) {
         this.outputArcs.remove(outputArc);
         this.netElements.remove(outputArc.getId());
+        outputArc.setIndex(-1);
+        reindex(this.outputArcs);
+        this.arcsIndexed = false;
     }
 
     /** Removes all input arcs that connect to this netObject id */
-    public void removeInputArcs(String id) {
+    public synchronized void removeInputArcs(String id) {
         Iterator<InputArc> it = getInputArcs().iterator();
         while (it.hasNext()) {
             InputArc inputArc = it.next();
-            if (id.equals(inputArc.getPlace().getId())) {
+            if (id.equals(inputArc.getPlace().getId()) || id.equals(inputArc.getTransition().getId())) {
                 it.remove();
+                this.netElements.remove(inputArc.getId());
+                inputArc.setIndex(-1);
             }
         }
+        reindex(this.inputArcs);
+        this.arcsIndexed = false;
     }
 
     /** Removes all output arcs that connect to this netObject id */
@@ -129,10 +206,119 @@ public class PetriNet extends NetObject {
         Iterator<OutputArc> it = getOutputArcs().iterator();
         while (it.hasNext()) {
             OutputArc outputArc = it.next();
-            if (id.equals(outputArc.getPlace().getId())) {
+            if (id.equals(outputArc.getPlace().getId()) || id.equals(outputArc.getTransition().getId())) {
                 it.remove();
+                this.netElements.remove(outputArc.getId());
+                outputArc.setIndex(-1);
             }
         }
+        reindex(this.outputArcs);
+        this.arcsIndexed = false;
+    }
+
+    /** Numbers the objects of a list by their position */
+    private static void reindex(ArrayList<? extends NetObject> list) {
+        for (int i = 0; i < list.size(); i++) {
+            list.get(i).setIndex(i);
+        }
+    }
+
+    /** Groups the arcs of this net by the index of their transition */
+    private synchronized void indexArcs() {
+        if (arcsIndexed) {
+            return;
+        }
+        ArrayList<ArrayList<InputArc>> inputs = new ArrayList<>(transitions.size());
+        ArrayList<ArrayList<OutputArc>> outputs = new ArrayList<>(transitions.size());
+        for (int t = 0; t < transitions.size(); t++) {
+            inputs.add(new ArrayList<InputArc>());
+            outputs.add(new ArrayList<OutputArc>());
+        }
+        for (InputArc arc : inputArcs) {
+            if (contains(arc.getTransition())) {
+                inputs.get(arc.getTransition().getIndex()).add(arc);
+            }
+        }
+        for (OutputArc arc : outputArcs) {
+            if (contains(arc.getTransition())) {
+                outputs.get(arc.getTransition().getIndex()).add(arc);
+            }
+        }
+        inputArcsOf = inputs;
+        outputArcsOf = outputs;
+        arcsIndexed = true;
+    }
+
+    /** Checks whether a transition is the transition of this net at its index */
+    private boolean contains(Transition transition) {
+        int t = transition.getIndex();
+        return t >= 0 && t < transitions.size() && transitions.get(t) == transition;
+    }
+
+    /**
+     * Gets the input arcs of a transition of this net. The list is shared and must not be
+     * modified.
+     *
+     * @param transition The transition.
+     * @return The input arcs whose transition it is.
+     */
+    public ArrayList<InputArc> getInputArcs(Transition transition) {
+        if (!arcsIndexed) {
+            indexArcs();
+        }
+        if (contains(transition)) {
+            return inputArcsOf.get(transition.getIndex());
+        }
+        ArrayList<InputArc> arcs = new ArrayList<>();
+        for (InputArc arc : inputArcs) {
+            if (arc.getTransition().getId().equals(transition.getId())) {
+                arcs.add(arc);
+            }
+        }
+        return arcs;
+    }
+
+    /**
+     * Gets the output arcs of a transition of this net. The list is shared and must not be
+     * modified.
+     *
+     * @param transition The transition.
+     * @return The output arcs whose transition it is.
+     */
+    public ArrayList<OutputArc> getOutputArcs(Transition transition) {
+        if (!arcsIndexed) {
+            indexArcs();
+        }
+        if (contains(transition)) {
+            return outputArcsOf.get(transition.getIndex());
+        }
+        ArrayList<OutputArc> arcs = new ArrayList<>();
+        for (OutputArc arc : outputArcs) {
+            if (arc.getTransition().getId().equals(transition.getId())) {
+                arcs.add(arc);
+            }
+        }
+        return arcs;
+    }
+
+    /**
+     * Gets the place at an index.
+     *
+     * @param index The index of the place, see {@link NetObject#getIndex()}.
+     * @return The place.
+     */
+    public Place getPlace(int index) {
+        return places.get(index);
+    }
+
+    /**
+     * Gets the transition at an index.
+     *
+     * @param index The index of the transition, see {@link NetObject#getIndex()}.
+     * @return The transition.
+     */
+    public Transition getTransition(int index) {
+        return transitions.get(index);
     }
 
     /**
@@ -151,6 +337,7 @@ public class PetriNet extends NetObject {
      */
     public void setPlaces(ArrayList<Place> places) {
         this.places = places;
+        reindex(places);
     }
 
     /**
@@ -169,6 +356,8 @@ public class PetriNet extends NetObject {
      */
     public void setTransitions(ArrayList<Transition> transitions) {
         this.transitions = transitions;
+        reindex(transitions);
+        this.arcsIndexed = false;
     }
 
     /**
@@ -187,6 +376,8 @@ public class PetriNet extends NetObject {
      */
     public void setInputArcs(ArrayList<InputArc> inputArcs) {
         this.inputArcs = inputArcs;
+        reindex(inputArcs);
+        this.arcsIndexed = false;
     }
 
     /**
@@ -205,6 +396,8 @@ public class PetriNet extends NetObject {
      */
     public void setOutputArcs(ArrayList<OutputArc> outputArcs) {
         this.outputArcs = outputArcs;
+        reindex(outputArcs);
+        this.arcsIndexed = false;
     }
 
     /**
@@ -0,0 +1,135 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Serializable;
+
+/**
+ * Streaming statistics of the token count of one place: time-weighted mean, minimum,
+ * maximum and the fraction of time the place holds at least one token. Updated in constant
+ * time whenever the count changes; no history is kept.
+ */
+public class PlaceStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String placeId;
+    private final double startTime;
+    private int count;
+    private int min;
+    private int max;
+    private double lastTime;
+    /** Integral of the token count over time up to lastTime. */
+    private double area;
+    /** Time with at least one token up to lastTime. */
+    private double busyTime;
+
+    /**
+     * Creates the statistics of a place.
+     *
+     * @param placeId   Id of the place.
+     * @param count     Token count at the start of the observation.
+     * @param startTime Start of the observation.
+     */
+    public PlaceStatistics(String placeId, int count, double startTime) {
+        this.placeId = placeId;
+        this.count = count;
+        this.min = count;
+        this.max = count;
+        this.startTime = startTime;
+        this.lastTime = startTime;
+    }
+
+    /**
+     * Changes the token count at a given time. Extremes are not updated, so that the
+     * intermediate counts of a firing are not recorded; see {@link #updateExtremes()}.
+     *
+     * @param time  Time of the change, not before the previous change.
+     * @param delta Number of tokens added, negative for removed tokens.
+     */
+    void change(double time, int delta) {
+        advance(time);
+        count += delta;
+    }
+
+    /** Records the current count as a candidate minimum and maximum. */
+    void updateExtremes() {
+        if (count < min) {
+            min = count;
+        }
+        if (count > max) {
+            max = count;
+        }
+    }
+
+    /**
+     * Accumulates the current count up to a given time.
+     *
+     * @param time The time up to which the count held.
+     */
+    private void advance(double time) {
+        double elapsed = time - lastTime;
+        if (elapsed > 0) {
+            area += count * elapsed;
+            if (count > 0) {
+                busyTime += elapsed;
+            }
+            lastTime = time;
+        }
+    }
+
+    /**
+     * Returns the time-weighted mean token count.
+     *
+     * @param now End of the observation.
+     * @return the mean, or the current count if no time has passed
+     */
+    public double getMean(double now) {
+        double total = now - startTime;
+        if (total <= 0) {
+            return count;
+        }
+        return (area + count * Math.max(0, now - lastTime)) / total;
+    }
+
+    /**
+     * Returns the fraction of time the place held at least one token.
+     *
+     * @param now End of the observation.
+     * @return the busy ratio between 0 and 1; the idle ratio is its complement
+     */
+    public double getBusyRatio(double now) {
+        double total = now - startTime;
+        if (total <= 0) {
+            return count > 0 ? 1 : 0;
+        }
+        return (busyTime + (count > 0 ? Math.max(0, now - lastTime) : 0)) / total;
+    }
+
+    /**
+     * @return the place id
+     */
+    public String getPlaceId() {
+        return placeId;
+    }
+
+    /**
+     * @return the current token count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the minimum token count
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * @return the maximum token count
+     */
+    public int getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,49 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Stops a simulation once the steady-state estimate of a metric reaches a requested relative
+ * precision, i.e. the half width of its confidence interval divided by its mean.
+ * The estimator must be registered as firing listener of the same simulation.
+ */
+public class PrecisionLimit implements StopCondition {
+
+    private final SteadyStateEstimator estimator;
+    private final double precision;
+
+    /**
+     * Creates a precision limit.
+     *
+     * @param estimator The estimator of the metric.
+     * @param precision Requested relative precision, e.g. 0.05 for +/- 5 %.
+     */
+    public PrecisionLimit(SteadyStateEstimator estimator, double precision) {
+        this.estimator = estimator;
+        this.precision = precision;
+    }
+
+    @Override
+    public boolean isReached(Simulation simulation) {
+        SteadyStateEstimate estimate = estimator.getEstimate();
+        return estimate != null && estimate.getRelativePrecision() <= precision;
+    }
+
+    /**
+     * @return the estimator of the metric
+     */
+    public SteadyStateEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * @return the requested relative precision
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public String toString() {
+        return "precision " + precision + " of " + estimator;
+    }
+}
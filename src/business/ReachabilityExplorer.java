@@ -0,0 +1,263 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enumerates all markings reachable from the initial marking of a net by breadth-first
+ * search, so questions like "is this marking reachable" or "is there a deadlock" are
+ * answered exhaustively instead of by chance as in a simulation.
+ * <p>
+ * Transitions fire as in the simulations: enabled immediate transitions of the highest
+ * priority go first, and timed transitions only fire when no immediate one is enabled. The
+ * explorer works on the token counts of a {@link NetTopology}, so guards and arc conditions
+ * are assumed to hold. Visited markings are kept in a {@link StateStore}; since the store
+ * numbers states in the order they are found, the states are explored in numbering order
+ * and no separate queue is needed.
+ * </p>
+ * <p>
+ * For nets with timed transitions the vanishing markings, in which an immediate transition
+ * is enabled, can be eliminated: every edge then leads from a tangible marking through any
+ * number of immediate firings to the next tangible marking, and carries the probability of
+ * that choice of immediate firings. Only the initial marking may be stored although vanishing.
+ * </p>
+ * <p>
+ * With partial-order reduction only the transitions of a {@link StubbornSets stubborn set}
+ * fire in every marking. The graph then still holds every dead marking, and with visible
+ * places every stutter-invariant property of them, but not every reachable marking. A
+ * marking whose reduced successors include an already explored marking or itself is
+ * expanded fully, so no transition is ignored along a cycle.
+ * </p>
+ * <p>
+ * With a {@link Symmetry} every marking is replaced by the canonical marking of its orbit
+ * before it is stored, so markings that differ only by a permutation of replicated
+ * components are explored once.
+ * </p>
+ * The ReachabilityExplorer class is an example of the Strategy design pattern: the store
+ * that remembers visited states can be exchanged.
+ */
+public class ReachabilityExplorer {
+
+    private final NetTopology topology;
+    private StateStore store;
+    private int maxStates = Integer.MAX_VALUE;
+    private boolean eliminateVanishing;
+    private boolean partialOrderReduction;
+    private int[] visiblePlaces;
+    private Symmetry symmetry;
+
+    /**
+     * Creates an explorer for a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public ReachabilityExplorer(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an explorer for a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     */
+    public ReachabilityExplorer(NetTopology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * Explores the state space.
+     *
+     * @return the reachability graph
+     */
+    public ReachabilityGraph explore() {
+        StateStore states = store == null ? new HashedStateStore() : store;
+        if (states.size() != 0) {
+            throw new IllegalStateException("The state store is not empty");
+        }
+        ReachabilityGraph graph = new ReachabilityGraph(topology, states, eliminateVanishing);
+        StubbornSets stubborn = null;
+        if (partialOrderReduction) {
+            stubborn = new StubbornSets(topology);
+            stubborn.setVisiblePlaces(visiblePlaces);
+            if (!stubborn.isApplicable()) {
+                Logger.getLogger(ReachabilityExplorer.class.getName()).log(Level.INFO, "No partial-order reduction for a net with priorities or mixed timing");
+                stubborn = null;
+            }
+        }
+        graph.setReduced(stubborn != null);
+        graph.setSymmetry(symmetry);
+        states.add(key(topology.getInitialMarking()));
+        graph.setParent(0, -1, -1);
+
+        ArrayList<Marking> stack = new ArrayList<>();
+        LinkedHashMap<Integer, Double> targets = new LinkedHashMap<>();
+        int next = 0;
+        while (next < states.size() && next < maxStates) {
+            Marking marking = new Marking(states.get(next));
+            graph.beginState(next);
+            int[] firable = topology.getFirable(marking);
+            if (firable.length == 0) {
+                graph.addDeadlock(next);
+            }
+            double total = immediateWeight(firable);
+            int[] expanded = stubborn == null ? firable : reduce(stubborn, marking, firable, next, states);
+            for (int i = 0; i < expanded.length; i++) {
+                int t = expanded[i];
+                Marking successor = topology.successor(marking, t);
+                double probability = branchProbability(t, total, firable.length);
+                if (eliminateVanishing && topology.isVanishing(successor)) {
+                    targets.clear();
+                    resolve(successor, probability, next, t, graph, stack, targets);
+                    for (Map.Entry<Integer, Double> entry : targets.entrySet()) {
+                        graph.addEdge(entry.getKey(), t, entry.getValue());
+                    }
+                } else {
+                    graph.addEdge(addState(successor, next, t, graph), t, probability);
+                }
+            }
+            next++;
+        }
+        graph.setComplete(next == states.size());
+        return graph;
+    }
+
+    /**
+     * Returns the transitions of a stubborn set, or all firable transitions if the reduced
+     * successors close a cycle while stutter-invariant properties are preserved.
+     */
+    private int[] reduce(StubbornSets stubborn, Marking marking, int[] firable, int state, StateStore states) {
+        int[] reduced = stubborn.reduce(marking, firable);
+        if (reduced.length < firable.length && stubborn.preservesStuttering()) {
+            for (int t : reduced) {
+                int index = states.indexOf(key(topology.successor(marking, t)));
+                if (index >= 0 && index <= state) {
+                    return firable;
+                }
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Follows the immediate firings from a vanishing marking to the tangible markings they
+     * lead to, adding up the probabilities of reaching each of them.
+     */
+    private void resolve(Marking vanishing, double probability, int source, int transition, ReachabilityGraph graph, ArrayList<Marking> stack, LinkedHashMap<Integer, Double> targets) {
+        if (stack.contains(vanishing)) {
+            throw new IllegalStateException("Immediate transitions fire forever from " + vanishing);
+        }
+        stack.add(vanishing);
+        int[] firable = topology.getFirable(vanishing);
+        double total = immediateWeight(firable);
+        for (int i = 0; i < firable.length; i++) {
+            Marking successor = topology.successor(vanishing, firable[i]);
+            double p = probability * branchProbability(firable[i], total, firable.length);
+            if (topology.isVanishing(successor)) {
+                resolve(successor, p, source, transition, graph, stack, targets);
+            } else {
+                Integer target = addState(successor, source, transition, graph);
+                Double sum = targets.get(target);
+                targets.put(target, sum == null ? p : sum + p);
+            }
+        }
+        stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * Stores a successor and records its parent if it is new.
+     *
+     * @return the number of the state
+     */
+    private int addState(Marking marking, int parent, int transition, ReachabilityGraph graph) {
+        int index = graph.getStore().add(key(marking));
+        if (index < 0) {
+            return -index - 1;
+        }
+        graph.setParent(index, parent, transition);
+        return index;
+    }
+
+    /** Returns the token counts under which a marking is stored. */
+    private int[] key(Marking marking) {
+        return symmetry == null ? marking.tokens : symmetry.canonical(marking.tokens);
+    }
+
+    /** Returns the total weight of firable immediate transitions. */
+    private double immediateWeight(int[] firable) {
+        double total = 0;
+        for (int i = 0; i < firable.length; i++) {
+            if (topology.getTiming(firable[i]) == Transition.IMMEDIATE) {
+                total += topology.getWeight(firable[i]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the probability that an immediate transition is chosen among the firable ones,
+     * or 1 for a timed transition, whose rate decides instead.
+     */
+    private double branchProbability(int transition, double total, int count) {
+        if (!eliminateVanishing || topology.getTiming(transition) != Transition.IMMEDIATE) {
+            return 1;
+        }
+        return total > 0 ? topology.getWeight(transition) / total : 1.0 / count;
+    }
+
+    /**
+     * @return the topology explored
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @param store an empty store for the visited states, or null for a new {@link HashedStateStore}
+     */
+    public void setStore(StateStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param maxStates the number of states after which the exploration stops, leaving the graph incomplete
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * @param partialOrderReduction true to fire the transitions of stubborn sets only
+     */
+    public void setPartialOrderReduction(boolean partialOrderReduction) {
+        this.partialOrderReduction = partialOrderReduction;
+    }
+
+    /**
+     * @param visiblePlaces the indices of the places whose stutter-invariant properties the
+     *                      partial-order reduction keeps, or null to keep dead markings only
+     */
+    public void setVisiblePlaces(int[] visiblePlaces) {
+        this.visiblePlaces = visiblePlaces;
+    }
+
+    /**
+     * @param symmetry the symmetries of the net to store one marking per orbit, or null
+     */
+    public void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * Sets whether vanishing markings are eliminated. In a net without timed transitions every
+     * marking with an enabled transition is vanishing, so only dead markings would be left.
+     *
+     * @param eliminateVanishing true to store tangible markings only
+     */
+    public void setEliminateVanishing(boolean eliminateVanishing) {
+        this.eliminateVanishing = eliminateVanishing;
+    }
+}
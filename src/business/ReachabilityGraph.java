@@ -0,0 +1,359 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.Arrays;
+
+/**
+ * The reachable markings of a net and the firings between them, as found by a
+ * {@link ReachabilityExplorer}.
+ * <p>
+ * States are numbered in the order they were found, starting with the initial marking as
+ * state 0, and are kept encoded in a {@link StateStore}. Edges are kept in arrays grouped by
+ * their source state, so the edges leaving state i are the edges from {@link #getFirstEdge(int)}
+ * up to {@link #getEdgeEnd(int)}. Every state except the initial one remembers the state and
+ * transition it was first reached from, which gives a shortest firing sequence to it. With a
+ * {@link Symmetry} the states are canonical markings, and the sequence is mapped back onto the
+ * initial marking of the net, where it reaches a symmetric copy of the state.
+ * </p>
+ */
+public class ReachabilityGraph {
+
+    private final NetTopology topology;
+    private final StateStore store;
+    private final boolean vanishingEliminated;
+
+    private int[] firstEdge = new int[1024];
+    private int explored;
+    private int edgeCount;
+    private int[] edgeTarget = new int[1024];
+    private int[] edgeTransition = new int[1024];
+    private double[] edgeProbability;
+
+    private int[] parentState = new int[1024];
+    private int[] parentTransition = new int[1024];
+
+    private int[] deadlocks = new int[16];
+    private int deadlockCount;
+    private boolean complete;
+    private boolean reduced;
+    private Symmetry symmetry;
+
+    /**
+     * Creates an empty graph.
+     *
+     * @param topology            The net.
+     * @param store               The store that numbers the states.
+     * @param vanishingEliminated Whether edges lead through vanishing markings and carry probabilities.
+     */
+    ReachabilityGraph(NetTopology topology, StateStore store, boolean vanishingEliminated) {
+        this.topology = topology;
+        this.store = store;
+        this.vanishingEliminated = vanishingEliminated;
+        if (vanishingEliminated) {
+            edgeProbability = new double[1024];
+        }
+    }
+
+    /**
+     * Records how a new state was first reached.
+     */
+    void setParent(int state, int parent, int transition) {
+        if (state >= parentState.length) {
+            int length = Math.max(parentState.length * 2, state + 1);
+            parentState = Arrays.copyOf(parentState, length);
+            parentTransition = Arrays.copyOf(parentTransition, length);
+        }
+        parentState[state] = parent;
+        parentTransition[state] = transition;
+    }
+
+    /**
+     * Starts the edges of the next state in numbering order.
+     */
+    void beginState(int state) {
+        if (state + 1 >= firstEdge.length) {
+            firstEdge = Arrays.copyOf(firstEdge, firstEdge.length * 2);
+        }
+        firstEdge[state] = edgeCount;
+        firstEdge[state + 1] = edgeCount;
+        explored = state + 1;
+    }
+
+    /**
+     * Adds an edge leaving the state begun last.
+     */
+    void addEdge(int target, int transition, double probability) {
+        if (edgeCount == edgeTarget.length) {
+            int length = edgeCount * 2;
+            edgeTarget = Arrays.copyOf(edgeTarget, length);
+            edgeTransition = Arrays.copyOf(edgeTransition, length);
+            if (edgeProbability != null) {
+                edgeProbability = Arrays.copyOf(edgeProbability, length);
+            }
+        }
+        edgeTarget[edgeCount] = target;
+        edgeTransition[edgeCount] = transition;
+        if (edgeProbability != null) {
+            edgeProbability[edgeCount] = probability;
+        }
+        edgeCount++;
+        firstEdge[explored] = edgeCount;
+    }
+
+    /**
+     * Records a state without successors.
+     */
+    void addDeadlock(int state) {
+        if (deadlockCount == deadlocks.length) {
+            deadlocks = Arrays.copyOf(deadlocks, deadlockCount * 2);
+        }
+        deadlocks[deadlockCount++] = state;
+    }
+
+    void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    void setReduced(boolean reduced) {
+        this.reduced = reduced;
+    }
+
+    void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /**
+     * @return the net
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * @return the store holding the states
+     */
+    public StateStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return the number of states found
+     */
+    public int getStateCount() {
+        return store.size();
+    }
+
+    /**
+     * @return the number of states whose successors were computed
+     */
+    public int getExploredCount() {
+        return explored;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return true if every reachable state was explored, false if a limit stopped the exploration
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if partial-order reduction left out markings, so only dead markings are all present
+     */
+    public boolean isReduced() {
+        return reduced;
+    }
+
+    /**
+     * @return the symmetries under which markings were stored, or null
+     */
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * @return true if vanishing markings were eliminated, see {@link ReachabilityExplorer#setEliminateVanishing(boolean)}
+     */
+    public boolean isVanishingEliminated() {
+        return vanishingEliminated;
+    }
+
+    /**
+     * @param state the number of a state
+     * @return the marking of the state
+     */
+    public Marking getMarking(int state) {
+        return new Marking(store.get(state));
+    }
+
+    /**
+     * @param marking a marking
+     * @return the number of the marking, or of its canonical marking under the symmetries,
+     *         or -1 if it was not reached
+     */
+    public int indexOf(Marking marking) {
+        return store.indexOf(symmetry == null ? marking.tokens : symmetry.canonical(marking.tokens));
+    }
+
+    /**
+     * @param marking a marking
+     * @return true if the marking was reached
+     */
+    public boolean isReachable(Marking marking) {
+        return indexOf(marking) >= 0;
+    }
+
+    /**
+     * @param state the number of a state
+     * @return the first edge leaving the state
+     */
+    public int getFirstEdge(int state) {
+        return state < explored ? firstEdge[state] : edgeCount;
+    }
+
+    /**
+     * @param state the number of a state
+     * @return the edge after the last edge leaving the state
+     */
+    public int getEdgeEnd(int state) {
+        return state < explored ? firstEdge[state + 1] : edgeCount;
+    }
+
+    /**
+     * @param edge the number of an edge
+     * @return the state the edge leads to
+     */
+    public int getEdgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    /**
+     * @param edge the number of an edge
+     * @return the index of the transition that fires along the edge
+     */
+    public int getEdgeTransition(int edge) {
+        return edgeTransition[edge];
+    }
+
+    /**
+     * @param edge the number of an edge
+     * @return the probability of the immediate firings the edge stands for, 1 without vanishing elimination
+     */
+    public double getEdgeProbability(int edge) {
+        return edgeProbability == null ? 1 : edgeProbability[edge];
+    }
+
+    /**
+     * @return the numbers of the explored states in which no transition is enabled
+     */
+    public int[] getDeadlocks() {
+        return Arrays.copyOf(deadlocks, deadlockCount);
+    }
+
+    /**
+     * @return true if a dead state was found
+     */
+    public boolean hasDeadlock() {
+        return deadlockCount > 0;
+    }
+
+    /**
+     * Returns a shortest firing sequence from the initial marking to a state. With vanishing
+     * elimination the sequence holds the transitions of the edges only, not the immediate
+     * firings in between.
+     * <p>
+     * With a symmetry every step is replaced by a transition that can fire in the marking
+     * actually reached from the initial marking and leads to a copy of the next state, so the
+     * sequence can be fired in the net and ends in a symmetric copy of the state.
+     * </p>
+     *
+     * @param state the number of a state
+     * @return the indices of the transitions in firing order
+     * @throws IllegalStateException if the graph has both a symmetry and vanishing elimination,
+     *                               whose sequences cannot be mapped back
+     */
+    public int[] getPath(int state) {
+        int length = 0;
+        for (int s = state; s > 0; s = parentState[s]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int[] states = new int[length + 1];
+        states[length] = state;
+        for (int s = state; s > 0; s = parentState[s]) {
+            path[--length] = parentTransition[s];
+            states[length] = parentState[s];
+        }
+        if (symmetry != null) {
+            if (vanishingEliminated) {
+                throw new IllegalStateException("Firing sequences through vanishing markings cannot be mapped back under a symmetry");
+            }
+            mapBack(path, states);
+        }
+        return path;
+    }
+
+    /**
+     * Replaces every transition of a sequence between canonical states by one that fires in
+     * the marking reached from the initial marking and leads into the orbit of the next state.
+     * The marking reached is a symmetric copy of the canonical state, so the image of the
+     * canonical transition under that symmetry always qualifies.
+     */
+    private void mapBack(int[] path, int[] states) {
+        Marking marking = topology.getInitialMarking();
+        for (int i = 0; i < path.length; i++) {
+            int[] target = store.get(states[i + 1]);
+            int[] firable = topology.getFirable(marking);
+            Marking next = null;
+            for (int k = -1; k < firable.length && next == null; k++) {
+                int t = k < 0 ? path[i] : firable[k];
+                if (k < 0 && !contains(firable, t)) {
+                    continue;
+                }
+                Marking successor = topology.successor(marking, t);
+                if (Arrays.equals(symmetry.canonical(successor.tokens), target)) {
+                    path[i] = t;
+                    next = successor;
+                }
+            }
+            if (next == null) {
+                throw new IllegalStateException("No transition leads from " + marking + " to a copy of state " + states[i + 1]);
+            }
+            marking = next;
+        }
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a shortest firing sequence to a state as transition ids, e.g. to show it to the user.
+     *
+     * @param state the number of a state
+     * @return the ids separated by spaces
+     * @throws IllegalStateException in the cases of {@link #getPath(int)}
+     */
+    public String getPathText(int state) {
+        StringBuilder text = new StringBuilder();
+        for (int t : getPath(state)) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(topology.getTransitionId(t));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,80 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory trace sink that keeps only the most recent firings.
+ * Firings are formatted once and stored in a fixed size ring, so the memory used by
+ * the trace does not grow with the length of the run.
+ */
+public class RollingTraceBuffer implements TraceSink {
+
+    /** Formatted firings, used as a ring. */
+    private final String[] entries;
+
+    /** Total number of firings written so far. */
+    private long written = 0;
+
+    /**
+     * Creates a rolling buffer.
+     *
+     * @param capacity Number of most recent firings to keep.
+     */
+    public RollingTraceBuffer(int capacity) {
+        this.entries = new String[capacity];
+    }
+
+    @Override
+    public void open(Simulation simulation) {
+    }
+
+    @Override
+    public synchronized void write(List<FiringEvent> batch) {
+        for (FiringEvent event : batch) {
+            entries[(int) (written % entries.length)] = event.toString();
+            written++;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Returns the retained firings, oldest first.
+     *
+     * @return the formatted firings
+     */
+    public synchronized ArrayList<String> getEntries() {
+        int size = (int) Math.min(written, entries.length);
+        ArrayList<String> list = new ArrayList<>(size);
+        for (long i = written - size; i < written; i++) {
+            list.add(entries[(int) (i % entries.length)]);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the retained firings as one text.
+     *
+     * @return the formatted firings, oldest first
+     */
+    public String getText() {
+        StringBuilder s = new StringBuilder();
+        for (String entry : getEntries()) {
+            s.append(entry);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Returns the number of firings written, including the ones no longer retained.
+     *
+     * @return the number of firings
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+}
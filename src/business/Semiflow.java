@@ -0,0 +1,122 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.Arrays;
+
+/**
+ * A non-negative integer vector over the places or the transitions of a net that the
+ * incidence matrix maps to zero, found by {@link InvariantAnalysis}.
+ * <p>
+ * A P-semiflow weights places so that every firing keeps the weighted token sum; a
+ * T-semiflow counts firings that together lead back to the marking they started from. Only
+ * the non-zero entries are kept, in ascending index order, and the weights have no common
+ * divisor.
+ * </p>
+ */
+public class Semiflow {
+
+    private final int[] indices;
+    private final long[] weights;
+
+    /**
+     * Creates a semiflow.
+     *
+     * @param indices The places or transitions with a non-zero weight, ascending.
+     * @param weights Their weights.
+     */
+    Semiflow(int[] indices, long[] weights) {
+        this.indices = indices;
+        this.weights = weights;
+    }
+
+    /**
+     * @return the number of places or transitions in the support
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @param i a position in the support
+     * @return the index of the place or transition at the position
+     */
+    public int getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * @param i a position in the support
+     * @return the weight at the position
+     */
+    public long getWeight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * @param index the index of a place or transition
+     * @return its weight, 0 if it is not in the support
+     */
+    public long getWeightOf(int index) {
+        int i = Arrays.binarySearch(indices, index);
+        return i >= 0 ? weights[i] : 0;
+    }
+
+    /**
+     * @param index the index of a place or transition
+     * @return true if it has a non-zero weight
+     */
+    public boolean contains(int index) {
+        return Arrays.binarySearch(indices, index) >= 0;
+    }
+
+    /**
+     * @return the indices of the support, ascending
+     */
+    public int[] getSupport() {
+        return indices.clone();
+    }
+
+    /**
+     * Returns the weighted sum of a vector, e.g. the token sum a P-semiflow keeps for a marking.
+     *
+     * @param vector the values of all places or transitions
+     * @return the weighted sum
+     * @throws ArithmeticException if the sum does not fit into a long
+     */
+    public long value(int[] vector) {
+        long sum = 0;
+        for (int i = 0; i < indices.length; i++) {
+            sum = Math.addExact(sum, Math.multiplyExact(weights[i], (long) vector[indices[i]]));
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Semiflow)) {
+            return false;
+        }
+        Semiflow semiflow = (Semiflow) other;
+        return Arrays.equals(indices, semiflow.indices) && Arrays.equals(weights, semiflow.weights);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(indices) * 31 + Arrays.hashCode(weights);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < indices.length; i++) {
+            if (i > 0) {
+                text.append(" + ");
+            }
+            if (weights[i] != 1) {
+                text.append(weights[i]).append('*');
+            }
+            text.append('#').append(indices[i]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import org.codehaus.janino.CompileException;
+import org.codehaus.janino.Parser.ParseException;
+import org.codehaus.janino.Scanner.ScanException;
+
+/**
+ * Holds one net being edited or simulated, together with its editing mode.
+ * <p>
+ * Every editor window owns a session, and the canvas, the forms, the file manager and the
+ * simulation of that window work on the net of the session instead of a shared static net.
+ * Sessions share nothing, so several nets can be loaded, compiled and simulated in one JVM.
+ * Simulations always work on a session or an explicit net; only older methods of
+ * {@link Transition} and {@link NetClass} without a net parameter still use the default net
+ * {@link Global#petriNet}.
+ * </p>
+ * The Session class is an example of the Context Object design pattern: it carries the
+ * state that used to be global through the layers that need it.
+ */
+public class Session {
+
+    /** The net of the session. */
+    private PetriNet petriNet;
+
+    /** The current editing mode, one of the mode constants of {@link Global}. */
+    private int mode = Global.SELECTMODE;
+
+    /**
+     * Creates a session with a new empty net.
+     */
+    public Session() {
+        this(new PetriNet());
+    }
+
+    /**
+     * Creates a session for a net.
+     *
+     * @param petriNet The net.
+     */
+    public Session(PetriNet petriNet) {
+        this.petriNet = petriNet;
+    }
+
+    /**
+     * Compiles the net of the session and replaces it by the compiled instance, so the
+     * canvas shows the net that is simulated.
+     *
+     * @return the compiled net
+     * @throws CompileException if there is a compilation error.
+     * @throws ParseException if there is a parsing error.
+     * @throws ScanException if there is a scanning error.
+     * @throws ClassNotFoundException if the class is not found.
+     * @throws InstantiationException if there is an instantiation error.
+     * @throws IllegalAccessException if there is an access error.
+     */
+    public synchronized PetriNet compile() throws CompileException, ParseException, ScanException, ClassNotFoundException, InstantiationException, IllegalAccessException {
+        NetClass n = new NetClass(petriNet);
+        PetriNet compiled = n.compile(n.getNetSource().toString());
+        if (compiled != null) {
+            petriNet = compiled;
+        }
+        return petriNet;
+    }
+
+    /**
+     * @return the net of the session
+     */
+    public synchronized PetriNet getPetriNet() {
+        return petriNet;
+    }
+
+    /**
+     * @param petriNet the net of the session, e.g. a newly created or loaded one
+     */
+    public synchronized void setPetriNet(PetriNet petriNet) {
+        this.petriNet = petriNet;
+    }
+
+    /**
+     * @return the current editing mode
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @param mode the editing mode, one of the mode constants of {@link Global}
+     */
+    public void setMode(int mode) {
+        this.mode = mode;
+    }
+}
@@ -1,13 +1,21 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package business;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import presentation.FrmViewSource;
 import presentation.GUI;
@@ -34,57 +42,225 @@ public class Simulation extends Thread {
 
     private ArrayList<Transition> transitions;
 
-    /** Initializes a new Simulation instance.
+    /** Listeners notified of every firing. */
+    private ArrayList<FiringListener> listeners = new ArrayList<>();
+
+    /** Number of transitions fired so far. */
+    protected long steps = 0;
+
+    /** Random generator used to choose among enabled transitions. */
+    protected Random random = new Random();
+
+    /** Conditions that end the run before a deadlock. */
+    private ArrayList<StopCondition> stopConditions = new ArrayList<>();
+
+    /** The condition that ended the run, or null. */
+    private StopCondition stopReason;
+
+    /** System.nanoTime() when the run started. */
+    private long startNanos;
+
+    /** The simulated net, a compiled copy of the edited net. */
+    protected PetriNet net;
+
+    /** Enabled transitions of the simulated net, created when first needed. */
+    private TransitionSelector selector;
+
+    /** Statistics collected during the run and saved with checkpoints, or null. */
+    private SimulationStatistics statistics;
+
+    /** Initializes a new Simulation instance of the net of the GUI's session, or of a new
+     * empty net if the GUI has no session.
      *
      * @param step Flag for step-by-step execution.
      * @param gui Reference to the GUI.
      */
     public Simulation(boolean step, GUI gui) {
+        this(sessionOf(gui), step, gui);
+    }
+
+    /** Initializes a new Simulation instance of the net of a session, which is replaced by
+     * its compiled copy so the canvas of the GUI shows the simulated net.
+     *
+     * @param session The session whose net is simulated.
+     * @param step Flag for step-by-step execution.
+     * @param gui Reference to the GUI.
+     */
+    public Simulation(Session session, boolean step, GUI gui) {
         this.step = step;
         this.gui = gui;
-        NetClass n = new NetClass();
 
+        Exception e = compileNet(session.getPetriNet());
+        session.setPetriNet(net);
+        if (e != null) {
+            showCompileError(e);
+        }
+    }
+
+    /**
+     * Initializes a headless simulation of the net of a session: no GUI, no animation and no
+     * delay between firings. Used for batch runs and for resuming checkpoints. The net of
+     * the session is replaced by its compiled copy.
+     *
+     * @param session The session whose net is simulated.
+     * @throws IllegalStateException if the net does not compile
+     */
+    public Simulation(Session session) {
+        Exception e = compileNet(session.getPetriNet());
+        if (e != null) {
+            throw new IllegalStateException("Net does not compile: " + e.getMessage(), e);
+        }
+        session.setPetriNet(net);
+    }
+
+    /**
+     * Initializes a headless simulation of an already compiled net. Simulations of
+     * different nets can run in parallel.
+     *
+     * @param net the compiled net to simulate
+     */
+    public Simulation(PetriNet net) {
+        this.net = net;
+    }
+
+    /** Returns the session of a GUI, or a new session if there is none. */
+    private static Session sessionOf(GUI gui) {
+        Session session = gui == null ? null : gui.getSession();
+        return session != null ? session : new Session();
+    }
+
+    /**
+     * Compiles a net into the simulated net and returns the compilation error, if any. On
+     * error the net itself is kept so the GUI still shows it.
+     */
+    private Exception compileNet(PetriNet source) {
+        NetClass n = new NetClass(source);
         try {
-            n.compile(n.generateNetSource());
+            this.net = n.compile(n.generateNetSource());
+            return null;
         } catch (Exception e) {
-            this.stop = true;
-            FrmViewSource jform = new FrmViewSource(JOptionPane.getFrameForComponent(gui), true, e.getMessage(), "Compilation errors");
-            jform.setVisible(true);
-            Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, null, e);
+            this.net = source;
+            return e;
         }
     }
 
+    /** Shows a compilation error and prevents the simulation from running. */
+    private void showCompileError(Exception e) {
+        this.stop = true;
+        FrmViewSource jform = new FrmViewSource(JOptionPane.getFrameForComponent(gui), true, e.getMessage(), "Compilation errors");
+        jform.setVisible(true);
+        Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, null, e);
+    }
+
     @Override
     public void run() {
-        while (!isFinished() && !stop) {
+        startNanos = System.nanoTime();
+        for (FiringListener listener : listeners) {
+            listener.simulationStarted(this);
+        }
+
+        // Stop conditions are checked after isFinished(), which may advance the clock
+        while (!stop && !isFinished() && !stopConditionReached()) {
             fireTransition();
         }
 
-        if (stop) {
-            this.gui.getJTextArea1().append("Stopped.\n");
-        } else {
-            this.gui.getJTextArea1().append("Deadlock.\n");
+        // Listeners flush their traces before the final message is logged
+        for (FiringListener listener : listeners) {
+            listener.simulationFinished(this);
         }
 
-        this.gui.getJTextArea1().setCaretPosition(this.gui.getJTextArea1().getText().length());
+        if (gui == null) {
+            return;
+        }
+        final String message = (stop ? "Stopped.\n"
+                : stopReason != null ? "Stopped: " + stopReason + " reached.\n" : "Deadlock.\n")
+                + (statistics != null ? statistics.toString() : "");
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                gui.getJTextArea1().append(message);
+                gui.getJTextArea1().setCaretPosition(gui.getJTextArea1().getDocument().getLength());
+            }
+        });
+    }
+
+    /**
+     * Checks the stop conditions and remembers the first one reached.
+     *
+     * @return true if a stop condition is reached
+     */
+    protected boolean stopConditionReached() {
+        for (int i = 0; i < stopConditions.size(); i++) {
+            StopCondition condition = stopConditions.get(i);
+            if (condition.isReached(this)) {
+                stopReason = condition;
+                return true;
+            }
+        }
+        return false;
     }
 
     /** Checks whether the simulation has finished. */
     public boolean isFinished() {
-        return Global.petriNet.isDead();
+        return getSelector().isEmpty();
     }
 
-    /** Fires a single transition from the enabled transitions list. */
+    /** Fires a single transition chosen among the enabled transitions. */
     protected void fireTransition() {
-        enabledTransitionList();
+        Transition transition = getRandomTransition();
 
-        if (!this.enabledTransitionList().isEmpty()) {
-            getRandomTransition().fire(this.gui, 0);
+        if (transition != null) {
+            fire(transition, getClock());
 
             pauseResumeSimulation();
         }
     }
 
+    /**
+     * Returns the selector of the enabled transitions of the simulated net, up to date for
+     * the current clock.
+     *
+     * @return the transition selector
+     */
+    protected TransitionSelector getSelector() {
+        if (selector == null) {
+            selector = new TransitionSelector(net);
+        }
+        selector.refresh(getClock());
+        return selector;
+    }
+
+    /**
+     * Fires a transition, animated if there is a GUI, and notifies the listeners.
+     *
+     * @param transition the transition to fire
+     * @param clock      the simulation clock at firing time
+     */
+    protected void fire(Transition transition, long clock) {
+        fire(transition, clock, true);
+    }
+
+    /**
+     * Fires a transition and notifies the listeners.
+     *
+     * @param transition the transition to fire
+     * @param clock      the simulation clock at firing time
+     * @param animate    whether the firing is shown on the canvas of the GUI, if any
+     */
+    protected void fire(Transition transition, long clock, boolean animate) {
+        FiringEvent event = animate && gui != null ? transition.fire(this.gui, net, clock) : transition.fire(net, clock);
+        steps++;
+        if (selector != null) {
+            selector.fired(transition, clock);
+        }
+        if (event != null) {
+            event.setStep(steps);
+            event.setTime(getSimulatedTime());
+            for (FiringListener listener : listeners) {
+                listener.transitionFired(event);
+            }
+        }
+    }
+
     /** Pauses or resumes the simulation based on the step flag and user interaction. */
     public synchronized void pauseResumeSimulation() {
         if (step && !stop) {
@@ -97,7 +273,7 @@ public class Simulation extends Thread {
             } catch (InterruptedException ex) {
                 Logger.getLogger(Simulation.class.getName()).log(Level.SEVERE, null, ex);
             }
-        } else {
+        } else if (gui != null) {
             try {
                 Thread.sleep(DELAY);
             } catch (InterruptedException l) {
@@ -105,30 +281,28 @@ public class Simulation extends Thread {
         }
     }
 
-    /** Returns a random transition from the enabled transitions list. */
+    /**
+     * Chooses the next transition to fire: only the enabled transitions of the highest
+     * priority compete, and each is chosen with probability proportional to its weight.
+     *
+     * @return the chosen transition, or null if no transition is enabled
+     */
     public Transition getRandomTransition() {
-        ArrayList<Transition> enabledTransitions = this.enabledTransitionList();
-
-        // Check if the enabledTransitions list is empty or null
-        if (enabledTransitions == null || enabledTransitions.isEmpty()) {
-            // Return null or throw an exception as appropriate
-            return null; // Or throw a new IllegalStateException("No enabled transitions available");
-        }
-
-        Random generator = new Random();
-        int rand = generator.nextInt(enabledTransitions.size());
-        return enabledTransitions.get(rand);
+        return getSelector().select(random);
     }
 
-    /** Returns a list of enabled transitions. */
+    /**
+     * Returns a list of enabled transitions, checking every transition of the net. The
+     * simulation itself uses the incrementally updated {@link #getSelector() selector}.
+     */
     public ArrayList<Transition> enabledTransitionList() {
-        Iterator<Transition> it = Global.petriNet.getTransitions().iterator();
+        Iterator<Transition> it = net.getTransitions().iterator();
         ArrayList<Transition> enabledTransitions = new ArrayList<>();
         
         while (it.hasNext()) {
             Transition transition = (Transition) it.next();
             
-            if (transition.enabled(0)) {
+            if (transition.enabled(net, 0)) {
                 enabledTransitions.add(transition);
             }
         }
@@ -136,6 +310,215 @@ public class Simulation extends Thread {
         return enabledTransitions;
     }
 
+    /**
+     * Registers a listener notified of every firing. Listeners must be added before the
+     * simulation is started.
+     *
+     * @param listener the listener to add
+     */
+    public void addFiringListener(FiringListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a firing listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeFiringListener(FiringListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds a condition that ends the run before a deadlock. Conditions must be added before
+     * the simulation is started. A condition that is also a {@link FiringListener} is
+     * registered as one, so it can follow the run incrementally.
+     *
+     * @param condition the stop condition to add
+     */
+    public void addStopCondition(StopCondition condition) {
+        stopConditions.add(condition);
+        if (condition instanceof FiringListener) {
+            addFiringListener((FiringListener) condition);
+        }
+    }
+
+    /**
+     * Removes a stop condition.
+     *
+     * @param condition the stop condition to remove
+     */
+    public void removeStopCondition(StopCondition condition) {
+        stopConditions.remove(condition);
+        if (condition instanceof FiringListener) {
+            removeFiringListener((FiringListener) condition);
+        }
+    }
+
+    /**
+     * @return the stop condition that ended the run, or null if it was stopped by the user,
+     * deadlocked or is still running
+     */
+    public StopCondition getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return System.nanoTime() at the start of the run
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the simulated net
+     */
+    public PetriNet getNet() {
+        return net;
+    }
+
+    /**
+     * Returns the current simulation clock. Untimed simulations always run at time 0.
+     *
+     * @return the simulation clock
+     */
+    public long getClock() {
+        return 0;
+    }
+
+    /**
+     * Returns the exact simulated time. Equal to the clock unless the simulation runs in
+     * continuous time.
+     *
+     * @return the simulated time
+     */
+    public double getSimulatedTime() {
+        return getClock();
+    }
+
+    /**
+     * Tells whether the simulation has a clock. Statistics of untimed simulations are
+     * measured in steps instead of time.
+     *
+     * @return true for timed simulations
+     */
+    public boolean isTimed() {
+        return false;
+    }
+
+    /**
+     * Takes a snapshot of the simulation state. Must be called while the simulation is not
+     * firing: from the simulation thread (e.g. by a {@link FiringListener}), while it is
+     * paused, or before it is started.
+     *
+     * @return the checkpoint
+     */
+    public SimulationCheckpoint createCheckpoint() {
+        LinkedHashMap<String, TokenSet> marking = new LinkedHashMap<>();
+        for (Place place : net.getPlaces()) {
+            marking.put(place.getId(), new TokenSet(place.getTokens()));
+        }
+        return new SimulationCheckpoint(net.getId(), net.getLabel(), getClock(), getSimulatedTime(), steps,
+                copy(random), marking, getPending(), statistics == null ? null : copy(statistics));
+    }
+
+    /**
+     * Returns the firing times already sampled for enabled transitions, which a checkpoint
+     * must keep so that a resumed run does not sample them again.
+     *
+     * @return the firing times keyed by transition id in the order they were sampled, or null
+     */
+    protected LinkedHashMap<String, Double> getPending() {
+        return null;
+    }
+
+    /**
+     * Restores a checkpoint taken from a simulation of the same net. Must be called before
+     * the simulation is started.
+     *
+     * @param checkpoint the checkpoint to restore
+     * @throws IllegalArgumentException if a place of the checkpoint does not exist in the net
+     */
+    public void restore(SimulationCheckpoint checkpoint) {
+        for (String placeId : checkpoint.getMarking().keySet()) {
+            if (!(net.getNetElement(placeId) instanceof Place)) {
+                throw new IllegalArgumentException("Checkpoint place " + placeId + " does not exist in " + net.getLabel());
+            }
+        }
+        for (Place place : net.getPlaces()) {
+            TokenSet tokens = checkpoint.getMarking().get(place.getId());
+            place.setTokens(tokens != null ? new TokenSet(tokens) : new TokenSet());
+        }
+        this.steps = checkpoint.getSteps();
+        // A copy, so that the checkpoint can be restored again with the same choices
+        this.random = copy(checkpoint.getRandom());
+        if (selector != null) {
+            selector.invalidate();
+        }
+        if (statistics != null && checkpoint.getStatistics() != null) {
+            statistics.restore(copy(checkpoint.getStatistics()));
+        }
+    }
+
+    /** Copies an object, including its internal state, by serializing it. */
+    @SuppressWarnings("unchecked")
+    private static <T extends Serializable> T copy(T object) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(object);
+            out.close();
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            return (T) in.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalStateException(object.getClass().getSimpleName() + " cannot be copied", ex);
+        }
+    }
+
+    /**
+     * Attaches a statistics collector. The collector is registered as firing listener and its
+     * state is saved with checkpoints and restored with them.
+     *
+     * @param statistics the statistics collector
+     */
+    public void setStatistics(SimulationStatistics statistics) {
+        if (this.statistics != null) {
+            removeFiringListener(this.statistics);
+        }
+        this.statistics = statistics;
+        addFiringListener(statistics);
+    }
+
+    /**
+     * @return the attached statistics collector, or null
+     */
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the random generator used to choose among enabled transitions
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Replaces the random generator, e.g. by a seeded one for reproducible runs.
+     *
+     * @param random the random generator to use
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @return the number of transitions fired so far
+     */
+    public long getSteps() {
+        return steps;
+    }
+
     /**
      * @return the step
      */
@@ -0,0 +1,126 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * Snapshot of a running simulation from which it can be resumed, possibly in another JVM.
+ * <p>
+ * A checkpoint holds the full marking (every token with its payload and timestamp, keyed by
+ * place id), the simulation clock, the number of fired transitions, the state of the
+ * random generator and the firing times already sampled for enabled stochastic transitions,
+ * so a resumed run makes the same choices the original run would have made.
+ * Statistics attached to the simulation are saved as well. The net itself is not part of
+ * the checkpoint; it is restored onto the same model.
+ * </p>
+ * The SimulationCheckpoint class is an example of the Memento design pattern.
+ */
+public class SimulationCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String netId;
+    private final String netLabel;
+    private final long clock;
+    private final double time;
+    private final long steps;
+    private final Random random;
+    private final LinkedHashMap<String, TokenSet> marking;
+    private final LinkedHashMap<String, Double> pending;
+    private final SimulationStatistics statistics;
+
+    /**
+     * Creates a checkpoint. The marking and random generator must already be copies that
+     * the running simulation no longer modifies.
+     *
+     * @param netId      Id of the simulated net.
+     * @param netLabel   Label of the simulated net.
+     * @param clock      Simulation clock.
+     * @param time       Exact simulated time.
+     * @param steps      Number of fired transitions.
+     * @param random     Copy of the random generator.
+     * @param marking    Copy of the tokens of every place, keyed by place id.
+     * @param pending    Scheduled firing times, keyed by transition id in the order they
+     *                   were sampled, or null if the simulation schedules none.
+     * @param statistics Copy of the collected statistics, or null.
+     */
+    public SimulationCheckpoint(String netId, String netLabel, long clock, double time, long steps,
+            Random random, LinkedHashMap<String, TokenSet> marking, LinkedHashMap<String, Double> pending,
+            SimulationStatistics statistics) {
+        this.netId = netId;
+        this.netLabel = netLabel;
+        this.clock = clock;
+        this.time = time;
+        this.steps = steps;
+        this.random = random;
+        this.marking = marking;
+        this.pending = pending;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the id of the simulated net
+     */
+    public String getNetId() {
+        return netId;
+    }
+
+    /**
+     * @return the label of the simulated net
+     */
+    public String getNetLabel() {
+        return netLabel;
+    }
+
+    /**
+     * @return the simulation clock
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the exact simulated time
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return the number of fired transitions
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the random generator state
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * @return the tokens of every place, keyed by place id
+     */
+    public LinkedHashMap<String, TokenSet> getMarking() {
+        return marking;
+    }
+
+    /**
+     * @return the scheduled firing times, keyed by transition id in the order they were
+     *         sampled, or null if the simulation schedules none
+     */
+    public LinkedHashMap<String, Double> getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the collected statistics, or null if none were attached
+     */
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+}
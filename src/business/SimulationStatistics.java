@@ -0,0 +1,196 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+/**
+ * Firing listener collecting per-place and per-transition statistics while a simulation
+ * runs, so logs no longer have to be post-processed.
+ * <p>
+ * Every firing updates only the places it touched and the transition that fired, so the
+ * cost per firing does not depend on the size of the net and nothing of the trace is stored.
+ * Time is the simulated time of a timed simulation and the number of fired
+ * transitions otherwise, where every firing takes one time unit.
+ * </p>
+ * The statistics are serializable and become part of the checkpoints of the simulation they
+ * are attached to (see {@link Simulation#setStatistics(SimulationStatistics)}).
+ */
+public class SimulationStatistics implements FiringListener, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private LinkedHashMap<String, PlaceStatistics> places = new LinkedHashMap<>();
+    private LinkedHashMap<String, TransitionStatistics> transitions = new LinkedHashMap<>();
+    private boolean timed;
+    private double startTime;
+    private double now;
+    private long firings;
+    /** Set by {@link #restore(SimulationStatistics)} so the next start continues the observation. */
+    private transient boolean resumed;
+
+    @Override
+    public void simulationStarted(Simulation simulation) {
+        if (resumed) {
+            resumed = false;
+            return;
+        }
+        reset(simulation);
+    }
+
+    /**
+     * Starts a new observation on the current marking of the simulated net.
+     *
+     * @param simulation the simulation
+     */
+    public void reset(Simulation simulation) {
+        timed = simulation.isTimed();
+        startTime = timed ? simulation.getSimulatedTime() : simulation.getSteps();
+        now = startTime;
+        firings = 0;
+        PetriNet net = simulation.getNet();
+        places = new LinkedHashMap<>();
+        for (Place place : net.getPlaces()) {
+            places.put(place.getId(), new PlaceStatistics(place.getId(), place.getTokens().size(), startTime));
+        }
+        transitions = new LinkedHashMap<>();
+        for (Transition transition : net.getTransitions()) {
+            transitions.put(transition.getId(), new TransitionStatistics(transition.getId()));
+        }
+    }
+
+    @Override
+    public void transitionFired(FiringEvent event) {
+        double time = timed ? event.getTime() : event.getStep();
+        if (time > now) {
+            now = time;
+        }
+        firings++;
+        TransitionStatistics transition = transitions.get(event.getTransition().getId());
+        if (transition != null) {
+            transition.fired(time);
+        }
+        for (Place place : event.getConsumedPlaces()) {
+            place(place, time).change(time, -1);
+        }
+        for (Place place : event.getProducedPlaces()) {
+            place(place, time).change(time, 1);
+        }
+        for (Place place : event.getConsumedPlaces()) {
+            places.get(place.getId()).updateExtremes();
+        }
+        for (Place place : event.getProducedPlaces()) {
+            places.get(place.getId()).updateExtremes();
+        }
+    }
+
+    /**
+     * Returns the statistics of a place, creating them for places unknown at the start.
+     */
+    private PlaceStatistics place(Place place, double time) {
+        PlaceStatistics statistics = places.get(place.getId());
+        if (statistics == null) {
+            statistics = new PlaceStatistics(place.getId(), 0, time);
+            places.put(place.getId(), statistics);
+        }
+        return statistics;
+    }
+
+    @Override
+    public void simulationFinished(Simulation simulation) {
+        // Time may have advanced after the last firing
+        if (timed && simulation.getSimulatedTime() > now) {
+            now = simulation.getSimulatedTime();
+        }
+    }
+
+    /**
+     * Continues the observation of a checkpoint when the simulation is resumed.
+     *
+     * @param snapshot the statistics saved in the checkpoint
+     */
+    public void restore(SimulationStatistics snapshot) {
+        this.places = snapshot.places;
+        this.transitions = snapshot.transitions;
+        this.timed = snapshot.timed;
+        this.startTime = snapshot.startTime;
+        this.now = snapshot.now;
+        this.firings = snapshot.firings;
+        this.resumed = true;
+    }
+
+    /**
+     * @return the time elapsed since the start of the observation
+     */
+    public double getElapsed() {
+        return now - startTime;
+    }
+
+    /**
+     * @return the time of the last observation
+     */
+    public double getNow() {
+        return now;
+    }
+
+    /**
+     * @return the number of firings observed
+     */
+    public long getFirings() {
+        return firings;
+    }
+
+    /**
+     * @param placeId the place id
+     * @return the statistics of the place, or null if the place is unknown
+     */
+    public PlaceStatistics getPlace(String placeId) {
+        return places.get(placeId);
+    }
+
+    /**
+     * @return the statistics of all places, in net order
+     */
+    public Collection<PlaceStatistics> getPlaces() {
+        return places.values();
+    }
+
+    /**
+     * @param transitionId the transition id
+     * @return the statistics of the transition, or null if the transition is unknown
+     */
+    public TransitionStatistics getTransition(String transitionId) {
+        return transitions.get(transitionId);
+    }
+
+    /**
+     * @return the statistics of all transitions, in net order
+     */
+    public Collection<TransitionStatistics> getTransitions() {
+        return transitions.values();
+    }
+
+    /**
+     * Formats the statistics as a text report.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Firings: %d, elapsed %s: %.3f%n", firings, timed ? "time" : "steps", getElapsed()));
+        report.append(String.format(Locale.ROOT, "%-16s %10s %8s %8s %8s%n", "Place", "Mean", "Min", "Max", "Busy"));
+        for (PlaceStatistics place : places.values()) {
+            report.append(String.format(Locale.ROOT, "%-16s %10.3f %8d %8d %8.3f%n", place.getPlaceId(),
+                    place.getMean(now), place.getMin(), place.getMax(), place.getBusyRatio(now)));
+        }
+        report.append(String.format(Locale.ROOT, "%-16s %10s %12s%n", "Transition", "Firings", "Throughput"));
+        for (TransitionStatistics transition : transitions.values()) {
+            report.append(String.format(Locale.ROOT, "%-16s %10d %12.5f%n", transition.getTransitionId(),
+                    transition.getFirings(), transition.getThroughput(getElapsed())));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,529 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the minimal siphons of a net and checks whether each holds a trap that is marked
+ * initially, which tells whether the net can deadlock without exploring its states.
+ * <p>
+ * A siphon is a set of places every transition putting tokens into also takes tokens from,
+ * so once empty it stays empty; a trap is a set of places every transition taking tokens from
+ * also puts tokens into, so once marked it stays marked. If every siphon holds a marked trap
+ * (Commoner's property), no siphon can empty, and a net whose arcs all have weight one cannot
+ * reach a dead marking: the places empty in a dead marking would form an empty siphon. For a
+ * free-choice net, where transitions sharing an input place share all input places, the
+ * property is also necessary for liveness.
+ * </p>
+ * <p>
+ * Siphons are not enumerated as subsets. The largest siphon inside a set of places is found
+ * by removing places a transition fills without taking from the rest, and every removal is
+ * propagated through counters of the remaining input places per transition, like unit
+ * propagation in a SAT solver. A minimal siphon is then found by trying to remove one place
+ * after the other and undoing removals that fail. The search branches on the places of every
+ * siphon found: the i-th branch leaves out the i-th place and keeps the places before it,
+ * so branches are disjoint, every minimal siphon is found once, and branches where a kept
+ * place cannot stay in any siphon are cut.
+ * </p>
+ * <p>
+ * The analysis counts tokens. Its conclusions on deadlocks hold only for nets without
+ * guards, arc conditions, capacities and weighted arcs, see {@link #isDeadlockFree()}.
+ * </p>
+ */
+public class SiphonAnalysis {
+
+    private final NetTopology topology;
+    private final int places;
+    private final int transitions;
+    /** Transitions putting tokens into and taking tokens from every place. */
+    private final int[][] producers;
+    private final int[][] consumers;
+    private final int[] initial;
+    private long maxNodes = 1000000;
+    private int maxSiphons = 100000;
+
+    /** The current set of places, the places removed from it in order, and work space. */
+    private final boolean[] inSet;
+    private final int[] inputsInSet;
+    private final int[] trail;
+    private int trailSize;
+    private final int[] stack;
+
+    private List<int[]> siphons;
+    private int[] counterexample;
+    private boolean commonerChecked;
+
+    /**
+     * Creates an analysis of a net.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public SiphonAnalysis(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an analysis of a topology.
+     *
+     * @param topology The topology.
+     */
+    public SiphonAnalysis(NetTopology topology) {
+        this.topology = topology;
+        places = topology.getPlaceCount();
+        transitions = topology.getTransitionCount();
+        initial = topology.getInitialMarking().tokens;
+        int[] produced = new int[places];
+        int[] consumed = new int[places];
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                produced[topology.getOutputPlace(t, i)]++;
+            }
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                consumed[topology.getInputPlace(t, i)]++;
+            }
+        }
+        producers = new int[places][];
+        consumers = new int[places][];
+        for (int p = 0; p < places; p++) {
+            producers[p] = new int[produced[p]];
+            consumers[p] = new int[consumed[p]];
+            produced[p] = 0;
+            consumed[p] = 0;
+        }
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                int p = topology.getOutputPlace(t, i);
+                producers[p][produced[p]++] = t;
+            }
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                int p = topology.getInputPlace(t, i);
+                consumers[p][consumed[p]++] = t;
+            }
+        }
+        inSet = new boolean[places];
+        inputsInSet = new int[transitions];
+        trail = new int[places];
+        stack = new int[places];
+    }
+
+    /**
+     * Returns all minimal siphons, found on the first call.
+     *
+     * @return the places of every siphon, ascending
+     * @throws IllegalStateException if the search needs more nodes or finds more siphons than allowed
+     */
+    public List<int[]> getMinimalSiphons() {
+        if (siphons == null) {
+            siphons = search(false);
+        }
+        return siphons;
+    }
+
+    /**
+     * Returns the minimal siphons that hold no initially marked trap, which can empty and
+     * then disable every transition taking tokens from them.
+     *
+     * @return the places of every such siphon, ascending
+     * @throws IllegalStateException if the search needs more nodes or finds more siphons than allowed
+     */
+    public List<int[]> getUncontrolledSiphons() {
+        ArrayList<int[]> result = new ArrayList<>();
+        for (int[] siphon : getMinimalSiphons()) {
+            if (!hasMarkedTrap(siphon)) {
+                result.add(siphon);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks Commoner's property, stopping at the first minimal siphon without a marked trap.
+     *
+     * @return true if every minimal siphon holds an initially marked trap
+     * @throws IllegalStateException if the search needs more nodes than allowed
+     */
+    public boolean isCommoner() {
+        if (!commonerChecked) {
+            if (siphons != null) {
+                List<int[]> uncontrolled = getUncontrolledSiphons();
+                counterexample = uncontrolled.isEmpty() ? null : uncontrolled.get(0);
+            } else {
+                List<int[]> found = search(true);
+                counterexample = found.isEmpty() ? null : found.get(0);
+            }
+            commonerChecked = true;
+        }
+        return counterexample == null;
+    }
+
+    /**
+     * @return a minimal siphon without an initially marked trap, or null if Commoner's property holds
+     * @throws IllegalStateException if the search needs more nodes than allowed
+     */
+    public int[] getCounterexample() {
+        isCommoner();
+        return counterexample == null ? null : counterexample.clone();
+    }
+
+    /**
+     * Tells whether the net cannot reach a dead marking, as far as siphons can prove it: the
+     * net must satisfy Commoner's property, have arcs of weight one only, no capacities and
+     * no guards or arc conditions, and at least one transition.
+     *
+     * @return true if the net is deadlock-free, false if that could not be shown
+     * @throws IllegalStateException if the search needs more nodes than allowed
+     */
+    public boolean isDeadlockFree() {
+        if (transitions == 0 || !isOrdinary() || !topology.isExact()) {
+            return false;
+        }
+        for (int p = 0; p < places; p++) {
+            if (topology.getCapacity(p) != 0) {
+                return false;
+            }
+        }
+        return isCommoner();
+    }
+
+    /**
+     * Tells whether Commoner's theorem decides liveness: for an ordinary free-choice net every
+     * transition can always fire again exactly if Commoner's property holds. Priorities and
+     * timing are not considered.
+     *
+     * @return true if the net is known to be live, false if it is known not to be or unknown
+     * @throws IllegalStateException if the search needs more nodes than allowed
+     */
+    public boolean isLive() {
+        return isFreeChoice() && isDeadlockFree();
+    }
+
+    /**
+     * @return true if every arc has weight one
+     */
+    public boolean isOrdinary() {
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                if (topology.getInputWeight(t, i) != 1) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                if (topology.getOutputWeight(t, i) != 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if transitions sharing an input place have the same input places
+     */
+    public boolean isFreeChoice() {
+        for (int p = 0; p < places; p++) {
+            for (int k = 1; k < consumers[p].length; k++) {
+                if (!sameInputs(consumers[p][0], consumers[p][k])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean sameInputs(int t, int u) {
+        if (topology.getInputCount(t) != topology.getInputCount(u)) {
+            return false;
+        }
+        for (int i = 0; i < topology.getInputCount(t); i++) {
+            boolean found = false;
+            for (int j = 0; j < topology.getInputCount(u) && !found; j++) {
+                found = topology.getInputPlace(t, i) == topology.getInputPlace(u, j);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the largest trap inside a set of places, found by removing places a transition
+     * takes tokens from without putting tokens back into the rest.
+     *
+     * @param set the places, e.g. a siphon
+     * @return the places of the trap, ascending, empty if there is none
+     */
+    public int[] getMaximalTrap(int[] set) {
+        boolean[] inTrap = new boolean[places];
+        for (int p : set) {
+            inTrap[p] = true;
+        }
+        int[] outputsInTrap = new int[transitions];
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                if (inTrap[topology.getOutputPlace(t, i)]) {
+                    outputsInTrap[t]++;
+                }
+            }
+        }
+        int[] work = new int[places];
+        int size = 0;
+        for (int p : set) {
+            for (int t : consumers[p]) {
+                if (outputsInTrap[t] == 0 && inTrap[p]) {
+                    inTrap[p] = false;
+                    work[size++] = p;
+                }
+            }
+        }
+        while (size > 0) {
+            int p = work[--size];
+            for (int t : producers[p]) {
+                if (--outputsInTrap[t] == 0) {
+                    for (int i = 0; i < topology.getInputCount(t); i++) {
+                        int q = topology.getInputPlace(t, i);
+                        if (inTrap[q]) {
+                            inTrap[q] = false;
+                            work[size++] = q;
+                        }
+                    }
+                }
+            }
+        }
+        return members(inTrap);
+    }
+
+    /**
+     * @param siphon the places of a siphon
+     * @return true if its largest trap has a token in the initial marking
+     */
+    public boolean hasMarkedTrap(int[] siphon) {
+        for (int p : getMaximalTrap(siphon)) {
+            if (initial[p] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a set of places as their ids, e.g. to show it to the user.
+     *
+     * @param set the places
+     * @return the ids in braces, separated by commas
+     */
+    public String getText(int[] set) {
+        StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < set.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(topology.getPlaceId(set[i]));
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * @param maxNodes the number of search nodes after which the search fails, one million by default
+     */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @param maxSiphons the number of minimal siphons after which the search fails, 100000 by default
+     */
+    public void setMaxSiphons(int maxSiphons) {
+        this.maxSiphons = maxSiphons;
+    }
+
+    /**
+     * Searches minimal siphons by partitioning the search space with the places of every
+     * siphon found.
+     *
+     * @param uncontrolled Whether to stop at the first siphon without a marked trap and return only it.
+     * @return the siphons found
+     */
+    private List<int[]> search(boolean uncontrolled) {
+        ArrayList<int[]> found = new ArrayList<>();
+        boolean[] required = new boolean[places];
+        ArrayDeque<int[][]> open = new ArrayDeque<>();
+        open.push(new int[][] {new int[0], new int[0]});
+        long nodes = 0;
+        while (!open.isEmpty()) {
+            if (++nodes > maxNodes) {
+                throw new IllegalStateException("More than " + maxNodes + " search nodes");
+            }
+            int[][] node = open.pop();
+            int[] excluded = node[0];
+            int[] included = node[1];
+            if (!largestSiphon(excluded, included)) {
+                continue;
+            }
+            for (int p : included) {
+                required[p] = true;
+            }
+            for (int p = 0; p < places; p++) {
+                if (inSet[p] && !required[p]) {
+                    int mark = trailSize;
+                    removeAll(p);
+                    if (!keeps(included)) {
+                        undo(mark);
+                    }
+                }
+            }
+            for (int p : included) {
+                required[p] = false;
+            }
+            int[] siphon = members(inSet);
+            if (isMinimal(siphon)) {
+                if (!uncontrolled) {
+                    found.add(siphon);
+                    if (found.size() > maxSiphons) {
+                        throw new IllegalStateException("More than " + maxSiphons + " minimal siphons");
+                    }
+                } else if (!hasMarkedTrap(siphon)) {
+                    found.add(siphon);
+                    return found;
+                }
+            }
+            int[] branch = new int[siphon.length];
+            int count = 0;
+            for (int p : siphon) {
+                if (Arrays.binarySearch(included, p) < 0) {
+                    branch[count++] = p;
+                }
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                int[] childExcluded = Arrays.copyOf(excluded, excluded.length + 1);
+                childExcluded[excluded.length] = branch[i];
+                int[] childIncluded = Arrays.copyOf(included, included.length + i);
+                System.arraycopy(branch, 0, childIncluded, included.length, i);
+                Arrays.sort(childIncluded);
+                open.push(new int[][] {childExcluded, childIncluded});
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Makes the current set the largest siphon without the excluded places.
+     *
+     * @return false if the siphon is empty or lacks an included place
+     */
+    private boolean largestSiphon(int[] excluded, int[] included) {
+        Arrays.fill(inSet, true);
+        trailSize = 0;
+        for (int t = 0; t < transitions; t++) {
+            inputsInSet[t] = topology.getInputCount(t);
+        }
+        for (int t = 0; t < transitions; t++) {
+            if (topology.getInputCount(t) == 0) {
+                for (int i = 0; i < topology.getOutputCount(t); i++) {
+                    int q = topology.getOutputPlace(t, i);
+                    if (inSet[q]) {
+                        removeAll(q);
+                    }
+                }
+            }
+        }
+        for (int p : excluded) {
+            if (inSet[p]) {
+                removeAll(p);
+            }
+        }
+        return keeps(included);
+    }
+
+    /**
+     * Checks that the current set is not empty and holds the included places.
+     */
+    private boolean keeps(int[] included) {
+        if (trailSize == places) {
+            return false;
+        }
+        for (int p : included) {
+            if (!inSet[p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that no place can be left out of a siphon that is the current set without
+     * emptying it.
+     */
+    private boolean isMinimal(int[] siphon) {
+        if (siphon.length == 1) {
+            return true;
+        }
+        for (int p : siphon) {
+            int mark = trailSize;
+            removeAll(p);
+            boolean empty = trailSize == places;
+            undo(mark);
+            if (!empty) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a place from the current set together with every place that can then no
+     * longer be in a siphon inside it.
+     */
+    private void removeAll(int p) {
+        int size = 0;
+        inSet[p] = false;
+        trail[trailSize++] = p;
+        stack[size++] = p;
+        while (size > 0) {
+            int x = stack[--size];
+            for (int t : consumers[x]) {
+                if (--inputsInSet[t] == 0) {
+                    for (int i = 0; i < topology.getOutputCount(t); i++) {
+                        int q = topology.getOutputPlace(t, i);
+                        if (inSet[q]) {
+                            inSet[q] = false;
+                            trail[trailSize++] = q;
+                            stack[size++] = q;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Puts back the places removed since a trail position. */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int p = trail[--trailSize];
+            inSet[p] = true;
+            for (int t : consumers[p]) {
+                inputsInSet[t]++;
+            }
+        }
+    }
+
+    private static int[] members(boolean[] set) {
+        int count = 0;
+        for (boolean member : set) {
+            if (member) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int p = 0; p < set.length; p++) {
+            if (set[p]) {
+                result[count++] = p;
+            }
+        }
+        return result;
+    }
+}
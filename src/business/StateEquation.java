@@ -0,0 +1,189 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Decides reachability questions without exploring states where the state equation rules
+ * them out: every marking M reachable from M0 satisfies M = M0 + C·x for the incidence
+ * matrix C and the vector x counting how often every transition fired.
+ * <p>
+ * A question is turned into an {@link IntegerProgram} over x and solved with the embedded
+ * simplex method and branch and bound. If there is no non-negative integer solution the
+ * answer is certainly no, which settles the question instantly; a solution only means the
+ * marking may be reachable, and an exploration has to tell. The firing counts of a solution
+ * are kept as a hint. Places no transition changes, and places whose change is not a
+ * multiple of the greatest common divisor of their row, are settled before the program is
+ * built; branch and bound alone would not end on such equations when cycles of transitions
+ * leave the firing counts unbounded. Places with a capacity keep the bound that the firing
+ * rule enforces.
+ * </p>
+ * <p>
+ * The equation counts tokens and ignores guards, arc conditions, priorities and timing, which
+ * only take firings away, so a no stays a no for the real net. The program is dense, with a
+ * row per place that some transition changes and a column per transition.
+ * </p>
+ */
+public class StateEquation {
+
+    private final NetTopology topology;
+    private final IncidenceMatrix matrix;
+    private final int[] initial;
+    /** The row of every place, null for places no transition changes. */
+    private final double[][] rows;
+    /** The greatest common divisor of every row. */
+    private final int[] divisors;
+    private int maxNodes = 1000;
+    private long[] firingCounts;
+
+    /**
+     * Creates the state equation of a net.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public StateEquation(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates the state equation of a topology.
+     *
+     * @param topology The topology.
+     */
+    public StateEquation(NetTopology topology) {
+        this.topology = topology;
+        matrix = new IncidenceMatrix(topology);
+        initial = topology.getInitialMarking().tokens;
+        rows = new double[matrix.getRowCount()][];
+        divisors = new int[rows.length];
+        for (int p = 0; p < rows.length; p++) {
+            if (matrix.getRowEnd(p) > matrix.getRowStart(p)) {
+                rows[p] = new double[matrix.getColumnCount()];
+                for (int k = matrix.getRowStart(p); k < matrix.getRowEnd(p); k++) {
+                    rows[p][matrix.getRowColumn(k)] = matrix.getRowValue(k);
+                    divisors[p] = gcd(divisors[p], Math.abs(matrix.getRowValue(k)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a marking may be reachable.
+     *
+     * @param target the marking
+     * @return false if the marking is certainly not reachable, true if the state equation has
+     *         a solution or the search for one reached its limit
+     */
+    public boolean isReachable(Marking target) {
+        firingCounts = null;
+        IntegerProgram program = new IntegerProgram(matrix.getColumnCount());
+        for (int p = 0; p < rows.length; p++) {
+            if (rows[p] == null) {
+                if (target.tokens[p] != initial[p]) {
+                    return false;
+                }
+            } else if ((target.tokens[p] - initial[p]) % divisors[p] != 0) {
+                return false;
+            } else {
+                program.addConstraint(rows[p], IntegerProgram.EQUAL, target.tokens[p] - initial[p]);
+            }
+        }
+        addCapacities(program);
+        return solve(program, target.tokens, -1, 0);
+    }
+
+    /**
+     * Checks whether a place may hold more than a number of tokens.
+     *
+     * @param place the index of a place
+     * @param bound the number of tokens
+     * @return false if no reachable marking puts more tokens into the place, true if the
+     *         state equation has such a solution or the search for one reached its limit
+     */
+    public boolean canExceed(int place, int bound) {
+        firingCounts = null;
+        if (rows[place] == null) {
+            return initial[place] > bound;
+        }
+        IntegerProgram program = new IntegerProgram(matrix.getColumnCount());
+        for (int p = 0; p < rows.length; p++) {
+            if (rows[p] != null) {
+                program.addConstraint(rows[p], IntegerProgram.GREATER, -initial[p]);
+            }
+        }
+        addCapacities(program);
+        program.addConstraint(rows[place], IntegerProgram.GREATER, (double) bound + 1 - initial[place]);
+        return solve(program, null, place, bound);
+    }
+
+    /**
+     * @return how often every transition fires in the solution of the last question, or null
+     *         if it had none or the search reached its limit
+     */
+    public long[] getFiringCounts() {
+        return firingCounts == null ? null : firingCounts.clone();
+    }
+
+    /**
+     * @param maxNodes the number of branch and bound nodes after which a question is left open, 1000 by default
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Adds the bound of every place with a capacity: a transition may only put tokens into it
+     * while it holds fewer tokens than the capacity.
+     */
+    private void addCapacities(IntegerProgram program) {
+        for (int p = 0; p < rows.length; p++) {
+            int capacity = topology.getCapacity(p);
+            if (capacity != 0 && rows[p] != null) {
+                int weight = 0;
+                for (int k = matrix.getRowStart(p); k < matrix.getRowEnd(p); k++) {
+                    weight = Math.max(weight, matrix.getRowValue(k));
+                }
+                long limit = Math.max(initial[p], (long) capacity - 1 + weight);
+                program.addConstraint(rows[p], IntegerProgram.LESS, (double) limit - initial[p]);
+            }
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * Solves a program and checks its solution exactly against the question.
+     *
+     * @param target The marking to reach, or null.
+     * @param place  The place that has to exceed a bound, or -1.
+     * @param bound  The bound.
+     */
+    private boolean solve(IntegerProgram program, int[] target, int place, int bound) {
+        program.setMaxNodes(maxNodes);
+        int result = program.solve();
+        if (result == IntegerProgram.INFEASIBLE) {
+            return false;
+        }
+        if (result == IntegerProgram.FEASIBLE) {
+            long[] x = program.getSolution();
+            long[] change = matrix.multiply(x);
+            boolean exact = true;
+            for (int p = 0; p < change.length; p++) {
+                long tokens = initial[p] + change[p];
+                exact &= target == null ? tokens >= 0 : tokens == target[p];
+            }
+            if (place >= 0) {
+                exact &= initial[place] + change[place] > bound;
+            }
+            if (exact) {
+                firingCounts = x;
+            }
+        }
+        return true;
+    }
+}
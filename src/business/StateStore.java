@@ -0,0 +1,43 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * A set of markings that gives every stored marking a number, used by the state-space
+ * explorers to remember visited states. Stores used by the {@link ReachabilityExplorer}
+ * number markings 0, 1, 2, ... in the order they were added.
+ * <p>
+ * Markings are passed as arrays of token counts indexed like the places of a
+ * {@link NetTopology}. A store keeps its own encoding and never holds on to the arrays.
+ * </p>
+ */
+public interface StateStore {
+
+    /**
+     * Adds a marking unless it is already stored.
+     *
+     * @param marking The token counts.
+     * @return the number of the marking if it was added, or -(number + 1) if it was already stored
+     */
+    int add(int[] marking);
+
+    /**
+     * Looks up a marking.
+     *
+     * @param marking The token counts.
+     * @return the number of the marking, or -1 if it is not stored
+     */
+    int indexOf(int[] marking);
+
+    /**
+     * Returns a stored marking.
+     *
+     * @param index The number of the marking.
+     * @return a new array with the token counts
+     */
+    int[] get(int index);
+
+    /**
+     * @return the number of stored markings
+     */
+    int size();
+}
@@ -0,0 +1,92 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Steady-state estimate of a simulation metric: the mean after the warm-up period and the
+ * half width of its batch-means confidence interval.
+ */
+public class SteadyStateEstimate {
+
+    private final double mean;
+    private final double halfWidth;
+    private final double confidence;
+    private final int warmupBatches;
+    private final int batches;
+    private final int batchSize;
+
+    /**
+     * Creates an estimate.
+     *
+     * @param mean          Mean of the metric after the warm-up.
+     * @param halfWidth     Half width of the confidence interval, infinite with fewer than two batches.
+     * @param confidence    Confidence level of the interval, e.g. 0.95.
+     * @param warmupBatches Number of basic batches discarded as warm-up.
+     * @param batches       Number of batches the interval is computed from.
+     * @param batchSize     Number of basic batches in each of these batches.
+     */
+    public SteadyStateEstimate(double mean, double halfWidth, double confidence, int warmupBatches, int batches, int batchSize) {
+        this.mean = mean;
+        this.halfWidth = halfWidth;
+        this.confidence = confidence;
+        this.warmupBatches = warmupBatches;
+        this.batches = batches;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the half width of the confidence interval relative to the mean.
+     *
+     * @return the relative precision, infinite if the mean is 0 or the interval unknown
+     */
+    public double getRelativePrecision() {
+        return mean == 0 ? Double.POSITIVE_INFINITY : halfWidth / Math.abs(mean);
+    }
+
+    /**
+     * @return the mean after the warm-up
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the half width of the confidence interval
+     */
+    public double getHalfWidth() {
+        return halfWidth;
+    }
+
+    /**
+     * @return the confidence level
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return the number of basic batches discarded as warm-up
+     */
+    public int getWarmupBatches() {
+        return warmupBatches;
+    }
+
+    /**
+     * @return the number of batches of the interval
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return the number of basic batches per batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT, "%.6g +/- %.3g (%.0f%%, warm-up %d, %d batches of %d)",
+                mean, halfWidth, confidence * 100, warmupBatches, batches, batchSize);
+    }
+}
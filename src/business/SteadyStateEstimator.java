@@ -0,0 +1,344 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.Arrays;
+
+/**
+ * Firing listener estimating the steady-state value of one metric of a running simulation:
+ * the time-averaged token count of a place or the throughput of a transition.
+ * <p>
+ * The run is cut into basic batches of fixed length, measured like in
+ * {@link SimulationStatistics} in clock time for a timed simulation and in steps
+ * otherwise, and only the mean of every basic batch is kept. The warm-up is the prefix of
+ * basic batches removed by the MSER rule, which minimizes the standard error of the
+ * remaining mean. Prefix sums of the batch means and their squares make every estimate cost
+ * time proportional to the number of batches only; the MSER scan over all basic batches is
+ * repeated only when their number has grown by an eighth, and the estimates in between keep
+ * the last truncation point. The remaining basic batches are grouped into a fixed number of batches
+ * whose means give a Student t confidence interval (the method of batch means); as the run
+ * grows, batches get longer and their means less correlated.
+ * </p>
+ * Together with {@link PrecisionLimit} a run can stop as soon as the estimate is precise
+ * enough instead of running for a fixed horizon.
+ */
+public class SteadyStateEstimator implements FiringListener {
+
+    /** Default number of batches of the confidence interval. */
+    public static final int DEFAULT_BATCHES = 20;
+    /** Default confidence level. */
+    public static final double DEFAULT_CONFIDENCE = 0.95;
+
+    private final String placeId;
+    private final String transitionId;
+    private final double batchLength;
+    private int batches = DEFAULT_BATCHES;
+    private double confidence = DEFAULT_CONFIDENCE;
+
+    private boolean timed;
+    /** Sums of the means of the first i closed basic batches, and of their squares. */
+    private double[] sums = new double[65];
+    private double[] squares = new double[65];
+    private int size;
+    /** The last MSER truncation point and the number of basic batches it was computed for. */
+    private int warmup;
+    private int scannedSize;
+    private double batchEnd;
+    private double lastTime;
+    /** Token count of the place, or number of firings in the current batch. */
+    private double current;
+    private double area;
+    private SteadyStateEstimate estimate;
+    private int estimateSize = -1;
+
+    /**
+     * Creates an estimator.
+     *
+     * @param placeId      The place of the metric, or null.
+     * @param transitionId The transition of the metric, or null.
+     * @param batchLength  Length of a basic batch.
+     */
+    private SteadyStateEstimator(String placeId, String transitionId, double batchLength) {
+        if (batchLength <= 0) {
+            throw new IllegalArgumentException("Batch length must be positive: " + batchLength);
+        }
+        this.placeId = placeId;
+        this.transitionId = transitionId;
+        this.batchLength = batchLength;
+    }
+
+    /**
+     * Creates an estimator of the time-averaged token count of a place.
+     *
+     * @param placeId     The place id.
+     * @param batchLength Length of a basic batch, in time units or steps.
+     * @return the estimator
+     */
+    public static SteadyStateEstimator forPlace(String placeId, double batchLength) {
+        return new SteadyStateEstimator(placeId, null, batchLength);
+    }
+
+    /**
+     * Creates an estimator of the throughput of a transition, in firings per time unit or
+     * per step.
+     *
+     * @param transitionId The transition id.
+     * @param batchLength  Length of a basic batch, in time units or steps.
+     * @return the estimator
+     */
+    public static SteadyStateEstimator forTransition(String transitionId, double batchLength) {
+        return new SteadyStateEstimator(null, transitionId, batchLength);
+    }
+
+    @Override
+    public void simulationStarted(Simulation simulation) {
+        timed = simulation != null && simulation.isTimed();
+        double start = simulation == null ? 0 : timed ? simulation.getSimulatedTime() : simulation.getSteps();
+        size = 0;
+        warmup = 0;
+        scannedSize = 0;
+        estimate = null;
+        estimateSize = -1;
+        batchEnd = start + batchLength;
+        lastTime = start;
+        area = 0;
+        current = 0;
+        if (placeId != null && simulation != null) {
+            NetObject place = simulation.getNet().getNetElement(placeId);
+            if (place instanceof Place) {
+                current = ((Place) place).getTokens().size();
+            }
+        }
+    }
+
+    @Override
+    public void transitionFired(FiringEvent event) {
+        advance(timed ? event.getTime() : event.getStep());
+        if (placeId != null) {
+            for (Place place : event.getConsumedPlaces()) {
+                if (placeId.equals(place.getId())) {
+                    current--;
+                }
+            }
+            for (Place place : event.getProducedPlaces()) {
+                if (placeId.equals(place.getId())) {
+                    current++;
+                }
+            }
+        } else if (transitionId.equals(event.getTransition().getId())) {
+            current++;
+        }
+    }
+
+    @Override
+    public void simulationFinished(Simulation simulation) {
+    }
+
+    /**
+     * Closes every basic batch ending before a given time.
+     *
+     * @param time The time of the next observation.
+     */
+    private void advance(double time) {
+        while (time >= batchEnd) {
+            if (placeId != null) {
+                area += current * (batchEnd - lastTime);
+                addBatch(area / batchLength);
+                area = 0;
+            } else {
+                addBatch(current / batchLength);
+                current = 0;
+            }
+            lastTime = batchEnd;
+            batchEnd += batchLength;
+        }
+        if (placeId != null) {
+            area += current * (time - lastTime);
+        }
+        lastTime = time;
+    }
+
+    /** Adds the mean of a closed basic batch to the prefix sums. */
+    private void addBatch(double value) {
+        if (size + 1 == sums.length) {
+            sums = Arrays.copyOf(sums, sums.length * 2);
+            squares = Arrays.copyOf(squares, squares.length * 2);
+        }
+        sums[size + 1] = sums[size] + value;
+        squares[size + 1] = squares[size] + value * value;
+        size++;
+    }
+
+    /**
+     * Returns the current estimate. It is recomputed only when a basic batch has closed.
+     *
+     * @return the estimate, or null while there are too few basic batches
+     */
+    public SteadyStateEstimate getEstimate() {
+        if (size != estimateSize) {
+            estimateSize = size;
+            estimate = computeEstimate();
+        }
+        return estimate;
+    }
+
+    /** Applies the MSER rule and the method of batch means to the basic batches. */
+    private SteadyStateEstimate computeEstimate() {
+        int n = size;
+        if (n > scannedSize + scannedSize / 8) {
+            warmup = getWarmup(sums, squares, n);
+            scannedSize = n;
+        }
+        int remaining = n - warmup;
+        if (remaining < batches) {
+            return null;
+        }
+        // Leading basic batches that do not fill a batch are added to the warm-up
+        int batchSize = remaining / batches;
+        int first = n - batches * batchSize;
+
+        double[] means = new double[batches];
+        double total = 0;
+        for (int b = 0; b < batches; b++) {
+            int start = first + b * batchSize;
+            means[b] = (sums[start + batchSize] - sums[start]) / batchSize;
+            total += means[b];
+        }
+        double mean = total / batches;
+        double squares = 0;
+        for (int b = 0; b < batches; b++) {
+            squares += (means[b] - mean) * (means[b] - mean);
+        }
+        double deviation = Math.sqrt(squares / (batches - 1));
+        double halfWidth = studentQuantile(0.5 + confidence / 2, batches - 1) * deviation / Math.sqrt(batches);
+        return new SteadyStateEstimate(mean, halfWidth, confidence, first, batches, batchSize);
+    }
+
+    /**
+     * Returns the MSER truncation point of a series: the number d of leading values, at most
+     * half of them, minimizing the sum of squared deviations of the rest divided by (n - d)^2.
+     *
+     * @param sums    The sums of the first i values of the series.
+     * @param squares The sums of the squares of the first i values.
+     * @param n       Number of values of the series.
+     * @return the number of values to discard
+     */
+    static int getWarmup(double[] sums, double[] squares, int n) {
+        int best = n / 2;
+        double bestValue = Double.POSITIVE_INFINITY;
+        for (int d = 0; d <= n / 2; d++) {
+            int m = n - d;
+            if (m > 0) {
+                double sum = sums[n] - sums[d];
+                double value = (squares[n] - squares[d] - sum * sum / m) / ((double) m * m);
+                if (value < bestValue) {
+                    bestValue = value;
+                    best = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Approximates a quantile of the Student t distribution by the Cornish-Fisher expansion
+     * around the normal quantile (Abramowitz and Stegun 26.7.5), accurate to about three
+     * decimals for five or more degrees of freedom.
+     *
+     * @param p       The probability.
+     * @param degrees The degrees of freedom.
+     * @return the quantile
+     */
+    static double studentQuantile(double p, int degrees) {
+        double z = normalQuantile(p);
+        double v = degrees;
+        double z2 = z * z;
+        return z
+                + z * (z2 + 1) / (4 * v)
+                + z * ((5 * z2 + 16) * z2 + 3) / (96 * v * v)
+                + z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384 * v * v * v)
+                + z * ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) / (92160 * v * v * v * v);
+    }
+
+    /**
+     * Approximates a quantile of the standard normal distribution (Acklam's rational
+     * approximation, relative error below 1.2e-9).
+     *
+     * @param p The probability, between 0 and 1.
+     * @return the quantile
+     */
+    static double normalQuantile(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        } else if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * @return the number of closed basic batches
+     */
+    public int getBasicBatches() {
+        return size;
+    }
+
+    /**
+     * @return the length of a basic batch
+     */
+    public double getBatchLength() {
+        return batchLength;
+    }
+
+    /**
+     * @return the number of batches of the confidence interval
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Sets the number of batches of the confidence interval. Must be called before the
+     * simulation is started.
+     *
+     * @param batches the number of batches, at least 2
+     */
+    public void setBatches(int batches) {
+        if (batches < 2) {
+            throw new IllegalArgumentException("At least two batches are needed: " + batches);
+        }
+        this.batches = batches;
+    }
+
+    /**
+     * @return the confidence level
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @param confidence the confidence level, e.g. 0.95
+     */
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    @Override
+    public String toString() {
+        return placeId != null ? "mean tokens of " + placeId : "throughput of " + transitionId;
+    }
+}
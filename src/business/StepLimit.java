@@ -0,0 +1,36 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Stops a simulation after a maximum number of fired transitions.
+ */
+public class StepLimit implements StopCondition {
+
+    private final long maxSteps;
+
+    /**
+     * Creates a step limit.
+     *
+     * @param maxSteps Number of transitions to fire.
+     */
+    public StepLimit(long maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    @Override
+    public boolean isReached(Simulation simulation) {
+        return simulation.getSteps() >= maxSteps;
+    }
+
+    /**
+     * @return the number of transitions to fire
+     */
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    @Override
+    public String toString() {
+        return "step limit " + maxSteps;
+    }
+}
@@ -0,0 +1,334 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import presentation.GUI;
+
+/**
+ * Simulation with generalized stochastic Petri net (GSPN) semantics in continuous time.
+ * <p>
+ * Immediate transitions fire without delay and take precedence over timed ones; among them
+ * the usual priorities and weights apply. Every enabled timed transition samples a firing
+ * delay when it becomes enabled and keeps it while it stays enabled (race with enabling
+ * memory); the one due first fires and the clock jumps to its firing time. Exponential
+ * transitions take their rate from the delay text, general transitions evaluate it.
+ * </p>
+ * <p>
+ * Markings in which an immediate transition is enabled are vanishing: no time is spent in
+ * them. Chains of immediate firings are therefore resolved in one inner loop, without
+ * animation, step-mode pauses, stop condition checks or clock updates. Firing listeners still
+ * see every firing, since traces and statistics rely on the complete sequence of changes.
+ * </p>
+ * The simulated time is continuous; {@link #getClock()} returns it rounded down. Token
+ * timestamps (output arc delays written as "@time") are not used by this simulation.
+ */
+public class StochasticSimulation extends Simulation {
+
+    /** Maximum number of immediate firings in one go before stop conditions are checked. */
+    public static final int MAX_IMMEDIATE_CHAIN = 100000;
+
+    /** Scheduled firing of a timed transition. */
+    private static class Scheduled implements Comparable<Scheduled> {
+
+        private final double time;
+        private final Transition transition;
+        private final long version;
+
+        Scheduled(double time, Transition transition, long version) {
+            this.time = time;
+            this.transition = transition;
+            this.version = version;
+        }
+
+        /** Orders by firing time, and firings due at the same time in scheduling order. */
+        @Override
+        public int compareTo(Scheduled other) {
+            int order = Double.compare(time, other.time);
+            return order != 0 ? order : Long.compare(version, other.version);
+        }
+    }
+
+    private double time = 0;
+    private TransitionSelector immediate;
+    private TransitionSelector timed;
+    private final PriorityQueue<Scheduled> schedule = new PriorityQueue<>();
+    /** Current schedule version of every timed transition; older entries are stale. */
+    private final IdentityHashMap<Transition, Long> versions = new IdentityHashMap<>();
+    private long nextVersion = 0;
+    /** Transition whose firing is not yet reflected in the selectors and the schedule. */
+    private Transition firing;
+    /** Firing times of a restored checkpoint, scheduled again when the schedule is rebuilt. */
+    private LinkedHashMap<Transition, Double> restored;
+
+    /**
+     * Constructs a StochasticSimulation object.
+     *
+     * @param step Indicates whether the simulation should run in step mode.
+     * @param gui  The graphical user interface associated with the simulation.
+     */
+    public StochasticSimulation(boolean step, GUI gui) {
+        super(step, gui);
+        showClock();
+    }
+
+    /**
+     * Constructs a StochasticSimulation of the net of a session.
+     *
+     * @param session The session whose net is simulated.
+     * @param step    Indicates whether the simulation should run in step mode.
+     * @param gui     The graphical user interface associated with the simulation.
+     */
+    public StochasticSimulation(Session session, boolean step, GUI gui) {
+        super(session, step, gui);
+        showClock();
+    }
+
+    /**
+     * Constructs a headless StochasticSimulation of the net of a session.
+     *
+     * @param session The session whose net is simulated.
+     * @throws IllegalStateException if the net does not compile
+     */
+    public StochasticSimulation(Session session) {
+        super(session);
+    }
+
+    /**
+     * Constructs a headless StochasticSimulation of an already compiled net.
+     *
+     * @param net the compiled net to simulate
+     */
+    public StochasticSimulation(PetriNet net) {
+        super(net);
+    }
+
+    /**
+     * Brings the selectors and the schedule up to date, building them on first use.
+     */
+    private void update() {
+        if (immediate == null) {
+            ArrayList<Transition> immediateTransitions = new ArrayList<>();
+            ArrayList<Transition> timedTransitions = new ArrayList<>();
+            for (Transition transition : net.getTransitions()) {
+                if (transition.isImmediate()) {
+                    immediateTransitions.add(transition);
+                } else {
+                    timedTransitions.add(transition);
+                }
+            }
+            immediate = new TransitionSelector(net, immediateTransitions);
+            timed = new TransitionSelector(net, timedTransitions);
+            clearSchedule();
+        }
+        // Enabling is checked at time 0 since token timestamps are not used
+        immediate.refresh(0);
+        timed.refresh(0);
+        if (restored != null) {
+            for (Map.Entry<Transition, Double> entry : restored.entrySet()) {
+                if (timed.isEnabled(entry.getKey())) {
+                    schedule(entry.getKey(), entry.getValue());
+                }
+            }
+            restored = null;
+        }
+        reschedule(timed.getChanged());
+    }
+
+    /** Drops every scheduled firing. */
+    private void clearSchedule() {
+        schedule.clear();
+        versions.clear();
+    }
+
+    /**
+     * Schedules the transitions that became enabled and cancels those that were disabled.
+     *
+     * @param changed the timed transitions whose enabling changed
+     */
+    private void reschedule(ArrayList<Transition> changed) {
+        for (int i = 0; i < changed.size(); i++) {
+            Transition transition = changed.get(i);
+            if (timed.isEnabled(transition)) {
+                if (!versions.containsKey(transition)) {
+                    schedule(transition, time + transition.delay(random));
+                }
+            } else {
+                versions.remove(transition);
+            }
+        }
+    }
+
+    /** Schedules the firing of an enabled timed transition. */
+    private void schedule(Transition transition, double at) {
+        long version = nextVersion++;
+        versions.put(transition, version);
+        schedule.add(new Scheduled(at, transition, version));
+    }
+
+    /** Returns the next valid scheduled firing, dropping stale entries, or null. */
+    private Scheduled next() {
+        Scheduled next = schedule.peek();
+        while (next != null) {
+            Long version = versions.get(next.transition);
+            if (version != null && version == next.version) {
+                return next;
+            }
+            schedule.poll();
+            next = schedule.peek();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isFinished() {
+        update();
+        return immediate.isEmpty() && next() == null;
+    }
+
+    @Override
+    protected void fireTransition() {
+        update();
+        if (!immediate.isEmpty()) {
+            // Vanishing marking: resolve the immediate firings in one go
+            Transition transition = immediate.select(random);
+            for (int i = 0; transition != null && i < MAX_IMMEDIATE_CHAIN && !stop; i++) {
+                fire(transition, getClock(), false);
+                transition = immediate.select(random);
+            }
+            return;
+        }
+        Scheduled next = next();
+        if (next != null) {
+            schedule.poll();
+            versions.remove(next.transition);
+            time = Math.max(time, next.time);
+            showClock();
+            fire(next.transition, getClock());
+            pauseResumeSimulation();
+        }
+    }
+
+    @Override
+    public Transition getRandomTransition() {
+        update();
+        if (!immediate.isEmpty()) {
+            return immediate.select(random);
+        }
+        Scheduled next = next();
+        return next == null ? null : next.transition;
+    }
+
+    @Override
+    protected void fire(Transition transition, long clock, boolean animate) {
+        firing = transition;
+        super.fire(transition, clock, animate);
+        settle();
+    }
+
+    /**
+     * Brings the selectors and the schedule up to date with the last firing, unless done
+     * already. Listeners run before this, so a checkpoint taken by one settles first.
+     */
+    private void settle() {
+        Transition transition = firing;
+        firing = null;
+        if (transition != null && immediate != null) {
+            immediate.fired(transition, 0);
+            timed.fired(transition, 0);
+            reschedule(timed.getChanged());
+            // A timed transition that is still enabled after firing samples a new delay
+            if (!transition.isImmediate() && timed.isEnabled(transition) && !versions.containsKey(transition)) {
+                schedule(transition, time + transition.delay(random));
+            }
+        }
+    }
+
+    /** Shows the simulation time on the GUI, if there is one. */
+    private void showClock() {
+        if (this.gui != null) {
+            this.gui.getTxtClock().setText(String.format(Locale.ROOT, "%.3f", time));
+        }
+    }
+
+    @Override
+    public long getClock() {
+        return (long) Math.floor(time);
+    }
+
+    @Override
+    public double getSimulatedTime() {
+        return time;
+    }
+
+    @Override
+    public boolean isTimed() {
+        return true;
+    }
+
+    @Override
+    public SimulationCheckpoint createCheckpoint() {
+        settle();
+        return super.createCheckpoint();
+    }
+
+    @Override
+    protected LinkedHashMap<String, Double> getPending() {
+        ArrayList<Scheduled> valid = new ArrayList<>();
+        for (Scheduled scheduled : schedule) {
+            Long version = versions.get(scheduled.transition);
+            if (version != null && version == scheduled.version) {
+                valid.add(scheduled);
+            }
+        }
+        // Sampling order, so that simultaneous firings keep their order when restored
+        Collections.sort(valid, new Comparator<Scheduled>() {
+            @Override
+            public int compare(Scheduled a, Scheduled b) {
+                return Long.compare(a.version, b.version);
+            }
+        });
+        LinkedHashMap<String, Double> pending = new LinkedHashMap<>();
+        for (Scheduled scheduled : valid) {
+            pending.put(scheduled.transition.getId(), scheduled.time);
+        }
+        return pending;
+    }
+
+    /**
+     * Restores a checkpoint, including the firing times already sampled. Timed transitions
+     * enabled without a saved firing time, as with checkpoints of other simulations, sample
+     * their delays again, which is exact only for exponential transitions.
+     *
+     * @param checkpoint the checkpoint to restore
+     * @throws IllegalArgumentException if a place or transition of the checkpoint does not
+     *                                  exist in the net
+     */
+    @Override
+    public void restore(SimulationCheckpoint checkpoint) {
+        LinkedHashMap<Transition, Double> pending = new LinkedHashMap<>();
+        if (checkpoint.getPending() != null) {
+            for (Map.Entry<String, Double> entry : checkpoint.getPending().entrySet()) {
+                NetObject element = net.getNetElement(entry.getKey());
+                if (!(element instanceof Transition)) {
+                    throw new IllegalArgumentException("Checkpoint transition " + entry.getKey() + " does not exist in " + net.getLabel());
+                }
+                pending.put((Transition) element, entry.getValue());
+            }
+        }
+        super.restore(checkpoint);
+        this.time = checkpoint.getTime();
+        // Rebuilt at the next step, scheduling the saved firing times first
+        immediate = null;
+        timed = null;
+        firing = null;
+        restored = pending;
+        showClock();
+    }
+}
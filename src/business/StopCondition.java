@@ -0,0 +1,20 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Condition that ends a running {@link Simulation} before it deadlocks.
+ * The StopCondition interface is an example of the Strategy design pattern: a simulation is
+ * configured with any number of conditions and stops as soon as one of them is reached.
+ * Conditions are checked on the simulation thread before every firing, so implementations
+ * must be cheap.
+ */
+public interface StopCondition {
+
+    /**
+     * Checks whether the simulation must stop.
+     *
+     * @param simulation the running simulation
+     * @return true if the condition is reached
+     */
+    public boolean isReached(Simulation simulation);
+}
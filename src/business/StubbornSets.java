@@ -0,0 +1,253 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.Arrays;
+
+/**
+ * Computes stubborn sets for partial-order reduction: in every marking only the enabled
+ * transitions of a stubborn set are fired, which skips most interleavings of independent
+ * transitions while keeping every dead marking reachable.
+ * <p>
+ * A stubborn set starts from one enabled transition and is closed under two rules. For an
+ * enabled transition it contains all transitions that take tokens from the same input
+ * places, and all that put tokens into the same output places with a capacity, since these
+ * can disable it. For a disabled transition it contains all transitions that can enable it
+ * through one place that currently blocks it: producers of a place with too few tokens, or
+ * consumers of a full output place. Every enabled transition is tried as start and the set
+ * with the fewest enabled transitions is kept.
+ * </p>
+ * <p>
+ * With visible places the sets also keep stutter-invariant properties about these places:
+ * a set with an enabled transition that changes a visible place contains all such
+ * transitions. The explorer then also has to expand every marking fully that closes a cycle.
+ * </p>
+ * The reduction is only sound when a transition fires as soon as it is enabled, so it
+ * does not apply to nets with priorities or with both immediate and timed transitions.
+ */
+public class StubbornSets {
+
+    private final NetTopology topology;
+    /** Transitions taking tokens from every place. */
+    private final int[][] consumers;
+    /** Transitions putting tokens into every place. */
+    private final int[][] producers;
+    private final boolean applicable;
+    private boolean[] visible;
+    private boolean anyVisible;
+
+    /**
+     * Creates the stubborn set computation for a net.
+     *
+     * @param topology The net.
+     */
+    public StubbornSets(NetTopology topology) {
+        this.topology = topology;
+        int places = topology.getPlaceCount();
+        int transitions = topology.getTransitionCount();
+        int[] consumerCount = new int[places];
+        int[] producerCount = new int[places];
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                consumerCount[topology.getInputPlace(t, i)]++;
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                producerCount[topology.getOutputPlace(t, i)]++;
+            }
+        }
+        consumers = new int[places][];
+        producers = new int[places][];
+        for (int p = 0; p < places; p++) {
+            consumers[p] = new int[consumerCount[p]];
+            producers[p] = new int[producerCount[p]];
+        }
+        boolean uniform = true;
+        for (int t = 0; t < transitions; t++) {
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                int p = topology.getInputPlace(t, i);
+                consumers[p][--consumerCount[p]] = t;
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                int p = topology.getOutputPlace(t, i);
+                producers[p][--producerCount[p]] = t;
+            }
+            uniform &= topology.getPriority(t) == topology.getPriority(0)
+                    && (topology.getTiming(t) == Transition.IMMEDIATE) == (topology.getTiming(0) == Transition.IMMEDIATE);
+        }
+        applicable = uniform;
+        visible = new boolean[transitions];
+    }
+
+    /**
+     * Declares the places the properties to be checked talk about. Transitions that change
+     * the number of tokens of one of them become visible.
+     *
+     * @param places the indices of the places, or null to preserve dead markings only
+     */
+    public void setVisiblePlaces(int[] places) {
+        int transitions = topology.getTransitionCount();
+        visible = new boolean[transitions];
+        anyVisible = false;
+        if (places == null) {
+            return;
+        }
+        int[] effect = new int[topology.getPlaceCount()];
+        for (int t = 0; t < transitions; t++) {
+            Arrays.fill(effect, 0);
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                effect[topology.getInputPlace(t, i)] -= topology.getInputWeight(t, i);
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                effect[topology.getOutputPlace(t, i)] += topology.getOutputWeight(t, i);
+            }
+            for (int p : places) {
+                if (effect[p] != 0) {
+                    visible[t] = true;
+                    anyVisible = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if visible places were declared, so the cycle condition must be kept by the explorer
+     */
+    public boolean preservesStuttering() {
+        return anyVisible;
+    }
+
+    /**
+     * @return true if the net has no priorities and no mix of immediate and timed transitions
+     */
+    public boolean isApplicable() {
+        return applicable;
+    }
+
+    /**
+     * @param transition the index of a transition
+     * @return true if the transition changes a visible place
+     */
+    public boolean isVisible(int transition) {
+        return visible[transition];
+    }
+
+    /**
+     * Returns the enabled transitions of the smallest stubborn set found.
+     *
+     * @param marking The marking.
+     * @param enabled The enabled transitions of the marking.
+     * @return a non-empty subset of the enabled transitions, or the enabled transitions
+     *         themselves if the net is not applicable or there are fewer than two
+     */
+    public int[] reduce(Marking marking, int[] enabled) {
+        if (!applicable || enabled.length < 2) {
+            return enabled;
+        }
+        int transitions = topology.getTransitionCount();
+        boolean[] isEnabled = new boolean[transitions];
+        for (int t : enabled) {
+            isEnabled[t] = true;
+        }
+        boolean[] best = null;
+        int bestCount = enabled.length;
+        boolean[] member = new boolean[transitions];
+        int[] work = new int[transitions];
+        for (int seed : enabled) {
+            Arrays.fill(member, false);
+            int count = close(marking, seed, isEnabled, member, work, bestCount);
+            if (count < bestCount) {
+                bestCount = count;
+                best = member.clone();
+                if (count == 1) {
+                    break;
+                }
+            }
+        }
+        if (best == null) {
+            return enabled;
+        }
+        int[] reduced = new int[bestCount];
+        int k = 0;
+        for (int t : enabled) {
+            if (best[t]) {
+                reduced[k++] = t;
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * Closes the stubborn set of a start transition.
+     *
+     * @return the number of enabled transitions in the set, or a number not below the bound
+     *         if the set turned out not to be smaller than the best one so far
+     */
+    private int close(Marking marking, int seed, boolean[] isEnabled, boolean[] member, int[] work, int bound) {
+        int size = 0;
+        int count = 0;
+        boolean visibleAdded = false;
+        member[seed] = true;
+        work[size++] = seed;
+        while (size > 0) {
+            int t = work[--size];
+            if (isEnabled[t]) {
+                if (++count >= bound) {
+                    return count;
+                }
+                if (visible[t] && !visibleAdded) {
+                    visibleAdded = true;
+                    for (int v = 0; v < visible.length; v++) {
+                        if (visible[v] && !member[v]) {
+                            member[v] = true;
+                            work[size++] = v;
+                        }
+                    }
+                }
+                for (int i = 0; i < topology.getInputCount(t); i++) {
+                    size = addAll(consumers[topology.getInputPlace(t, i)], member, work, size);
+                }
+                for (int i = 0; i < topology.getOutputCount(t); i++) {
+                    int p = topology.getOutputPlace(t, i);
+                    if (topology.getCapacity(p) != 0) {
+                        size = addAll(producers[p], member, work, size);
+                    }
+                }
+            } else {
+                size = addAll(scapegoat(marking, t), member, work, size);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the transitions that can enable a disabled transition through the blocking
+     * place with the fewest of them.
+     */
+    private int[] scapegoat(Marking marking, int transition) {
+        int[] chosen = null;
+        for (int i = 0; i < topology.getInputCount(transition); i++) {
+            int p = topology.getInputPlace(transition, i);
+            if (marking.get(p) < topology.getInputWeight(transition, i) && (chosen == null || producers[p].length < chosen.length)) {
+                chosen = producers[p];
+            }
+        }
+        for (int i = 0; i < topology.getOutputCount(transition); i++) {
+            int p = topology.getOutputPlace(transition, i);
+            int limit = topology.getCapacity(p);
+            if (limit != 0 && marking.get(p) >= limit && (chosen == null || consumers[p].length < chosen.length)) {
+                chosen = consumers[p];
+            }
+        }
+        return chosen == null ? new int[0] : chosen;
+    }
+
+    /** Adds transitions not yet in the set to the set and the work list. */
+    private static int addAll(int[] transitions, boolean[] member, int[] work, int size) {
+        for (int t : transitions) {
+            if (!member[t]) {
+                member[t] = true;
+                work[size++] = t;
+            }
+        }
+        return size;
+    }
+}
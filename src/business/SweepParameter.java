@@ -0,0 +1,135 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * A model parameter varied by a parameter sweep, with the values it takes.
+ * <p>
+ * A parameter is the capacity of a place, the number of initial tokens of a place, the rate
+ * or delay of a timed transition, or a constant of the custom declarations of the net. The
+ * grid of a sweep uses the listed values; a Latin hypercube sample draws values anywhere
+ * between the smallest and largest of them. Capacities and markings are rounded to integers.
+ * </p>
+ * Only constants are compiled into the net class; the other kinds are plain data set on each
+ * fresh copy of the net.
+ */
+public class SweepParameter {
+
+    /** Capacity of a place. */
+    public static final int CAPACITY = 0;
+    /** Number of initial tokens of a place. */
+    public static final int MARKING = 1;
+    /** Rate of an exponential transition, or delay of a general one. */
+    public static final int RATE = 2;
+    /** Value of a constant declared in the custom declarations of the net. */
+    public static final int CONSTANT = 3;
+
+    private final int kind;
+    private final String target;
+    private final double[] values;
+    private final double min;
+    private final double max;
+
+    /**
+     * Creates a parameter taking the given values.
+     *
+     * @param kind   One of {@link #CAPACITY}, {@link #MARKING}, {@link #RATE} and {@link #CONSTANT}.
+     * @param target Id of the place or transition, or name of the constant.
+     * @param values The values of the grid, at least one.
+     * @throws IllegalArgumentException if the kind is unknown or there are no values
+     */
+    public SweepParameter(int kind, String target, double... values) {
+        if (kind < CAPACITY || kind > CONSTANT) {
+            throw new IllegalArgumentException("Unknown parameter kind: " + kind);
+        }
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Parameter " + target + " has no values");
+        }
+        this.kind = kind;
+        this.target = target;
+        this.values = new double[values.length];
+        double lowest = Double.POSITIVE_INFINITY;
+        double highest = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = round(values[i]);
+            lowest = Math.min(lowest, this.values[i]);
+            highest = Math.max(highest, this.values[i]);
+        }
+        this.min = lowest;
+        this.max = highest;
+    }
+
+    /**
+     * Creates a parameter taking evenly spaced values in a range.
+     *
+     * @param kind   The kind of parameter.
+     * @param target Id of the place or transition, or name of the constant.
+     * @param from   The first value.
+     * @param to     The last value.
+     * @param count  Number of values, at least one.
+     * @return the parameter
+     */
+    public static SweepParameter range(int kind, String target, double from, double to, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = count == 1 ? from : from + (to - from) * i / (count - 1);
+        }
+        return new SweepParameter(kind, target, values);
+    }
+
+    /** Rounds a value to an integer for the kinds that count tokens. */
+    private double round(double value) {
+        return kind == CAPACITY || kind == MARKING ? Math.round(value) : value;
+    }
+
+    /**
+     * Maps a fraction of the range of the parameter to a value.
+     *
+     * @param fraction A number between 0 and 1.
+     * @return the value
+     */
+    public double valueAt(double fraction) {
+        return round(min + fraction * (max - min));
+    }
+
+    /**
+     * @return the kind of parameter
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the id of the place or transition, or the name of the constant
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the values of the grid
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * @return whether the parameter is compiled into the net class
+     */
+    public boolean isCompiled() {
+        return kind == CONSTANT;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case CAPACITY:
+                return "capacity(" + target + ")";
+            case MARKING:
+                return "marking(" + target + ")";
+            case RATE:
+                return "rate(" + target + ")";
+            default:
+                return target;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.List;
+
+/**
+ * One combination of parameter values of a parameter sweep.
+ */
+public class SweepPoint {
+
+    private final int index;
+    private final List<SweepParameter> parameters;
+    private final double[] values;
+
+    /**
+     * Creates a point.
+     *
+     * @param index      Position of the point in the sweep.
+     * @param parameters The parameters of the sweep.
+     * @param values     The value of every parameter, in the same order.
+     */
+    public SweepPoint(int index, List<SweepParameter> parameters, double[] values) {
+        this.index = index;
+        this.parameters = parameters;
+        this.values = values;
+    }
+
+    /**
+     * @return the position of the point in the sweep
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the parameters of the sweep
+     */
+    public List<SweepParameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the value of a parameter.
+     *
+     * @param i Position of the parameter.
+     * @return the value
+     */
+    public double getValue(int i) {
+        return values[i];
+    }
+
+    /**
+     * Returns the value of the first parameter with a given target.
+     *
+     * @param target Id of the place or transition, or name of the constant.
+     * @return the value
+     * @throws IllegalArgumentException if no parameter has this target
+     */
+    public double getValue(String target) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).getTarget().equals(target)) {
+                return values[i];
+            }
+        }
+        throw new IllegalArgumentException("No parameter " + target);
+    }
+
+    /**
+     * Formats a value as Java source, without a fraction for whole numbers.
+     *
+     * @param value The value.
+     * @return the literal
+     */
+    static String literal(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(parameters.get(i)).append(" = ").append(literal(values[i]));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,98 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Outcome of the simulation run of one point of a parameter sweep.
+ */
+public class SweepResult {
+
+    private final SweepPoint point;
+    private final SimulationStatistics statistics;
+    private final long steps;
+    private final double time;
+    private final StopCondition stopReason;
+    private final Exception error;
+
+    /**
+     * Creates the result of a finished run.
+     *
+     * @param point      The point.
+     * @param statistics The statistics collected during the run.
+     * @param steps      Number of fired transitions.
+     * @param time       Simulated time at the end of the run.
+     * @param stopReason The stop condition that ended the run, or null on a deadlock.
+     */
+    public SweepResult(SweepPoint point, SimulationStatistics statistics, long steps, double time, StopCondition stopReason) {
+        this.point = point;
+        this.statistics = statistics;
+        this.steps = steps;
+        this.time = time;
+        this.stopReason = stopReason;
+        this.error = null;
+    }
+
+    /**
+     * Creates the result of a run that failed.
+     *
+     * @param point The point.
+     * @param error Why the run failed.
+     */
+    public SweepResult(SweepPoint point, Exception error) {
+        this.point = point;
+        this.statistics = null;
+        this.steps = 0;
+        this.time = 0;
+        this.stopReason = null;
+        this.error = error;
+    }
+
+    /**
+     * @return the point
+     */
+    public SweepPoint getPoint() {
+        return point;
+    }
+
+    /**
+     * @return the statistics collected during the run, or null if the run failed
+     */
+    public SimulationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the number of fired transitions
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the simulated time at the end of the run
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return the stop condition that ended the run, or null on a deadlock or failure
+     */
+    public StopCondition getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return why the run failed, or null if it succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return point + ": failed (" + error.getMessage() + ")";
+        }
+        return point + ": " + steps + " steps, time " + time + (stopReason != null ? ", " + stopReason : ", deadlock");
+    }
+}
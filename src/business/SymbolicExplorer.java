@@ -0,0 +1,352 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Computes the reachable markings of a net as a decision diagram with the saturation
+ * strategy, for state spaces far too large to enumerate one marking at a time.
+ * <p>
+ * Every transition changes only the places it has arcs with, and on each of them the
+ * change depends on that place alone: a count i becomes i minus the input weight plus the
+ * output weight, provided i is at least the input weight and below the capacity if the
+ * place is a bounded output. Saturation uses this locality: nodes are saturated bottom-up,
+ * and a node at level k is saturated by firing all transitions whose highest place is at
+ * level k until nothing changes, after its children were saturated. Intermediate diagrams
+ * therefore stay close to the final one instead of growing level by level as in a
+ * breadth-first fixpoint.
+ * </p>
+ * <p>
+ * Like the explicit explorers this one counts tokens. It does not handle priorities or a
+ * mix of immediate and timed transitions, where firing depends on other transitions being
+ * disabled. Places are ordered by index; related places should have close indices. The
+ * recursion goes as deep as there are places, so nets with thousands of places need a
+ * thread with a large stack.
+ * </p>
+ */
+public class SymbolicExplorer {
+
+    private final NetTopology topology;
+    private final int levels;
+    /** Levels of the places of every transition, highest first. */
+    private final int[][] eventLevels;
+    /** Input weight, output weight and capacity of every such place. */
+    private final int[][] eventInput;
+    private final int[][] eventOutput;
+    private final int[][] eventCapacity;
+    /** Transitions whose highest place is at every level. */
+    private final int[][] eventsByTop;
+    private int cacheBits = 18;
+    private int maxNodes = Integer.MAX_VALUE;
+    private int maxTokens = 65535;
+
+    private MddForest forest;
+
+    /**
+     * Creates an explorer for a net, starting from its current marking.
+     *
+     * @param net The net, usually the compiled net of a session.
+     */
+    public SymbolicExplorer(PetriNet net) {
+        this(new NetTopology(net));
+    }
+
+    /**
+     * Creates an explorer for a topology, starting from its initial marking.
+     *
+     * @param topology The topology.
+     * @throws IllegalArgumentException if the net has priorities or both immediate and timed transitions
+     */
+    public SymbolicExplorer(NetTopology topology) {
+        if (!new StubbornSets(topology).isApplicable()) {
+            throw new IllegalArgumentException("Symbolic exploration does not support priorities or mixed timing");
+        }
+        this.topology = topology;
+        levels = topology.getPlaceCount();
+        int transitions = topology.getTransitionCount();
+        eventLevels = new int[transitions][];
+        eventInput = new int[transitions][];
+        eventOutput = new int[transitions][];
+        eventCapacity = new int[transitions][];
+        ArrayList<ArrayList<Integer>> byTop = new ArrayList<>();
+        for (int k = 0; k <= levels; k++) {
+            byTop.add(new ArrayList<Integer>());
+        }
+        for (int t = 0; t < transitions; t++) {
+            int[] input = new int[levels + 1];
+            int[] output = new int[levels + 1];
+            boolean[] affected = new boolean[levels + 1];
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                int k = topology.getInputPlace(t, i) + 1;
+                input[k] = topology.getInputWeight(t, i);
+                affected[k] = true;
+            }
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                int k = topology.getOutputPlace(t, i) + 1;
+                output[k] = topology.getOutputWeight(t, i);
+                affected[k] = true;
+            }
+            int count = 0;
+            for (int k = levels; k >= 1; k--) {
+                if (affected[k]) {
+                    count++;
+                }
+            }
+            eventLevels[t] = new int[count];
+            eventInput[t] = new int[count];
+            eventOutput[t] = new int[count];
+            eventCapacity[t] = new int[count];
+            int j = 0;
+            for (int k = levels; k >= 1; k--) {
+                if (affected[k]) {
+                    eventLevels[t][j] = k;
+                    eventInput[t][j] = input[k];
+                    eventOutput[t][j] = output[k];
+                    eventCapacity[t][j] = output[k] > 0 ? topology.getCapacity(k - 1) : 0;
+                    j++;
+                }
+            }
+            byTop.get(count == 0 ? 0 : eventLevels[t][0]).add(t);
+        }
+        eventsByTop = new int[levels + 1][];
+        for (int k = 0; k <= levels; k++) {
+            eventsByTop[k] = new int[byTop.get(k).size()];
+            for (int i = 0; i < eventsByTop[k].length; i++) {
+                eventsByTop[k][i] = byTop.get(k).get(i);
+            }
+        }
+    }
+
+    /**
+     * Computes the reachable markings.
+     *
+     * @return the state space
+     * @throws IllegalStateException if the node or token limit is exceeded, e.g. for an unbounded net
+     */
+    public SymbolicStateSpace explore() {
+        forest = new MddForest(levels, cacheBits);
+        forest.setMaxNodes(maxNodes);
+        int initial = forest.singleton(topology.getInitialMarking().tokens);
+        int reachable = saturate(levels, initial);
+        SymbolicStateSpace space = new SymbolicStateSpace(topology, forest, reachable, deadlocks(reachable));
+        forest = null;
+        return space;
+    }
+
+    /**
+     * Returns the node of all markings reachable from a node by transitions whose places are
+     * all at its level or below.
+     */
+    private int saturate(int level, int node) {
+        if (level == 0 || node == MddForest.EMPTY) {
+            return node;
+        }
+        int cached = forest.cacheGet(MddForest.SATURATE, node, 0);
+        if (cached >= 0) {
+            return cached;
+        }
+        Row row = new Row(forest.length(node));
+        for (int i = 0; i < forest.length(node); i++) {
+            row.children[i] = saturate(level - 1, forest.child(node, i));
+        }
+        saturateRow(level, row);
+        int result = forest.make(level, row.children, row.length);
+        forest.cachePut(MddForest.SATURATE, node, 0, result);
+        forest.cachePut(MddForest.SATURATE, result, 0, result);
+        return result;
+    }
+
+    /**
+     * Fires the transitions whose highest place is at a level on a node under construction
+     * with saturated children, until none adds markings.
+     */
+    private void saturateRow(int level, Row row) {
+        int[] events = eventsByTop[level];
+        boolean changed = events.length > 0;
+        while (changed) {
+            changed = false;
+            for (int t : events) {
+                changed |= fire(t, level, row);
+            }
+        }
+    }
+
+    /**
+     * Fires a transition at its highest level on a node under construction until the node
+     * does not grow any more.
+     *
+     * @return true if the node grew
+     */
+    private boolean fire(int t, int level, Row row) {
+        boolean changed = false;
+        int[] work = new int[Math.max(4, row.length)];
+        int size = 0;
+        for (int i = 0; i < row.length; i++) {
+            if (row.children[i] != MddForest.EMPTY) {
+                work[size++] = i;
+            }
+        }
+        while (size > 0) {
+            int i = work[--size];
+            int j = next(t, 0, i);
+            if (j < 0) {
+                continue;
+            }
+            int f = recursiveFire(t, 1, level - 1, row.get(i));
+            if (f == MddForest.EMPTY) {
+                continue;
+            }
+            int u = forest.union(f, row.get(j));
+            if (u != row.get(j)) {
+                row.set(j, u);
+                changed = true;
+                if (size == work.length) {
+                    work = Arrays.copyOf(work, size * 2);
+                }
+                work[size++] = j;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the saturated node of the markings reached by firing a transition on the
+     * levels at and below a level, from a saturated node.
+     *
+     * @param t     The transition.
+     * @param index The position of the next place of the transition in its event levels.
+     * @param level The level of the node.
+     * @param node  The node.
+     */
+    private int recursiveFire(int t, int index, int level, int node) {
+        if (node == MddForest.EMPTY || index == eventLevels[t].length) {
+            return node;
+        }
+        int cached = forest.cacheGet(MddForest.FIRE, node, t);
+        if (cached >= 0) {
+            return cached;
+        }
+        boolean affected = eventLevels[t][index] == level;
+        Row row = new Row(forest.length(node));
+        for (int i = 0; i < forest.length(node); i++) {
+            int child = forest.child(node, i);
+            if (child == MddForest.EMPTY) {
+                continue;
+            }
+            int j = affected ? next(t, index, i) : i;
+            if (j < 0) {
+                continue;
+            }
+            int f = recursiveFire(t, affected ? index + 1 : index, level - 1, child);
+            if (f != MddForest.EMPTY) {
+                row.set(j, forest.union(row.get(j), f));
+            }
+        }
+        saturateRow(level, row);
+        int result = forest.make(level, row.children, row.length);
+        forest.cachePut(MddForest.FIRE, node, t, result);
+        return result;
+    }
+
+    /**
+     * Returns the token count of a place after firing a transition.
+     *
+     * @param t     The transition.
+     * @param index The position of the place in the event levels of the transition.
+     * @param i     The token count before.
+     * @return the count after, or -1 if the transition is not enabled by this place
+     */
+    private int next(int t, int index, int i) {
+        int input = eventInput[t][index];
+        int capacity = eventCapacity[t][index];
+        if (i < input || (capacity != 0 && i >= capacity)) {
+            return -1;
+        }
+        int j = i - input + eventOutput[t][index];
+        if (j > maxTokens) {
+            throw new IllegalStateException("Place " + topology.getPlaceId(eventLevels[t][index] - 1) + " holds more than " + maxTokens + " tokens");
+        }
+        return j;
+    }
+
+    /** Returns the reachable markings in which no transition is enabled. */
+    private int deadlocks(int reachable) {
+        int enabled = MddForest.EMPTY;
+        for (int t = 0; t < eventLevels.length; t++) {
+            enabled = forest.union(enabled, filter(t, 0, levels, reachable));
+        }
+        return forest.difference(reachable, enabled);
+    }
+
+    /** Returns the markings of a node in which a transition is enabled. */
+    private int filter(int t, int index, int level, int node) {
+        if (node == MddForest.EMPTY || index == eventLevels[t].length) {
+            return node;
+        }
+        int cached = forest.cacheGet(MddForest.FILTER, node, t);
+        if (cached >= 0) {
+            return cached;
+        }
+        boolean affected = eventLevels[t][index] == level;
+        int[] children = new int[forest.length(node)];
+        for (int i = 0; i < children.length; i++) {
+            if (!affected || next(t, index, i) >= 0) {
+                children[i] = filter(t, affected ? index + 1 : index, level - 1, forest.child(node, i));
+            }
+        }
+        int result = forest.make(level, children, children.length);
+        forest.cachePut(MddForest.FILTER, node, t, result);
+        return result;
+    }
+
+    /**
+     * @param cacheBits the logarithm of the number of operation cache entries, 18 by default
+     */
+    public void setCacheBits(int cacheBits) {
+        this.cacheBits = cacheBits;
+    }
+
+    /**
+     * @param maxNodes the number of diagram nodes after which the exploration fails
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @param maxTokens the number of tokens in a place after which the exploration fails, as
+     *                  the net is probably unbounded
+     */
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * The children of a node under construction, growing when a count past the end is set.
+     */
+    private static class Row {
+
+        int[] children;
+        int length;
+
+        Row(int length) {
+            children = new int[Math.max(length, 4)];
+            this.length = length;
+        }
+
+        int get(int i) {
+            return i < length ? children[i] : MddForest.EMPTY;
+        }
+
+        void set(int i, int node) {
+            if (i >= children.length) {
+                children = Arrays.copyOf(children, Math.max(children.length * 2, i + 1));
+            }
+            children[i] = node;
+            if (i >= length) {
+                length = i + 1;
+            }
+        }
+    }
+}
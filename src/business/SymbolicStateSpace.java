@@ -0,0 +1,103 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.math.BigInteger;
+
+/**
+ * The reachable markings of a net as a decision diagram, as computed by a
+ * {@link SymbolicExplorer}, together with its dead markings.
+ */
+public class SymbolicStateSpace {
+
+    private final NetTopology topology;
+    private final MddForest forest;
+    private final int reachable;
+    private final int deadlocks;
+
+    /**
+     * Creates a state space.
+     *
+     * @param topology  The net.
+     * @param forest    The forest holding the diagrams.
+     * @param reachable The node of the reachable markings.
+     * @param deadlocks The node of the reachable dead markings.
+     */
+    public SymbolicStateSpace(NetTopology topology, MddForest forest, int reachable, int deadlocks) {
+        this.topology = topology;
+        this.forest = forest;
+        this.reachable = reachable;
+        this.deadlocks = deadlocks;
+    }
+
+    /**
+     * @return the number of reachable markings
+     */
+    public BigInteger getStateCount() {
+        return forest.count(reachable);
+    }
+
+    /**
+     * @param marking a marking
+     * @return true if the marking is reachable
+     */
+    public boolean isReachable(Marking marking) {
+        return forest.contains(reachable, marking.tokens);
+    }
+
+    /**
+     * @return true if a dead marking is reachable
+     */
+    public boolean hasDeadlock() {
+        return deadlocks != MddForest.EMPTY;
+    }
+
+    /**
+     * @return the number of reachable dead markings
+     */
+    public BigInteger getDeadlockCount() {
+        return forest.count(deadlocks);
+    }
+
+    /**
+     * @return some reachable dead marking, or null if there is none
+     */
+    public Marking getDeadlock() {
+        int[] marking = forest.pick(deadlocks);
+        return marking == null ? null : new Marking(marking);
+    }
+
+    /**
+     * @return the number of diagram nodes created during the exploration
+     */
+    public int getNodeCount() {
+        return forest.getNodeCount();
+    }
+
+    /**
+     * @return the node of the reachable markings in {@link #getForest()}
+     */
+    public int getReachable() {
+        return reachable;
+    }
+
+    /**
+     * @return the node of the reachable dead markings in {@link #getForest()}
+     */
+    public int getDeadlocks() {
+        return deadlocks;
+    }
+
+    /**
+     * @return the forest holding the diagrams
+     */
+    public MddForest getForest() {
+        return forest;
+    }
+
+    /**
+     * @return the net
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+}
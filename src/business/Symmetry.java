@@ -0,0 +1,387 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Symmetries of a net made of copies of the same component, used to store only one marking
+ * of every set of markings that differ by a permutation of the copies.
+ * <p>
+ * A symmetry is given as blocks of places, one block per copy, where the i-th places of all
+ * blocks correspond to each other. Interchangeable blocks may be permuted arbitrarily, like
+ * independent workers; rotating blocks may only be shifted around a ring, like dining
+ * philosophers that share forks with their neighbours. Every declared symmetry is checked to
+ * map the net onto itself, including transitions, arcs, capacities and transition attributes,
+ * so exploring {@link #canonical(int[]) canonical} markings finds one marking of every
+ * reachable orbit. Symmetries can be declared or {@link #detect(NetTopology) detected} for
+ * identical unconnected components.
+ * </p>
+ * Guards and arc conditions are not compared, as everywhere on token counts. Firing
+ * sequences of a {@link ReachabilityGraph} explored with a symmetry are mapped back onto the
+ * initial marking and lead to a symmetric copy of the marking, not necessarily to the
+ * marking itself.
+ */
+public class Symmetry {
+
+    /** Blocks that may be permuted arbitrarily. */
+    public static final int INTERCHANGEABLE = 0;
+    /** Blocks that may be shifted around a ring. */
+    public static final int ROTATION = 1;
+
+    private final NetTopology topology;
+    private final ArrayList<int[][]> groups = new ArrayList<>();
+    private final ArrayList<Integer> kinds = new ArrayList<>();
+    private final boolean[] used;
+    /** Number of transitions with every signature, to check automorphisms. */
+    private final HashMap<String, Integer> signatures = new HashMap<>();
+
+    /**
+     * Creates a net without declared symmetries.
+     *
+     * @param topology The net.
+     */
+    public Symmetry(NetTopology topology) {
+        this.topology = topology;
+        used = new boolean[topology.getPlaceCount()];
+        int[] identity = identity();
+        for (int t = 0; t < topology.getTransitionCount(); t++) {
+            String signature = signature(t, identity);
+            Integer count = signatures.get(signature);
+            signatures.put(signature, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Declares blocks of places that may be permuted arbitrarily.
+     *
+     * @param blocks The places of every copy, all blocks of the same length.
+     * @throws IllegalArgumentException if swapping two blocks does not map the net onto itself
+     *                                  or a place already belongs to another symmetry
+     */
+    public void addInterchangeable(int[][] blocks) {
+        check(blocks);
+        for (int j = 1; j < blocks.length; j++) {
+            int[] map = identity();
+            for (int i = 0; i < blocks[0].length; i++) {
+                map[blocks[0][i]] = blocks[j][i];
+                map[blocks[j][i]] = blocks[0][i];
+            }
+            if (!isAutomorphism(map)) {
+                throw new IllegalArgumentException("Swapping blocks 0 and " + j + " changes the net");
+            }
+        }
+        add(blocks, INTERCHANGEABLE);
+    }
+
+    /**
+     * Declares blocks of places that may be shifted around a ring, block i onto block i + 1.
+     *
+     * @param blocks The places of every copy in ring order, all blocks of the same length.
+     * @throws IllegalArgumentException if shifting the blocks does not map the net onto itself
+     *                                  or a place already belongs to another symmetry
+     */
+    public void addRotation(int[][] blocks) {
+        check(blocks);
+        int[] map = identity();
+        for (int j = 0; j < blocks.length; j++) {
+            for (int i = 0; i < blocks[j].length; i++) {
+                map[blocks[j][i]] = blocks[(j + 1) % blocks.length][i];
+            }
+        }
+        if (!isAutomorphism(map)) {
+            throw new IllegalArgumentException("Shifting the blocks changes the net");
+        }
+        add(blocks, ROTATION);
+    }
+
+    /**
+     * Finds unconnected components of a net that are identical up to renaming, comparing
+     * their places and transitions in index order, and declares them interchangeable.
+     *
+     * @param topology The net.
+     * @return the symmetries found, possibly none
+     */
+    public static Symmetry detect(NetTopology topology) {
+        Symmetry symmetry = new Symmetry(topology);
+        int places = topology.getPlaceCount();
+        int[] root = new int[places];
+        for (int p = 0; p < places; p++) {
+            root[p] = p;
+        }
+        for (int t = 0; t < topology.getTransitionCount(); t++) {
+            int first = -1;
+            for (int i = 0; i < topology.getInputCount(t) + topology.getOutputCount(t); i++) {
+                int p = i < topology.getInputCount(t) ? topology.getInputPlace(t, i) : topology.getOutputPlace(t, i - topology.getInputCount(t));
+                if (first < 0) {
+                    first = find(root, p);
+                } else {
+                    root[find(root, p)] = first;
+                    first = find(root, first);
+                }
+            }
+        }
+        LinkedHashMap<Integer, List<Integer>> components = new LinkedHashMap<>();
+        for (int p = 0; p < places; p++) {
+            int r = find(root, p);
+            if (!components.containsKey(r)) {
+                components.put(r, new ArrayList<Integer>());
+            }
+            components.get(r).add(p);
+        }
+        ArrayList<int[]> remaining = new ArrayList<>();
+        for (List<Integer> component : components.values()) {
+            int[] block = new int[component.size()];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = component.get(i);
+            }
+            remaining.add(block);
+        }
+        while (!remaining.isEmpty()) {
+            int[] first = remaining.remove(0);
+            ArrayList<int[]> group = new ArrayList<>();
+            group.add(first);
+            for (int k = 0; k < remaining.size(); k++) {
+                int[] other = remaining.get(k);
+                if (other.length == first.length && symmetry.isAutomorphism(swap(symmetry.identity(), first, other))) {
+                    group.add(other);
+                    remaining.remove(k--);
+                }
+            }
+            if (group.size() > 1) {
+                symmetry.add(group.toArray(new int[group.size()][]), INTERCHANGEABLE);
+            }
+        }
+        return symmetry;
+    }
+
+    /** Returns the representative of a place in the union-find forest. */
+    private static int find(int[] root, int p) {
+        while (root[p] != p) {
+            root[p] = root[root[p]];
+            p = root[p];
+        }
+        return p;
+    }
+
+    /** Maps two blocks onto each other position by position. */
+    private static int[] swap(int[] map, int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            map[a[i]] = b[i];
+            map[b[i]] = a[i];
+        }
+        return map;
+    }
+
+    /**
+     * Returns the representative of the orbit of a marking: interchangeable blocks sorted
+     * and rotating blocks shifted to the lexicographically smallest order.
+     *
+     * @param marking The token counts.
+     * @return a new array with the canonical token counts
+     */
+    public int[] canonical(int[] marking) {
+        int[] result = marking.clone();
+        for (int g = 0; g < groups.size(); g++) {
+            final int[][] blocks = groups.get(g);
+            int k = blocks.length;
+            int m = blocks[0].length;
+            int[][] rows = new int[k][m];
+            for (int j = 0; j < k; j++) {
+                for (int i = 0; i < m; i++) {
+                    rows[j][i] = marking[blocks[j][i]];
+                }
+            }
+            int[][] ordered;
+            if (kinds.get(g) == INTERCHANGEABLE) {
+                ordered = rows.clone();
+                Arrays.sort(ordered, new Comparator<int[]>() {
+                    @Override
+                    public int compare(int[] a, int[] b) {
+                        return compareRows(a, b);
+                    }
+                });
+            } else {
+                int best = 0;
+                for (int shift = 1; shift < k; shift++) {
+                    for (int j = 0; j < k; j++) {
+                        int c = compareRows(rows[(shift + j) % k], rows[(best + j) % k]);
+                        if (c != 0) {
+                            if (c < 0) {
+                                best = shift;
+                            }
+                            break;
+                        }
+                    }
+                }
+                ordered = new int[k][];
+                for (int j = 0; j < k; j++) {
+                    ordered[j] = rows[(best + j) % k];
+                }
+            }
+            for (int j = 0; j < k; j++) {
+                for (int i = 0; i < m; i++) {
+                    result[blocks[j][i]] = ordered[j][i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param marking a marking
+     * @return the representative of the orbit of the marking
+     */
+    public Marking canonical(Marking marking) {
+        return new Marking(canonical(marking.tokens));
+    }
+
+    /** Compares two rows of token counts lexicographically. */
+    private static int compareRows(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return a[i] < b[i] ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if no symmetry was declared or detected
+     */
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * @return the number of symmetry groups
+     */
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * @param group the number of a group
+     * @return the blocks of places of the group
+     */
+    public int[][] getBlocks(int group) {
+        int[][] blocks = groups.get(group);
+        int[][] copy = new int[blocks.length][];
+        for (int j = 0; j < blocks.length; j++) {
+            copy[j] = blocks[j].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @param group the number of a group
+     * @return {@link #INTERCHANGEABLE} or {@link #ROTATION}
+     */
+    public int getKind(int group) {
+        return kinds.get(group);
+    }
+
+    /**
+     * @return the topology the symmetries belong to
+     */
+    public NetTopology getTopology() {
+        return topology;
+    }
+
+    /** Checks that blocks have the same length and use places of no other symmetry. */
+    private void check(int[][] blocks) {
+        if (blocks.length < 2) {
+            throw new IllegalArgumentException("A symmetry needs at least two blocks");
+        }
+        boolean[] seen = new boolean[used.length];
+        for (int[] block : blocks) {
+            if (block.length != blocks[0].length) {
+                throw new IllegalArgumentException("Blocks of different length");
+            }
+            for (int p : block) {
+                if (used[p] || seen[p]) {
+                    throw new IllegalArgumentException("Place " + topology.getPlaceId(p) + " is in more than one block");
+                }
+                seen[p] = true;
+            }
+        }
+    }
+
+    /** Adds a checked group. */
+    private void add(int[][] blocks, int kind) {
+        int[][] copy = new int[blocks.length][];
+        for (int j = 0; j < blocks.length; j++) {
+            copy[j] = blocks[j].clone();
+            for (int p : copy[j]) {
+                used[p] = true;
+            }
+        }
+        groups.add(copy);
+        kinds.add(kind);
+    }
+
+    /** Returns the identity map of places. */
+    private int[] identity() {
+        int[] map = new int[topology.getPlaceCount()];
+        for (int p = 0; p < map.length; p++) {
+            map[p] = p;
+        }
+        return map;
+    }
+
+    /**
+     * Checks whether a permutation of places maps the net onto itself: every place must keep
+     * its capacity, and every transition must be mapped onto a transition with the same
+     * attributes and arcs.
+     */
+    private boolean isAutomorphism(int[] map) {
+        for (int p = 0; p < map.length; p++) {
+            if (topology.getCapacity(p) != topology.getCapacity(map[p])) {
+                return false;
+            }
+        }
+        HashMap<String, Integer> remaining = new HashMap<>(signatures);
+        for (int t = 0; t < topology.getTransitionCount(); t++) {
+            String signature = signature(t, map);
+            Integer count = remaining.get(signature);
+            if (count == null || count == 0) {
+                return false;
+            }
+            remaining.put(signature, count - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Describes a transition with its places renamed by a map, so transitions with the same
+     * description are interchangeable.
+     */
+    private String signature(int t, int[] map) {
+        StringBuilder text = new StringBuilder();
+        text.append(topology.getTiming(t)).append('/').append(topology.getPriority(t)).append('/')
+                .append(topology.getWeight(t)).append('/').append(topology.getRate(t)).append('/')
+                .append(topology.isDataDependent(t));
+        appendArcs(text.append(" in"), t, map, true);
+        appendArcs(text.append(" out"), t, map, false);
+        return text.toString();
+    }
+
+    /** Appends the sorted arcs of a transition with their places renamed. */
+    private void appendArcs(StringBuilder text, int t, int[] map, boolean input) {
+        int count = input ? topology.getInputCount(t) : topology.getOutputCount(t);
+        long[] arcs = new long[count];
+        for (int i = 0; i < count; i++) {
+            int p = input ? topology.getInputPlace(t, i) : topology.getOutputPlace(t, i);
+            int w = input ? topology.getInputWeight(t, i) : topology.getOutputWeight(t, i);
+            arcs[i] = (long) map[p] << 32 | w;
+        }
+        Arrays.sort(arcs);
+        for (long arc : arcs) {
+            text.append(' ').append(arc >>> 32).append('x').append((int) arc);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Stops a simulation once its clock reaches a given simulated time. Untimed simulations
+ * stay at time 0 and only reach a limit of 0.
+ */
+public class TimeLimit implements StopCondition {
+
+    private final long maxTime;
+
+    /**
+     * Creates a simulated time limit.
+     *
+     * @param maxTime Simulated time at which the simulation stops.
+     */
+    public TimeLimit(long maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    @Override
+    public boolean isReached(Simulation simulation) {
+        return simulation.getSimulatedTime() >= maxTime;
+    }
+
+    /**
+     * @return the simulated time at which the simulation stops
+     */
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    public String toString() {
+        return "time limit " + maxTime;
+    }
+}
@@ -35,6 +35,37 @@ public class TimedSimulation extends Simulation {
         this.gui = gui;
     }
 
+    /**
+     * Constructs a TimedSimulation of the net of a session.
+     *
+     * @param session The session whose net is simulated.
+     * @param step    Indicates whether the simulation should run in step mode.
+     * @param gui     The graphical user interface associated with the simulation.
+     */
+    public TimedSimulation(Session session, boolean step, GUI gui) {
+        super(session, step, gui);
+        showClock();
+    }
+
+    /**
+     * Constructs a headless TimedSimulation of the net of a session.
+     *
+     * @param session The session whose net is simulated.
+     * @throws IllegalStateException if the net does not compile
+     */
+    public TimedSimulation(Session session) {
+        super(session);
+    }
+
+    /**
+     * Constructs a headless TimedSimulation of an already compiled net.
+     *
+     * @param net the compiled net to simulate
+     */
+    public TimedSimulation(PetriNet net) {
+        super(net);
+    }
+
     @Override
     public void run() {
         super.run();
@@ -42,18 +73,13 @@ public class TimedSimulation extends Simulation {
 
     @Override
     public boolean isFinished() {
-        // Get the list of enabled transitions
-        ArrayList<Transition> enabledTransitions = enabledTransitionList();
         // Check if there are any enabled transitions
-        boolean isDead = enabledTransitions.isEmpty();
+        boolean isDead = getSelector().isEmpty();
 
         if (isDead) {
             // If no enabled transitions, increment time and check again
             incrementTime();
-            enabledTransitions = enabledTransitionList();
-            if (!enabledTransitions.isEmpty()) {
-                isDead = false;
-            }
+            isDead = getSelector().isEmpty();
         }
 
         return isDead;
@@ -66,28 +92,18 @@ public class TimedSimulation extends Simulation {
      */
     @Override
     public ArrayList<Transition> enabledTransitionList() {
-        Iterator<Transition> it = Global.petriNet.getTransitions().iterator();
+        Iterator<Transition> it = net.getTransitions().iterator();
         ArrayList<Transition> enabledTransitions = new ArrayList<>();
         while (it.hasNext()) {
             Transition transition = it.next();
             // Check if the transition is enabled at the current time
-            if (transition.enabled(time)) {
+            if (transition.enabled(net, time)) {
                 enabledTransitions.add(transition);
             }
         }
         return enabledTransitions;
     }
 
-    @Override
-    protected void fireTransition() {
-        enabledTransitionList();
-        if (!enabledTransitionList().isEmpty()) {
-            // Fire a random enabled transition
-            getRandomTransition().fire(this.gui, this.time);
-            pauseResumeSimulation();
-        }
-    }
-
     /**
      * Increments the simulation time based on the timestamps of tokens in places.
      */
@@ -95,7 +111,7 @@ public class TimedSimulation extends Simulation {
         // Visit all places' tokens and check whether they have timestamp > 0 and less than the global clock
         // Assign the global clock to the minimum found
         long minTime = Long.MAX_VALUE;
-        ArrayList<Place> places = Global.petriNet.getPlaces();
+        ArrayList<Place> places = net.getPlaces();
         for (Place place : places) {
             TokenSet tokenList = place.getTokens();
             if (tokenList.size() > 0) {
@@ -109,7 +125,7 @@ public class TimedSimulation extends Simulation {
         if (minTime != Long.MAX_VALUE) {
             this.time = minTime;
         }
-        this.gui.getTxtClock().setText(String.valueOf(this.time)); // Update the time on the GUI
+        showClock(); // Update the time on the GUI
     }
 
     /**
@@ -145,6 +161,30 @@ public class TimedSimulation extends Simulation {
         return time;
     }
 
+    @Override
+    public long getClock() {
+        return time;
+    }
+
+    @Override
+    public boolean isTimed() {
+        return true;
+    }
+
+    @Override
+    public void restore(SimulationCheckpoint checkpoint) {
+        super.restore(checkpoint);
+        this.time = checkpoint.getClock();
+        showClock();
+    }
+
+    /** Shows the simulation time on the GUI, if there is one. */
+    private void showClock() {
+        if (this.gui != null) {
+            this.gui.getTxtClock().setText(String.valueOf(this.time));
+        }
+    }
+
     /**
      * Sets the simulation time to a specific value.
      *
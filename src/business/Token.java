@@ -1,6 +1,11 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package business;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 /**
  * Represents a Token in a network or system, with properties for its color, timestamp, and initial marking expression.
  * The `Token` class is an example of the Builder design pattern. 
@@ -9,13 +14,15 @@ package business;
  * In this case, `Token` uses constructor overloading to build a `Token` object in steps. 
  * Each constructor calls the one before it, adding one more parameter each time. This is typical of the Builder pattern.
  */
-public class Token {
+public class Token implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     /** Represents the initial marking expression of the token. */
     private String initialMarkingExpression = "";
 
     /** Represents the color or nature of the token. */
-    private Object object;
+    private transient Object object;
 
     /** Represents the timestamp of the token's creation or modification. */
     private long timestamp = 0;
@@ -163,4 +170,19 @@ public class Token {
         this.initialMarkingExpression = initialMarkingExpression;
     }
 
+    /**
+     * Writes this token. Payloads that are not serializable are written as their text.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(object == null || object instanceof Serializable ? object : String.valueOf(object));
+    }
+
+    /**
+     * Reads a token written by {@link #writeObject(ObjectOutputStream)}.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.object = in.readObject();
+    }
 }
@@ -1,6 +1,7 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package business;
 
+import java.io.Serializable;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -15,7 +16,9 @@ import java.util.Iterator;
  * It extends AbstractCollection<Token>, which means it can be treated like any other collection of Token objects. 
  * The TokenSet class provides methods for managing these tokens, which is typical of the Composite pattern.
  */
-public class TokenSet extends AbstractCollection<Token> {
+public class TokenSet extends AbstractCollection<Token> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     // ArrayList to store tokens in the TokenSet
     private ArrayList<Token> tokenList = new ArrayList<>();
@@ -0,0 +1,37 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the firing batches drained by a {@link TraceWriter}.
+ * Implementations are only ever called from the writer thread, one batch at a time,
+ * so they need no synchronization of their own.
+ */
+public interface TraceSink {
+
+    /**
+     * Prepares the sink for a run. Called on the simulation thread before the first
+     * firing, so the initial marking of the net can still be inspected.
+     *
+     * @param simulation the simulation that is starting
+     * @throws IOException if the trace could not be opened
+     */
+    public void open(Simulation simulation) throws IOException;
+
+    /**
+     * Writes a batch of firings in the order they happened.
+     *
+     * @param batch the firings to write
+     * @throws IOException if the trace could not be written
+     */
+    public void write(List<FiringEvent> batch) throws IOException;
+
+    /**
+     * Flushes and releases the sink. No batch is written after this call.
+     *
+     * @throws IOException if the trace could not be flushed
+     */
+    public void close() throws IOException;
+}
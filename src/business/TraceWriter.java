@@ -0,0 +1,183 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background writer that moves firing events off the simulation thread.
+ * <p>
+ * Firings are put into a bounded queue and drained in batches by this thread into a
+ * {@link TraceSink}. The simulation thread only pays for a queue insertion per firing;
+ * formatting and I/O happen here. When the queue is full the simulation blocks until the
+ * writer catches up, so no firing is ever dropped and memory stays bounded. A failing sink
+ * does not stop the writer: the error is kept, and the remaining firings are drained and
+ * discarded, so the simulation never waits for a writer that no longer writes.
+ * </p>
+ * The TraceWriter class is an example of the Producer-Consumer pattern.
+ */
+public class TraceWriter extends Thread implements FiringListener {
+
+    /** Default number of firings the queue can hold. */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Default maximum number of firings handed to the sink at once. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** Marks the end of the trace in the queue. */
+    private static final FiringEvent END = new FiringEvent(null, 0);
+
+    private final BlockingQueue<FiringEvent> queue;
+    private final int batchSize;
+    private final TraceSink sink;
+
+    /** First error reported by the sink, if any. */
+    private volatile IOException error;
+
+    /**
+     * Creates a trace writer with default capacity and batch size.
+     *
+     * @param sink The sink batches are written to.
+     */
+    public TraceWriter(TraceSink sink) {
+        this(sink, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a trace writer.
+     *
+     * @param sink      The sink batches are written to.
+     * @param capacity  Maximum number of queued firings before the simulation blocks.
+     * @param batchSize Maximum number of firings handed to the sink at once.
+     */
+    public TraceWriter(TraceSink sink, int capacity, int batchSize) {
+        super("TraceWriter");
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        setDaemon(true);
+    }
+
+    @Override
+    public void simulationStarted(Simulation simulation) {
+        try {
+            sink.open(simulation);
+        } catch (IOException ex) {
+            this.error = ex;
+            Logger.getLogger(TraceWriter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        start();
+    }
+
+    @Override
+    public void transitionFired(FiringEvent event) {
+        enqueue(event);
+    }
+
+    @Override
+    public void simulationFinished(Simulation simulation) {
+        close();
+    }
+
+    /**
+     * Ends the trace and waits until every queued firing has been written and the sink closed.
+     */
+    public void close() {
+        if (!isAlive()) {
+            return;
+        }
+        enqueue(END);
+        try {
+            join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Puts an event into the queue, blocking while it is full. Gives up once the writer
+     * thread has died, since nobody would take the event any more.
+     */
+    private void enqueue(FiringEvent event) {
+        try {
+            while (!queue.offer(event, 100, TimeUnit.MILLISECONDS)) {
+                if (getState() == State.TERMINATED) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        ArrayList<FiringEvent> batch = new ArrayList<>(batchSize);
+        boolean end = false;
+        while (!end) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            if (batch.get(batch.size() - 1) == END) {
+                batch.remove(batch.size() - 1);
+                end = true;
+            }
+            write(batch);
+            batch.clear();
+        }
+        try {
+            sink.close();
+        } catch (IOException ex) {
+            fail(ex);
+        } catch (RuntimeException ex) {
+            fail(new IOException("Trace sink failed to close", ex));
+        }
+    }
+
+    /** Hands a batch to the sink unless it already failed. */
+    private void write(ArrayList<FiringEvent> batch) {
+        if (error != null || batch.isEmpty()) {
+            return;
+        }
+        try {
+            sink.write(batch);
+        } catch (IOException ex) {
+            fail(ex);
+        } catch (RuntimeException ex) {
+            // Also thrown by the toString of a token while formatting
+            fail(new IOException("Trace sink failed", ex));
+        }
+    }
+
+    /** Keeps the first error and logs it. */
+    private void fail(IOException ex) {
+        if (error == null) {
+            this.error = ex;
+        }
+        Logger.getLogger(TraceWriter.class.getName()).log(Level.SEVERE, null, ex);
+    }
+
+    /**
+     * Returns the first error reported by the sink.
+     *
+     * @return the error, or null if the trace was written completely
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * @return the sink
+     */
+    public TraceSink getSink() {
+        return sink;
+    }
+}
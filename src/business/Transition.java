@@ -1,7 +1,7 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package business;
 
-import java.util.Iterator;
+import java.util.ArrayList;
 import presentation.GUI;
 
 /**
@@ -18,7 +18,28 @@ import presentation.GUI;
  */
 public class Transition extends NetObject implements Inscription {
 
-    private String guardText = "return true;";
+    /** Guard of a transition without a condition. */
+    public static final String DEFAULT_GUARD = "return true;";
+
+    private String guardText = DEFAULT_GUARD;
+    /** Relative probability of being chosen among the enabled transitions of its priority. */
+    private double weight = 1;
+    /** Only the enabled transitions of the highest priority compete for firing. */
+    private int priority = 0;
+
+    /** Timing constant of a transition that fires without delay and before any timed one. */
+    public static final int IMMEDIATE = 0;
+    /** Timing constant of a transition whose delay is exponentially distributed. */
+    public static final int EXPONENTIAL = 1;
+    /** Timing constant of a transition whose delay is given by an expression. */
+    public static final int GENERAL = 2;
+
+    /** Timing of the transition in a {@link StochasticSimulation}. */
+    private int timing = IMMEDIATE;
+    /** Rate of an exponential transition, or delay expression of a general one. */
+    private String delayText = "1.0";
+    /** Value of the delay text if it is a number, NaN otherwise. */
+    private double delayValue = 1.0;
     /** Global clock when the transition fires. */
     private long globalClock;
 
@@ -35,114 +56,179 @@ public class Transition extends NetObject implements Inscription {
         this.guardText = guardText;
     }
 
-    /** Fires a transition. */
-    public void fire(GUI gui, long globalClock) {
+    /**
+     * Fires a transition of the default net and animates it on the canvas.
+     * The consumed and produced tokens are returned as a {@link FiringEvent} instead of
+     * being written to the log; the simulation hands the event to its listeners.
+     *
+     * @param gui         the GUI whose canvas shows the firing, or null to fire silently
+     * @param globalClock the simulation clock at firing time
+     * @return the firing event
+     */
+    public FiringEvent fire(GUI gui, long globalClock) {
+        return fire(gui, Global.petriNet, globalClock);
+    }
 
-        Iterator<InputArc> inputIteratorArc = Global.petriNet.getInputArcs().iterator();
-        Iterator<OutputArc> outputIteratorArc = Global.petriNet.getOutputArcs().iterator();
+    /**
+     * Fires a transition of a given net and animates it on the canvas.
+     *
+     * @param gui         the GUI whose canvas shows the firing, or null to fire silently
+     * @param net         the net the transition belongs to
+     * @param globalClock the simulation clock at firing time
+     * @return the firing event
+     */
+    public FiringEvent fire(GUI gui, PetriNet net, long globalClock) {
+        if (gui == null) {
+            return fire(net, globalClock);
+        }
+        FiringEvent event = new FiringEvent(this, globalClock);
         this.globalClock = globalClock;
 
         // Highlight places ON
-        gui.getCanvas().highlightPlaces(Global.petriNet.getInputArcs(), id, true, false);
+        gui.getCanvas().highlightPlaces(net.getInputArcs(), id, true, false);
 
         // Highlight inputArcs ON
-        gui.getCanvas().highlightArcs(Global.petriNet.getInputArcs(), id, true, true);
+        gui.getCanvas().highlightArcs(net.getInputArcs(), id, true, true);
 
         // Remove all tokens from places
-        while (inputIteratorArc.hasNext()) {
-            InputArc arc = (InputArc) inputIteratorArc.next();
-            if (arc.getTransition().getId().equals(getId())) {
-                arc.getPlace().removeTokens(arc.execute());
-                gui.getJTextArea1().append("- " + arc.getExecuteText() + "\n");
-                gui.getJTextArea1().setCaretPosition(gui.getJTextArea1().getText().length());
-            }
-        }
+        consume(net, event);
 
         // Highlight places OFF
-        gui.getCanvas().highlightPlaces(Global.petriNet.getInputArcs(), id, false, false);
+        gui.getCanvas().highlightPlaces(net.getInputArcs(), id, false, false);
 
         // Highlight inputArcs OFF
-        gui.getCanvas().highlightArcs(Global.petriNet.getInputArcs(), id, false, false);
+        gui.getCanvas().highlightArcs(net.getInputArcs(), id, false, false);
 
         // Highlight transition ON
         gui.getCanvas().highlightTransition(id, true, true);
-        if (!this.getLabel().equals(this.getId())) {
-            gui.getJTextArea1().append(this.getLabel() + " (" + this.getId() + ") fired!\n");
-        } else {
-            gui.getJTextArea1().append(this.getId() + " fired.\n");
-        }
-        gui.getJTextArea1().setCaretPosition(gui.getJTextArea1().getText().length());
 
         // Highlight transition OFF
         gui.getCanvas().highlightTransition(id, false, false);
 
         // Highlight outputArcs ON
-        gui.getCanvas().highlightArcs(Global.petriNet.getOutputArcs(), id, true, false);
+        gui.getCanvas().highlightArcs(net.getOutputArcs(), id, true, false);
 
         // Highlight places ON
-        gui.getCanvas().highlightPlaces(Global.petriNet.getOutputArcs(), id, true, true);
+        gui.getCanvas().highlightPlaces(net.getOutputArcs(), id, true, true);
 
         // Create all tokens to output places
-        while (outputIteratorArc.hasNext()) {
-            OutputArc arc = (OutputArc) outputIteratorArc.next();
-            if (arc.getTransition().getId().equals(getId())) {
-                TokenSet tokenSet = arc.execute();
-                tokenSet.incrementTime(globalClock); // Set time of all new tokens in the tokenSet
-                arc.getPlace().addToken(tokenSet);
-
-                gui.getJTextArea1().append("+ " + arc.getExecuteText() + "\n");
-                gui.getJTextArea1().setCaretPosition(gui.getJTextArea1().getText().length());
-            }
-        }
+        produce(net, event, globalClock);
 
         // Highlight outputArcs OFF
-        gui.getCanvas().highlightArcs(Global.petriNet.getOutputArcs(), id, false, false);
+        gui.getCanvas().highlightArcs(net.getOutputArcs(), id, false, false);
 
         // Highlight places OFF
-        gui.getCanvas().highlightPlaces(Global.petriNet.getOutputArcs(), id, false, false);
+        gui.getCanvas().highlightPlaces(net.getOutputArcs(), id, false, false);
 
-        gui.getJTextArea1().append("----------------------------\n");
         gui.getCanvas().repaint();
+        return event;
     }
 
     /**
-     * Checks if the transition is enabled at a given time.
+     * Fires a transition of the default net without any animation.
+     *
+     * @param globalClock the simulation clock at firing time
+     * @return the firing event
+     */
+    public FiringEvent fire(long globalClock) {
+        return fire(Global.petriNet, globalClock);
+    }
+
+    /**
+     * Fires a transition of a given net without any animation.
+     *
+     * @param net         the net the transition belongs to
+     * @param globalClock the simulation clock at firing time
+     * @return the firing event
+     */
+    public FiringEvent fire(PetriNet net, long globalClock) {
+        FiringEvent event = new FiringEvent(this, globalClock);
+        this.globalClock = globalClock;
+        consume(net, event);
+        produce(net, event, globalClock);
+        return event;
+    }
+
+    /** Removes the tokens of all input arcs from their places. */
+    private void consume(PetriNet net, FiringEvent event) {
+        ArrayList<InputArc> inputArcs = net.getInputArcs(this);
+        for (int i = 0; i < inputArcs.size(); i++) {
+            InputArc arc = inputArcs.get(i);
+            TokenSet tokenSet = arc.execute();
+            ArrayList<Token> requested = new ArrayList<>(tokenSet);
+            // removeTokens takes every matched token out of tokenSet, leaving the unmatched ones
+            arc.getPlace().removeTokens(tokenSet);
+            for (Token token : requested) {
+                if (!tokenSet.remove(token)) {
+                    event.addConsumed(arc.getPlace(), token);
+                }
+            }
+        }
+    }
+
+    /** Adds the tokens of all output arcs to their places. */
+    private void produce(PetriNet net, FiringEvent event, long globalClock) {
+        ArrayList<OutputArc> outputArcs = net.getOutputArcs(this);
+        for (int i = 0; i < outputArcs.size(); i++) {
+            OutputArc arc = outputArcs.get(i);
+            TokenSet tokenSet = arc.execute();
+            tokenSet.incrementTime(globalClock); // Set time of all new tokens in the tokenSet
+            for (Token token : tokenSet) {
+                event.addProduced(arc.getPlace(), token);
+            }
+            arc.getPlace().addToken(tokenSet);
+        }
+    }
+
+    /**
+     * Checks if the transition of the default net is enabled at a given time.
      *
      * @param time the time to check against
      * @return true if enabled, false otherwise
      */
     public boolean enabled(long time) {
+        return enabled(Global.petriNet, time);
+    }
 
-        Iterator<InputArc> inputIteratorArc = Global.petriNet.getInputArcs().iterator();
-        Iterator<OutputArc> outputIteratorArc = Global.petriNet.getOutputArcs().iterator();
+    /**
+     * Checks if the transition of a given net is enabled at a given time.
+     *
+     * @param net  the net the transition belongs to
+     * @param time the time to check against
+     * @return true if enabled, false otherwise
+     */
+    public boolean enabled(PetriNet net, long time) {
+        return enabled(time, net.getInputArcs(this), net.getOutputArcs(this));
+    }
 
+    /**
+     * Checks if the transition is enabled at a given time, given its own input and output
+     * arcs. Lets callers that index the arcs per transition avoid scanning all arcs of the net.
+     *
+     * @param time       the time to check against
+     * @param inputArcs  the input arcs of this transition
+     * @param outputArcs the output arcs of this transition
+     * @return true if enabled, false otherwise
+     */
+    public boolean enabled(long time, ArrayList<InputArc> inputArcs, ArrayList<OutputArc> outputArcs) {
         // transition guard evaluation
         boolean enabled = evaluate();
 
         // input arc guards
-        if (enabled && !Global.petriNet.getInputArcs().isEmpty()) {
-            while (enabled && inputIteratorArc.hasNext()) {
-                InputArc arc = (InputArc) inputIteratorArc.next();
-                if (arc.getTransition().getId().equals(getId())) {
-                    TokenSet tokensList = arc.getPlace().getTokens();
-                    enabled = tokensList.containsTime(time);
-                    // check arc's evaluation expression
-                    enabled = enabled & arc.evaluate();
-                }
-            }
+        for (int i = 0; enabled && i < inputArcs.size(); i++) {
+            InputArc arc = inputArcs.get(i);
+            TokenSet tokensList = arc.getPlace().getTokens();
+            enabled = tokensList.containsTime(time);
+            // check arc's evaluation expression
+            enabled = enabled & arc.evaluate();
         }
 
         // check output arc place capacity restriction
-        if (enabled && !Global.petriNet.getOutputArcs().isEmpty()) {
-            while (enabled && outputIteratorArc.hasNext()) {
-                OutputArc arc = (OutputArc) outputIteratorArc.next();
-                if (arc.getTransition().getId().equals(getId())) {
-                    TokenSet tokensList = arc.getPlace().getTokens();
-                    // check if places have capacity limit
-                    if (arc.getPlace().getCapacity() != 0) {
-                        enabled = enabled & arc.getPlace().getCapacity() > tokensList.size();
-                    }
-                }
+        for (int i = 0; enabled && i < outputArcs.size(); i++) {
+            OutputArc arc = outputArcs.get(i);
+            // check if places have capacity limit
+            if (arc.getPlace().getCapacity() != 0) {
+                enabled = enabled & arc.getPlace().getCapacity() > arc.getPlace().getTokens().size();
             }
         }
 
@@ -194,5 +280,131 @@ public class Transition extends NetObject implements Inscription {
         return globalClock;
     }
 
+    /**
+     * Gets the weight of the transition: among the enabled transitions of the highest
+     * priority, a transition is chosen with probability proportional to its weight.
+     *
+     * @return the weight
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight of the transition.
+     *
+     * @param weight the weight, greater than 0
+     * @throws IllegalArgumentException if the weight is not positive
+     */
+    public void setWeight(double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Transition weight must be positive: " + weight);
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the priority of the transition. An enabled transition can only fire if no
+     * transition of a higher priority is enabled.
+     *
+     * @return the priority
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of the transition.
+     *
+     * @param priority the priority, 0 by default
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
 
-}
\ No newline at end of file
+    /**
+     * Samples the firing delay of a timed transition. Generated nets override this method
+     * when the delay text is an expression; this implementation handles numbers, which
+     * can therefore be changed on a compiled net.
+     *
+     * @param random the random generator of the simulation
+     * @return the delay, 0 for immediate transitions
+     */
+    public double delay(java.util.Random random) {
+        switch (timing) {
+            case EXPONENTIAL:
+                return -Math.log(1 - random.nextDouble()) / delayValue;
+            case GENERAL:
+                return delayValue;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return true if the transition fires without delay
+     */
+    public boolean isImmediate() {
+        return timing == IMMEDIATE;
+    }
+
+    /**
+     * Gets the timing of the transition.
+     *
+     * @return {@link #IMMEDIATE}, {@link #EXPONENTIAL} or {@link #GENERAL}
+     */
+    public int getTiming() {
+        return timing;
+    }
+
+    /**
+     * Sets the timing of the transition.
+     *
+     * @param timing {@link #IMMEDIATE}, {@link #EXPONENTIAL} or {@link #GENERAL}
+     * @throws IllegalArgumentException for an unknown timing
+     */
+    public void setTiming(int timing) {
+        if (timing < IMMEDIATE || timing > GENERAL) {
+            throw new IllegalArgumentException("Unknown transition timing: " + timing);
+        }
+        this.timing = timing;
+    }
+
+    /**
+     * Gets the rate of an exponential transition, or the delay expression of a general
+     * transition. The expression may use the simulation's {@code random} generator.
+     *
+     * @return the delay text
+     */
+    public String getDelayText() {
+        return delayText;
+    }
+
+    /**
+     * Sets the rate of an exponential transition, or the delay expression of a general one.
+     *
+     * @param delayText the delay text
+     */
+    public void setDelayText(String delayText) {
+        this.delayText = delayText;
+        try {
+            this.delayValue = Double.parseDouble(delayText.trim());
+        } catch (NumberFormatException e) {
+            this.delayValue = Double.NaN;
+        }
+    }
+
+    /**
+     * @return true if the delay text is a number rather than an expression
+     */
+    public boolean hasConstantDelay() {
+        return !Double.isNaN(delayValue);
+    }
+
+    /**
+     * @return the rate or delay if the delay text is a number, NaN otherwise
+     */
+    public double getDelayValue() {
+        return delayValue;
+    }
+}
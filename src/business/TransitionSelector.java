@@ -0,0 +1,321 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Keeps track of the enabled transitions of a net and chooses the next one to fire.
+ * <p>
+ * Only the enabled transitions of the highest priority compete; among them a transition is
+ * chosen with probability proportional to its weight. Every priority level has a
+ * {@link FenwickTree} holding the weight of each enabled transition and 0 for the others,
+ * so a choice takes O(log n).
+ * </p>
+ * <p>
+ * After a firing only the transitions that can have changed are checked again: those with
+ * an input arc from, or an output arc to, a place the fired transition consumed from or
+ * produced into. Transitions whose guard or input arc expressions are not the defaults may
+ * depend on anything and are checked after every firing. Token timestamps make enabling
+ * depend on the clock, so everything is checked again when the clock moves.
+ * </p>
+ * A selector may also be restricted to some of the transitions of a net, e.g. to the
+ * immediate ones; it then follows the firings of all transitions of the net.
+ */
+public class TransitionSelector {
+
+    private final PetriNet net;
+    private final Transition[] transitions;
+    private final IdentityHashMap<Transition, Integer> indices = new IdentityHashMap<>();
+    private final ArrayList<ArrayList<InputArc>> inputArcs = new ArrayList<>();
+    private final ArrayList<ArrayList<OutputArc>> outputArcs = new ArrayList<>();
+    /** Places of every transition of the net, including those not chosen by this selector. */
+    private final IdentityHashMap<Transition, LinkedHashSet<Place>> placesOf = new IdentityHashMap<>();
+    /** Transitions of this selector whose enabling depends on a place. */
+    private final HashMap<Place, LinkedHashSet<Integer>> affected = new HashMap<>();
+    /** Transitions checked after every firing. */
+    private final ArrayList<Integer> always = new ArrayList<>();
+    /** Transitions to check again after each transition of the net fired, built when needed. */
+    private final IdentityHashMap<Transition, int[]> dependents = new IdentityHashMap<>();
+
+    /** Level of every transition, 0 being the highest priority. */
+    private final int[] levelOf;
+    /** Position of every transition in the tree of its level. */
+    private final int[] positionOf;
+    /** Transitions of every level, by position. */
+    private final int[][] members;
+    private final FenwickTree[] trees;
+    private final int[] enabledCount;
+    private final boolean[] enabled;
+    /** Transitions whose enabling changed during the last update. */
+    private final ArrayList<Transition> changed = new ArrayList<>();
+
+    private long time;
+    private boolean valid = false;
+
+    /**
+     * Indexes a net to choose among all its transitions.
+     *
+     * @param net The net whose transitions are chosen.
+     */
+    public TransitionSelector(PetriNet net) {
+        this(net, net.getTransitions());
+    }
+
+    /**
+     * Indexes a net to choose among some of its transitions.
+     *
+     * @param net         The net.
+     * @param transitions The transitions of the net to choose among.
+     */
+    public TransitionSelector(PetriNet net, ArrayList<Transition> transitions) {
+        this.net = net;
+        this.transitions = transitions.toArray(new Transition[0]);
+        int n = this.transitions.length;
+        for (int t = 0; t < n; t++) {
+            indices.put(this.transitions[t], t);
+            inputArcs.add(new ArrayList<InputArc>());
+            outputArcs.add(new ArrayList<OutputArc>());
+        }
+
+        // Arcs of every transition and transitions affected by every place
+        boolean[] volatileTransition = new boolean[n];
+        for (InputArc arc : net.getInputArcs()) {
+            places(arc.getTransition()).add(arc.getPlace());
+            Integer t = indices.get(arc.getTransition());
+            if (t == null) {
+                continue;
+            }
+            inputArcs.get(t).add(arc);
+            affected(arc.getPlace()).add(t);
+            if (!InputArc.DEFAULT_EVALUATE.equals(arc.getEvaluateText())) {
+                volatileTransition[t] = true;
+            }
+        }
+        for (OutputArc arc : net.getOutputArcs()) {
+            places(arc.getTransition()).add(arc.getPlace());
+            Integer t = indices.get(arc.getTransition());
+            if (t == null) {
+                continue;
+            }
+            outputArcs.get(t).add(arc);
+            affected(arc.getPlace()).add(t);
+        }
+        for (int t = 0; t < n; t++) {
+            if (volatileTransition[t] || !Transition.DEFAULT_GUARD.equals(this.transitions[t].getGuardText().trim())) {
+                always.add(t);
+            }
+        }
+
+        // Priority levels, highest first
+        TreeSet<Integer> priorities = new TreeSet<>();
+        for (Transition transition : this.transitions) {
+            priorities.add(-transition.getPriority());
+        }
+        Integer[] levels = priorities.toArray(new Integer[0]);
+        levelOf = new int[n];
+        positionOf = new int[n];
+        int[] sizes = new int[levels.length];
+        for (int t = 0; t < n; t++) {
+            levelOf[t] = Arrays.binarySearch(levels, -this.transitions[t].getPriority());
+            positionOf[t] = sizes[levelOf[t]]++;
+        }
+        members = new int[levels.length][];
+        trees = new FenwickTree[levels.length];
+        for (int l = 0; l < levels.length; l++) {
+            members[l] = new int[sizes[l]];
+            trees[l] = new FenwickTree(sizes[l]);
+        }
+        for (int t = 0; t < n; t++) {
+            members[levelOf[t]][positionOf[t]] = t;
+        }
+        enabledCount = new int[levels.length];
+        enabled = new boolean[n];
+    }
+
+    /** Returns the places connected to a transition. */
+    private LinkedHashSet<Place> places(Transition transition) {
+        LinkedHashSet<Place> set = placesOf.get(transition);
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            placesOf.put(transition, set);
+        }
+        return set;
+    }
+
+    /** Returns the transitions whose enabling depends on a place. */
+    private LinkedHashSet<Integer> affected(Place place) {
+        LinkedHashSet<Integer> set = affected.get(place);
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            affected.put(place, set);
+        }
+        return set;
+    }
+
+    /** Returns the transitions to check after a transition fired. */
+    private int[] dependents(Transition fired) {
+        int[] array = dependents.get(fired);
+        if (array == null) {
+            LinkedHashSet<Integer> set = new LinkedHashSet<>();
+            Integer index = indices.get(fired);
+            if (index != null) {
+                set.add(index);
+            }
+            LinkedHashSet<Place> places = placesOf.get(fired);
+            if (places != null) {
+                for (Place place : places) {
+                    LinkedHashSet<Integer> transitions = affected.get(place);
+                    if (transitions != null) {
+                        set.addAll(transitions);
+                    }
+                }
+            }
+            set.addAll(always);
+            array = toArray(set);
+            dependents.put(fired, array);
+        }
+        return array;
+    }
+
+    /** Converts a set of indices to an array. */
+    private static int[] toArray(LinkedHashSet<Integer> set) {
+        int[] array = new int[set.size()];
+        int i = 0;
+        for (Integer t : set) {
+            array[i++] = t;
+        }
+        return array;
+    }
+
+    /**
+     * Brings the enabled transitions up to date for a given time. Checks every transition
+     * if the time changed or the selector was invalidated, and nothing otherwise.
+     *
+     * @param time The simulation clock.
+     */
+    public void refresh(long time) {
+        changed.clear();
+        if (!valid || time != this.time) {
+            this.time = time;
+            for (int t = 0; t < transitions.length; t++) {
+                check(t);
+            }
+            valid = true;
+        }
+    }
+
+    /**
+     * Updates the enabled transitions after a transition fired.
+     *
+     * @param fired The transition that fired.
+     * @param time  The simulation clock.
+     */
+    public void fired(Transition fired, long time) {
+        if (!valid || time != this.time) {
+            valid = false;
+            refresh(time);
+            return;
+        }
+        changed.clear();
+        for (int t : dependents(fired)) {
+            check(t);
+        }
+    }
+
+    /**
+     * Forces every transition to be checked at the next refresh, e.g. after the marking was
+     * changed outside of a firing.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /** Checks a transition and updates its level. */
+    private void check(int t) {
+        boolean now = transitions[t].enabled(time, inputArcs.get(t), outputArcs.get(t));
+        if (now != enabled[t]) {
+            enabled[t] = now;
+            int level = levelOf[t];
+            enabledCount[level] += now ? 1 : -1;
+            trees[level].set(positionOf[t], now ? transitions[t].getWeight() : 0);
+            changed.add(transitions[t]);
+        }
+    }
+
+    /**
+     * Returns the transitions that became enabled or disabled during the last
+     * {@link #refresh(long)} or {@link #fired(Transition, long)}.
+     *
+     * @return the changed transitions
+     */
+    public ArrayList<Transition> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @param transition a transition of this selector
+     * @return true if the transition is enabled
+     */
+    public boolean isEnabled(Transition transition) {
+        Integer t = indices.get(transition);
+        return t != null && enabled[t];
+    }
+
+    /**
+     * Chooses an enabled transition of the highest enabled priority, with probability
+     * proportional to its weight.
+     *
+     * @param random The random generator.
+     * @return the chosen transition, or null if no transition is enabled
+     */
+    public Transition select(Random random) {
+        for (int level = 0; level < trees.length; level++) {
+            if (enabledCount[level] > 0) {
+                FenwickTree tree = trees[level];
+                int position = tree.find(random.nextDouble() * tree.total());
+                return transitions[members[level][position]];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if no transition is enabled
+     */
+    public boolean isEmpty() {
+        for (int level = 0; level < enabledCount.length; level++) {
+            if (enabledCount[level] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the enabled transitions of all priorities, in net order.
+     *
+     * @return the enabled transitions
+     */
+    public ArrayList<Transition> getEnabled() {
+        ArrayList<Transition> list = new ArrayList<>();
+        for (int t = 0; t < transitions.length; t++) {
+            if (enabled[t]) {
+                list.add(transitions[t]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the indexed net
+     */
+    public PetriNet getNet() {
+        return net;
+    }
+}
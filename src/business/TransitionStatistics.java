@@ -0,0 +1,66 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+import java.io.Serializable;
+
+/**
+ * Streaming statistics of one transition: number of firings and time of the last firing.
+ */
+public class TransitionStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String transitionId;
+    private long firings;
+    private double lastFiring = Double.NaN;
+
+    /**
+     * Creates the statistics of a transition.
+     *
+     * @param transitionId Id of the transition.
+     */
+    public TransitionStatistics(String transitionId) {
+        this.transitionId = transitionId;
+    }
+
+    /**
+     * Records a firing.
+     *
+     * @param time Time of the firing.
+     */
+    void fired(double time) {
+        firings++;
+        lastFiring = time;
+    }
+
+    /**
+     * Returns the throughput, i.e. the number of firings per time unit.
+     *
+     * @param elapsed Length of the observation.
+     * @return the throughput, or 0 if no time has passed
+     */
+    public double getThroughput(double elapsed) {
+        return elapsed > 0 ? firings / elapsed : 0;
+    }
+
+    /**
+     * @return the transition id
+     */
+    public String getTransitionId() {
+        return transitionId;
+    }
+
+    /**
+     * @return the number of firings
+     */
+    public long getFirings() {
+        return firings;
+    }
+
+    /**
+     * @return the time of the last firing, or NaN if the transition never fired
+     */
+    public double getLastFiring() {
+        return lastFiring;
+    }
+}
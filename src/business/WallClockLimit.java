@@ -0,0 +1,37 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package business;
+
+/**
+ * Stops a simulation after it has run for a given amount of real time, measured from the
+ * moment the simulation thread started. Time spent paused in step mode counts as well.
+ */
+public class WallClockLimit implements StopCondition {
+
+    private final long maxNanos;
+
+    /**
+     * Creates a wall-clock budget.
+     *
+     * @param maxMillis Real time budget in milliseconds.
+     */
+    public WallClockLimit(long maxMillis) {
+        this.maxNanos = maxMillis * 1000000L;
+    }
+
+    @Override
+    public boolean isReached(Simulation simulation) {
+        return System.nanoTime() - simulation.getStartNanos() >= maxNanos;
+    }
+
+    /**
+     * @return the real time budget in milliseconds
+     */
+    public long getMaxMillis() {
+        return maxNanos / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        return "wall-clock limit " + getMaxMillis() + " ms";
+    }
+}
@@ -0,0 +1,203 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Constants and encoding helpers of the binary simulation trace format written by
+ * {@link BinaryTraceSink} and read by {@link BinaryTraceReader}.
+ * <p>
+ * Layout of a trace file (all multi-byte integers are unsigned LEB128 varints unless noted,
+ * signed values are zigzag encoded first):
+ * </p>
+ * <pre>
+ * header  : int MAGIC, int VERSION, byte flags, varint chunkSize, string label,
+ *           varint placeCount, placeCount x string id,
+ *           varint transitionCount, transitionCount x string id
+ * chunk   : varint events, varlong firstStep, zigzag firstClock,
+ *           varint dictionarySize, dictionarySize x string payload,
+ *           keyframe, varint recordBytes, records
+ * keyframe: placeCount x (varint tokens [, tokens x (varint payloadRef, zigzag timestampDelta)])
+ * record  : varint transition, zigzag clockDelta,
+ *           varint consumed, consumed x token, varint produced, produced x token
+ * token   : varint place [, varint payloadRef, zigzag timestampDelta]   (payloads only)
+ * index   : varint chunks, chunks x (long offset, varlong firstStep, zigzag firstClock, varint events)
+ * footer  : long indexOffset, int END_MAGIC                             (fixed width)
+ * </pre>
+ * Clock deltas are taken against the previous record of the same chunk (the first record
+ * against the chunk's first clock) and token timestamps against the record's clock, so a
+ * typical firing takes only a few bytes. Payload strings are stored once per chunk, which
+ * keeps every chunk independently decodable for seeking. The keyframe holds the marking
+ * before the chunk's first firing, its timestamps taken against the chunk's first clock.
+ */
+public final class BinaryTrace {
+
+    /** Magic number at the start of a trace file ("PNTR"). */
+    public static final int MAGIC = 0x504E5452;
+
+    /** Magic number at the end of a complete trace file ("PNTE"). */
+    public static final int END_MAGIC = 0x504E5445;
+
+    /** Current format version. */
+    public static final int VERSION = 2;
+
+    /** Header flag set when token payloads and timestamps are recorded. */
+    public static final int FLAG_PAYLOADS = 1;
+
+    /** Default number of firings per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** Size of the fixed width footer in bytes. */
+    public static final int FOOTER_SIZE = 12;
+
+    private BinaryTrace() {
+    }
+
+    /** Maps a signed value to an unsigned one so small magnitudes encode in few bytes. */
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /** Inverse of {@link #zigzag(long)}. */
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable byte buffer with varint writers.
+     */
+    static final class Output {
+
+        byte[] buf;
+        int length = 0;
+
+        Output(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, length + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[length++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[length++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong(zigzag(value));
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBytes(byte[] bytes, int offset, int count) {
+            ensure(count);
+            System.arraycopy(bytes, offset, buf, length, count);
+            length += count;
+        }
+
+        void writeString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void reset() {
+            length = 0;
+        }
+    }
+
+    /**
+     * Cursor over a byte array with varint readers.
+     */
+    static final class Input {
+
+        final byte[] buf;
+        int position;
+        final int limit;
+
+        Input(byte[] buf, int position, int limit) {
+            this.buf = buf;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        int readByte() throws EOFException {
+            if (position >= limit) {
+                throw new EOFException("Truncated trace");
+            }
+            return buf[position++] & 0xFF;
+        }
+
+        long readVarLong() throws EOFException {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        int readVarInt() throws EOFException {
+            return (int) readVarLong();
+        }
+
+        long readSignedVarLong() throws EOFException {
+            return unzigzag(readVarLong());
+        }
+
+        long readLong() throws EOFException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        int readInt() throws EOFException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        String readString() throws EOFException {
+            int count = readVarInt();
+            if (position + count > limit) {
+                throw new EOFException("Truncated trace");
+            }
+            String s = new String(buf, position, count, StandardCharsets.UTF_8);
+            position += count;
+            return s;
+        }
+    }
+}
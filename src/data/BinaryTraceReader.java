@@ -0,0 +1,316 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Reads a binary simulation trace written by {@link BinaryTraceSink}.
+ * <p>
+ * The reader is a cursor: {@link #next()} decodes firings one by one, and
+ * {@link #seek(long)} jumps to any step by binary searching the chunk index, so only the
+ * chunk containing the step has to be read and decoded.
+ * </p>
+ */
+public class BinaryTraceReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final boolean payloads;
+    private final int chunkSize;
+    private final String label;
+    private final ArrayList<String> placeIds = new ArrayList<>();
+    private final ArrayList<String> transitionIds = new ArrayList<>();
+
+    /** Offset of the chunk index, which also ends the last chunk. */
+    private final long indexOffset;
+    private long[] chunkOffsets;
+    private long[] chunkFirstSteps;
+    private long[] chunkFirstClocks;
+    private int[] chunkEvents;
+    private long eventCount;
+
+    /** Index of the loaded chunk, -1 before the first one. */
+    private int chunk = -1;
+    private BinaryTrace.Input input;
+    private String[] dictionary;
+    private TraceMarking keyframe;
+    private int remaining = 0;
+    private long step;
+    private long clock;
+
+    /**
+     * Opens a trace file and reads its header and chunk index.
+     *
+     * @param trace The trace file.
+     * @throws IOException if the file cannot be read or is not a complete trace
+     */
+    public BinaryTraceReader(File trace) throws IOException {
+        this.file = new RandomAccessFile(trace, "r");
+        try {
+            long length = file.length();
+            if (length < BinaryTrace.FOOTER_SIZE + 8) {
+                throw new IOException("Not a binary trace: " + trace);
+            }
+
+            BinaryTrace.Input footer = read(length - BinaryTrace.FOOTER_SIZE, BinaryTrace.FOOTER_SIZE);
+            this.indexOffset = footer.readLong();
+            if (footer.readInt() != BinaryTrace.END_MAGIC) {
+                throw new IOException("Incomplete binary trace: " + trace);
+            }
+
+            readIndex(length);
+
+            // The header ends where the first chunk (or, for an empty trace, the index) starts
+            long headerEnd = chunkOffsets.length > 0 ? chunkOffsets[0] : indexOffset;
+            BinaryTrace.Input header = read(0, (int) headerEnd);
+            if (header.readInt() != BinaryTrace.MAGIC) {
+                throw new IOException("Not a binary trace: " + trace);
+            }
+            int version = header.readInt();
+            if (version != BinaryTrace.VERSION) {
+                throw new IOException("Unsupported trace version " + version);
+            }
+            this.payloads = (header.readByte() & BinaryTrace.FLAG_PAYLOADS) != 0;
+            this.chunkSize = header.readVarInt();
+            this.label = header.readString();
+            int places = header.readVarInt();
+            for (int i = 0; i < places; i++) {
+                placeIds.add(header.readString());
+            }
+            int transitions = header.readVarInt();
+            for (int i = 0; i < transitions; i++) {
+                transitionIds.add(header.readString());
+            }
+        } catch (IOException | RuntimeException ex) {
+            // Corrupt offsets or lengths may also fail as runtime exceptions
+            file.close();
+            throw ex;
+        }
+    }
+
+    /** Reads the chunk index that precedes the footer. */
+    private void readIndex(long length) throws IOException {
+        BinaryTrace.Input in = read(indexOffset, (int) (length - BinaryTrace.FOOTER_SIZE - indexOffset));
+        int chunks = in.readVarInt();
+        chunkOffsets = new long[chunks];
+        chunkFirstSteps = new long[chunks];
+        chunkFirstClocks = new long[chunks];
+        chunkEvents = new int[chunks];
+        for (int i = 0; i < chunks; i++) {
+            chunkOffsets[i] = in.readLong();
+            chunkFirstSteps[i] = in.readVarLong();
+            chunkFirstClocks[i] = in.readSignedVarLong();
+            chunkEvents[i] = in.readVarInt();
+            eventCount += chunkEvents[i];
+        }
+    }
+
+    /** Reads a region of the file into memory. */
+    private BinaryTrace.Input read(long offset, int count) throws IOException {
+        byte[] bytes = new byte[count];
+        file.seek(offset);
+        file.readFully(bytes);
+        return new BinaryTrace.Input(bytes, 0, count);
+    }
+
+    /** Loads and prepares a chunk for decoding. */
+    private void loadChunk(int i) throws IOException {
+        long end = i + 1 < chunkOffsets.length ? chunkOffsets[i + 1] : indexOffset;
+        BinaryTrace.Input in = read(chunkOffsets[i], (int) (end - chunkOffsets[i]));
+        remaining = in.readVarInt();
+        step = in.readVarLong();
+        clock = in.readSignedVarLong();
+        dictionary = new String[in.readVarInt()];
+        for (int k = 0; k < dictionary.length; k++) {
+            dictionary[k] = in.readString();
+        }
+        keyframe = new TraceMarking(placeIds.size(), payloads);
+        for (int p = 0; p < placeIds.size(); p++) {
+            int tokens = in.readVarInt();
+            for (int k = 0; k < tokens; k++) {
+                if (payloads) {
+                    String payload = dictionary[in.readVarInt()];
+                    keyframe.add(p, payload, clock + in.readSignedVarLong());
+                } else {
+                    keyframe.add(p, null, 0);
+                }
+            }
+        }
+        int recordBytes = in.readVarInt();
+        input = new BinaryTrace.Input(in.buf, in.position, in.position + recordBytes);
+        chunk = i;
+    }
+
+    /**
+     * Decodes the next firing.
+     *
+     * @return the next firing, or null at the end of the trace
+     * @throws IOException if the trace cannot be read
+     */
+    public TraceRecord next() throws IOException {
+        while (remaining == 0) {
+            if (chunk + 1 >= chunkOffsets.length) {
+                return null;
+            }
+            loadChunk(chunk + 1);
+        }
+        remaining--;
+        int transition = input.readVarInt();
+        clock += input.readSignedVarLong();
+
+        int consumed = input.readVarInt();
+        int[] consumedPlaces = new int[consumed];
+        String[] consumedPayloads = payloads ? new String[consumed] : null;
+        long[] consumedTimestamps = payloads ? new long[consumed] : null;
+        readTokens(consumedPlaces, consumedPayloads, consumedTimestamps);
+
+        int produced = input.readVarInt();
+        int[] producedPlaces = new int[produced];
+        String[] producedPayloads = payloads ? new String[produced] : null;
+        long[] producedTimestamps = payloads ? new long[produced] : null;
+        readTokens(producedPlaces, producedPayloads, producedTimestamps);
+
+        return new TraceRecord(step++, clock, transition,
+                consumedPlaces, consumedPayloads, consumedTimestamps,
+                producedPlaces, producedPayloads, producedTimestamps);
+    }
+
+    /** Decodes the tokens of one side of a firing. */
+    private void readTokens(int[] places, String[] payloadValues, long[] timestamps) throws EOFException {
+        for (int i = 0; i < places.length; i++) {
+            places[i] = input.readVarInt();
+            if (payloads) {
+                payloadValues[i] = dictionary[input.readVarInt()];
+                timestamps[i] = clock + input.readSignedVarLong();
+            }
+        }
+    }
+
+    /**
+     * Positions the cursor so that the next call to {@link #next()} returns the given step.
+     *
+     * @param target the step to seek to
+     * @return false if the trace does not contain the step
+     * @throws IOException if the trace cannot be read
+     */
+    public boolean seek(long target) throws IOException {
+        int i = chunkOf(target);
+        if (i < 0 || target >= chunkFirstSteps[i] + chunkEvents[i]) {
+            return false;
+        }
+        loadChunk(i);
+        while (step < target) {
+            next();
+        }
+        return true;
+    }
+
+    /**
+     * Positions the cursor at the start of a chunk.
+     *
+     * @param i the chunk index
+     * @return the keyframe of the chunk, i.e. the marking before its first firing
+     * @throws IOException if the trace cannot be read
+     */
+    public TraceMarking seekChunk(int i) throws IOException {
+        loadChunk(i);
+        return new TraceMarking(keyframe);
+    }
+
+    /**
+     * Returns the chunk containing a step, or the last chunk starting before it.
+     *
+     * @param target the step
+     * @return the chunk index, or -1 if the step precedes the trace
+     */
+    public int chunkOf(long target) {
+        int i = Arrays.binarySearch(chunkFirstSteps, target);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * @return whether token payloads and timestamps were recorded
+     */
+    public boolean hasPayloads() {
+        return payloads;
+    }
+
+    /**
+     * @return the number of firings per chunk the trace was written with
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @return the label of the traced net
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the place ids, in index order
+     */
+    public ArrayList<String> getPlaceIds() {
+        return placeIds;
+    }
+
+    /**
+     * @return the transition ids, in index order
+     */
+    public ArrayList<String> getTransitionIds() {
+        return transitionIds;
+    }
+
+    /**
+     * @return the number of chunks
+     */
+    public int getChunkCount() {
+        return chunkOffsets.length;
+    }
+
+    /**
+     * @return the total number of firings in the trace
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return the first step of the trace, or 0 if the trace is empty
+     */
+    public long getFirstStep() {
+        return chunkFirstSteps.length > 0 ? chunkFirstSteps[0] : 0;
+    }
+
+    /**
+     * Returns the first step of a chunk.
+     *
+     * @param i the chunk index
+     * @return the step of the chunk's first firing
+     */
+    public long getChunkFirstStep(int i) {
+        return chunkFirstSteps[i];
+    }
+
+    /**
+     * Returns the simulation clock at the start of a chunk.
+     *
+     * @param i the chunk index
+     * @return the clock of the chunk's first firing
+     */
+    public long getChunkFirstClock(int i) {
+        return chunkFirstClocks[i];
+    }
+}
@@ -0,0 +1,251 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.FiringEvent;
+import business.PetriNet;
+import business.Place;
+import business.Simulation;
+import business.Token;
+import business.TraceSink;
+import business.Transition;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Trace sink that records every firing in the compact binary format described in
+ * {@link BinaryTrace}. Firings are encoded into an in-memory chunk which is written out,
+ * together with its payload dictionary, once it holds the configured number of firings.
+ * The chunk index and footer are written by {@link #close()}.
+ * <p>
+ * The sink keeps its own copy of the marking, updated from the firings it writes, so every
+ * chunk can start with a keyframe of the marking before its first firing. Readers restore
+ * any step from the nearest keyframe instead of replaying from the start.
+ * </p>
+ */
+public class BinaryTraceSink implements TraceSink {
+
+    private final File file;
+    private final boolean payloads;
+    private final int chunkSize;
+
+    private OutputStream out;
+    /** Number of bytes written to the file so far. */
+    private long position;
+
+    private HashMap<Place, Integer> placeIndex = new HashMap<>();
+    private HashMap<Transition, Integer> transitionIndex = new HashMap<>();
+
+    /** Marking of the net after the last written firing. */
+    private TraceMarking marking;
+
+    /** Keyframe of the current chunk. */
+    private final BinaryTrace.Output keyframe = new BinaryTrace.Output(1 << 12);
+    /** Records of the current chunk. */
+    private final BinaryTrace.Output records = new BinaryTrace.Output(1 << 16);
+    /** Scratch buffer used to assemble headers. */
+    private final BinaryTrace.Output scratch = new BinaryTrace.Output(1 << 12);
+    /** Chunk index written at the end of the file. */
+    private final BinaryTrace.Output index = new BinaryTrace.Output(1 << 12);
+
+    private HashMap<String, Integer> dictionary = new HashMap<>();
+    private ArrayList<String> dictionaryEntries = new ArrayList<>();
+
+    private int chunkEvents = 0;
+    private int chunks = 0;
+    private long chunkFirstStep;
+    private long chunkFirstClock;
+    private long lastClock;
+
+    /**
+     * Creates a binary trace sink without payloads and with the default chunk size.
+     *
+     * @param file The trace file. An existing file is overwritten.
+     */
+    public BinaryTraceSink(File file) {
+        this(file, false, BinaryTrace.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a binary trace sink.
+     *
+     * @param file      The trace file. An existing file is overwritten.
+     * @param payloads  Whether token payloads and timestamps are recorded.
+     * @param chunkSize Number of firings per chunk.
+     */
+    public BinaryTraceSink(File file, boolean payloads, int chunkSize) {
+        this.file = file;
+        this.payloads = payloads;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void open(Simulation simulation) throws IOException {
+        if (simulation == null) {
+            throw new IllegalArgumentException("A binary trace needs the simulated net");
+        }
+        PetriNet net = simulation.getNet();
+        out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        position = 0;
+
+        scratch.reset();
+        scratch.writeInt(BinaryTrace.MAGIC);
+        scratch.writeInt(BinaryTrace.VERSION);
+        scratch.writeByte(payloads ? BinaryTrace.FLAG_PAYLOADS : 0);
+        scratch.writeVarLong(chunkSize);
+        scratch.writeString(net.getLabel());
+        scratch.writeVarLong(net.getPlaces().size());
+        for (Place place : net.getPlaces()) {
+            placeIndex.put(place, placeIndex.size());
+            scratch.writeString(place.getId());
+        }
+        scratch.writeVarLong(net.getTransitions().size());
+        for (Transition transition : net.getTransitions()) {
+            transitionIndex.put(transition, transitionIndex.size());
+            scratch.writeString(transition.getId());
+        }
+        emit(scratch);
+
+        marking = new TraceMarking(net.getPlaces().size(), payloads);
+        for (Place place : net.getPlaces()) {
+            for (Token token : place.getTokens()) {
+                marking.add(placeIndex.get(place), String.valueOf(token.getObject()), token.getTimestamp());
+            }
+        }
+    }
+
+    @Override
+    public void write(List<FiringEvent> batch) throws IOException {
+        for (FiringEvent event : batch) {
+            if (chunkEvents == 0) {
+                chunkFirstStep = event.getStep();
+                chunkFirstClock = event.getClock();
+                lastClock = chunkFirstClock;
+                writeKeyframe();
+            }
+            records.writeVarLong(transitionIndex.get(event.getTransition()));
+            records.writeSignedVarLong(event.getClock() - lastClock);
+            lastClock = event.getClock();
+            writeTokens(event.getConsumedPlaces(), event.getConsumed(), event.getClock(), false);
+            writeTokens(event.getProducedPlaces(), event.getProduced(), event.getClock(), true);
+            chunkEvents++;
+            if (chunkEvents == chunkSize) {
+                flushChunk();
+            }
+        }
+    }
+
+    /** Encodes the marking at the start of the current chunk. */
+    private void writeKeyframe() {
+        keyframe.reset();
+        for (int i = 0; i < marking.size(); i++) {
+            keyframe.writeVarLong(marking.getCount(i));
+            if (payloads) {
+                for (Token token : marking.getTokens(i)) {
+                    keyframe.writeVarLong(payloadRef((String) token.getObject()));
+                    keyframe.writeSignedVarLong(token.getTimestamp() - chunkFirstClock);
+                }
+            }
+        }
+    }
+
+    /** Encodes the tokens moved by one side of a firing and applies them to the marking. */
+    private void writeTokens(ArrayList<Place> places, ArrayList<Token> tokens, long clock, boolean produced) {
+        records.writeVarLong(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            int place = placeIndex.get(places.get(i));
+            Token token = tokens.get(i);
+            String payload = String.valueOf(token.getObject());
+            records.writeVarLong(place);
+            if (payloads) {
+                records.writeVarLong(payloadRef(payload));
+                records.writeSignedVarLong(token.getTimestamp() - clock);
+            }
+            if (produced) {
+                marking.add(place, payload, token.getTimestamp());
+            } else {
+                marking.remove(place, payload, token.getTimestamp());
+            }
+        }
+    }
+
+    /** Returns the chunk dictionary reference of a payload, adding it if needed. */
+    private int payloadRef(String payload) {
+        Integer ref = dictionary.get(payload);
+        if (ref == null) {
+            ref = dictionaryEntries.size();
+            dictionary.put(payload, ref);
+            dictionaryEntries.add(payload);
+        }
+        return ref;
+    }
+
+    /** Writes the current chunk and records it in the index. */
+    private void flushChunk() throws IOException {
+        if (chunkEvents == 0) {
+            return;
+        }
+        index.writeLong(position);
+        index.writeVarLong(chunkFirstStep);
+        index.writeSignedVarLong(chunkFirstClock);
+        index.writeVarLong(chunkEvents);
+        chunks++;
+
+        scratch.reset();
+        scratch.writeVarLong(chunkEvents);
+        scratch.writeVarLong(chunkFirstStep);
+        scratch.writeSignedVarLong(chunkFirstClock);
+        scratch.writeVarLong(dictionaryEntries.size());
+        for (String payload : dictionaryEntries) {
+            scratch.writeString(payload);
+        }
+        emit(scratch);
+        emit(keyframe);
+        scratch.reset();
+        scratch.writeVarLong(records.length);
+        emit(scratch);
+        emit(records);
+
+        records.reset();
+        dictionary.clear();
+        dictionaryEntries.clear();
+        chunkEvents = 0;
+    }
+
+    /** Writes a buffer to the file and advances the position. */
+    private void emit(BinaryTrace.Output buffer) throws IOException {
+        out.write(buffer.buf, 0, buffer.length);
+        position += buffer.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+        flushChunk();
+        long indexOffset = position;
+        scratch.reset();
+        scratch.writeVarLong(chunks);
+        emit(scratch);
+        emit(index);
+        scratch.reset();
+        scratch.writeLong(indexOffset);
+        scratch.writeInt(BinaryTrace.END_MAGIC);
+        emit(scratch);
+        out.close();
+        out = null;
+    }
+
+    /**
+     * @return the trace file
+     */
+    public File getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,72 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.PetriNet;
+import business.SimulationCheckpoint;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * CheckpointManager saves and loads simulation checkpoints.
+ * A checkpoint is first written to a temporary file next to the target and then moved over
+ * it, so a crash while saving never destroys the previous checkpoint.
+ */
+public class CheckpointManager {
+
+    /**
+     * Saves a checkpoint to a file, replacing any previous checkpoint.
+     *
+     * @param checkpoint The checkpoint to save.
+     * @param file       The target file.
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void save(SimulationCheckpoint checkpoint, File file) throws IOException {
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeObject(checkpoint);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads a checkpoint. Token payload classes are also looked up in the class loader of the
+     * compiled net, so payload types declared in the net are restored.
+     *
+     * @param file The checkpoint file.
+     * @param net  The compiled net the checkpoint is restored onto.
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public SimulationCheckpoint load(File file, PetriNet net) throws IOException {
+        final ClassLoader netLoader = net.getClass().getClassLoader();
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try (ObjectInputStream objects = new ObjectInputStream(in) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                try {
+                    return super.resolveClass(desc);
+                } catch (ClassNotFoundException ex) {
+                    return Class.forName(desc.getName(), false, netLoader);
+                }
+            }
+        }) {
+            return (SimulationCheckpoint) objects.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Not a simulation checkpoint: " + file, ex);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.FiringEvent;
+import business.FiringListener;
+import business.Simulation;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Firing listener that periodically checkpoints a running simulation to a file.
+ * Checkpoints are taken on the simulation thread right after a firing, where the state is
+ * consistent, every given number of firings and once more when the run ends.
+ */
+public class CheckpointWriter implements FiringListener {
+
+    private final File file;
+    private final long interval;
+    private final CheckpointManager manager = new CheckpointManager();
+    private Simulation simulation;
+
+    /**
+     * Creates a checkpoint writer.
+     *
+     * @param file     The checkpoint file, replaced by every new checkpoint.
+     * @param interval Number of firings between two checkpoints, at least 1.
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public CheckpointWriter(File file, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+    }
+
+    @Override
+    public void simulationStarted(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    @Override
+    public void transitionFired(FiringEvent event) {
+        if (event.getStep() % interval == 0) {
+            checkpoint();
+        }
+    }
+
+    @Override
+    public void simulationFinished(Simulation simulation) {
+        checkpoint();
+    }
+
+    /** Saves a checkpoint of the simulation. */
+    private void checkpoint() {
+        try {
+            manager.save(simulation.createCheckpoint(), file);
+        } catch (IOException ex) {
+            Logger.getLogger(CheckpointWriter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * @return the checkpoint file
+     */
+    public File getFile() {
+        return file;
+    }
+}
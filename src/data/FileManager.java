@@ -3,7 +3,6 @@ package data;
 
 // Business logic imports
 import business.Arc;
-import business.Global;
 import business.InputArc;
 import business.OutputArc;
 import business.PetriNet;
@@ -65,17 +64,15 @@ public class FileManager {
     private Element pnml;  // Represents the root XML element for Petri Net
 
     /**
-     * Loads a Petri Net Model from a file and returns a HashMap representation.
+     * Loads a Petri Net Model from a file into a net and returns a HashMap representation.
      * 
      * @param file The file containing the Petri Net Model data.
+     * @param petriNet The new empty net that receives the model.
      * @return A HashMap with String keys and Object values representing the Petri Net Model data.
      */
-    public HashMap<String, Object> loadFile(File file) {
+    public HashMap<String, Object> loadFile(File file, PetriNet petriNet) {
         HashMap<String, Object> figures = new HashMap<>();
 
-        // Initialize a new PetriNet object
-        Global.petriNet = new PetriNet();
-
         try {
             // Setup XML document builder and parse the file
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -94,27 +91,27 @@ public class FileManager {
         nodeList = dom.getElementsByTagName("name");
         if (nodeList.getLength() > 0) {
             Node component = nodeList.item(0);
-            Global.petriNet.setLabel(component.getTextContent().trim());
+            petriNet.setLabel(component.getTextContent().trim());
         }
         // Loading imports
         nodeList = dom.getElementsByTagName("import");
         if (nodeList.getLength() > 0) {
             Node component = nodeList.item(0);
-            Global.petriNet.setImportText(component.getTextContent().trim());
+            petriNet.setImportText(component.getTextContent().trim());
         }
 
         // Loading implements
         nodeList = dom.getElementsByTagName("implement");
         if (nodeList.getLength() > 0) {
             Node component = nodeList.item(0);
-            Global.petriNet.setImplementText(component.getTextContent().trim());
+            petriNet.setImplementText(component.getTextContent().trim());
         }
 
         // Loading declarations
         nodeList = dom.getElementsByTagName("declaration");
         if (nodeList.getLength() > 0) {
             Node component = nodeList.item(0);
-            Global.petriNet.setDeclarationText(component.getTextContent().trim());
+            petriNet.setDeclarationText(component.getTextContent().trim());
         }
 
         // Loading places
@@ -124,7 +121,7 @@ public class FileManager {
             Place place;
             attributes = component.getAttributes();
             place = new Place(attributes.getNamedItem("id").getNodeValue());
-            Global.petriNet.addPlace(place);
+            petriNet.addPlace(place);
             //get position
             Point2D position = new Point2D.Double(0, 0);
             Point2D offset = new Point2D.Double(0, 0);
@@ -199,7 +196,7 @@ public class FileManager {
             Transition transition;
             attributes = component.getAttributes();
             transition = new Transition(attributes.getNamedItem("id").getNodeValue());
-            Global.petriNet.addTransition(transition);
+            petriNet.addTransition(transition);
             // get position
 
             Point2D position = new Point2D.Double(0, 0);
@@ -243,6 +240,14 @@ public class FileManager {
 
                 } else if (node.getNodeName().equals("guard")) {
                     transition.setGuardText(node.getTextContent().trim());
+                } else if (node.getNodeName().equals("weight")) {
+                    transition.setWeight(Double.parseDouble(node.getTextContent().trim()));
+                } else if (node.getNodeName().equals("priority")) {
+                    transition.setPriority(Integer.parseInt(node.getTextContent().trim()));
+                } else if (node.getNodeName().equals("timing")) {
+                    transition.setTiming(Integer.parseInt(node.getTextContent().trim()));
+                } else if (node.getNodeName().equals("delay")) {
+                    transition.setDelayText(node.getTextContent().trim());
                 }
             }
 
@@ -290,16 +295,16 @@ public class FileManager {
             }
             AbstractFigure start = arcFigure.getStartConnector();
             AbstractFigure end = arcFigure.getEndConnector();
-            if (Global.petriNet.getNetElement(start.getElementId()) instanceof Place) {
-                Place p = (Place) Global.petriNet.getNetElement(start.getElementId());
-                Transition t = (Transition) Global.petriNet.getNetElement(end.getElementId());
+            if (petriNet.getNetElement(start.getElementId()) instanceof Place) {
+                Place p = (Place) petriNet.getNetElement(start.getElementId());
+                Transition t = (Transition) petriNet.getNetElement(end.getElementId());
                 InputArc arc = new InputArc(id, p, t, expression);
-                Global.petriNet.addInputArc(arc);
+                petriNet.addInputArc(arc);
             } else {
-                Place p = (Place) Global.petriNet.getNetElement(end.getElementId());
-                Transition t = (Transition) Global.petriNet.getNetElement(start.getElementId());
+                Place p = (Place) petriNet.getNetElement(end.getElementId());
+                Transition t = (Transition) petriNet.getNetElement(start.getElementId());
                 OutputArc arc = new OutputArc(id, p, t, expression);
-                Global.petriNet.addOutputArc(arc);
+                petriNet.addOutputArc(arc);
             }
         // Set the element ID for the arcFigure and store it in the figures map
         arcFigure.setElementId(id);
@@ -325,13 +330,14 @@ public class FileManager {
     /**
      * Generates an XML representation of the Petri Net Model and saves it to the specified file.
      * 
+     * @param petriNet The net to save.
      * @param figures A HashMap containing the Petri Net figures data.
      * @param file The target file to write the XML representation to.
      * @throws ParserConfigurationException if a DocumentBuilder cannot be created.
      * @throws TransformerConfigurationException if there are issues with the Transformer configuration.
      * @throws TransformerException if there's an error during the transformation process.
      */
-    public void generateXML(HashMap figures, File file) throws ParserConfigurationException, TransformerConfigurationException, TransformerException {
+    public void generateXML(PetriNet petriNet, HashMap figures, File file) throws ParserConfigurationException, TransformerConfigurationException, TransformerException {
         // Initialize XML document builder factory
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
         DocumentBuilder loader = factory.newDocumentBuilder();
@@ -342,7 +348,7 @@ public class FileManager {
         // Create root XML elements for the Petri Net
         pnml = dom.createElement("pnml");
         Element net = dom.createElement("net");
-        net.setAttribute("id", Global.petriNet.getId());
+        net.setAttribute("id", petriNet.getId());
         
         // Placeholder for further XML elements
         Element node;
@@ -351,32 +357,32 @@ public class FileManager {
         // Petri Net Label
         node = dom.createElement("name");
         text = dom.createElement("text");
-        text.appendChild(dom.createTextNode(Global.petriNet.getLabel()));
+        text.appendChild(dom.createTextNode(petriNet.getLabel()));
         node.appendChild(text);
         net.appendChild(node);
 
 
-        if (!Global.petriNet.getImportText().equals("")) {
+        if (!petriNet.getImportText().equals("")) {
             node = dom.createElement("import");
             text = dom.createElement("text");
-            text.appendChild(dom.createTextNode(Global.petriNet.getImportText()));
+            text.appendChild(dom.createTextNode(petriNet.getImportText()));
             node.appendChild(text);
             net.appendChild(node);
         }
 
-        if (!Global.petriNet.getImplementText().equals("")) {
+        if (!petriNet.getImplementText().equals("")) {
             node = dom.createElement("implement");
             text = dom.createElement("text");
-            text.appendChild(dom.createTextNode(Global.petriNet.getImplementText()));
+            text.appendChild(dom.createTextNode(petriNet.getImplementText()));
             node.appendChild(text);
             net.appendChild(node);
         }
 
 
-        if (!Global.petriNet.getDeclarationText().equals("")) {
+        if (!petriNet.getDeclarationText().equals("")) {
             node = dom.createElement("declaration");
             text = dom.createElement("text");
-            text.appendChild(dom.createTextNode(Global.petriNet.getDeclarationText()));
+            text.appendChild(dom.createTextNode(petriNet.getDeclarationText()));
             node.appendChild(text);
             net.appendChild(node);
         }
@@ -386,7 +392,7 @@ public class FileManager {
         // Handle PlaceFigure
         if (figure instanceof PlaceFigure) {
             Element placeElement = dom.createElement("place");
-            Place place = (Place) Global.petriNet.getNetElement(figure.getElementId());
+            Place place = (Place) petriNet.getNetElement(figure.getElementId());
             placeElement.setAttribute("id", place.getId());
             placeElement.appendChild(createGraphic(figure));
             placeElement.appendChild(saveLabel((TextFigure) figures.get(place.getId() + "label"), "name"));
@@ -413,7 +419,7 @@ public class FileManager {
 
             } else if (figure instanceof TransitionFigure) {
                 Element transitionElement = dom.createElement("transition");
-                Transition transition = (Transition) Global.petriNet.getNetElement(figure.getElementId());
+                Transition transition = (Transition) petriNet.getNetElement(figure.getElementId());
                 transitionElement.setAttribute("id", transition.getId());
                 transitionElement.appendChild(createGraphic(figure));
                 transitionElement.appendChild(saveLabel((TextFigure) figures.get(transition.getId() + "label"), "name"));
@@ -421,11 +427,31 @@ public class FileManager {
                 Element guardElement = dom.createElement("guard");
                 guardElement.appendChild(createTextElement(transition.getGuardText()));
                 transitionElement.appendChild(guardElement);
+
+                // Weight, priority and timing are only saved when they differ from the defaults
+                if (transition.getWeight() != 1) {
+                    Element weightElement = dom.createElement("weight");
+                    weightElement.appendChild(createTextElement("" + transition.getWeight()));
+                    transitionElement.appendChild(weightElement);
+                }
+                if (transition.getPriority() != 0) {
+                    Element priorityElement = dom.createElement("priority");
+                    priorityElement.appendChild(createTextElement("" + transition.getPriority()));
+                    transitionElement.appendChild(priorityElement);
+                }
+                if (!transition.isImmediate()) {
+                    Element timingElement = dom.createElement("timing");
+                    timingElement.appendChild(createTextElement("" + transition.getTiming()));
+                    transitionElement.appendChild(timingElement);
+                    Element delayElement = dom.createElement("delay");
+                    delayElement.appendChild(createTextElement(transition.getDelayText()));
+                    transitionElement.appendChild(delayElement);
+                }
     
                 net.appendChild(transitionElement);
             } else if (figure instanceof NormalArcFigure) {
                 Element arcElement = dom.createElement("arc");
-                Arc arc = (Arc) Global.petriNet.getNetElement(figure.getElementId());
+                Arc arc = (Arc) petriNet.getNetElement(figure.getElementId());
                 arcElement.setAttribute("id", arc.getId());
     
                 if (arc instanceof InputArc) {
@@ -0,0 +1,65 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.FiringEvent;
+import business.Simulation;
+import business.TraceSink;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Trace sink that appends the text form of every firing to a file.
+ * Each batch is formatted into one buffer and written with a single call, so the
+ * cost per firing is the formatting alone.
+ */
+public class TextTraceSink implements TraceSink {
+
+    private final File file;
+    private Writer writer;
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * Creates a text trace sink.
+     *
+     * @param file The file the trace is written to. An existing file is overwritten.
+     */
+    public TextTraceSink(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void open(Simulation simulation) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public void write(List<FiringEvent> batch) throws IOException {
+        buffer.setLength(0);
+        for (FiringEvent event : batch) {
+            buffer.append(event.getStep()).append(" @").append(event.getClock()).append('\n');
+            buffer.append(event);
+        }
+        writer.append(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * @return the trace file
+     */
+    public File getFile() {
+        return file;
+    }
+}
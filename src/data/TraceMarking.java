@@ -0,0 +1,173 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.NetObject;
+import business.PetriNet;
+import business.Place;
+import business.Token;
+import business.TokenSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Marking of a traced net, indexed like the places of a binary trace.
+ * <p>
+ * Without payloads only the number of tokens per place is kept. With payloads every
+ * token is kept as its payload text and timestamp, which is what a trace records about it.
+ * </p>
+ */
+public class TraceMarking {
+
+    private final boolean payloads;
+    private final int[] counts;
+    private final ArrayList<ArrayList<Token>> tokens;
+
+    /**
+     * Creates an empty marking.
+     *
+     * @param places   Number of places of the traced net.
+     * @param payloads Whether token payloads and timestamps are kept.
+     */
+    public TraceMarking(int places, boolean payloads) {
+        this.payloads = payloads;
+        this.counts = new int[places];
+        this.tokens = payloads ? new ArrayList<ArrayList<Token>>(places) : null;
+        if (payloads) {
+            for (int i = 0; i < places; i++) {
+                tokens.add(new ArrayList<Token>());
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of another marking.
+     *
+     * @param other The marking to copy.
+     */
+    public TraceMarking(TraceMarking other) {
+        this(other.counts.length, other.payloads);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        if (payloads) {
+            for (int i = 0; i < counts.length; i++) {
+                tokens.get(i).addAll(other.tokens.get(i));
+            }
+        }
+    }
+
+    /**
+     * Adds a token to a place.
+     *
+     * @param place     The place index.
+     * @param payload   The payload text, ignored without payloads.
+     * @param timestamp The token timestamp, ignored without payloads.
+     */
+    public void add(int place, String payload, long timestamp) {
+        counts[place]++;
+        if (payloads) {
+            tokens.get(place).add(new Token(payload, timestamp));
+        }
+    }
+
+    /**
+     * Removes a token from a place. With payloads the token with the same payload and
+     * timestamp is removed; without payloads only the count is decremented.
+     *
+     * @param place     The place index.
+     * @param payload   The payload text, ignored without payloads.
+     * @param timestamp The token timestamp, ignored without payloads.
+     */
+    public void remove(int place, String payload, long timestamp) {
+        if (payloads) {
+            if (!tokens.get(place).remove(new Token(payload, timestamp))) {
+                return;
+            }
+        }
+        if (counts[place] > 0) {
+            counts[place]--;
+        }
+    }
+
+    /**
+     * Applies a decoded firing to this marking.
+     *
+     * @param record The firing.
+     */
+    public void apply(TraceRecord record) {
+        int[] places = record.getConsumedPlaces();
+        for (int i = 0; i < places.length; i++) {
+            remove(places[i], payloads ? record.getConsumedPayloads()[i] : null,
+                    payloads ? record.getConsumedTimestamps()[i] : 0);
+        }
+        places = record.getProducedPlaces();
+        for (int i = 0; i < places.length; i++) {
+            add(places[i], payloads ? record.getProducedPayloads()[i] : null,
+                    payloads ? record.getProducedTimestamps()[i] : 0);
+        }
+    }
+
+    /**
+     * Writes this marking into the places of a net, matching places by id.
+     * Without payloads every token is restored as the plain token {@code 1}. Every place
+     * gets a new token set, so a caller that keeps the previous sets can put them back.
+     *
+     * @param net      The net to update.
+     * @param placeIds The place ids of the trace, in index order.
+     */
+    public void applyTo(PetriNet net, ArrayList<String> placeIds) {
+        for (int i = 0; i < counts.length; i++) {
+            NetObject element = net.getNetElement(placeIds.get(i));
+            if (element instanceof Place) {
+                TokenSet tokenSet = new TokenSet();
+                if (payloads) {
+                    tokenSet.addAll(tokens.get(i));
+                } else {
+                    for (int k = 0; k < counts[i]; k++) {
+                        tokenSet.add(new Token(1));
+                    }
+                }
+                ((Place) element).setTokens(tokenSet);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tokens in a place.
+     *
+     * @param place The place index.
+     * @return the number of tokens
+     */
+    public int getCount(int place) {
+        return counts[place];
+    }
+
+    /**
+     * Returns the tokens of a place.
+     *
+     * @param place The place index.
+     * @return the tokens, or null without payloads
+     */
+    public ArrayList<Token> getTokens(int place) {
+        return payloads ? tokens.get(place) : null;
+    }
+
+    /**
+     * @return the number of tokens of every place, in index order
+     */
+    public int[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    /**
+     * @return the number of places
+     */
+    public int size() {
+        return counts.length;
+    }
+
+    /**
+     * @return whether token payloads and timestamps are kept
+     */
+    public boolean hasPayloads() {
+        return payloads;
+    }
+}
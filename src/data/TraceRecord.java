@@ -0,0 +1,111 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+/**
+ * One firing decoded from a binary trace.
+ * Places and transitions are referred to by their index in the trace header
+ * (see {@link BinaryTraceReader#getPlaceIds()} and {@link BinaryTraceReader#getTransitionIds()}).
+ * Payloads and timestamps are only present when the trace was recorded with payloads.
+ */
+public class TraceRecord {
+
+    private final long step;
+    private final long clock;
+    private final int transition;
+    private final int[] consumedPlaces;
+    private final String[] consumedPayloads;
+    private final long[] consumedTimestamps;
+    private final int[] producedPlaces;
+    private final String[] producedPayloads;
+    private final long[] producedTimestamps;
+
+    /**
+     * Creates a decoded record.
+     *
+     * @param step               Sequence number of the firing.
+     * @param clock              Simulation clock of the firing.
+     * @param transition         Index of the fired transition.
+     * @param consumedPlaces     Place index of every consumed token.
+     * @param consumedPayloads   Payload of every consumed token, or null.
+     * @param consumedTimestamps Timestamp of every consumed token, or null.
+     * @param producedPlaces     Place index of every produced token.
+     * @param producedPayloads   Payload of every produced token, or null.
+     * @param producedTimestamps Timestamp of every produced token, or null.
+     */
+    public TraceRecord(long step, long clock, int transition,
+            int[] consumedPlaces, String[] consumedPayloads, long[] consumedTimestamps,
+            int[] producedPlaces, String[] producedPayloads, long[] producedTimestamps) {
+        this.step = step;
+        this.clock = clock;
+        this.transition = transition;
+        this.consumedPlaces = consumedPlaces;
+        this.consumedPayloads = consumedPayloads;
+        this.consumedTimestamps = consumedTimestamps;
+        this.producedPlaces = producedPlaces;
+        this.producedPayloads = producedPayloads;
+        this.producedTimestamps = producedTimestamps;
+    }
+
+    /**
+     * @return the sequence number of the firing
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @return the simulation clock of the firing
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the index of the fired transition
+     */
+    public int getTransition() {
+        return transition;
+    }
+
+    /**
+     * @return the place index of every consumed token
+     */
+    public int[] getConsumedPlaces() {
+        return consumedPlaces;
+    }
+
+    /**
+     * @return the payload of every consumed token, or null if not recorded
+     */
+    public String[] getConsumedPayloads() {
+        return consumedPayloads;
+    }
+
+    /**
+     * @return the timestamp of every consumed token, or null if not recorded
+     */
+    public long[] getConsumedTimestamps() {
+        return consumedTimestamps;
+    }
+
+    /**
+     * @return the place index of every produced token
+     */
+    public int[] getProducedPlaces() {
+        return producedPlaces;
+    }
+
+    /**
+     * @return the payload of every produced token, or null if not recorded
+     */
+    public String[] getProducedPayloads() {
+        return producedPayloads;
+    }
+
+    /**
+     * @return the timestamp of every produced token, or null if not recorded
+     */
+    public long[] getProducedTimestamps() {
+        return producedTimestamps;
+    }
+}
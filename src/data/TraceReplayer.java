@@ -0,0 +1,146 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package data;
+
+import business.PetriNet;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Deterministic replay of a binary simulation trace.
+ * <p>
+ * The replayer does not execute the net: it applies the recorded token movements to a
+ * {@link TraceMarking}, so the result is independent of random choices and inscriptions.
+ * {@link #seek(long)} restores the keyframe of the chunk containing the target step and
+ * applies at most one chunk of firings, so any step of a long trace is reached quickly.
+ * The marking can be shown in the editor with {@link #applyTo(PetriNet)}.
+ * </p>
+ */
+public class TraceReplayer implements Closeable {
+
+    private final BinaryTraceReader reader;
+    private TraceMarking marking;
+    /** Number of the last applied firing. */
+    private long step;
+    /** Clock of the last applied firing. */
+    private long clock;
+
+    /**
+     * Opens a trace and positions the replay before its first firing.
+     *
+     * @param trace The trace file.
+     * @throws IOException if the trace cannot be read
+     */
+    public TraceReplayer(File trace) throws IOException {
+        this.reader = new BinaryTraceReader(trace);
+        rewind();
+    }
+
+    /** Restores the marking before the first firing of the trace. */
+    private void rewind() throws IOException {
+        if (reader.getChunkCount() > 0) {
+            marking = reader.seekChunk(0);
+            step = reader.getChunkFirstStep(0) - 1;
+            clock = reader.getChunkFirstClock(0);
+        } else {
+            marking = new TraceMarking(reader.getPlaceIds().size(), reader.hasPayloads());
+            step = 0;
+            clock = 0;
+        }
+    }
+
+    /**
+     * Moves the replay to the marking reached after a given step. Steps beyond the end of
+     * the trace stop at the last recorded firing.
+     *
+     * @param target the step whose resulting marking is wanted
+     * @return the step actually reached
+     * @throws IOException if the trace cannot be read
+     */
+    public long seek(long target) throws IOException {
+        int chunk = reader.chunkOf(target + 1);
+        if (chunk < 0) {
+            rewind();
+            return step;
+        }
+        marking = reader.seekChunk(chunk);
+        step = reader.getChunkFirstStep(chunk) - 1;
+        clock = reader.getChunkFirstClock(chunk);
+        while (step < target && next() != null) {
+        }
+        return step;
+    }
+
+    /**
+     * Applies the next recorded firing.
+     *
+     * @return the firing, or null at the end of the trace
+     * @throws IOException if the trace cannot be read
+     */
+    public TraceRecord next() throws IOException {
+        TraceRecord record = reader.next();
+        if (record != null) {
+            marking.apply(record);
+            step = record.getStep();
+            clock = record.getClock();
+        }
+        return record;
+    }
+
+    /**
+     * Writes the current marking into the places of a net, matching places by id.
+     *
+     * @param net the net to update
+     */
+    public void applyTo(PetriNet net) {
+        marking.applyTo(net, reader.getPlaceIds());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @return the current marking
+     */
+    public TraceMarking getMarking() {
+        return marking;
+    }
+
+    /**
+     * @return the number of the last applied firing
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @return the clock of the last applied firing
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the place ids of the trace, in index order
+     */
+    public ArrayList<String> getPlaceIds() {
+        return reader.getPlaceIds();
+    }
+
+    /**
+     * @return the transition ids of the trace, in index order
+     */
+    public ArrayList<String> getTransitionIds() {
+        return reader.getTransitionIds();
+    }
+
+    /**
+     * @return the underlying reader
+     */
+    public BinaryTraceReader getReader() {
+        return reader;
+    }
+}
@@ -11,6 +11,7 @@ import business.InputArc;
 import business.NetObject;
 import business.OutputArc;
 import business.Place;
+import business.Session;
 import business.Simulation;
 import business.Transition;
 import java.awt.Color;
@@ -57,6 +58,8 @@ public class Canvas extends javax.swing.JPanel
     private SelectionManager selectionManager;
     /** Figures that are painted and represent the Petri Net */
     private HashMap figures = new HashMap();
+    /** Session whose net the canvas shows and edits */
+    private Session session = new Session();
     /** An arc Figure*/
     private AbstractArcFigure arcFigure;
     /** The background grid*/
@@ -162,37 +165,33 @@ public class Canvas extends javax.swing.JPanel
     public void addFigure(int element, Point2D position) {
         switch (element) {
             case Global.PLACEMODE:
-                Place place = new Place();
-                Global.petriNet.addPlace(place);
+                Place place = session.getPetriNet().createPlace();
                 PlaceFigure placeFigure = new PlaceFigure(place.getId(), position);
-                figures.put(place.getId(), placeFigure);
-                figures.put(place.getId() + "label", placeFigure.getLabel());
+                putFigure(place.getId(), placeFigure);
+                putFigure(place.getId() + "label", placeFigure.getLabel());
                 break;
             case Global.TRANSITIONMODE:
-                Transition transition = new Transition();
-                Global.petriNet.addTransition(transition);
+                Transition transition = session.getPetriNet().createTransition();
                 TransitionFigure transitionFigure = new TransitionFigure(transition.getId(), position);
-                figures.put(transition.getId(), transitionFigure);
-                figures.put(transition.getId() + "label", transitionFigure.getLabel());
+                putFigure(transition.getId(), transitionFigure);
+                putFigure(transition.getId() + "label", transitionFigure.getLabel());
                 break;
             case Global.NORMALARCMODE:
                 AbstractFigure start = arcFigure.getStartConnector();
                 AbstractFigure end = arcFigure.getEndConnector();
                 String id;
-                if (Global.petriNet.getNetElement(start.getElementId()) instanceof Place) {
-                    Place p = (Place) Global.petriNet.getNetElement(start.getElementId());
-                    Transition t = (Transition) Global.petriNet.getNetElement(end.getElementId());
-                    InputArc arc = new InputArc(p, t);
-                    Global.petriNet.addInputArc(arc);
+                if (session.getPetriNet().getNetElement(start.getElementId()) instanceof Place) {
+                    Place p = (Place) session.getPetriNet().getNetElement(start.getElementId());
+                    Transition t = (Transition) session.getPetriNet().getNetElement(end.getElementId());
+                    InputArc arc = session.getPetriNet().createInputArc(p, t);
                     id = arc.getId();
                 } else {
-                    Place p = (Place) Global.petriNet.getNetElement(end.getElementId());
-                    Transition t = (Transition) Global.petriNet.getNetElement(start.getElementId());
-                    OutputArc arc = new OutputArc(p, t);
-                    Global.petriNet.addOutputArc(arc);
+                    Place p = (Place) session.getPetriNet().getNetElement(end.getElementId());
+                    Transition t = (Transition) session.getPetriNet().getNetElement(start.getElementId());
+                    OutputArc arc = session.getPetriNet().createOutputArc(p, t);
                     id = arc.getId();
                 }
-                figures.put(id, arcFigure);
+                putFigure(id, arcFigure);
                 arcFigure.setElementId(id);
                 Iterator it = arcFigure.getPoints().iterator();
                 int i = 0;
@@ -200,7 +199,7 @@ public class Canvas extends javax.swing.JPanel
                     PathPoint pathPoint = (PathPoint) it.next();
                     if (i != 0 && i != arcFigure.getPoints().size() - 1) {
                         pathPoint.setElementId(arcFigure.getElementId() + "_pathpoint_" + i);
-                        figures.put(pathPoint.getElementId(), pathPoint);
+                        putFigure(pathPoint.getElementId(), pathPoint);
                     }
                     i++;
                 }
@@ -208,33 +207,39 @@ public class Canvas extends javax.swing.JPanel
         }
     }
 
+    /** Stores a figure of the net of the session */
+    private void putFigure(Object key, AbstractFigure figure) {
+        figure.setSession(session);
+        figures.put(key, figure);
+    }
+
     /** Remove a figure from both the canvas and the PetriNet*/
     public void removeFigure(AbstractFigure figure) {
 
         if (figure instanceof PlaceFigure) {
-            Place place = (Place) Global.petriNet.getNetElement(figure.getElementId());
-            Global.petriNet.getNetElement(place.getId());
+            Place place = (Place) session.getPetriNet().getNetElement(figure.getElementId());
+            session.getPetriNet().getNetElement(place.getId());
             figures.remove(place.getId());
             figures.remove(place.getId() + "label");
             removeArcFigures(place.getId());
-            Global.petriNet.removePlace(place);
+            session.getPetriNet().removePlace(place);
         } else if (figure instanceof TransitionFigure) {
-            Transition transition = (Transition) Global.petriNet.getNetElement(figure.getElementId());
-            Global.petriNet.getNetElement(transition.getId());
+            Transition transition = (Transition) session.getPetriNet().getNetElement(figure.getElementId());
+            session.getPetriNet().getNetElement(transition.getId());
             figures.remove(transition.getId());
             figures.remove(transition.getId() + "label");
             removeArcFigures(transition.getId());
-            Global.petriNet.removeTransition(transition);
+            session.getPetriNet().removeTransition(transition);
         } else if (figure instanceof NormalArcFigure) {
-            Arc arc = (Arc) Global.petriNet.getNetElement(figure.getElementId());
+            Arc arc = (Arc) session.getPetriNet().getNetElement(figure.getElementId());
             if (arc instanceof InputArc) {
                 InputArc inputArc = (InputArc) arc;
                 figures.remove(arc.getId());
-                Global.petriNet.removeInputArc(inputArc);
+                session.getPetriNet().removeInputArc(inputArc);
             } else if (arc instanceof OutputArc) {
                 OutputArc outputArc = (OutputArc) arc;
                 figures.remove(outputArc.getId());
-                Global.petriNet.removeOutputArc(outputArc);
+                session.getPetriNet().removeOutputArc(outputArc);
             }
             AbstractArcFigure arcFigure = (AbstractArcFigure) figure;
             removePathPoints(arcFigure);
@@ -341,6 +346,7 @@ public class Canvas extends javax.swing.JPanel
                 if (arcFigure == null) {
                     //start Point
                     arcFigure = new NormalArcFigure();
+                    arcFigure.setSession(session);
                     arcFigure.addPoint(position);
                     arcFigure.setConnectionStart(figure);
                 } else {
@@ -436,7 +442,7 @@ public class Canvas extends javax.swing.JPanel
     }
 
     public void mousePressed(MouseEvent e) {
-        switch (Global.mode) {
+        switch (session.getMode()) {
             case Global.PLACEMODE:
                 addFigure(Global.PLACEMODE, snapPointToGrid(e.getPoint()));
                 break;
@@ -486,6 +492,25 @@ public class Canvas extends javax.swing.JPanel
 
     public void setFigures(HashMap figures) {
         this.figures = figures;
+        Iterator it = figures.values().iterator();
+        while (it.hasNext()) {
+            ((AbstractFigure) it.next()).setSession(session);
+        }
+    }
+
+    /**
+     * @return the session whose net the canvas shows and edits
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * @param session the session whose net the canvas shows and edits
+     */
+    public void setSession(Session session) {
+        this.session = session;
+        setFigures(figures);
     }
 
     /**
@@ -6,7 +6,6 @@
  */
 package presentation;
 
-import business.Global;
 import business.InputArc;
 import business.NetObject;
 import business.OutputArc;
@@ -63,6 +62,10 @@ public class FrmNetObject extends javax.swing.JDialog {
             currentTabIndex = 2;
             Transition transition = (Transition) netObject;
             this.jTextArea1.setText(transition.getGuardText());
+            this.txtWeight.setText("" + transition.getWeight());
+            this.txtPriority.setText("" + transition.getPriority());
+            this.cmbTiming.setSelectedIndex(transition.getTiming());
+            this.txtDelay.setText(transition.getDelayText());
             jTabbedPane1.setTitleAt(2, netObjectName + " Properties");
 
         } else if (netObject instanceof InputArc) {
@@ -153,6 +156,14 @@ public class FrmNetObject extends javax.swing.JDialog {
         jLabel3 = new javax.swing.JLabel();
         jScrollPane2 = new javax.swing.JScrollPane();
         jTextArea1 = new javax.swing.JTextArea();
+        jLabel18 = new javax.swing.JLabel();
+        txtWeight = new javax.swing.JTextField();
+        jLabel19 = new javax.swing.JLabel();
+        txtPriority = new javax.swing.JTextField();
+        jLabel20 = new javax.swing.JLabel();
+        cmbTiming = new javax.swing.JComboBox<>();
+        jLabel21 = new javax.swing.JLabel();
+        txtDelay = new javax.swing.JTextField();
         jPanel4 = new javax.swing.JPanel();
         jLabel4 = new javax.swing.JLabel();
         jScrollPane3 = new javax.swing.JScrollPane();
@@ -298,15 +309,43 @@ public class FrmNetObject extends javax.swing.JDialog {
         jTextArea1.setRows(5);
         jScrollPane2.setViewportView(jTextArea1);
 
+        jLabel18.setText("Weight");
+
+        jLabel19.setText("Priority");
+
+        jLabel20.setText("Timing");
+
+        cmbTiming.setModel(new javax.swing.DefaultComboBoxModel<>(new String[] { "Immediate", "Exponential", "General" }));
+
+        jLabel21.setText("Rate / delay");
+
         javax.swing.GroupLayout jPanel3Layout = new javax.swing.GroupLayout(jPanel3);
         jPanel3.setLayout(jPanel3Layout);
         jPanel3Layout.setHorizontalGroup(
             jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
             .addGroup(jPanel3Layout.createSequentialGroup()
                 .addContainerGap()
-                .addComponent(jLabel3)
-                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
-                .addComponent(jScrollPane2, javax.swing.GroupLayout.DEFAULT_SIZE, 481, Short.MAX_VALUE)
+                .addGroup(jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                    .addGroup(jPanel3Layout.createSequentialGroup()
+                        .addComponent(jLabel3)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(jScrollPane2, javax.swing.GroupLayout.DEFAULT_SIZE, 481, Short.MAX_VALUE))
+                    .addGroup(jPanel3Layout.createSequentialGroup()
+                        .addComponent(jLabel18)
+                        .addGap(18, 18, 18)
+                        .addComponent(txtWeight, javax.swing.GroupLayout.PREFERRED_SIZE, 156, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addGap(18, 18, 18)
+                        .addComponent(jLabel19)
+                        .addGap(18, 18, 18)
+                        .addComponent(txtPriority, javax.swing.GroupLayout.PREFERRED_SIZE, 156, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addGroup(jPanel3Layout.createSequentialGroup()
+                        .addComponent(jLabel20)
+                        .addGap(18, 18, 18)
+                        .addComponent(cmbTiming, javax.swing.GroupLayout.PREFERRED_SIZE, 156, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addGap(18, 18, 18)
+                        .addComponent(jLabel21)
+                        .addGap(18, 18, 18)
+                        .addComponent(txtDelay, javax.swing.GroupLayout.DEFAULT_SIZE, 156, Short.MAX_VALUE)))
                 .addContainerGap())
         );
         jPanel3Layout.setVerticalGroup(
@@ -314,8 +353,20 @@ public class FrmNetObject extends javax.swing.JDialog {
             .addGroup(jPanel3Layout.createSequentialGroup()
                 .addContainerGap()
                 .addGroup(jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
-                    .addComponent(jScrollPane2, javax.swing.GroupLayout.PREFERRED_SIZE, 490, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jScrollPane2, javax.swing.GroupLayout.PREFERRED_SIZE, 400, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(jLabel3))
+                .addGap(18, 18, 18)
+                .addGroup(jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel18)
+                    .addComponent(txtWeight, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel19)
+                    .addComponent(txtPriority, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(jPanel3Layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(jLabel20)
+                    .addComponent(cmbTiming, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(jLabel21)
+                    .addComponent(txtDelay, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addContainerGap(29, Short.MAX_VALUE))
         );
 
@@ -537,7 +588,7 @@ public class FrmNetObject extends javax.swing.JDialog {
     private void jButton2ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton2ActionPerformed
 
         if (netObject instanceof Place) {
-            Place place = (Place) Global.petriNet.getNetElement(netObject.getId());
+            Place place = (Place) netObject;
             DefaultListModel m = (DefaultListModel) this.jList1.getModel();
             place.getTokens().clear();
 
@@ -554,16 +605,25 @@ public class FrmNetObject extends javax.swing.JDialog {
             }
 
         } else if (netObject instanceof Transition) {
-            Transition transition = (Transition) Global.petriNet.getNetElement(netObject.getId());
+            Transition transition = (Transition) netObject;
             transition.setGuardText(this.jTextArea1.getText());
 
+            try {
+                transition.setWeight(Double.parseDouble(txtWeight.getText()));
+                transition.setPriority(Integer.parseInt(txtPriority.getText()));
+                transition.setTiming(cmbTiming.getSelectedIndex());
+                transition.setDelayText(txtDelay.getText());
+            } catch (IllegalArgumentException e) {
+                Logger.getLogger(FrmNetObject.class.getName()).log(Level.SEVERE, null, e);
+            }
+
         } else if (netObject instanceof InputArc) {
-            InputArc inputArc = (InputArc) Global.petriNet.getNetElement(netObject.getId());
+            InputArc inputArc = (InputArc) netObject;
             inputArc.setEvaluateText(this.jTextArea2.getText());
             inputArc.setExecuteText(this.jTextArea3.getText());
 
         } else if (netObject instanceof OutputArc) {
-            OutputArc outputArc = (OutputArc) Global.petriNet.getNetElement(netObject.getId());
+            OutputArc outputArc = (OutputArc) netObject;
             String timeExpression = "";
             if (txtTime.getText() != null) {
                 try {
@@ -578,9 +638,10 @@ public class FrmNetObject extends javax.swing.JDialog {
             outputArc.setExecuteText(this.jTextArea4.getText() + timeExpression);
 
         } else if (netObject instanceof PetriNet) {
-            Global.petriNet.setImportText(this.txtImports.getText());
-            Global.petriNet.setImplementText(this.txtImplements.getText());
-            Global.petriNet.setDeclarationText(this.txtDeclarations.getText());
+            PetriNet petriNet = (PetriNet) netObject;
+            petriNet.setImportText(this.txtImports.getText());
+            petriNet.setImplementText(this.txtImplements.getText());
+            petriNet.setDeclarationText(this.txtDeclarations.getText());
 
         }
 
@@ -611,6 +672,7 @@ public class FrmNetObject extends javax.swing.JDialog {
     private javax.swing.JButton jButton2;
     private javax.swing.JButton jButton3;
     private javax.swing.JButton jButton4;
+    private javax.swing.JComboBox<String> cmbTiming;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel10;
     private javax.swing.JLabel jLabel11;
@@ -620,6 +682,10 @@ public class FrmNetObject extends javax.swing.JDialog {
     private javax.swing.JLabel jLabel15;
     private javax.swing.JLabel jLabel16;
     private javax.swing.JLabel jLabel17;
+    private javax.swing.JLabel jLabel18;
+    private javax.swing.JLabel jLabel19;
+    private javax.swing.JLabel jLabel20;
+    private javax.swing.JLabel jLabel21;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel3;
     private javax.swing.JLabel jLabel4;
@@ -649,11 +715,14 @@ public class FrmNetObject extends javax.swing.JDialog {
     private javax.swing.JTextArea jTextArea3;
     private javax.swing.JTextArea jTextArea4;
     private javax.swing.JTextField txtCapacity;
+    private javax.swing.JTextField txtDelay;
     private javax.swing.JTextArea txtDeclarations;
     private javax.swing.JTextField txtId;
     private javax.swing.JTextArea txtImplements;
     private javax.swing.JTextArea txtImports;
     private javax.swing.JTextField txtLabel;
+    private javax.swing.JTextField txtPriority;
     private javax.swing.JTextField txtTime;
+    private javax.swing.JTextField txtWeight;
     // End of variables declaration//GEN-END:variables
 }
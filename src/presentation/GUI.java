@@ -8,10 +8,16 @@ package presentation;
 
 import business.Global;
 import business.NetClass;
-import business.NetObject;
 import business.PetriNet;
+import business.Session;
+import business.Simulation;
+import business.SimulationStatistics;
+import business.StochasticSimulation;
 import business.TimedSimulation;
+import business.TraceWriter;
+import business.Transition;
 import data.FileManager;
+import data.TraceReplayer;
 import java.awt.Component;
 import java.awt.Toolkit;
 import java.io.File;
@@ -41,9 +47,13 @@ import javax.xml.transform.TransformerException;
 public class GUI extends javax.swing.JFrame {
 
     /** The simulator thread*/
-    private volatile TimedSimulation simulator;
+    private volatile Simulation simulator;
+    /** The thread playing back a trace*/
+    private volatile TraceReplayPlayer player;
     private String defaultPath = "assets";
     private String javaSource;
+    /** Session holding the net of this window */
+    private final Session session = new Session();
     private ArrayList buttonGroup1 = new ArrayList();
 
     /** Creates new form GUI */
@@ -56,7 +66,8 @@ public class GUI extends javax.swing.JFrame {
         }
 
         initComponents();
-        this.setTitle(Global.petriNet.getLabel() + " - Java Petri-Netz (PetriNet) Simulator GUI");
+        canvas.setSession(session);
+        this.setTitle(session.getPetriNet().getLabel() + " - Java Petri-Netz (PetriNet) Simulator GUI");
         setIconImage(Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("icons/icon.png")));
 
         buttonGroup1.add(btnSelect);
@@ -113,6 +124,7 @@ public class GUI extends javax.swing.JFrame {
         jMenuItem7 = new javax.swing.JMenuItem();
         jMenuItem5 = new javax.swing.JMenuItem();
         jMenuItem9 = new javax.swing.JMenuItem();
+        jMenuItem10 = new javax.swing.JMenuItem();
         jMenuItem6 = new javax.swing.JMenuItem();
         jMenu2 = new javax.swing.JMenu();
         jMenuItem8 = new javax.swing.JMenuItem();
@@ -403,6 +415,14 @@ public class GUI extends javax.swing.JFrame {
         });
         jMenu1.add(jMenuItem9);
 
+        jMenuItem10.setText("Replay Trace...");
+        jMenuItem10.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jMenuItem10ActionPerformed(evt);
+            }
+        });
+        jMenu1.add(jMenuItem10);
+
         jMenuItem6.setAccelerator(javax.swing.KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_F4, java.awt.event.InputEvent.ALT_MASK));
         jMenuItem6.setIcon(new javax.swing.ImageIcon(getClass().getResource("/presentation/icons/exit.png"))); // NOI18N
         jMenuItem6.setMnemonic('E');
@@ -500,22 +520,22 @@ public class GUI extends javax.swing.JFrame {
     private void btnSelectActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnSelectActionPerformed
         deactivateButtons((JToggleButton) evt.getSource());
         setSelectionMode();
-        Global.mode = Global.SELECTMODE;
+        session.setMode(Global.SELECTMODE);
 }//GEN-LAST:event_btnSelectActionPerformed
 
     private void btnPlaceActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnPlaceActionPerformed
         deactivateButtons((JToggleButton) evt.getSource());
-        Global.mode = Global.PLACEMODE;
+        session.setMode(Global.PLACEMODE);
 }//GEN-LAST:event_btnPlaceActionPerformed
 
     private void btnTransitionActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnTransitionActionPerformed
         deactivateButtons((JToggleButton) evt.getSource());
-        Global.mode = Global.TRANSITIONMODE;
+        session.setMode(Global.TRANSITIONMODE);
 }//GEN-LAST:event_btnTransitionActionPerformed
 
     private void btnNormalArcActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnNormalArcActionPerformed
         deactivateButtons((JToggleButton) evt.getSource());
-        Global.mode = Global.NORMALARCMODE;
+        session.setMode(Global.NORMALARCMODE);
 }//GEN-LAST:event_btnNormalArcActionPerformed
 
     private void btnGridActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnGridActionPerformed
@@ -563,6 +583,14 @@ public class GUI extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_jMenuItem9ActionPerformed
 
+    private void jMenuItem10ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem10ActionPerformed
+        jFileChooser1 = new javax.swing.JFileChooser(defaultPath);
+        int option = this.jFileChooser1.showOpenDialog(this);
+        if (option == JFileChooser.APPROVE_OPTION && this.jFileChooser1.getSelectedFile() != null) {
+            replayTrace(this.jFileChooser1.getSelectedFile(), 0, Long.MAX_VALUE);
+        }
+    }//GEN-LAST:event_jMenuItem10ActionPerformed
+
     private void jMenuItem4ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jMenuItem4ActionPerformed
         newNet();
     }//GEN-LAST:event_jMenuItem4ActionPerformed
@@ -572,7 +600,7 @@ public class GUI extends javax.swing.JFrame {
     }//GEN-LAST:event_jMenuItem5ActionPerformed
 
     private void jButton1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButton1ActionPerformed
-        NetClass net = new NetClass();
+        NetClass net = new NetClass(session.getPetriNet());
         FrmViewSource jform = new FrmViewSource(JOptionPane.getFrameForComponent(this), true, net.getNetSource().toString(), "View Source Code");
         jform.setVisible(true);
     }//GEN-LAST:event_jButton1ActionPerformed
@@ -621,31 +649,51 @@ public class GUI extends javax.swing.JFrame {
         }
     }
 
+    /**
+     * Creates the simulation of the current net: a GSPN simulation if the net has timed
+     * transitions, a simulation driven by token timestamps otherwise.
+     *
+     * @param step whether the simulation runs in step mode
+     * @return the simulation
+     */
+    private Simulation createSimulation(boolean step) {
+        for (Transition transition : session.getPetriNet().getTransitions()) {
+            if (!transition.isImmediate()) {
+                return new StochasticSimulation(session, step, this);
+            }
+        }
+        return new TimedSimulation(session, step, this);
+    }
+
     /** Starts the continuous simulation process*/
     public void continuousSimulation(java.awt.event.ActionEvent evt) {
-        NetClass n = new NetClass();
+        NetClass n = new NetClass(session.getPetriNet());
         this.javaSource = n.getNetSource().toString();
-        Global.mode = Global.SIMULATIONMODE;
+        session.setMode(Global.SIMULATIONMODE);
         setEnabledButtons(null, buttonGroup1, false);
 
         this.jTextArea1.setText("");
         ((JButton) (evt.getSource())).setEnabled(false);
         if (simulator == null) {
-            simulator = new TimedSimulation(false, this);
+            simulator = createSimulation(false);
+            simulator.addFiringListener(new TraceWriter(new TextAreaTraceSink(jTextArea1)));
+            simulator.setStatistics(new SimulationStatistics());
             simulator.start();
         }
     }
 
     /** Starts or continues the stepped simulation process (One transition fire at a time) */
     public void steppedSimulation(java.awt.event.ActionEvent evt) {
-        Global.mode = Global.SIMULATIONMODE;
+        session.setMode(Global.SIMULATIONMODE);
         setEnabledButtons((JButton) evt.getSource(), buttonGroup1, false);
 
         if (simulator == null) {
             this.jTextArea1.setText("");
-            NetClass n = new NetClass();
+            NetClass n = new NetClass(session.getPetriNet());
             this.javaSource = n.getNetSource().toString();
-            simulator = new TimedSimulation(true, this);
+            simulator = createSimulation(true);
+            simulator.addFiringListener(new TraceWriter(new TextAreaTraceSink(jTextArea1)));
+            simulator.setStatistics(new SimulationStatistics());
             simulator.start();
         } else {
             if (simulator.isAlive()) {
@@ -664,6 +712,12 @@ public class GUI extends javax.swing.JFrame {
     public void stopSimulation(java.awt.event.ActionEvent evt) {
         setEnabledButtons((JButton) evt.getSource(), buttonGroup1, true);
         this.txtClock.setText("0");
+        if (player != null) {
+            player.stopPlayback();
+            player.interrupt();
+            player = null;
+            this.btnStop.setVisible(false);
+        }
         if (simulator != null) {
             simulator.setStop(true);
             while (simulator.isAlive()) {
@@ -671,9 +725,9 @@ public class GUI extends javax.swing.JFrame {
 
             simulator = null;
             this.btnStop.setVisible(false);
-            NetClass n = new NetClass();
+            NetClass n = new NetClass(session.getPetriNet());
             try {
-                n.compile(javaSource);
+                session.setPetriNet(n.compile(javaSource));
             } catch (Exception e) {
                 FrmViewSource jform = new FrmViewSource(JOptionPane.getFrameForComponent(this), true, e.getMessage(), "Compilation Errors");
                 jform.setVisible(true);
@@ -688,12 +742,11 @@ public class GUI extends javax.swing.JFrame {
     public void newNet() {
 
         if (simulator == null || !simulator.isAlive()) {
-            NetObject.LATEST_ID = 0;
             canvas.getSelectionManager().removeSelectedFigures();
-            Global.petriNet = new PetriNet();
+            session.setPetriNet(new PetriNet());
             canvas.setFigures(new HashMap());
             canvas.repaint();
-            this.setTitle(Global.petriNet.getLabel());
+            this.setTitle(session.getPetriNet().getLabel());
             this.jTextArea1.setText("");
         }
     }
@@ -701,17 +754,19 @@ public class GUI extends javax.swing.JFrame {
     /** Opens a Petri Net file and loads it to canvas*/
     private void openFile() {
         if (simulator == null || !simulator.isAlive()) {
-            NetObject.LATEST_ID = 0;
             canvas.getSelectionManager().removeSelectedFigures();
             FileManager handler = new FileManager();
             jFileChooser1 = new javax.swing.JFileChooser(defaultPath);
             int val = this.jFileChooser1.showOpenDialog(this);
             if (val == JFileChooser.APPROVE_OPTION) {
                 File file = this.jFileChooser1.getSelectedFile();
-                canvas.setFigures(handler.loadFile(file));
+                PetriNet petriNet = new PetriNet();
+                HashMap<String, Object> figures = handler.loadFile(file, petriNet);
+                session.setPetriNet(petriNet);
+                canvas.setFigures(figures);
 
 
-                this.setTitle(Global.petriNet.getLabel());
+                this.setTitle(petriNet.getLabel());
             }
             //to be removed test only
             // canvas.setFigures(handler.loadFile(new File("test.xml")));
@@ -732,7 +787,7 @@ public class GUI extends javax.swing.JFrame {
                 if (this.jFileChooser1.getSelectedFile() != null) {
                     File file = this.jFileChooser1.getSelectedFile();
                     try {
-                        fileManager.generateXML(this.canvas.getFigures(), file);
+                        fileManager.generateXML(session.getPetriNet(), this.canvas.getFigures(), file);
                     } catch (ParserConfigurationException ex) {
                         Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, null, ex);
                     } catch (TransformerConfigurationException ex) {
@@ -746,6 +801,37 @@ public class GUI extends javax.swing.JFrame {
         }
     }
 
+    /**
+     * Replays a recorded binary trace on the current net, starting from the marking
+     * reached after fromStep and playing until toStep.
+     *
+     * @param trace    the trace file recorded for the current net
+     * @param fromStep the step whose marking is shown first
+     * @param toStep   the last step to play
+     * @return the started player, or null if a simulation or replay is running or the trace cannot be read
+     */
+    public TraceReplayPlayer replayTrace(File trace, long fromStep, long toStep) {
+        if ((simulator != null && simulator.isAlive()) || (player != null && player.isAlive())) {
+            return null;
+        }
+        try {
+            TraceReplayer replayer = new TraceReplayer(trace);
+            try {
+                replayer.seek(fromStep);
+            } catch (IOException ex) {
+                replayer.close();
+                throw ex;
+            }
+            player = new TraceReplayPlayer(this, replayer, toStep);
+            player.start();
+            this.btnStop.setVisible(true);
+            return player;
+        } catch (IOException ex) {
+            Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
+
     /** Checks whether the selection toggle button is enabled or not.
     If true, enables the Selection Manager */
     private void setSelectionMode() {
@@ -796,6 +882,7 @@ public class GUI extends javax.swing.JFrame {
     private javax.swing.JMenuItem jMenuItem7;
     private javax.swing.JMenuItem jMenuItem8;
     private javax.swing.JMenuItem jMenuItem9;
+    private javax.swing.JMenuItem jMenuItem10;
     private javax.swing.JPanel jPanel1;
     private javax.swing.JPanel jPanel2;
     private javax.swing.JScrollPane jScrollPane1;
@@ -818,6 +905,13 @@ public class GUI extends javax.swing.JFrame {
         return jTextArea1;
     }
 
+    /**
+     * @return the session holding the net of this window
+     */
+    public Session getSession() {
+        return session;
+    }
+
     /**
      * @return the canvas
      */
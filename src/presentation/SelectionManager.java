@@ -269,7 +269,7 @@ public class SelectionManager extends JComponent implements MouseListener, Mouse
     }
 
     public void mousePressed(MouseEvent e) {
-        switch (Global.mode) {
+        switch (canvas.getSession().getMode()) {
             case Global.SIMULATIONMODE:
             case Global.SELECTMODE:
                 AbstractFigure figure = canvas.selectFigure(e.getPoint());
@@ -280,7 +280,7 @@ public class SelectionManager extends JComponent implements MouseListener, Mouse
                     updateOffsets(e.getPoint());
                     // Right click
                     if (e.getButton() == MouseEvent.BUTTON3) {
-                        NetObject netObject = Global.petriNet.getNetElement(canvas.getFigureKey(figure));
+                        NetObject netObject = canvas.getSession().getPetriNet().getNetElement(canvas.getFigureKey(figure));
                         canvas.showForm(netObject);
                         removeSelectedFigures();
                     }
@@ -288,7 +288,7 @@ public class SelectionManager extends JComponent implements MouseListener, Mouse
                     setSelectionStartPoint(e.getPoint());
                     removeSelectedFigures();
                     if (e.getButton() == MouseEvent.BUTTON3) {
-                        canvas.showForm(Global.petriNet);
+                        canvas.showForm(canvas.getSession().getPetriNet());
                     }
                 }
                 break;
@@ -308,7 +308,7 @@ public class SelectionManager extends JComponent implements MouseListener, Mouse
     }
 
     public void mouseDragged(MouseEvent e) {
-        switch (Global.mode) {
+        switch (canvas.getSession().getMode()) {
             case Global.SELECTMODE:
                 if (!selectedFigures.isEmpty()) {
                     for (AbstractFigure figure : selectedFigures.values()) {
@@ -340,7 +340,7 @@ public class SelectionManager extends JComponent implements MouseListener, Mouse
 
     /** Deletes selected figures if the key supr is pressed. */
     public void keyPressed(KeyEvent e) {
-        if (Global.mode == Global.SELECTMODE) {
+        if (canvas.getSession().getMode() == Global.SELECTMODE) {
             if (e.getKeyCode() == 127) { // Supr key
                 if (!selectedFigures.isEmpty()) {
                     for (AbstractFigure figure : selectedFigures.values()) {
@@ -0,0 +1,110 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package presentation;
+
+import business.FiringEvent;
+import business.Simulation;
+import business.TraceSink;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Trace sink that shows the firings in the simulator log area.
+ * Batches are collected in a buffer that the event dispatch thread empties with a single
+ * edit. Only one such flush is scheduled at a time, however fast the batches arrive, and
+ * both the buffer and the log drop their oldest text beyond a fixed size, so long runs
+ * neither flood the event queue nor grow the log without limit.
+ */
+public class TextAreaTraceSink implements TraceSink {
+
+    /** Default maximum number of characters kept in the log area. */
+    public static final int DEFAULT_MAX_CHARS = 200000;
+
+    private final JTextArea textArea;
+    private final int maxChars;
+    /** Text not yet shown, guarded by this sink. */
+    private final StringBuilder pending = new StringBuilder();
+    /** Whether a flush is scheduled on the event dispatch thread, guarded by this sink. */
+    private boolean scheduled;
+
+    /**
+     * Creates a sink for a log area keeping at most {@link #DEFAULT_MAX_CHARS} characters.
+     *
+     * @param textArea The log area.
+     */
+    public TextAreaTraceSink(JTextArea textArea) {
+        this(textArea, DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * Creates a sink for a log area.
+     *
+     * @param textArea The log area.
+     * @param maxChars Maximum number of characters kept in the log area.
+     */
+    public TextAreaTraceSink(JTextArea textArea, int maxChars) {
+        this.textArea = textArea;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public void open(Simulation simulation) {
+    }
+
+    @Override
+    public void write(List<FiringEvent> batch) {
+        StringBuilder s = new StringBuilder();
+        for (FiringEvent event : batch) {
+            s.append(event);
+        }
+        synchronized (this) {
+            pending.append(s);
+            if (pending.length() > maxChars) {
+                pending.delete(0, pending.length() - maxChars);
+            }
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                flush();
+            }
+        });
+    }
+
+    /** Shows the pending text, allowing the next batch to schedule another flush. */
+    private void flush() {
+        String text;
+        synchronized (this) {
+            text = pending.toString();
+            pending.setLength(0);
+            scheduled = false;
+        }
+        append(text);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /** Appends text to the log area, trims its head and moves the caret to the end. */
+    private void append(String text) {
+        Document document = textArea.getDocument();
+        textArea.append(text);
+        int excess = document.getLength() - maxChars;
+        if (excess > 0) {
+            try {
+                document.remove(0, excess);
+            } catch (BadLocationException ex) {
+                Logger.getLogger(TextAreaTraceSink.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        textArea.setCaretPosition(document.getLength());
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
+package presentation;
+
+import business.Place;
+import business.Simulation;
+import business.TokenSet;
+import data.TraceRecord;
+import data.TraceReplayer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread that plays a recorded trace back in the editor.
+ * Every replayed firing updates the marking of the current net, highlights the fired
+ * transition on the canvas and waits {@link Simulation#DELAY} milliseconds, just like a
+ * live simulation, but without executing the net. When the playback ends or is stopped, the
+ * marking the net had before is restored and the trace file is closed.
+ */
+public class TraceReplayPlayer extends Thread {
+
+    private final GUI gui;
+    private final TraceReplayer replayer;
+    private final long toStep;
+    private volatile boolean stop = false;
+    private final ArrayList<Place> places = new ArrayList<>();
+    private final ArrayList<TokenSet> savedTokens = new ArrayList<>();
+
+    /**
+     * Creates a player.
+     *
+     * @param gui      The GUI whose canvas shows the replay.
+     * @param replayer The replay, positioned at the first step to show.
+     * @param toStep   The last step to play.
+     */
+    public TraceReplayPlayer(GUI gui, TraceReplayer replayer, long toStep) {
+        this.gui = gui;
+        this.replayer = replayer;
+        this.toStep = toStep;
+    }
+
+    @Override
+    public void run() {
+        saveMarking();
+        try {
+            showMarking();
+            while (!stop && replayer.getStep() < toStep) {
+                TraceRecord record = replayer.next();
+                if (record == null) {
+                    break;
+                }
+                String transitionId = replayer.getTransitionIds().get(record.getTransition());
+                gui.getCanvas().highlightTransition(transitionId, true, true);
+                gui.getCanvas().highlightTransition(transitionId, false, false);
+                showMarking();
+                Thread.sleep(Simulation.DELAY);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(TraceReplayPlayer.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            restoreMarking();
+            try {
+                replayer.close();
+            } catch (IOException ex) {
+                Logger.getLogger(TraceReplayPlayer.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Keeps the token sets of every place of the net; the replay puts new sets into the
+     * places and leaves these untouched.
+     */
+    private void saveMarking() {
+        for (Place place : gui.getSession().getPetriNet().getPlaces()) {
+            places.add(place);
+            savedTokens.add(place.getTokens());
+        }
+    }
+
+    /** Puts the saved tokens back into their places and refreshes the canvas and the clock. */
+    private void restoreMarking() {
+        for (int i = 0; i < places.size(); i++) {
+            places.get(i).setTokens(savedTokens.get(i));
+        }
+        gui.getTxtClock().setText("0");
+        gui.getCanvas().repaint();
+    }
+
+    /** Copies the replayed marking into the net and refreshes the canvas and the clock. */
+    private void showMarking() {
+        replayer.applyTo(gui.getSession().getPetriNet());
+        gui.getTxtClock().setText(String.valueOf(replayer.getClock()));
+        gui.getCanvas().repaint();
+    }
+
+    /**
+     * Stops the playback after the current firing.
+     */
+    public void stopPlayback() {
+        this.stop = true;
+    }
+}
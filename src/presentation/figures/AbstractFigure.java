@@ -1,6 +1,9 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package presentation.figures;
 
+import business.Global;
+import business.PetriNet;
+import business.Session;
 import java.awt.Color;
 import java.awt.geom.Point2D;
 import java.awt.geom.RectangularShape;
@@ -34,6 +37,8 @@ public abstract class AbstractFigure {
     protected boolean selected = false;
     /** Indicates whether the figure is highlighted (true) or not (false) */
     protected boolean highlighted = false;
+    /** Session whose net the figure shows, set by the canvas */
+    private Session session;
 
     /**
      * Checks if a given point is contained by this figure.
@@ -174,4 +179,32 @@ public abstract class AbstractFigure {
     public void setOffset(Point2D offset) {
         this.offset = offset;
     }
+
+    /**
+     * Returns the session whose net this figure shows.
+     *
+     * @return The session, or null if the figure is not on a canvas.
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Sets the session whose net this figure shows.
+     *
+     * @param session The session.
+     */
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Returns the net this figure shows: the net of its session, or the default net if the
+     * figure is not on a canvas.
+     *
+     * @return The net.
+     */
+    public PetriNet getPetriNet() {
+        return session != null ? session.getPetriNet() : Global.petriNet;
+    }
 }
@@ -1,7 +1,7 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package presentation.figures;
 
-import business.Global;
+import business.PetriNet;
 import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.font.FontRenderContext;
@@ -81,13 +81,23 @@ public class TextFigure extends AbstractFigure {
         drawText(g);
     }
 
+    /**
+     * Returns the net of the parent figure.
+     *
+     * @return The net.
+     */
+    @Override
+    public PetriNet getPetriNet() {
+        return parent.getPetriNet();
+    }
+
     /**
      * Gets the text content for this figure.
      *
      * @return The text content.
      */
     public String getText() {
-        String lbl = Global.petriNet.getNetElement(parent.getElementId()).getLabel();
+        String lbl = getPetriNet().getNetElement(parent.getElementId()).getLabel();
         if (!lbl.equals(parent.getElementId())) {
             lbl = parent.getElementId() + ":" + lbl;
         }
@@ -100,7 +110,7 @@ public class TextFigure extends AbstractFigure {
      * @return The label text.
      */
     public String getTextLabel() {
-        return Global.petriNet.getNetElement(parent.getElementId()).getLabel();
+        return getPetriNet().getNetElement(parent.getElementId()).getLabel();
     }
 
     /**
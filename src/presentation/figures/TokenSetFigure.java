@@ -1,7 +1,6 @@
 /* Copyright Davain Pablo Edwards core8@gmx.net. Licensed https://creativecommons.org/licenses/by-nc-sa/4.0/deed.en */
 package presentation.figures;
 
-import business.Global;
 import business.Place;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
@@ -86,7 +85,7 @@ public class TokenSetFigure extends TextFigure {
      */
     @Override
     public String getText() {
-        Place place = (Place) Global.petriNet.getNetElement(placeId);
+        Place place = (Place) getPetriNet().getNetElement(placeId);
         return "" + place.getTokens().size();
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for BitstateExplorer and BitstateSet.
+ * This class compares bitstate searches with exact explorations.
+ */
+public class BitstateExplorerTest {
+
+    /**
+     * Tests that a search with ample bits finds every state and the deadlock with a valid
+     * firing sequence.
+     */
+    @Test
+    public void testPhilosophers() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(5));
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        BitstateResult result = new BitstateExplorer(topology).explore();
+
+        assertTrue(result.isComplete());
+        assertEquals(graph.getStateCount(), result.getStateCount());
+        assertEquals(graph.getEdgeCount(), result.getEdgeCount());
+        assertEquals(1, result.getDeadlockCount());
+        assertTrue(result.getCoverage() > 0.999999);
+
+        Marking m = topology.getInitialMarking();
+        for (int t : result.getDeadlockPaths().get(0)) {
+            assertTrue(topology.isEnabled(m, t));
+            topology.fire(m, t);
+        }
+        assertEquals(result.getDeadlocks().get(0), m);
+        assertEquals(0, topology.getFirable(m).length);
+    }
+
+    /**
+     * Tests that a tiny bit array misses states and says so.
+     */
+    @Test
+    public void testSmallArray() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(9));
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        BitstateExplorer explorer = new BitstateExplorer(topology);
+        explorer.setLog2Bits(10);
+        explorer.setHashes(2);
+        BitstateResult result = explorer.explore();
+
+        assertTrue(result.getStateCount() < graph.getStateCount());
+        assertTrue(result.getCoverage() < 0.9);
+        assertTrue(result.getFalsePositiveProbability() > 0.5);
+    }
+
+    /**
+     * Tests the bit set on its own.
+     */
+    @Test
+    public void testBitstateSet() {
+        BitstateSet set = new BitstateSet(20, 3);
+        assertTrue(set.add(new int[] {1, 2, 3}));
+        assertFalse(set.add(new int[] {1, 2, 3}));
+        assertTrue(set.add(new int[] {3, 2, 1}));
+        assertEquals(2, set.getAddedCount());
+        assertEquals(1 << 20, set.getBitCount());
+        assertTrue(set.getFillRatio() <= 6.0 / (1 << 20));
+    }
+
+    /**
+     * Tests that a bit array larger than Java can allocate is rejected up front.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyBits() {
+        new BitstateSet(37, 3);
+    }
+}
@@ -0,0 +1,73 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for CoverabilityAnalysis and CoverabilitySet.
+ * This class finds the unbounded places of small nets.
+ */
+public class CoverabilityAnalysisTest {
+
+    /**
+     * Tests a producer that fills a buffer without limit and a consumer behind it.
+     */
+    @Test
+    public void testUnbounded() {
+        PetriNet net = new PetriNet();
+        Place ready = place(net, "ready", 1);
+        Place buffer = place(net, "buffer", 0);
+        Place done = place(net, "done", 0);
+        transition(net, "produce", new Place[] {ready}, new Place[] {ready, buffer});
+        transition(net, "consume", new Place[] {buffer}, new Place[] {done});
+
+        CoverabilitySet set = new CoverabilityAnalysis(net).analyse();
+        assertFalse(set.isBounded());
+        assertArrayEquals(new int[] {1, 2}, set.getUnboundedPlaces());
+        assertEquals(1, set.getBound(0));
+        assertEquals(CoverabilityAnalysis.OMEGA, set.getBound(1));
+        assertArrayEquals(new int[] {0}, set.getUnboundedPath(1));
+        assertNull(set.getUnboundedPath(0));
+        assertTrue(set.isCoverable(new Marking(new int[] {1, 100, 100})));
+        assertFalse(set.isCoverable(new Marking(new int[] {2, 0, 0})));
+    }
+
+    /**
+     * Tests that a bounded net gets the bounds of its reachable markings.
+     */
+    @Test
+    public void testBounded() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(4));
+        CoverabilitySet set = new CoverabilityAnalysis(topology).analyse();
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        assertTrue(set.isBounded());
+        for (int p = 0; p < topology.getPlaceCount(); p++) {
+            int bound = 0;
+            for (int s = 0; s < graph.getStateCount(); s++) {
+                bound = Math.max(bound, graph.getMarking(s).get(p));
+            }
+            assertEquals(bound, set.getBound(p));
+        }
+        assertTrue(set.getNodeCount() <= graph.getStateCount());
+    }
+
+    /**
+     * Tests that a place with a capacity stays bounded although it keeps being filled.
+     */
+    @Test
+    public void testCapacity() {
+        PetriNet net = new PetriNet();
+        Place ready = place(net, "ready", 1);
+        Place full = place(net, "full", 0);
+        full.setCapacity(3);
+        Place overflow = place(net, "overflow", 0);
+        transition(net, "fill", new Place[] {ready}, new Place[] {ready, full});
+        transition(net, "drain", new Place[] {full}, new Place[] {overflow});
+
+        CoverabilitySet set = new CoverabilityAnalysis(net).analyse();
+        assertEquals(3, set.getBound(1));
+        assertArrayEquals(new int[] {2}, set.getUnboundedPlaces());
+    }
+}
@@ -0,0 +1,44 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for HashedStateStore.
+ * This class stores many markings, including large token counts, and reads them back.
+ */
+public class HashedStateStoreTest {
+
+    /**
+     * Tests numbering, lookup and decoding of markings.
+     */
+    @Test
+    public void testAddAndGet() {
+        HashedStateStore store = new HashedStateStore();
+        assertEquals(0, store.add(new int[] {0, 1, 2}));
+        assertEquals(1, store.add(new int[] {127, 128, 100000}));
+        assertEquals(-1, store.add(new int[] {0, 1, 2}));
+        assertEquals(2, store.size());
+        assertEquals(1, store.indexOf(new int[] {127, 128, 100000}));
+        assertEquals(-1, store.indexOf(new int[] {127, 128, 100001}));
+        assertArrayEquals(new int[] {127, 128, 100000}, store.get(1));
+        assertEquals(3 + 1 + 2 + 3, store.getEncodedBytes());
+    }
+
+    /**
+     * Tests that the store keeps all states while it grows.
+     */
+    @Test
+    public void testGrowth() {
+        HashedStateStore store = new HashedStateStore();
+        int n = 50000;
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, store.add(new int[] {i % 7, i, i / 3}));
+        }
+        assertEquals(n, store.size());
+        for (int i = 0; i < n; i += 997) {
+            assertEquals(-i - 1, store.add(new int[] {i % 7, i, i / 3}));
+            assertArrayEquals(new int[] {i % 7, i, i / 3}, store.get(i));
+        }
+    }
+}
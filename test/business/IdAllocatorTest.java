@@ -0,0 +1,69 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for IdAllocator.
+ * This class creates net objects from several threads at once and checks that no two of
+ * them get the same id.
+ */
+public class IdAllocatorTest {
+
+    /**
+     * Tests that places created concurrently, on their own and through one net, have
+     * distinct ids.
+     */
+    @Test
+    public void testConcurrentIds() throws Exception {
+        final PetriNet net = new PetriNet();
+        final ArrayList<Place> created = new ArrayList<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    ArrayList<Place> places = new ArrayList<>();
+                    for (int k = 0; k < 2000; k++) {
+                        places.add(new Place());
+                        places.add(net.createPlace());
+                    }
+                    synchronized (created) {
+                        created.addAll(places);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (Place place : created) {
+            if (net.getNetElement(place.getId()) != place) {
+                assertTrue(ids.add(place.getId()));
+            }
+        }
+        assertEquals(16000, ids.size());
+        assertEquals(16000, net.getPlaces().size());
+        assertEquals(16000, net.getNetElements().size());
+    }
+
+    /**
+     * Tests that the allocator counts up from 0 and can be reset.
+     */
+    @Test
+    public void testNext() {
+        IdAllocator ids = new IdAllocator();
+        assertEquals(0, ids.next());
+        assertEquals(1, ids.next());
+        assertEquals(2, ids.peek());
+        ids.reset();
+        assertEquals(0, ids.next());
+    }
+}
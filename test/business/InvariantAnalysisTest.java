@@ -0,0 +1,159 @@
+package business;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for IncidenceMatrix and InvariantAnalysis.
+ * This class computes the semiflows of small nets and checks them against the matrix.
+ */
+public class InvariantAnalysisTest {
+
+    /**
+     * Tests the sparse rows and columns of the matrix, including a self-loop that cancels out.
+     */
+    @Test
+    public void testMatrix() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 2);
+        Place p2 = place(net, "p2", 0);
+        Place p3 = place(net, "p3", 1);
+        transition(net, "t1", new Place[] {p1, p1, p3}, new Place[] {p2, p3});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1, p1});
+
+        IncidenceMatrix matrix = new IncidenceMatrix(net);
+        assertEquals(3, matrix.getRowCount());
+        assertEquals(2, matrix.getColumnCount());
+        assertEquals(4, matrix.getEntryCount());
+        assertEquals(-2, matrix.get(0, 0));
+        assertEquals(1, matrix.get(1, 0));
+        assertEquals(0, matrix.get(2, 0));
+        assertEquals(2, matrix.get(0, 1));
+        assertEquals(-1, matrix.get(1, 1));
+        assertEquals(matrix.getRowStart(2), matrix.getRowEnd(2));
+        for (int t = 0; t < matrix.getColumnCount(); t++) {
+            for (int k = matrix.getColumnStart(t); k < matrix.getColumnEnd(t); k++) {
+                assertEquals(matrix.getColumnValue(k), matrix.get(matrix.getColumnRow(k), t));
+            }
+        }
+        assertArrayEquals(new long[] {0, 0, 0}, matrix.multiply(new long[] {1, 1}));
+        assertArrayEquals(new long[] {-4, 2, 0}, matrix.multiply(new long[] {2, 0}));
+    }
+
+    /**
+     * Tests weighted arcs, the bounds they give and an unmarked place outside all cycles.
+     */
+    @Test
+    public void testWeighted() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 3);
+        Place p2 = place(net, "p2", 0);
+        Place p3 = place(net, "p3", 1);
+        transition(net, "t1", new Place[] {p1, p1, p3}, new Place[] {p2, p3});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1, p1});
+
+        InvariantAnalysis analysis = new InvariantAnalysis(net);
+        List<Semiflow> p = analysis.getPInvariants();
+        assertEquals(2, p.size());
+        assertEquals("p1 + 2*p2", analysis.getText(p.get(0), false));
+        assertEquals("p3", analysis.getText(p.get(1), false));
+        assertEquals(3, p.get(0).value(new int[] {3, 0, 1}));
+        List<Semiflow> t = analysis.getTInvariants();
+        assertEquals(1, t.size());
+        assertEquals("t1 + t2", analysis.getText(t.get(0), true));
+        assertTrue(analysis.isConservative());
+        assertTrue(analysis.isRepetitive());
+        assertEquals(3, analysis.getBound(0));
+        assertEquals(1, analysis.getBound(1));
+        assertEquals(1, analysis.getBound(2));
+        assertTrue(analysis.satisfiesInvariants(new Marking(new int[] {1, 1, 1})));
+        assertFalse(analysis.satisfiesInvariants(new Marking(new int[] {0, 1, 1})));
+    }
+
+    /**
+     * Tests the semiflows of the dining philosophers: one per philosopher and one per fork
+     * over the places, one cycle per philosopher over the transitions.
+     */
+    @Test
+    public void testPhilosophers() {
+        int n = 6;
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(n));
+        InvariantAnalysis analysis = new InvariantAnalysis(topology);
+        IncidenceMatrix matrix = analysis.getMatrix();
+        List<Semiflow> p = analysis.getPInvariants();
+        assertEquals(2 * n, p.size());
+        for (Semiflow semiflow : p) {
+            for (int t = 0; t < matrix.getColumnCount(); t++) {
+                long sum = 0;
+                for (int i = 0; i < semiflow.size(); i++) {
+                    sum += semiflow.getWeight(i) * matrix.get(semiflow.getIndex(i), t);
+                }
+                assertEquals(0, sum);
+            }
+        }
+        String fork = "fork0 + left0 + eat0 + eat" + (n - 1);
+        boolean found = false;
+        for (Semiflow semiflow : p) {
+            found |= sameTerms(fork, analysis.getText(semiflow, false));
+        }
+        assertTrue(found);
+
+        List<Semiflow> t = analysis.getTInvariants();
+        assertEquals(n, t.size());
+        for (Semiflow semiflow : t) {
+            long[] firings = new long[matrix.getColumnCount()];
+            for (int i = 0; i < semiflow.size(); i++) {
+                firings[semiflow.getIndex(i)] = semiflow.getWeight(i);
+            }
+            assertArrayEquals(new long[matrix.getRowCount()], matrix.multiply(firings));
+            assertEquals(3, semiflow.size());
+        }
+        assertTrue(analysis.isConservative());
+        assertTrue(analysis.isRepetitive());
+        for (int place = 0; place < topology.getPlaceCount(); place++) {
+            assertEquals(1, analysis.getBound(place));
+        }
+    }
+
+    /** Compares two weighted sums regardless of the order of their terms. */
+    private static boolean sameTerms(String expected, String actual) {
+        Set<String> a = new HashSet<>(Arrays.asList(expected.split(" \\+ ")));
+        Set<String> b = new HashSet<>(Arrays.asList(actual.split(" \\+ ")));
+        return a.equals(b);
+    }
+
+    /**
+     * Tests that a place a producer fills without limit is not covered.
+     */
+    @Test
+    public void testUnbounded() {
+        PetriNet net = new PetriNet();
+        Place ready = place(net, "ready", 1);
+        Place buffer = place(net, "buffer", 0);
+        transition(net, "produce", new Place[] {ready}, new Place[] {ready, buffer});
+
+        InvariantAnalysis analysis = new InvariantAnalysis(net);
+        assertFalse(analysis.isConservative());
+        assertArrayEquals(new int[] {1}, analysis.getUncoveredPlaces());
+        assertEquals(1, analysis.getBound(0));
+        assertEquals(-1, analysis.getBound(1));
+        assertFalse(analysis.isRepetitive());
+        assertArrayEquals(new int[] {0}, analysis.getUncoveredTransitions());
+    }
+
+    /**
+     * Tests that the row limit stops the computation.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMaxRows() {
+        InvariantAnalysis analysis = new InvariantAnalysis(StubbornSetsTest.philosophers(6));
+        analysis.setMaxRows(10);
+        analysis.getPInvariants();
+    }
+}
@@ -0,0 +1,113 @@
+package business;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for MappedStateStore.
+ * This class stores markings in small mapped segments, so states and tables cross segment
+ * boundaries, and explores a net with the store.
+ */
+public class MappedStateStoreTest {
+
+    /**
+     * Tests numbering, lookup and decoding past the cache and across segments.
+     */
+    @Test
+    public void testAddAndGet() throws Exception {
+        File directory = Files.createTempDirectory("states").toFile();
+        MappedStateStore store = new MappedStateStore(directory, true, 12, 4);
+        try {
+            int n = 20000;
+            for (int i = 0; i < n; i++) {
+                assertEquals(i, store.add(new int[] {i, i % 5, 1000 + i}));
+            }
+            assertEquals(n, store.size());
+            for (int i = 0; i < n; i += 37) {
+                assertEquals(-i - 1, store.add(new int[] {i, i % 5, 1000 + i}));
+                assertEquals(i, store.indexOf(new int[] {i, i % 5, 1000 + i}));
+                assertArrayEquals(new int[] {i, i % 5, 1000 + i}, store.get(i));
+            }
+            assertEquals(-1, store.indexOf(new int[] {1, 2, 3}));
+        } finally {
+            store.close();
+        }
+        assertFalse(directory.exists());
+    }
+
+    /**
+     * Tests that a rehashed table replaces the old file and is no larger than it needs to be,
+     * even with segments of 1 GiB.
+     */
+    @Test
+    public void testTableSize() throws Exception {
+        File directory = Files.createTempDirectory("states").toFile();
+        MappedStateStore store = new MappedStateStore(directory, true, 30, 4);
+        try {
+            for (int i = 0; i < 10000; i++) {
+                store.add(new int[] {i});
+            }
+            File[] tables = directory.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.startsWith("states.tab");
+                }
+            });
+            assertEquals(1, tables.length);
+            assertEquals((1 << 15) * 4, tables[0].length());
+        } finally {
+            store.close();
+        }
+        assertFalse(directory.exists());
+    }
+
+    /**
+     * Tests that the data and index files grow with the states stored, even with segments of
+     * 1 GiB, and keep their contents while the first segment is mapped again.
+     */
+    @Test
+    public void testFileSize() throws Exception {
+        File directory = Files.createTempDirectory("states").toFile();
+        MappedStateStore store = new MappedStateStore(directory, true, 30, 4);
+        try {
+            store.add(new int[] {0});
+            assertEquals(4096, new File(directory, "states.dat").length());
+            assertEquals(4096, new File(directory, "states.idx").length());
+            for (int i = 1; i < 10000; i++) {
+                store.add(new int[] {i, i % 7});
+            }
+            // 10000 entries of 16 bytes
+            assertEquals(1 << 18, new File(directory, "states.idx").length());
+            assertArrayEquals(new int[] {0}, store.get(0));
+            for (int i = 1; i < 10000; i += 97) {
+                assertArrayEquals(new int[] {i, i % 7}, store.get(i));
+            }
+        } finally {
+            store.close();
+        }
+        assertFalse(directory.exists());
+    }
+
+    /**
+     * Tests that the explorer finds the same states with the mapped store.
+     */
+    @Test
+    public void testExplore() throws Exception {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(5));
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        ReachabilityGraph inMemory = explorer.explore();
+        MappedStateStore store = new MappedStateStore();
+        try {
+            explorer.setStore(store);
+            ReachabilityGraph mapped = explorer.explore();
+            assertEquals(inMemory.getStateCount(), mapped.getStateCount());
+            assertEquals(inMemory.getEdgeCount(), mapped.getEdgeCount());
+            assertArrayEquals(inMemory.getDeadlocks(), mapped.getDeadlocks());
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for Formula and ModelChecker.
+ * This class checks LTL and CTL properties of small nets and replays their counterexamples.
+ */
+public class ModelCheckerTest {
+
+    /** Returns a cycle of two places sharing one token. */
+    private static PetriNet cycle() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1});
+        return net;
+    }
+
+    /** Fires a sequence from the initial marking, failing if a transition cannot fire. */
+    private static Marking replay(NetTopology topology, int[] transitions) {
+        Marking marking = topology.getInitialMarking();
+        for (int t : transitions) {
+            assertTrue(topology.isEnabled(marking, t));
+            topology.fire(marking, t);
+        }
+        return marking;
+    }
+
+    /**
+     * Tests parsing, printing and errors of formulas, including ids named like operators.
+     */
+    @Test
+    public void testParse() {
+        PetriNet net = new PetriNet();
+        Place p = place(net, "F", 1);
+        Place q = place(net, "q", 0);
+        transition(net, "X", new Place[] {p}, new Place[] {q});
+        NetTopology topology = new NetTopology(net);
+
+        Formula formula = Formula.parse("G (X fires -> F F > 0 U q >= 1)", topology);
+        assertTrue(formula.isLtl());
+        assertFalse(formula.isCtl());
+        assertEquals(Formula.GLOBALLY, formula.getKind());
+        assertEquals("G (X fires -> (F (F > 0) U (q >= 1)))", formula.toString());
+        assertEquals(formula.toString(), Formula.parse(formula.toString(), topology).toString());
+
+        Formula ctl = Formula.parse("AG (dead || E[true U q = 1])", topology);
+        assertTrue(ctl.isCtl());
+        assertEquals("AG (dead || E[true U (q == 1)])", ctl.toString());
+        assertTrue(Formula.parse("!dead && q != 0", topology).isLtl());
+
+        String[] invalid = {"G p > 0", "F > x", "AG F q > 0", "E[q > 0]", "(q > 0", "q > 0 q", "Y fires", "q ? 1"};
+        for (String text : invalid) {
+            try {
+                Formula.parse(text, topology);
+                fail(text);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests LTL properties of a cycle, with a counterexample that repeats forever.
+     */
+    @Test
+    public void testLtlCycle() {
+        NetTopology topology = new NetTopology(cycle());
+        ModelChecker checker = new ModelChecker(topology);
+        assertTrue(checker.check("G (p1 > 0 || p2 > 0)").isSatisfied());
+        assertTrue(checker.check("G F t1 fires").isSatisfied());
+        assertTrue(checker.check("G (t1 fires -> X t2 fires)").isSatisfied());
+        assertTrue(checker.check("p1 > 0 U t1 fires").isSatisfied());
+
+        ModelCheckingResult result = checker.check("F G p2 > 0");
+        assertFalse(result.isSatisfied());
+        assertTrue(result.isComplete());
+        assertTrue(result.hasCounterexample());
+        assertFalse(result.endsInDeadlock());
+        int[] cycle = result.getCycle();
+        assertTrue(cycle.length > 0);
+        Marking start = replay(topology, result.getPrefix());
+        Marking end = replay(topology, concat(result.getPrefix(), cycle));
+        assertEquals(start, end);
+
+        result = checker.check("G t1 fires");
+        assertFalse(result.isSatisfied());
+        assertTrue(result.getCounterexampleText().contains("t2"));
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Tests LTL properties of a net that deadlocks.
+     */
+    @Test
+    public void testLtlDeadlock() {
+        PetriNet net = new PetriNet();
+        Place p = place(net, "p", 1);
+        Place q = place(net, "q", 0);
+        transition(net, "t", new Place[] {p}, new Place[] {q});
+        ModelChecker checker = new ModelChecker(net);
+
+        ModelCheckingResult result = checker.check("G !dead");
+        assertFalse(result.isSatisfied());
+        assertTrue(result.endsInDeadlock());
+        assertArrayEquals(new int[] {0}, result.getPrefix());
+        assertEquals("t dead", result.getCounterexampleText());
+        assertTrue(checker.check("F dead").isSatisfied());
+        assertTrue(checker.check("p > 0 U q > 0").isSatisfied());
+        assertTrue(checker.check("F G q == 1").isSatisfied());
+        assertFalse(checker.check("X X p > 0").isSatisfied());
+    }
+
+    /**
+     * Tests mutual exclusion and starvation of the dining philosophers in both logics, and
+     * that LTL and CTL agree on invariants.
+     */
+    @Test
+    public void testPhilosophers() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(3));
+        ModelChecker checker = new ModelChecker(topology);
+        assertTrue(checker.check("G !(eat0 > 0 && eat1 > 0)").isSatisfied());
+        assertTrue(checker.check("AG !(eat0 > 0 && eat1 > 0)").isSatisfied());
+        assertTrue(checker.check("EF dead").isSatisfied());
+        assertFalse(checker.check("AG EF think0 > 0").isSatisfied());
+        assertTrue(checker.check("EF eat0 > 0").isSatisfied());
+
+        ModelCheckingResult result = checker.check("G F eat0 > 0");
+        assertFalse(result.isSatisfied());
+        Marking end = replay(topology, result.getPrefix());
+        if (result.endsInDeadlock()) {
+            assertEquals(0, topology.getFirable(end).length);
+        }
+
+        result = checker.check("AF eat0 > 0");
+        assertFalse(result.isSatisfied());
+        assertTrue(result.hasCounterexample());
+        replay(topology, concat(result.getPrefix(), result.getCycle()));
+
+        result = checker.check("AG !dead");
+        assertFalse(result.isSatisfied());
+        assertEquals(0, topology.getFirable(replay(topology, result.getPrefix())).length);
+        assertEquals(3, result.getPrefix().length);
+
+        String[] invariants = {"left0 <= 1", "fork1 > 0 || left1 > 0 || eat1 > 0 || eat0 > 0", "think2 == 1", "!dead"};
+        for (String invariant : invariants) {
+            assertEquals(invariant, checker.check("G (" + invariant + ")").isSatisfied(), checker.check("AG (" + invariant + ")").isSatisfied());
+        }
+    }
+
+    /**
+     * Tests CTL properties of a cycle and of a sequence.
+     */
+    @Test
+    public void testCtl() {
+        ModelChecker checker = new ModelChecker(cycle());
+        assertTrue(checker.check("AG EF p1 > 0").isSatisfied());
+        assertTrue(checker.check("AG (t1 fires || t2 fires)").isSatisfied());
+        assertTrue(checker.check("EX p2 > 0").isSatisfied());
+        assertTrue(checker.check("AX p2 > 0").isSatisfied());
+        assertTrue(checker.check("EG !dead").isSatisfied());
+        assertFalse(checker.check("EG p1 > 0").isSatisfied());
+        ModelCheckingResult result = checker.check("AF (p1 == 0 && p2 == 0)");
+        assertFalse(result.isSatisfied());
+
+        PetriNet net = new PetriNet();
+        Place p = place(net, "p", 1);
+        Place q = place(net, "q", 0);
+        transition(net, "t", new Place[] {p}, new Place[] {q});
+        checker = new ModelChecker(net);
+        assertTrue(checker.check("A[p > 0 U q > 0]").isSatisfied());
+        assertTrue(checker.check("AF AG dead").isSatisfied());
+        result = checker.check("A[p > 0 U (dead && p > 0)]");
+        assertFalse(result.isSatisfied());
+        assertArrayEquals(new int[] {0}, result.getPrefix());
+        result = checker.check("AF p > 1");
+        assertFalse(result.isSatisfied());
+        assertTrue(result.endsInDeadlock());
+        assertEquals("t dead", result.getCounterexampleText());
+    }
+
+    /**
+     * Tests that the state limit leaves a property of an unbounded net undecided.
+     */
+    @Test
+    public void testMaxStates() {
+        PetriNet net = new PetriNet();
+        Place ready = place(net, "ready", 1);
+        Place buffer = place(net, "buffer", 0);
+        transition(net, "produce", new Place[] {ready}, new Place[] {ready, buffer});
+        ModelChecker checker = new ModelChecker(net);
+        checker.setMaxStates(50);
+        ModelCheckingResult result = checker.check("G ready > 0");
+        assertTrue(result.isSatisfied());
+        assertFalse(result.isComplete());
+        assertFalse(checker.check("AG ready > 0").isComplete());
+        result = checker.check("G buffer < 10");
+        assertFalse(result.isSatisfied());
+        assertEquals(11, result.getPrefix().length);
+        assertNull(result.getCycle());
+    }
+}
@@ -0,0 +1,148 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for NetTopology and Marking.
+ * This class fires transitions on markings of one shared topology and checks that markings
+ * are independent of each other and of the net the topology was built from.
+ */
+public class NetTopologyTest {
+
+    /**
+     * Builds the net p1 -> t1 -> p2 -> t2 -> p1 with a number of tokens in p1 and a
+     * capacity on p2.
+     */
+    private PetriNet cycle(int tokens, int capacity) {
+        PetriNet net = new PetriNet();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        p2.setCapacity(capacity);
+        Transition t1 = new Transition("t1");
+        Transition t2 = new Transition("t2");
+        for (int i = 0; i < tokens; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        net.addPlace(p1);
+        net.addPlace(p2);
+        net.addTransition(t1);
+        net.addTransition(t2);
+        net.addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        net.addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+        net.addInputArc(new InputArc("i2", p2, t2, "new Integer(1)"));
+        net.addOutputArc(new OutputArc("o2", p1, t2, "new Integer(1)"));
+        return net;
+    }
+
+    /**
+     * Tests firing and enabling on token counts.
+     */
+    @Test
+    public void testFire() {
+        NetTopology topology = new NetTopology(cycle(2, 0));
+        assertEquals(2, topology.getPlaceCount());
+        assertEquals(2, topology.getTransitionCount());
+        assertTrue(topology.isExact());
+        int t1 = topology.indexOfTransition("t1");
+        int t2 = topology.indexOfTransition("t2");
+        int p2 = topology.indexOfPlace("p2");
+
+        Marking m0 = topology.getInitialMarking();
+        assertEquals("[2, 0]", m0.toString());
+        assertTrue(topology.isEnabled(m0, t1));
+        assertFalse(topology.isEnabled(m0, t2));
+
+        Marking m1 = topology.successor(m0, t1);
+        assertEquals(1, m1.get(p2));
+        assertEquals(0, m0.get(p2));
+        assertEquals(2, m1.total());
+        topology.fire(m1, t2);
+        assertEquals(m0, m1);
+        assertEquals(m0.hashCode(), m1.hashCode());
+    }
+
+    /**
+     * Tests that a full output place blocks a transition.
+     */
+    @Test
+    public void testCapacity() {
+        NetTopology topology = new NetTopology(cycle(3, 1));
+        int t1 = topology.indexOfTransition("t1");
+        Marking m = topology.getInitialMarking();
+        topology.fire(m, t1);
+        assertFalse(topology.isEnabled(m, t1));
+        assertArrayEquals(new int[] {topology.indexOfTransition("t2")}, topology.getFirable(m));
+    }
+
+    /**
+     * Tests that the topology keeps the structure and marking it was built from.
+     */
+    @Test
+    public void testImmutable() {
+        PetriNet net = cycle(1, 0);
+        NetTopology topology = new NetTopology(net);
+        net.addTransition(new Transition("t3"));
+        ((Place) net.getNetElement("p1")).getTokens().clear();
+
+        assertEquals(2, topology.getTransitionCount());
+        assertEquals(-1, topology.indexOfTransition("t3"));
+        Marking m = topology.getInitialMarking();
+        m.set(0, 5);
+        assertEquals(1, topology.getInitialMarking().get(0));
+    }
+
+    /**
+     * Tests that a guard marks a transition as data-dependent.
+     */
+    @Test
+    public void testDataDependent() {
+        PetriNet net = cycle(1, 0);
+        ((Transition) net.getNetElement("t2")).setGuardText("return false;");
+        NetTopology topology = new NetTopology(net);
+        assertFalse(topology.isDataDependent(topology.indexOfTransition("t1")));
+        assertTrue(topology.isDataDependent(topology.indexOfTransition("t2")));
+        assertFalse(topology.isExact());
+    }
+
+    /**
+     * Tests many markings run concurrently on one topology.
+     */
+    @Test
+    public void testSharedTopology() throws Exception {
+        final NetTopology topology = new NetTopology(cycle(4, 0));
+        final List<Marking> markings = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            markings.add(topology.getInitialMarking());
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            final int offset = k;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(offset);
+                    for (int i = offset; i < markings.size(); i += 4) {
+                        Marking m = markings.get(i);
+                        for (int step = 0; step < 100; step++) {
+                            topology.fire(m, topology.select(m, random));
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Marking m : markings) {
+            assertEquals(4, m.total());
+        }
+    }
+}
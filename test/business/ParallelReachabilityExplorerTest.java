@@ -0,0 +1,173 @@
+package business;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for ParallelReachabilityExplorer and ConcurrentStateStore.
+ * This class compares parallel explorations with the sequential explorer.
+ */
+public class ParallelReachabilityExplorerTest {
+
+    /**
+     * Builds a net of independent cycles p(i)a -> t(i)a -> p(i)b -> t(i)b -> p(i)a with two
+     * tokens each, so every cycle has three markings.
+     */
+    private PetriNet cycles(int count) {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < count; i++) {
+            Place a = place(net, "p" + i + "a", 2);
+            Place b = place(net, "p" + i + "b", 0);
+            transition(net, "t" + i + "a", new Place[] {a}, new Place[] {b});
+            transition(net, "t" + i + "b", new Place[] {b}, new Place[] {a});
+        }
+        return net;
+    }
+
+    /**
+     * Tests that the parallel explorer counts the same states and firings as the sequential one.
+     */
+    @Test
+    public void testSameAsSequential() {
+        NetTopology topology = new NetTopology(cycles(6));
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        ParallelReachabilityExplorer explorer = new ParallelReachabilityExplorer(topology);
+        explorer.setThreads(4);
+        final AtomicInteger reports = new AtomicInteger();
+        explorer.addExplorationListener(new ExplorationListener() {
+            @Override
+            public void progress(long states, long edges, long elapsed) {
+                reports.incrementAndGet();
+            }
+        });
+        ExplorationResult result = explorer.explore();
+
+        assertEquals(729, graph.getStateCount());
+        assertTrue(result.isComplete());
+        assertEquals(graph.getStateCount(), result.getStateCount());
+        assertEquals(graph.getEdgeCount(), result.getEdgeCount());
+        assertEquals(0, result.getDeadlockCount());
+        assertEquals(729, result.getStore().size());
+        assertTrue(result.getStore().indexOf(new int[] {0, 2, 1, 1, 2, 0, 0, 2, 1, 1, 2, 0}) >= 0);
+        assertTrue(reports.get() >= 1);
+    }
+
+    /**
+     * Tests that dead states are counted and kept.
+     */
+    @Test
+    public void testDeadlocks() {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < 3; i++) {
+            Place a = place(net, "p" + i + "a", 1);
+            Place b = place(net, "p" + i + "b", 0);
+            transition(net, "t" + i, new Place[] {a}, new Place[] {b});
+        }
+        ParallelReachabilityExplorer explorer = new ParallelReachabilityExplorer(net);
+        explorer.setThreads(3);
+        ExplorationResult result = explorer.explore();
+        assertEquals(8, result.getStateCount());
+        assertEquals(1, result.getDeadlockCount());
+        assertEquals(new Marking(new int[] {0, 1, 0, 1, 0, 1}), result.getDeadlocks().get(0));
+    }
+
+    /**
+     * Tests that the state limit stops the exploration of an unbounded net.
+     */
+    @Test
+    public void testMaxStates() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p1, p2});
+        ParallelReachabilityExplorer explorer = new ParallelReachabilityExplorer(net);
+        explorer.setMaxStates(1000);
+        ExplorationResult result = explorer.explore();
+        assertFalse(result.isComplete());
+        assertTrue(result.getStateCount() > 1000);
+    }
+
+    /**
+     * Tests that a worker running out of memory leaves the result incomplete and that other
+     * errors of a worker are thrown.
+     */
+    @Test
+    public void testWorkerErrors() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p1, p2});
+        ParallelReachabilityExplorer explorer = new ParallelReachabilityExplorer(net);
+        explorer.setStore(new FailingStore(new OutOfMemoryError("test")));
+        assertFalse(explorer.explore().isComplete());
+        explorer.setStore(new FailingStore(new StackOverflowError("test")));
+        try {
+            explorer.explore();
+            fail();
+        } catch (StackOverflowError expected) {
+            assertEquals("test", expected.getMessage());
+        }
+    }
+
+    /**
+     * A store failing with an error once it holds 100 markings.
+     */
+    private static class FailingStore extends ConcurrentStateStore {
+
+        private final Error error;
+
+        FailingStore(Error error) {
+            super(4);
+            this.error = error;
+        }
+
+        @Override
+        public int add(int[] marking) {
+            if (size() >= 100) {
+                throw error;
+            }
+            return super.add(marking);
+        }
+    }
+
+    /**
+     * Tests that threads adding the same markings to a concurrent store get one number per marking.
+     */
+    @Test
+    public void testConcurrentStore() throws Exception {
+        final ConcurrentStateStore store = new ConcurrentStateStore(8);
+        final Set<Integer> numbers = new HashSet<>();
+        Thread[] threads = new Thread[4];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        int index = store.add(new int[] {i, i % 13});
+                        if (index >= 0) {
+                            synchronized (numbers) {
+                                numbers.add(index);
+                            }
+                        }
+                    }
+                }
+            };
+            threads[k].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20000, store.size());
+        assertEquals(20000, numbers.size());
+        for (int i = 0; i < 20000; i += 101) {
+            int index = store.indexOf(new int[] {i, i % 13});
+            assertTrue(numbers.contains(index));
+            assertArrayEquals(new int[] {i, i % 13}, store.get(index));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ParameterSweep.
+ * This class sweeps the markings, rates and declared constants of small nets and checks
+ * that every point runs on its own copy of the net, with the net compiled only when a
+ * constant changes.
+ */
+public class ParameterSweepTest {
+
+    private Session session;
+    private Place p0;
+    private Transition tA;
+
+    /**
+     * Builds the cycle p0 -> tA -> p1 -> tB -> p0 with exponential transitions and one
+     * token in p0.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+        p0 = new Place("p0");
+        Place p1 = new Place("p1");
+        Token token = new Token(null);
+        token.setInitialMarkingExpression("new Integer(1)");
+        p0.addToken(new TokenSet(token));
+        tA = new Transition("tA");
+        tA.setTiming(Transition.EXPONENTIAL);
+        Transition tB = new Transition("tB");
+        tB.setTiming(Transition.EXPONENTIAL);
+        session.getPetriNet().addPlace(p0);
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addTransition(tA);
+        session.getPetriNet().addTransition(tB);
+        session.getPetriNet().addInputArc(new InputArc("i1", p0, tA, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p1, tA, "new Integer(1)"));
+        session.getPetriNet().addInputArc(new InputArc("i2", p1, tB, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o2", p0, tB, "new Integer(1)"));
+    }
+
+    /** Returns a sweep of the cycle that runs every point for 100 time units. */
+    private ParameterSweep cycleSweep() {
+        ParameterSweep sweep = new ParameterSweep(session.getPetriNet());
+        sweep.addParameter(new SweepParameter(SweepParameter.MARKING, "p0", 1, 2, 3));
+        sweep.addParameter(new SweepParameter(SweepParameter.RATE, "tA", 1, 4));
+        sweep.setSeed(5);
+        sweep.setConfigurator(new ParameterSweep.Configurator() {
+            public void configure(Simulation simulation, SweepPoint point) {
+                simulation.addStopCondition(new TimeLimit(100));
+            }
+        });
+        return sweep;
+    }
+
+    /**
+     * Tests that the grid runs every combination on one compiled class, conserving the
+     * tokens of each point, and leaves the edited net unchanged.
+     */
+    @Test
+    public void testGrid() throws Exception {
+        ParameterSweep sweep = cycleSweep();
+        ArrayList<SweepPoint> points = sweep.gridPoints();
+        assertEquals(6, points.size());
+        assertEquals(2.0, points.get(2).getValue("p0"), 0);
+        assertEquals(1.0, points.get(2).getValue("tA"), 0);
+
+        ArrayList<SweepResult> results = sweep.run(points);
+        assertEquals(6, results.size());
+        assertEquals(1, sweep.getCompiledClassCount());
+        for (int i = 0; i < results.size(); i++) {
+            SweepResult result = results.get(i);
+            assertNull(result.getError());
+            assertSame(points.get(i), result.getPoint());
+            assertTrue(result.getStopReason() instanceof TimeLimit);
+            SimulationStatistics statistics = result.getStatistics();
+            double now = statistics.getNow();
+            double tokens = statistics.getPlace("p0").getMean(now) + statistics.getPlace("p1").getMean(now);
+            assertEquals(result.getPoint().getValue("p0"), tokens, 1e-6);
+        }
+        // A faster tA leaves fewer tokens waiting in p0
+        double slow = results.get(4).getStatistics().getPlace("p0").getMean(100);
+        double fast = results.get(5).getStatistics().getPlace("p0").getMean(100);
+        assertTrue(fast < slow);
+
+        assertEquals(1, p0.getTokens().size());
+        assertEquals("1.0", tA.getDelayText());
+    }
+
+    /**
+     * Tests that the results do not depend on the number of threads.
+     */
+    @Test
+    public void testThreadsDoNotChangeResults() throws Exception {
+        ParameterSweep sweep = cycleSweep();
+        sweep.setThreads(1);
+        ArrayList<SweepResult> sequential = sweep.run(sweep.gridPoints());
+        sweep.setThreads(4);
+        ArrayList<SweepResult> parallel = sweep.run(sweep.gridPoints());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getSteps(), parallel.get(i).getSteps());
+        }
+    }
+
+    /**
+     * Tests that a constant is compiled into the net, once per value.
+     */
+    @Test
+    public void testConstant() throws Exception {
+        session = new Session();
+        Place source = new Place("source");
+        Place sink = new Place("sink");
+        for (int i = 0; i < 5; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            source.addToken(new TokenSet(token));
+        }
+        Transition move = new Transition("move");
+        move.setGuardText("return sink.getTokens().size() < LIMIT;");
+        session.getPetriNet().addPlace(source);
+        session.getPetriNet().addPlace(sink);
+        session.getPetriNet().addTransition(move);
+        session.getPetriNet().addInputArc(new InputArc("i1", source, move, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", sink, move, "new Integer(1)"));
+        session.getPetriNet().setDeclarationText("static final int LIMIT = 1;");
+
+        ParameterSweep sweep = new ParameterSweep(session.getPetriNet());
+        sweep.addParameter(new SweepParameter(SweepParameter.CONSTANT, "LIMIT", 1, 3, 1));
+        ArrayList<SweepResult> results = sweep.run(sweep.gridPoints());
+        assertEquals(1, results.get(0).getSteps());
+        assertEquals(3, results.get(1).getSteps());
+        assertEquals(1, results.get(2).getSteps());
+        assertEquals(2, sweep.getCompiledClassCount());
+    }
+
+    /**
+     * Tests that a Latin hypercube sample puts exactly one point in every stratum.
+     */
+    @Test
+    public void testLatinHypercube() {
+        ParameterSweep sweep = new ParameterSweep(session.getPetriNet());
+        sweep.addParameter(new SweepParameter(SweepParameter.RATE, "tA", 0, 10));
+        ArrayList<SweepPoint> points = sweep.latinHypercube(5, new Random(3));
+        boolean[] seen = new boolean[5];
+        for (SweepPoint point : points) {
+            int stratum = (int) (point.getValue(0) / 2);
+            assertFalse(seen[stratum]);
+            seen[stratum] = true;
+        }
+    }
+
+    /**
+     * Tests that a parameter of an unknown element is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTarget() {
+        new ParameterSweep(session.getPetriNet()).addParameter(new SweepParameter(SweepParameter.CAPACITY, "p9", 1));
+    }
+}
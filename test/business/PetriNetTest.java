@@ -62,4 +62,76 @@ public class PetriNetTest {
         petriNet.addTransition(transition);
         assertTrue(petriNet.getTransitions().contains(transition));
     }
+
+    /**
+     * Tests that objects created through a net get ids of that net, skipping ids in use.
+     */
+    @Test
+    public void testCreateIds() {
+        petriNet.addPlace(new Place("p1"));
+        assertEquals("p0", petriNet.createPlace().getId());
+        assertEquals("p2", petriNet.createPlace().getId());
+        assertEquals("t3", petriNet.createTransition().getId());
+        PetriNet other = new PetriNet();
+        assertEquals("p0", other.createPlace().getId());
+    }
+
+    /**
+     * Tests that indices stay dense when objects are removed, together with their arcs.
+     */
+    @Test
+    public void testIndices() {
+        Place p0 = petriNet.createPlace();
+        Place p1 = petriNet.createPlace();
+        Place p2 = petriNet.createPlace();
+        Transition t0 = petriNet.createTransition();
+        Transition t1 = petriNet.createTransition();
+        InputArc a0 = petriNet.createInputArc(p0, t0);
+        InputArc a1 = petriNet.createInputArc(p1, t1);
+        OutputArc a2 = petriNet.createOutputArc(p2, t1);
+        assertEquals(2, p2.getIndex());
+        assertEquals(1, a1.getIndex());
+        assertEquals(1, petriNet.getInputArcs(t1).size());
+        assertSame(a2, petriNet.getOutputArcs(t1).get(0));
+
+        petriNet.removePlace(p0);
+        assertEquals(-1, p0.getIndex());
+        assertEquals(0, p1.getIndex());
+        assertSame(p2, petriNet.getPlace(1));
+        assertEquals(0, a1.getIndex());
+        assertNull(petriNet.getNetElement(a0.getId()));
+        assertTrue(petriNet.getInputArcs(t0).isEmpty());
+
+        petriNet.removeTransition(t0);
+        assertEquals(0, t1.getIndex());
+        assertSame(a1, petriNet.getInputArcs(t1).get(0));
+    }
+
+    /**
+     * Tests that places added by several threads at once all get distinct dense indices.
+     */
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 2000; j++) {
+                        petriNet.addPlace(new Place("q" + thread + "_" + j));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8000, petriNet.getPlaces().size());
+        for (int i = 0; i < 8000; i++) {
+            assertEquals(i, petriNet.getPlace(i).getIndex());
+        }
+        assertEquals(8000, petriNet.getNetElements().size());
+    }
 }
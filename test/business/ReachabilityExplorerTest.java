@@ -0,0 +1,130 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for ReachabilityExplorer and ReachabilityGraph.
+ * This class explores small nets whose state spaces are known.
+ */
+public class ReachabilityExplorerTest {
+
+    /**
+     * Adds a place with a number of tokens to a net.
+     */
+    static Place place(PetriNet net, String id, int tokens) {
+        Place place = new Place(id);
+        for (int i = 0; i < tokens; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            place.addToken(new TokenSet(token));
+        }
+        net.addPlace(place);
+        return place;
+    }
+
+    /**
+     * Adds a transition with arcs from and to places to a net.
+     */
+    static Transition transition(PetriNet net, String id, Place[] inputs, Place[] outputs) {
+        Transition transition = new Transition(id);
+        net.addTransition(transition);
+        for (Place input : inputs) {
+            net.addInputArc(new InputArc(net.nextId("i"), input, transition, "new Integer(1)"));
+        }
+        for (Place output : outputs) {
+            net.addOutputArc(new OutputArc(net.nextId("o"), output, transition, "new Integer(1)"));
+        }
+        return transition;
+    }
+
+    /**
+     * Tests a live cycle of two places.
+     */
+    @Test
+    public void testCycle() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 2);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1});
+
+        ReachabilityGraph graph = new ReachabilityExplorer(net).explore();
+        assertTrue(graph.isComplete());
+        assertEquals(3, graph.getStateCount());
+        assertEquals(4, graph.getEdgeCount());
+        assertFalse(graph.hasDeadlock());
+        assertTrue(graph.isReachable(new Marking(new int[] {0, 2})));
+        assertFalse(graph.isReachable(new Marking(new int[] {1, 0})));
+        assertEquals("t1 t1", graph.getPathText(graph.indexOf(new Marking(new int[] {0, 2}))));
+    }
+
+    /**
+     * Tests that a dead marking is found together with a firing sequence to it.
+     */
+    @Test
+    public void testDeadlock() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 1);
+        Place p3 = place(net, "p3", 0);
+        transition(net, "t1", new Place[] {p1, p2}, new Place[] {p3});
+        transition(net, "t2", new Place[] {p3}, new Place[] {p1});
+
+        ReachabilityGraph graph = new ReachabilityExplorer(net).explore();
+        assertEquals(3, graph.getStateCount());
+        assertArrayEquals(new int[] {2}, graph.getDeadlocks());
+        assertEquals("t1 t2", graph.getPathText(2));
+        assertEquals(new Marking(new int[] {1, 0, 0}), graph.getMarking(2));
+    }
+
+    /**
+     * Tests that the state limit stops the exploration of an unbounded net.
+     */
+    @Test
+    public void testMaxStates() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p1, p2});
+
+        ReachabilityExplorer explorer = new ReachabilityExplorer(net);
+        explorer.setMaxStates(100);
+        ReachabilityGraph graph = explorer.explore();
+        assertFalse(graph.isComplete());
+        assertEquals(100, graph.getExploredCount());
+        assertEquals(101, graph.getStateCount());
+    }
+
+    /**
+     * Tests that vanishing markings are skipped and immediate choices become probabilities.
+     */
+    @Test
+    public void testEliminateVanishing() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        Place p3 = place(net, "p3", 0);
+        Place p4 = place(net, "p4", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2}).setTiming(Transition.EXPONENTIAL);
+        transition(net, "t2", new Place[] {p2}, new Place[] {p3});
+        transition(net, "t3", new Place[] {p2}, new Place[] {p4}).setWeight(3);
+        transition(net, "t4", new Place[] {p3}, new Place[] {p1}).setTiming(Transition.EXPONENTIAL);
+        transition(net, "t5", new Place[] {p4}, new Place[] {p1}).setTiming(Transition.EXPONENTIAL);
+
+        ReachabilityExplorer explorer = new ReachabilityExplorer(net);
+        assertEquals(4, explorer.explore().getStateCount());
+        explorer.setEliminateVanishing(true);
+        ReachabilityGraph graph = explorer.explore();
+        assertEquals(3, graph.getStateCount());
+        assertEquals(2, graph.getEdgeEnd(0) - graph.getFirstEdge(0));
+        double sum = 0;
+        for (int e = graph.getFirstEdge(0); e < graph.getEdgeEnd(0); e++) {
+            assertEquals(0, graph.getEdgeTransition(e));
+            Marking target = graph.getMarking(graph.getEdgeTarget(e));
+            assertEquals(target.get(3) == 1 ? 0.75 : 0.25, graph.getEdgeProbability(e), 1e-12);
+            sum += graph.getEdgeProbability(e);
+        }
+        assertEquals(1, sum, 1e-12);
+    }
+}
@@ -0,0 +1,81 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for Session.
+ * This class compiles and simulates two sessions side by side and checks that they neither
+ * share state with each other nor touch the default net.
+ */
+public class SessionTest {
+
+    /**
+     * Builds a session with the net p1 -> t1 -> p2 and a number of tokens in p1.
+     */
+    private Session session(int tokens) {
+        PetriNet net = new PetriNet();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        for (int i = 0; i < tokens; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        net.addPlace(p1);
+        net.addPlace(p2);
+        net.addTransition(t1);
+        net.addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        net.addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+        return new Session(net);
+    }
+
+    /** Returns the number of tokens in a place of a net. */
+    private int tokens(PetriNet net, String placeId) {
+        return ((Place) net.getNetElement(placeId)).getTokens().size();
+    }
+
+    /**
+     * Tests that compiling a session replaces its own net only.
+     */
+    @Test
+    public void testCompile() throws Exception {
+        PetriNet defaultNet = new PetriNet();
+        Global.petriNet = defaultNet;
+        Session session = session(2);
+        PetriNet edited = session.getPetriNet();
+
+        PetriNet compiled = session.compile();
+        assertNotSame(edited, compiled);
+        assertSame(compiled, session.getPetriNet());
+        assertEquals(2, tokens(compiled, "p1"));
+        assertSame(defaultNet, Global.petriNet);
+
+        Session other = session(1);
+        Simulation simulation = new TimedSimulation(other);
+        assertSame(simulation.getNet(), other.getPetriNet());
+        assertSame(defaultNet, Global.petriNet);
+    }
+
+    /**
+     * Tests that two sessions run concurrently on their own nets.
+     */
+    @Test
+    public void testConcurrentSimulations() throws Exception {
+        Session small = session(3);
+        Session large = session(500);
+        Simulation first = new TimedSimulation(small.compile());
+        Simulation second = new TimedSimulation(large.compile());
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        assertEquals(3, first.getSteps());
+        assertEquals(500, second.getSteps());
+        assertEquals(3, tokens(small.getPetriNet(), "p2"));
+        assertEquals(500, tokens(large.getPetriNet(), "p2"));
+        assertEquals(0, tokens(large.getPetriNet(), "p1"));
+    }
+}
@@ -0,0 +1,100 @@
+package business;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for SimulationCheckpoint.
+ * This class runs a small timed simulation, checkpoints it, and verifies that restoring the
+ * checkpoint brings back the marking, step count and random generator state.
+ */
+public class SimulationCheckpointTest {
+
+    private Session session;
+    private TimedSimulation simulation;
+
+    /**
+     * Builds the net p1 -> t1 -> p2 with three tokens in p1 and compiles it into a simulation.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        for (int i = 0; i < 3; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addPlace(p2);
+        session.getPetriNet().addTransition(t1);
+        session.getPetriNet().addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+
+        simulation = new TimedSimulation(session);
+    }
+
+    /** Returns the number of tokens in a place of the compiled net. */
+    private int tokens(String placeId) {
+        return ((Place) session.getPetriNet().getNetElement(placeId)).getTokens().size();
+    }
+
+    /**
+     * Tests that a serialized checkpoint restores the marking, step count and random state.
+     */
+    @Test
+    public void testCheckpointAndRestore() throws Exception {
+        simulation.fireTransition();
+        assertEquals(2, tokens("p1"));
+        assertEquals(1, tokens("p2"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(simulation.createCheckpoint());
+        out.close();
+        int expectedChoice = simulation.getRandom().nextInt(1000);
+
+        simulation.fireTransition();
+        simulation.fireTransition();
+        assertEquals(0, tokens("p1"));
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        SimulationCheckpoint checkpoint = (SimulationCheckpoint) in.readObject();
+        simulation.restore(checkpoint);
+
+        assertEquals(2, tokens("p1"));
+        assertEquals(1, tokens("p2"));
+        assertEquals(1, simulation.getSteps());
+        assertEquals(Integer.valueOf(1), ((Place) session.getPetriNet().getNetElement("p2")).getTokens().get(0).getObject());
+        assertEquals(expectedChoice, simulation.getRandom().nextInt(1000));
+    }
+
+    /**
+     * Tests that a checkpoint restored twice replays the same random choices both times.
+     */
+    @Test
+    public void testRestoreTwice() {
+        SimulationCheckpoint checkpoint = simulation.createCheckpoint();
+        simulation.restore(checkpoint);
+        int first = simulation.getRandom().nextInt(1000000);
+        simulation.restore(checkpoint);
+        assertEquals(first, simulation.getRandom().nextInt(1000000));
+    }
+
+    /**
+     * Tests that restoring a checkpoint of a different net is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRestoreUnknownPlace() {
+        SimulationCheckpoint checkpoint = simulation.createCheckpoint();
+        checkpoint.getMarking().put("p99", new TokenSet());
+        simulation.restore(checkpoint);
+    }
+}
@@ -0,0 +1,98 @@
+package business;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for SimulationStatistics.
+ * This class runs the net p1 -> t1 -> p2 with three tokens in p1 until it deadlocks and
+ * checks the time-weighted statistics, measured in steps, against hand-computed values.
+ */
+public class SimulationStatisticsTest {
+
+    private static final double DELTA = 1e-9;
+
+    private Session session;
+    private Simulation simulation;
+    private SimulationStatistics statistics;
+
+    /**
+     * Builds the net and a headless simulation with statistics attached.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        for (int i = 0; i < 3; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addPlace(p2);
+        session.getPetriNet().addTransition(t1);
+        session.getPetriNet().addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+
+        simulation = new Simulation(session);
+        statistics = new SimulationStatistics();
+        simulation.setStatistics(statistics);
+    }
+
+    /**
+     * Checks the statistics of a complete run: p1 holds 3, 2, 1 tokens during the three
+     * steps and p2 holds 0, 1, 2.
+     */
+    private void assertCompleteRun() {
+        assertEquals(3, statistics.getFirings());
+        assertEquals(3.0, statistics.getElapsed(), DELTA);
+
+        PlaceStatistics p1 = statistics.getPlace("p1");
+        assertEquals(2.0, p1.getMean(statistics.getNow()), DELTA);
+        assertEquals(0, p1.getMin());
+        assertEquals(3, p1.getMax());
+        assertEquals(1.0, p1.getBusyRatio(statistics.getNow()), DELTA);
+
+        PlaceStatistics p2 = statistics.getPlace("p2");
+        assertEquals(1.0, p2.getMean(statistics.getNow()), DELTA);
+        assertEquals(3, p2.getMax());
+        assertEquals(2.0 / 3.0, p2.getBusyRatio(statistics.getNow()), DELTA);
+
+        TransitionStatistics t1 = statistics.getTransition("t1");
+        assertEquals(3, t1.getFirings());
+        assertEquals(1.0, t1.getThroughput(statistics.getElapsed()), DELTA);
+    }
+
+    /**
+     * Tests the statistics of a run to deadlock.
+     */
+    @Test
+    public void testRun() {
+        simulation.run();
+        assertCompleteRun();
+        assertTrue(statistics.toString().contains("p1"));
+    }
+
+    /**
+     * Tests that statistics saved in a checkpoint continue when the run is resumed.
+     */
+    @Test
+    public void testResumeFromCheckpoint() {
+        StepLimit limit = new StepLimit(1);
+        simulation.addStopCondition(limit);
+        simulation.run();
+        SimulationCheckpoint checkpoint = simulation.createCheckpoint();
+        assertEquals(1, checkpoint.getStatistics().getFirings());
+
+        simulation.removeStopCondition(limit);
+        simulation.run();
+        simulation.restore(checkpoint);
+        assertEquals(1, statistics.getFirings());
+
+        simulation.run();
+        assertCompleteRun();
+    }
+}
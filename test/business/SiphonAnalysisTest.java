@@ -0,0 +1,201 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for SiphonAnalysis.
+ * This class compares the minimal siphons of small nets with all subsets of their places and
+ * checks the deadlock answers against the reachability graph.
+ */
+public class SiphonAnalysisTest {
+
+    /** Checks whether a set of places is a siphon by its definition. */
+    private static boolean isSiphon(NetTopology topology, boolean[] set) {
+        for (int t = 0; t < topology.getTransitionCount(); t++) {
+            boolean fills = false;
+            for (int i = 0; i < topology.getOutputCount(t); i++) {
+                fills |= set[topology.getOutputPlace(t, i)];
+            }
+            boolean takes = false;
+            for (int i = 0; i < topology.getInputCount(t); i++) {
+                takes |= set[topology.getInputPlace(t, i)];
+            }
+            if (fills && !takes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the minimal siphons of a small net from all subsets of its places. */
+    private static Set<String> bruteForce(NetTopology topology) {
+        int n = topology.getPlaceCount();
+        List<Integer> siphons = new ArrayList<>();
+        for (int mask = 1; mask < 1 << n; mask++) {
+            boolean[] set = new boolean[n];
+            for (int p = 0; p < n; p++) {
+                set[p] = (mask & 1 << p) != 0;
+            }
+            if (isSiphon(topology, set)) {
+                siphons.add(mask);
+            }
+        }
+        Set<String> minimal = new HashSet<>();
+        for (int a : siphons) {
+            boolean isMinimal = true;
+            for (int b : siphons) {
+                if (b != a && (b & a) == b) {
+                    isMinimal = false;
+                }
+            }
+            if (isMinimal) {
+                StringBuilder text = new StringBuilder();
+                for (int p = 0; p < n; p++) {
+                    if ((a & 1 << p) != 0) {
+                        text.append(p).append(' ');
+                    }
+                }
+                minimal.add(text.toString());
+            }
+        }
+        return minimal;
+    }
+
+    private static Set<String> texts(List<int[]> siphons) {
+        Set<String> result = new HashSet<>();
+        for (int[] siphon : siphons) {
+            StringBuilder text = new StringBuilder();
+            for (int p : siphon) {
+                text.append(p).append(' ');
+            }
+            result.add(text.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Tests that the dining philosophers have a siphon without a marked trap, the places
+     * empty in their deadlock, and that the search finds exactly the minimal siphons.
+     */
+    @Test
+    public void testPhilosophers() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(3));
+        SiphonAnalysis analysis = new SiphonAnalysis(topology);
+        List<int[]> siphons = analysis.getMinimalSiphons();
+        assertEquals(bruteForce(topology), texts(siphons));
+        assertEquals(siphons.size(), texts(siphons).size());
+        assertFalse(analysis.isCommoner());
+        assertFalse(analysis.isDeadlockFree());
+        assertFalse(analysis.isFreeChoice());
+        assertTrue(analysis.isOrdinary());
+        int[] counterexample = analysis.getCounterexample();
+        assertNotNull(counterexample);
+        assertFalse(analysis.hasMarkedTrap(counterexample));
+        assertTrue(texts(siphons).containsAll(texts(analysis.getUncontrolledSiphons())));
+        assertFalse(analysis.getUncontrolledSiphons().isEmpty());
+        assertTrue(new ReachabilityExplorer(topology).explore().hasDeadlock());
+    }
+
+    /**
+     * Tests a free-choice net with a choice that comes back together, which is live.
+     */
+    @Test
+    public void testLiveFreeChoice() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        Place p3 = place(net, "p3", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2});
+        transition(net, "t2", new Place[] {p1}, new Place[] {p3});
+        transition(net, "t3", new Place[] {p2}, new Place[] {p1});
+        transition(net, "t4", new Place[] {p3}, new Place[] {p1});
+
+        SiphonAnalysis analysis = new SiphonAnalysis(net);
+        assertEquals(1, analysis.getMinimalSiphons().size());
+        assertEquals("{p1, p2, p3}", analysis.getText(analysis.getMinimalSiphons().get(0)));
+        assertArrayEquals(new int[] {0, 1, 2}, analysis.getMaximalTrap(new int[] {0, 1, 2}));
+        assertTrue(analysis.isCommoner());
+        assertNull(analysis.getCounterexample());
+        assertTrue(analysis.isFreeChoice());
+        assertTrue(analysis.isDeadlockFree());
+        assertTrue(analysis.isLive());
+    }
+
+    /**
+     * Tests a sequence that ends in a place nothing takes from, and an initially empty cycle.
+     */
+    @Test
+    public void testDeadlock() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        Place q1 = place(net, "q1", 0);
+        Place q2 = place(net, "q2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2});
+        transition(net, "u1", new Place[] {q1}, new Place[] {q2});
+        transition(net, "u2", new Place[] {q2}, new Place[] {q1});
+
+        SiphonAnalysis analysis = new SiphonAnalysis(net);
+        NetTopology topology = new NetTopology(net);
+        assertEquals(bruteForce(topology), texts(analysis.getMinimalSiphons()));
+        assertEquals(2, analysis.getUncontrolledSiphons().size());
+        assertEquals(0, analysis.getMaximalTrap(new int[] {0}).length);
+        assertFalse(analysis.isCommoner());
+        assertFalse(analysis.isDeadlockFree());
+        assertFalse(analysis.isLive());
+    }
+
+    /**
+     * Tests that siphons are found on random nets exactly as by their definition.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(7);
+        for (int round = 0; round < 30; round++) {
+            PetriNet net = new PetriNet();
+            int n = 3 + random.nextInt(7);
+            Place[] p = new Place[n];
+            for (int i = 0; i < n; i++) {
+                p[i] = place(net, "p" + i, random.nextInt(2));
+            }
+            int m = 2 + random.nextInt(8);
+            for (int j = 0; j < m; j++) {
+                Place[] in = new Place[random.nextInt(3)];
+                Place[] out = new Place[1 + random.nextInt(2)];
+                for (int i = 0; i < in.length; i++) {
+                    in[i] = p[random.nextInt(n)];
+                }
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = p[random.nextInt(n)];
+                }
+                transition(net, "t" + j, in, out);
+            }
+            NetTopology topology = new NetTopology(net);
+            SiphonAnalysis analysis = new SiphonAnalysis(topology);
+            assertEquals(bruteForce(topology), texts(analysis.getMinimalSiphons()));
+            if (analysis.isDeadlockFree()) {
+                ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+                explorer.setMaxStates(20000);
+                assertFalse(explorer.explore().hasDeadlock());
+            }
+        }
+    }
+
+    /**
+     * Tests that the node limit stops the search.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMaxNodes() {
+        SiphonAnalysis analysis = new SiphonAnalysis(StubbornSetsTest.philosophers(5));
+        analysis.setMaxNodes(3);
+        analysis.getMinimalSiphons();
+    }
+}
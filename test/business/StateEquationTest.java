@@ -0,0 +1,104 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for StateEquation.
+ * This class checks that the state equation rules out unreachable markings and never rules
+ * out reachable ones.
+ */
+public class StateEquationTest {
+
+    /**
+     * Tests a cycle of two places, whose token sum stays the same.
+     */
+    @Test
+    public void testCycle() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 2);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p2});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1});
+
+        StateEquation equation = new StateEquation(net);
+        assertTrue(equation.isReachable(new Marking(new int[] {0, 2})));
+        assertArrayEquals(new long[] {2, 0}, equation.getFiringCounts());
+        assertTrue(equation.isReachable(new Marking(new int[] {2, 0})));
+        assertArrayEquals(new long[] {0, 0}, equation.getFiringCounts());
+        assertFalse(equation.isReachable(new Marking(new int[] {2, 1})));
+        assertNull(equation.getFiringCounts());
+        assertFalse(equation.canExceed(1, 2));
+        assertTrue(equation.canExceed(1, 1));
+    }
+
+    /**
+     * Tests a marking the relaxation reaches with half a firing but no integer solution does.
+     */
+    @Test
+    public void testIntegrality() {
+        PetriNet net = new PetriNet();
+        Place p = place(net, "p", 1);
+        Place q = place(net, "q", 0);
+        transition(net, "t1", new Place[] {p, p}, new Place[] {q, q});
+        transition(net, "t2", new Place[] {q, q}, new Place[] {p, p});
+
+        StateEquation equation = new StateEquation(net);
+        assertFalse(equation.isReachable(new Marking(new int[] {0, 1})));
+        assertTrue(equation.isReachable(new Marking(new int[] {1, 0})));
+    }
+
+    /**
+     * Tests that every reachable marking of the dining philosophers passes and that markings
+     * breaking their invariants do not.
+     */
+    @Test
+    public void testPhilosophers() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(3));
+        StateEquation equation = new StateEquation(topology);
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        for (int s = 0; s < graph.getStateCount(); s++) {
+            assertTrue(equation.isReachable(graph.getMarking(s)));
+            long[] x = equation.getFiringCounts();
+            assertNotNull(x);
+            long[] change = new IncidenceMatrix(topology).multiply(x);
+            for (int p = 0; p < topology.getPlaceCount(); p++) {
+                assertEquals(graph.getMarking(s).get(p), topology.getInitialMarking().get(p) + change[p]);
+            }
+        }
+        Marking twice = topology.getInitialMarking();
+        twice.set(topology.indexOfPlace("think0"), 2);
+        assertFalse(equation.isReachable(twice));
+        for (int p = 0; p < topology.getPlaceCount(); p++) {
+            assertFalse(equation.canExceed(p, 1));
+            assertTrue(equation.canExceed(p, 0));
+        }
+    }
+
+    /**
+     * Tests an unbounded place and a place whose capacity bounds it.
+     */
+    @Test
+    public void testBounds() {
+        PetriNet net = new PetriNet();
+        Place ready = place(net, "ready", 1);
+        Place full = place(net, "full", 0);
+        full.setCapacity(3);
+        Place overflow = place(net, "overflow", 0);
+        Place idle = place(net, "idle", 4);
+        transition(net, "fill", new Place[] {ready}, new Place[] {ready, full});
+        transition(net, "drain", new Place[] {full}, new Place[] {overflow});
+
+        StateEquation equation = new StateEquation(net);
+        assertTrue(equation.canExceed(2, 1000));
+        assertEquals(1001, equation.getFiringCounts()[1]);
+        assertTrue(equation.canExceed(1, 2));
+        assertFalse(equation.canExceed(1, 3));
+        assertFalse(equation.canExceed(0, 1));
+        assertTrue(equation.canExceed(3, 3));
+        assertFalse(equation.canExceed(3, 4));
+        assertFalse(equation.isReachable(new Marking(new int[] {1, 0, 0, 3})));
+    }
+}
@@ -0,0 +1,122 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for SteadyStateEstimator.
+ * This class checks the warm-up detection on a series with a known transient, the
+ * confidence interval quantiles, and that a precision limit ends a live simulation.
+ */
+public class SteadyStateEstimatorTest {
+
+    private Session session;
+
+    /**
+     * Tests that the MSER rule removes a linear transient in front of a stationary series.
+     */
+    @Test
+    public void testWarmupDetection() {
+        Place p = new Place("p");
+        Transition t = new Transition("t");
+        SteadyStateEstimator estimator = SteadyStateEstimator.forPlace("p", 10);
+        estimator.simulationStarted(null);
+        // The place fills up during 100 steps, then alternates between 101 and 100 tokens
+        for (int step = 1; step <= 2000; step++) {
+            FiringEvent event = new FiringEvent(t, 0);
+            event.setStep(step);
+            if (step <= 100 || step % 2 == 1) {
+                event.addProduced(p, new Token(1));
+            } else {
+                event.addConsumed(p, new Token(1));
+            }
+            estimator.transitionFired(event);
+        }
+
+        SteadyStateEstimate estimate = estimator.getEstimate();
+        assertNotNull(estimate);
+        assertTrue("warm-up " + estimate.getWarmupBatches(), estimate.getWarmupBatches() >= 9);
+        assertTrue("warm-up " + estimate.getWarmupBatches(), estimate.getWarmupBatches() <= 20);
+        assertEquals(100.5, estimate.getMean(), 0.01);
+        assertTrue(estimate.getRelativePrecision() < 0.001);
+    }
+
+    /**
+     * Tests that an estimate polled after every firing, as a precision limit does, finds the
+     * same transient in a long run.
+     */
+    @Test
+    public void testPolledEstimate() {
+        Place p = new Place("p");
+        Transition t = new Transition("t");
+        SteadyStateEstimator estimator = SteadyStateEstimator.forPlace("p", 10);
+        estimator.simulationStarted(null);
+        for (int step = 1; step <= 200000; step++) {
+            FiringEvent event = new FiringEvent(t, 0);
+            event.setStep(step);
+            if (step <= 100 || step % 2 == 1) {
+                event.addProduced(p, new Token(1));
+            } else {
+                event.addConsumed(p, new Token(1));
+            }
+            estimator.transitionFired(event);
+            estimator.getEstimate();
+        }
+
+        SteadyStateEstimate estimate = estimator.getEstimate();
+        assertEquals(20000, estimator.getBasicBatches());
+        assertTrue("warm-up " + estimate.getWarmupBatches(), estimate.getWarmupBatches() >= 9);
+        assertTrue("warm-up " + estimate.getWarmupBatches(), estimate.getWarmupBatches() <= 20);
+        assertEquals(100.5, estimate.getMean(), 0.01);
+    }
+
+    /**
+     * Tests the normal and Student t quantiles against table values.
+     */
+    @Test
+    public void testQuantiles() {
+        assertEquals(1.959964, SteadyStateEstimator.normalQuantile(0.975), 1e-6);
+        assertEquals(-2.326348, SteadyStateEstimator.normalQuantile(0.01), 1e-6);
+        assertEquals(2.093024, SteadyStateEstimator.studentQuantile(0.975, 19), 1e-3);
+        assertEquals(2.570582, SteadyStateEstimator.studentQuantile(0.975, 5), 1e-2);
+    }
+
+    /**
+     * Tests that a precision limit stops a live net long before its step limit.
+     */
+    @Test
+    public void testPrecisionLimit() {
+        session = new Session();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        Transition t2 = new Transition("t2");
+        for (int i = 0; i < 5; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addPlace(p2);
+        session.getPetriNet().addTransition(t1);
+        session.getPetriNet().addTransition(t2);
+        session.getPetriNet().addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+        session.getPetriNet().addInputArc(new InputArc("i2", p2, t2, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o2", p1, t2, "new Integer(1)"));
+
+        Simulation simulation = new Simulation(session);
+        simulation.setRandom(new java.util.Random(42));
+        SteadyStateEstimator estimator = SteadyStateEstimator.forTransition("t1", 50);
+        simulation.addFiringListener(estimator);
+        PrecisionLimit limit = new PrecisionLimit(estimator, 0.05);
+        simulation.addStopCondition(new StepLimit(1000000));
+        simulation.addStopCondition(limit);
+        simulation.run();
+
+        assertSame(limit, simulation.getStopReason());
+        assertTrue(simulation.getSteps() < 1000000);
+        // Every token passes t1 and t2 alternately, so t1 fires in half of the steps
+        assertEquals(0.5, estimator.getEstimate().getMean(), 0.05);
+    }
+}
@@ -0,0 +1,170 @@
+package business;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for StochasticSimulation.
+ * This class runs the cycle p0 -> tA -> p1 -> tI -> p2 -> tB -> p0 with one token, where tA
+ * and tB are timed and tI is immediate, and checks that no time is spent in the vanishing
+ * marking and that the cycle time follows from the delays.
+ */
+public class StochasticSimulationTest {
+
+    private Session session;
+    private Transition tA;
+    private Transition tB;
+
+    /**
+     * Builds the cycle.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+        Place p0 = new Place("p0");
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Token token = new Token(null);
+        token.setInitialMarkingExpression("new Integer(1)");
+        p0.addToken(new TokenSet(token));
+        tA = new Transition("tA");
+        Transition tI = new Transition("tI");
+        tB = new Transition("tB");
+        session.getPetriNet().addPlace(p0);
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addPlace(p2);
+        session.getPetriNet().addTransition(tA);
+        session.getPetriNet().addTransition(tI);
+        session.getPetriNet().addTransition(tB);
+        session.getPetriNet().addInputArc(new InputArc("i1", p0, tA, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p1, tA, "new Integer(1)"));
+        session.getPetriNet().addInputArc(new InputArc("i2", p1, tI, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o2", p2, tI, "new Integer(1)"));
+        session.getPetriNet().addInputArc(new InputArc("i3", p2, tB, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o3", p0, tB, "new Integer(1)"));
+    }
+
+    /**
+     * Runs the net until a simulated time and returns its statistics.
+     */
+    private SimulationStatistics run(long until) {
+        StochasticSimulation simulation = new StochasticSimulation(session);
+        simulation.setRandom(new Random(11));
+        SimulationStatistics statistics = new SimulationStatistics();
+        simulation.setStatistics(statistics);
+        simulation.addStopCondition(new TimeLimit(until));
+        simulation.run();
+        assertTrue(simulation.getSimulatedTime() >= until);
+        return statistics;
+    }
+
+    /**
+     * Tests exponential delays: the mean cycle time is 1 / 2 + 1 / 0.5 = 2.5.
+     */
+    @Test
+    public void testExponential() {
+        tA.setTiming(Transition.EXPONENTIAL);
+        tA.setDelayText("2");
+        tB.setTiming(Transition.EXPONENTIAL);
+        tB.setDelayText("0.5");
+        SimulationStatistics statistics = run(20000);
+
+        assertEquals(0.0, statistics.getPlace("p1").getBusyRatio(statistics.getNow()), 0.0);
+        assertEquals(0.2, statistics.getPlace("p0").getMean(statistics.getNow()), 0.02);
+        assertEquals(0.4, statistics.getTransition("tI").getThroughput(statistics.getElapsed()), 0.02);
+    }
+
+    /**
+     * Tests general delays given as expressions: the cycle time is 1 + 2 = 3.
+     */
+    @Test
+    public void testGeneral() {
+        tA.setTiming(Transition.GENERAL);
+        tA.setDelayText("0.5 + random.nextDouble()");
+        tB.setTiming(Transition.GENERAL);
+        tB.setDelayText("2.0");
+        SimulationStatistics statistics = run(3000);
+
+        assertEquals(0.0, statistics.getPlace("p1").getMean(statistics.getNow()), 0.0);
+        assertEquals(2.0 / 3.0, statistics.getPlace("p2").getMean(statistics.getNow()), 0.02);
+        assertEquals(1000, statistics.getTransition("tB").getFirings(), 20);
+    }
+
+    /**
+     * Tests that immediate transitions fire before timed ones and without advancing time.
+     */
+    @Test
+    public void testImmediateFirst() {
+        tB.setTiming(Transition.EXPONENTIAL);
+        StochasticSimulation simulation = new StochasticSimulation(session);
+        // tA and tI are immediate: the token reaches p2 without time passing
+        assertEquals("tA", simulation.getRandomTransition().getId());
+        simulation.fireTransition();
+        assertEquals(0.0, simulation.getSimulatedTime(), 0.0);
+        assertEquals(2, simulation.getSteps());
+        assertEquals("tB", simulation.getRandomTransition().getId());
+        simulation.fireTransition();
+        assertTrue(simulation.getSimulatedTime() > 0);
+    }
+
+    /**
+     * Tests that a run resumed from a checkpoint taken during a firing repeats the original
+     * run, although a second cycle races with the first one on general delays.
+     */
+    @Test
+    public void testCheckpoint() {
+        tA.setTiming(Transition.GENERAL);
+        tA.setDelayText("0.5 + random.nextDouble()");
+        tB.setTiming(Transition.GENERAL);
+        tB.setDelayText("random.nextDouble() * 2");
+        Place pC = new Place("pC");
+        Token token = new Token(null);
+        token.setInitialMarkingExpression("new Integer(1)");
+        pC.addToken(new TokenSet(token));
+        Transition tC = new Transition("tC");
+        tC.setTiming(Transition.GENERAL);
+        tC.setDelayText("random.nextDouble() * 3");
+        session.getPetriNet().addPlace(pC);
+        session.getPetriNet().addTransition(tC);
+        session.getPetriNet().addInputArc(new InputArc("i4", pC, tC, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o4", pC, tC, "new Integer(1)"));
+
+        final StochasticSimulation simulation = new StochasticSimulation(session);
+        simulation.setRandom(new Random(7));
+        final SimulationCheckpoint[] checkpoint = new SimulationCheckpoint[1];
+        simulation.addFiringListener(new FiringListener() {
+            @Override
+            public void simulationStarted(Simulation simulation) {
+            }
+
+            @Override
+            public void transitionFired(FiringEvent event) {
+                if (event.getStep() == 20) {
+                    checkpoint[0] = simulation.createCheckpoint();
+                }
+            }
+
+            @Override
+            public void simulationFinished(Simulation simulation) {
+            }
+        });
+        ArrayList<Double> original = new ArrayList<>();
+        while (simulation.getSteps() < 100) {
+            simulation.fireTransition();
+            if (checkpoint[0] != null) {
+                original.add(simulation.getSimulatedTime());
+            }
+        }
+
+        simulation.restore(checkpoint[0]);
+        ArrayList<Double> repeated = new ArrayList<>();
+        while (simulation.getSteps() < 100) {
+            simulation.fireTransition();
+            repeated.add(simulation.getSimulatedTime());
+        }
+        assertEquals(original.subList(1, original.size()), repeated);
+    }
+}
@@ -0,0 +1,108 @@
+package business;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the stop conditions.
+ * This class runs a net that never deadlocks and verifies that each kind of stop condition
+ * ends the run and is reported as the reason.
+ */
+public class StopConditionTest {
+
+    private Session session;
+
+    /**
+     * Builds the live net p1 -> t1 -> p2 -> t2 -> p1 with five tokens in p1.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+        Place p1 = new Place("p1");
+        Place p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        Transition t2 = new Transition("t2");
+        for (int i = 0; i < 5; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            p1.addToken(new TokenSet(token));
+        }
+        session.getPetriNet().addPlace(p1);
+        session.getPetriNet().addPlace(p2);
+        session.getPetriNet().addTransition(t1);
+        session.getPetriNet().addTransition(t2);
+        session.getPetriNet().addInputArc(new InputArc("i1", p1, t1, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o1", p2, t1, "new Integer(1)"));
+        session.getPetriNet().addInputArc(new InputArc("i2", p2, t2, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o2", p1, t2, "new Integer(1)"));
+    }
+
+    /** Returns the number of tokens in a place of the compiled net. */
+    private int tokens(String placeId) {
+        return ((Place) session.getPetriNet().getNetElement(placeId)).getTokens().size();
+    }
+
+    /**
+     * Tests that a step limit ends the run after exactly that many firings.
+     */
+    @Test
+    public void testStepLimit() {
+        Simulation simulation = new Simulation(session);
+        StepLimit limit = new StepLimit(250);
+        simulation.addStopCondition(limit);
+        simulation.run();
+        assertEquals(250, simulation.getSteps());
+        assertSame(limit, simulation.getStopReason());
+    }
+
+    /**
+     * Tests that a wall-clock budget ends a run that would otherwise never finish.
+     */
+    @Test(timeout = 10000)
+    public void testWallClockLimit() {
+        Simulation simulation = new Simulation(session);
+        WallClockLimit limit = new WallClockLimit(50);
+        simulation.addStopCondition(limit);
+        simulation.run();
+        assertSame(limit, simulation.getStopReason());
+        assertTrue(simulation.getSteps() > 0);
+    }
+
+    /**
+     * Tests that a marking condition stops the run in the first marking satisfying it.
+     */
+    @Test
+    public void testMarkingCondition() {
+        MarkingCondition condition = new MarkingCondition(session.getPetriNet(), "p2 == 5 && p1 == 0");
+        Simulation simulation = new Simulation(session);
+        simulation.addStopCondition(new StepLimit(1000000));
+        simulation.addStopCondition(condition);
+        simulation.run();
+        assertSame(condition, simulation.getStopReason());
+        assertEquals(0, tokens("p1"));
+        assertEquals(5, tokens("p2"));
+    }
+
+    /**
+     * Tests that a marking condition which does not compile is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMarkingCondition() {
+        new MarkingCondition(session.getPetriNet(), "p3 > 0");
+    }
+
+    /**
+     * Tests that a time limit is reached by a timed simulation.
+     */
+    @Test
+    public void testTimeLimit() {
+        TimedSimulation simulation = new TimedSimulation(session);
+        simulation.setTime(100);
+        TimeLimit limit = new TimeLimit(100);
+        simulation.addStopCondition(limit);
+        simulation.run();
+        assertSame(limit, simulation.getStopReason());
+        assertEquals(0, simulation.getSteps());
+    }
+}
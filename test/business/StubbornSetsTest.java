@@ -0,0 +1,139 @@
+package business;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for StubbornSets.
+ * This class explores nets with and without partial-order reduction and compares their
+ * dead markings.
+ */
+public class StubbornSetsTest {
+
+    /**
+     * Builds n dining philosophers that take the left fork first, which deadlocks when all
+     * hold their left fork.
+     */
+    static PetriNet philosophers(int n) {
+        PetriNet net = new PetriNet();
+        Place[] think = new Place[n];
+        Place[] fork = new Place[n];
+        Place[] left = new Place[n];
+        Place[] eat = new Place[n];
+        for (int i = 0; i < n; i++) {
+            think[i] = place(net, "think" + i, 1);
+            fork[i] = place(net, "fork" + i, 1);
+            left[i] = place(net, "left" + i, 0);
+            eat[i] = place(net, "eat" + i, 0);
+        }
+        for (int i = 0; i < n; i++) {
+            Place right = fork[(i + 1) % n];
+            transition(net, "takeLeft" + i, new Place[] {think[i], fork[i]}, new Place[] {left[i]});
+            transition(net, "takeRight" + i, new Place[] {left[i], right}, new Place[] {eat[i]});
+            transition(net, "release" + i, new Place[] {eat[i]}, new Place[] {think[i], fork[i], right});
+        }
+        return net;
+    }
+
+    /** Returns the dead markings of a graph. */
+    private Set<Marking> deadlocks(ReachabilityGraph graph) {
+        Set<Marking> markings = new HashSet<>();
+        for (int state : graph.getDeadlocks()) {
+            markings.add(graph.getMarking(state));
+        }
+        return markings;
+    }
+
+    /**
+     * Tests that independent transitions fire in one order only.
+     */
+    @Test
+    public void testIndependent() {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < 10; i++) {
+            Place p = place(net, "p" + i, 1);
+            Place q = place(net, "q" + i, 0);
+            transition(net, "t" + i, new Place[] {p}, new Place[] {q});
+        }
+        ReachabilityExplorer explorer = new ReachabilityExplorer(net);
+        ReachabilityGraph full = explorer.explore();
+        explorer.setPartialOrderReduction(true);
+        ReachabilityGraph reduced = explorer.explore();
+
+        assertEquals(1024, full.getStateCount());
+        assertEquals(11, reduced.getStateCount());
+        assertTrue(reduced.isReduced());
+        assertEquals(deadlocks(full), deadlocks(reduced));
+    }
+
+    /**
+     * Tests that the deadlock of the philosophers is kept.
+     */
+    @Test
+    public void testPhilosophers() {
+        ReachabilityExplorer explorer = new ReachabilityExplorer(philosophers(5));
+        ReachabilityGraph full = explorer.explore();
+        explorer.setPartialOrderReduction(true);
+        ReachabilityGraph reduced = explorer.explore();
+
+        assertTrue(reduced.getStateCount() < full.getStateCount());
+        assertEquals(1, deadlocks(full).size());
+        assertEquals(deadlocks(full), deadlocks(reduced));
+
+        ParallelReachabilityExplorer parallel = new ParallelReachabilityExplorer(philosophers(5));
+        parallel.setPartialOrderReduction(true);
+        ExplorationResult result = parallel.explore();
+        assertEquals(1, result.getDeadlockCount());
+        assertEquals(deadlocks(full).iterator().next(), result.getDeadlocks().get(0));
+    }
+
+    /**
+     * Tests that a set with a visible transition holds all visible transitions.
+     */
+    @Test
+    public void testVisible() {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < 3; i++) {
+            Place p = place(net, "p" + i, 1);
+            Place q = place(net, "q" + i, 0);
+            transition(net, "t" + i, new Place[] {p}, new Place[] {q});
+            transition(net, "u" + i, new Place[] {q}, new Place[] {p});
+        }
+        NetTopology topology = new NetTopology(net);
+        StubbornSets stubborn = new StubbornSets(topology);
+        stubborn.setVisiblePlaces(new int[] {topology.indexOfPlace("q0"), topology.indexOfPlace("q1")});
+        assertTrue(stubborn.preservesStuttering());
+        assertTrue(stubborn.isVisible(topology.indexOfTransition("u1")));
+        assertFalse(stubborn.isVisible(topology.indexOfTransition("t2")));
+
+        Marking m = topology.getInitialMarking();
+        int[] reduced = stubborn.reduce(m, topology.getFirable(m));
+        assertArrayEquals(new int[] {topology.indexOfTransition("t2")}, reduced);
+        topology.fire(m, topology.indexOfTransition("t2"));
+        reduced = stubborn.reduce(m, topology.getFirable(m));
+        assertEquals(1, reduced.length);
+        assertEquals(topology.indexOfTransition("u2"), reduced[0]);
+
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        explorer.setPartialOrderReduction(true);
+        explorer.setVisiblePlaces(new int[] {topology.indexOfPlace("q0"), topology.indexOfPlace("q1")});
+        ReachabilityGraph graph = explorer.explore();
+        assertTrue(graph.isReachable(new Marking(new int[] {0, 1, 1, 0, 1, 0})));
+        assertTrue(graph.isReachable(new Marking(new int[] {1, 0, 0, 1, 1, 0})));
+    }
+
+    /**
+     * Tests that nets with priorities are not reduced.
+     */
+    @Test
+    public void testPriorities() {
+        PetriNet net = philosophers(2);
+        ((Transition) net.getNetElement("release0")).setPriority(2);
+        StubbornSets stubborn = new StubbornSets(new NetTopology(net));
+        assertFalse(stubborn.isApplicable());
+    }
+}
@@ -0,0 +1,83 @@
+package business;
+
+import java.math.BigInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for SymbolicExplorer and MddForest.
+ * This class compares symbolic state spaces with explicit ones and counts a state space
+ * too large to enumerate.
+ */
+public class SymbolicExplorerTest {
+
+    /**
+     * Tests that the symbolic and explicit state spaces of the philosophers agree.
+     */
+    @Test
+    public void testPhilosophers() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(5));
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        SymbolicStateSpace space = new SymbolicExplorer(topology).explore();
+
+        assertEquals(BigInteger.valueOf(graph.getStateCount()), space.getStateCount());
+        for (int state = 0; state < graph.getStateCount(); state++) {
+            assertTrue(space.isReachable(graph.getMarking(state)));
+        }
+        assertFalse(space.isReachable(new Marking(new int[20])));
+        assertEquals(BigInteger.ONE, space.getDeadlockCount());
+        assertEquals(graph.getMarking(graph.getDeadlocks()[0]), space.getDeadlock());
+    }
+
+    /**
+     * Tests capacities and arc weights.
+     */
+    @Test
+    public void testCapacity() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 4);
+        Place p2 = place(net, "p2", 0);
+        p2.setCapacity(3);
+        transition(net, "t1", new Place[] {p1, p1}, new Place[] {p2});
+        transition(net, "t2", new Place[] {p2}, new Place[] {p1});
+        NetTopology topology = new NetTopology(net);
+        ReachabilityGraph graph = new ReachabilityExplorer(topology).explore();
+        SymbolicStateSpace space = new SymbolicExplorer(topology).explore();
+        assertEquals(BigInteger.valueOf(graph.getStateCount()), space.getStateCount());
+        assertEquals(graph.hasDeadlock(), space.hasDeadlock());
+    }
+
+    /**
+     * Tests a state space of 3^40 markings.
+     */
+    @Test
+    public void testLarge() {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < 40; i++) {
+            Place a = place(net, "a" + i, 2);
+            Place b = place(net, "b" + i, 0);
+            transition(net, "t" + i, new Place[] {a}, new Place[] {b});
+            transition(net, "u" + i, new Place[] {b}, new Place[] {a});
+        }
+        SymbolicStateSpace space = new SymbolicExplorer(net).explore();
+        assertEquals(BigInteger.valueOf(3).pow(40), space.getStateCount());
+        assertFalse(space.hasDeadlock());
+        assertTrue(space.getNodeCount() < 10000);
+    }
+
+    /**
+     * Tests that the token limit stops an unbounded net.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testUnbounded() {
+        PetriNet net = new PetriNet();
+        Place p1 = place(net, "p1", 1);
+        Place p2 = place(net, "p2", 0);
+        transition(net, "t1", new Place[] {p1}, new Place[] {p1, p2});
+        SymbolicExplorer explorer = new SymbolicExplorer(net);
+        explorer.setMaxTokens(1000);
+        explorer.explore();
+    }
+}
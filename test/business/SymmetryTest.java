@@ -0,0 +1,128 @@
+package business;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static business.ReachabilityExplorerTest.place;
+import static business.ReachabilityExplorerTest.transition;
+
+/**
+ * Test class for Symmetry.
+ * This class explores replicated components with and without symmetry reduction.
+ */
+public class SymmetryTest {
+
+    /**
+     * Builds independent workers a(i) -> start(i) -> b(i) -> stop(i) -> a(i).
+     */
+    private PetriNet workers(int n) {
+        PetriNet net = new PetriNet();
+        for (int i = 0; i < n; i++) {
+            Place a = place(net, "a" + i, 1);
+            Place b = place(net, "b" + i, 0);
+            transition(net, "start" + i, new Place[] {a}, new Place[] {b});
+            transition(net, "stop" + i, new Place[] {b}, new Place[] {a});
+        }
+        return net;
+    }
+
+    /** Returns the blocks think, fork, left, eat of every philosopher. */
+    private int[][] philosopherBlocks(NetTopology topology, int n) {
+        int[][] blocks = new int[n][];
+        for (int i = 0; i < n; i++) {
+            blocks[i] = new int[] {topology.indexOfPlace("think" + i), topology.indexOfPlace("fork" + i),
+                topology.indexOfPlace("left" + i), topology.indexOfPlace("eat" + i)};
+        }
+        return blocks;
+    }
+
+    /**
+     * Tests that identical unconnected components are detected and interchanged.
+     */
+    @Test
+    public void testDetect() {
+        NetTopology topology = new NetTopology(workers(4));
+        Symmetry symmetry = Symmetry.detect(topology);
+        assertEquals(1, symmetry.getGroupCount());
+        assertEquals(Symmetry.INTERCHANGEABLE, symmetry.getKind(0));
+        assertEquals(4, symmetry.getBlocks(0).length);
+        assertArrayEquals(new int[] {0, 1, 0, 1, 1, 0, 1, 0}, symmetry.canonical(new int[] {1, 0, 0, 1, 1, 0, 0, 1}));
+
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        assertEquals(16, explorer.explore().getStateCount());
+        explorer.setSymmetry(symmetry);
+        ReachabilityGraph graph = explorer.explore();
+        assertEquals(5, graph.getStateCount());
+        assertTrue(graph.isReachable(new Marking(new int[] {1, 0, 0, 1, 1, 0, 1, 0})));
+
+        ParallelReachabilityExplorer parallel = new ParallelReachabilityExplorer(topology);
+        parallel.setSymmetry(symmetry);
+        assertEquals(5, parallel.explore().getStateCount());
+    }
+
+    /**
+     * Tests that firing sequences of a reduced graph can be fired from an initial marking that
+     * is not canonical.
+     */
+    @Test
+    public void testPath() {
+        PetriNet net = workers(3);
+        ((Place) net.getNetElement("a1")).setTokens(new TokenSet());
+        ((Place) net.getNetElement("b1")).addToken(new TokenSet(new Token(1)));
+        NetTopology topology = new NetTopology(net);
+        Symmetry symmetry = Symmetry.detect(topology);
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        explorer.setSymmetry(symmetry);
+        ReachabilityGraph graph = explorer.explore();
+        assertEquals(4, graph.getStateCount());
+        for (int state = 0; state < graph.getStateCount(); state++) {
+            Marking marking = topology.getInitialMarking();
+            for (int t : graph.getPath(state)) {
+                assertTrue(topology.isEnabled(marking, t));
+                marking = topology.successor(marking, t);
+            }
+            assertEquals(graph.getMarking(state), symmetry.canonical(marking));
+        }
+    }
+
+    /**
+     * Tests a ring of philosophers with a declared rotation.
+     */
+    @Test
+    public void testRotation() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(5));
+        assertTrue(Symmetry.detect(topology).isEmpty());
+        Symmetry symmetry = new Symmetry(topology);
+        symmetry.addRotation(philosopherBlocks(topology, 5));
+
+        ReachabilityExplorer explorer = new ReachabilityExplorer(topology);
+        ReachabilityGraph full = explorer.explore();
+        explorer.setSymmetry(symmetry);
+        ReachabilityGraph reduced = explorer.explore();
+        assertTrue(reduced.getStateCount() * 4 < full.getStateCount());
+        assertEquals(1, reduced.getDeadlocks().length);
+        for (int state = 0; state < full.getStateCount(); state++) {
+            assertTrue(reduced.isReachable(full.getMarking(state)));
+        }
+    }
+
+    /**
+     * Tests that blocks that are not symmetric are refused.
+     */
+    @Test
+    public void testNotSymmetric() {
+        NetTopology topology = new NetTopology(StubbornSetsTest.philosophers(3));
+        Symmetry symmetry = new Symmetry(topology);
+        int[][] blocks = philosopherBlocks(topology, 3);
+        try {
+            symmetry.addInterchangeable(blocks);
+            fail("Philosophers in a ring are not interchangeable");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(symmetry.isEmpty());
+        }
+        try {
+            symmetry.addRotation(new int[][] {blocks[0], blocks[2], blocks[1]});
+        } catch (IllegalArgumentException ex) {
+            fail("Shifting the other way round is a rotation too");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package business;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for TraceWriter.
+ * This class verifies that firings queued by the simulation thread reach the sink
+ * in order, and that the rolling buffer keeps only the most recent ones.
+ */
+public class TraceWriterTest {
+
+    /**
+     * Tests that every queued firing is written, in order, once the writer is closed.
+     * Uses a queue smaller than the number of firings so the producer has to block.
+     */
+    @Test
+    public void testAllFiringsWrittenInOrder() {
+        RollingTraceBuffer buffer = new RollingTraceBuffer(1000);
+        TraceWriter writer = new TraceWriter(buffer, 16, 4);
+        Transition transition = new Transition("t1");
+        Place place = new Place("p1");
+
+        writer.simulationStarted(null);
+        for (int i = 1; i <= 1000; i++) {
+            FiringEvent event = new FiringEvent(transition, i);
+            event.setStep(i);
+            event.addProduced(place, new Token(i));
+            writer.transitionFired(event);
+        }
+        writer.simulationFinished(null);
+
+        assertNull(writer.getError());
+        assertEquals(1000, buffer.getWritten());
+        assertEquals("t1 fired.\n+ 1\n" + FiringEvent.SEPARATOR + "\n", buffer.getEntries().get(0));
+        assertEquals("t1 fired.\n+ 1000\n" + FiringEvent.SEPARATOR + "\n", buffer.getEntries().get(999));
+    }
+
+    /**
+     * Tests that the rolling buffer only retains the configured number of firings.
+     */
+    @Test
+    public void testRollingBufferKeepsMostRecent() {
+        RollingTraceBuffer buffer = new RollingTraceBuffer(3);
+        TraceWriter writer = new TraceWriter(buffer);
+        Transition transition = new Transition("t1");
+        transition.setLabel("work");
+
+        writer.simulationStarted(null);
+        for (int i = 1; i <= 10; i++) {
+            writer.transitionFired(new FiringEvent(transition, i));
+        }
+        writer.close();
+
+        assertEquals(10, buffer.getWritten());
+        assertEquals(3, buffer.getEntries().size());
+        assertTrue(buffer.getText().startsWith("work (t1) fired!\n"));
+    }
+
+    /**
+     * Tests that a sink throwing a runtime exception is reported, and that the simulation
+     * does not block on the full queue afterwards.
+     */
+    @Test(timeout = 10000)
+    public void testFailingSink() {
+        TraceWriter writer = new TraceWriter(new TraceSink() {
+            @Override
+            public void open(Simulation simulation) {
+            }
+
+            @Override
+            public void write(List<FiringEvent> batch) {
+                throw new IllegalStateException("broken");
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4, 2);
+        Transition transition = new Transition("t1");
+
+        writer.simulationStarted(null);
+        for (int i = 1; i <= 1000; i++) {
+            writer.transitionFired(new FiringEvent(transition, i));
+        }
+        writer.simulationFinished(null);
+
+        assertNotNull(writer.getError());
+        assertTrue(writer.getError().getCause() instanceof IllegalStateException);
+    }
+}
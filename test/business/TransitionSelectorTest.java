@@ -0,0 +1,151 @@
+package business;
+
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for TransitionSelector.
+ * This class verifies that only the highest enabled priority competes, that transitions are
+ * chosen in proportion to their weights, and that the enabled transitions stay correct when
+ * they are only updated around the fired transitions.
+ */
+public class TransitionSelectorTest {
+
+    private Session session;
+
+    /**
+     * Starts every test with an empty net.
+     */
+    @Before
+    public void setUp() {
+        session = new Session();
+    }
+
+    /**
+     * Adds a place with tokens to the current net.
+     */
+    private Place addPlace(String id, int tokens) {
+        Place place = new Place(id);
+        for (int i = 0; i < tokens; i++) {
+            Token token = new Token(null);
+            token.setInitialMarkingExpression("new Integer(1)");
+            place.addToken(new TokenSet(token));
+        }
+        session.getPetriNet().addPlace(place);
+        return place;
+    }
+
+    /**
+     * Adds a transition moving one token from one place to another to the current net.
+     */
+    private Transition addTransition(String id, Place from, Place to) {
+        Transition transition = new Transition(id);
+        session.getPetriNet().addTransition(transition);
+        session.getPetriNet().addInputArc(new InputArc("i" + id, from, transition, "new Integer(1)"));
+        session.getPetriNet().addOutputArc(new OutputArc("o" + id, to, transition, "new Integer(1)"));
+        return transition;
+    }
+
+    /**
+     * Tests that transitions of a lower priority are never chosen while one of a higher
+     * priority is enabled.
+     */
+    @Test
+    public void testPriority() {
+        Place p1 = addPlace("p1", 1);
+        Place p2 = addPlace("p2", 1);
+        Place p3 = addPlace("p3", 0);
+        Transition t1 = addTransition("t1", p1, p3);
+        Transition t2 = addTransition("t2", p2, p3);
+        t2.setPriority(1);
+
+        TransitionSelector selector = new TransitionSelector(session.getPetriNet());
+        selector.refresh(0);
+        assertEquals(2, selector.getEnabled().size());
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertSame(t2, selector.select(random));
+        }
+        assertNotNull(t1);
+    }
+
+    /**
+     * Tests that transitions are chosen with probability proportional to their weights.
+     */
+    @Test
+    public void testWeights() {
+        Place p1 = addPlace("p1", 1);
+        Place p2 = addPlace("p2", 0);
+        Transition t1 = addTransition("t1", p1, p2);
+        Transition t2 = addTransition("t2", p1, p2);
+        t1.setWeight(3);
+
+        TransitionSelector selector = new TransitionSelector(session.getPetriNet());
+        selector.refresh(0);
+        Random random = new Random(7);
+        int chosen = 0;
+        for (int i = 0; i < 20000; i++) {
+            if (selector.select(random) == t1) {
+                chosen++;
+            }
+        }
+        assertEquals(0.75, chosen / 20000.0, 0.02);
+        assertNotNull(t2);
+    }
+
+    /**
+     * Tests that incremental updates during a run agree with checking every transition.
+     */
+    @Test
+    public void testIncrementalUpdates() {
+        Place p1 = addPlace("p1", 3);
+        Place p2 = addPlace("p2", 0);
+        Place p3 = addPlace("p3", 0);
+        addTransition("t1", p1, p2);
+        addTransition("t2", p2, p3);
+        addTransition("t3", p3, p1);
+        Simulation simulation = new Simulation(session);
+        simulation.setRandom(new Random(3));
+        for (int i = 0; i < 200; i++) {
+            assertEquals(simulation.enabledTransitionList(), simulation.getSelector().getEnabled());
+            simulation.fire(simulation.getRandomTransition(), 0);
+        }
+    }
+
+    /**
+     * Tests that a run only fires the transition of the higher priority in a conflict.
+     */
+    @Test
+    public void testRunWithPriorities() {
+        Place p1 = addPlace("p1", 5);
+        Place p2 = addPlace("p2", 0);
+        Place p3 = addPlace("p3", 0);
+        addTransition("t1", p1, p2).setPriority(2);
+        addTransition("t2", p1, p3);
+        Simulation simulation = new Simulation(session);
+        simulation.run();
+        assertEquals(5, ((Place) session.getPetriNet().getNetElement("p2")).getTokens().size());
+        assertEquals(0, ((Place) session.getPetriNet().getNetElement("p3")).getTokens().size());
+    }
+
+    /**
+     * Tests the Fenwick tree prefix sums and search.
+     */
+    @Test
+    public void testFenwickTree() {
+        FenwickTree tree = new FenwickTree(5);
+        tree.set(0, 1);
+        tree.set(2, 2);
+        tree.set(4, 3);
+        assertEquals(6, tree.total(), 1e-12);
+        assertEquals(3, tree.prefix(3), 1e-12);
+        assertEquals(0, tree.find(0.5));
+        assertEquals(2, tree.find(1.0));
+        assertEquals(4, tree.find(5.9));
+        tree.set(4, 0);
+        assertEquals(2, tree.find(5.9));
+        assertEquals(-1, new FenwickTree(3).find(0));
+    }
+}
@@ -0,0 +1,111 @@
+package data;
+
+import business.FiringEvent;
+import business.PetriNet;
+import business.Place;
+import business.Simulation;
+import business.Token;
+import business.Transition;
+import java.io.File;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for the binary trace format.
+ * This class writes traces with BinaryTraceSink and reads them back with
+ * BinaryTraceReader, checking sequential decoding, payloads and seeking.
+ */
+public class BinaryTraceTest {
+
+    private PetriNet net;
+    private File file;
+    private Place p1;
+    private Place p2;
+    private Transition t1;
+
+    /**
+     * Sets up a small net as the global net and a temporary trace file.
+     */
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("trace", ".pntr");
+        net = new PetriNet();
+        p1 = new Place("p1");
+        p2 = new Place("p2");
+        t1 = new Transition("t1");
+        net.addPlace(p1);
+        net.addPlace(p2);
+        net.addTransition(t1);
+    }
+
+    /**
+     * Removes the temporary trace file.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** Writes the given number of firings moving a token from p1 to p2 every 3 time units. */
+    private void writeTrace(BinaryTraceSink sink, int events) throws Exception {
+        sink.open(new Simulation(net));
+        ArrayList<FiringEvent> batch = new ArrayList<>();
+        for (int i = 1; i <= events; i++) {
+            FiringEvent event = new FiringEvent(t1, 3L * i);
+            event.setStep(i);
+            event.addConsumed(p1, new Token("job" + (i % 5)));
+            event.addProduced(p2, new Token("job" + (i % 5), 3L * i + 10));
+            batch.add(event);
+        }
+        sink.write(batch);
+        sink.close();
+    }
+
+    /**
+     * Tests that every firing is decoded in order with its clock and places.
+     */
+    @Test
+    public void testSequentialRead() throws Exception {
+        writeTrace(new BinaryTraceSink(file, false, 100), 1000);
+
+        BinaryTraceReader reader = new BinaryTraceReader(file);
+        assertEquals(1000, reader.getEventCount());
+        assertEquals(10, reader.getChunkCount());
+        assertEquals("p2", reader.getPlaceIds().get(1));
+        assertEquals("t1", reader.getTransitionIds().get(0));
+        assertFalse(reader.hasPayloads());
+        for (int i = 1; i <= 1000; i++) {
+            TraceRecord record = reader.next();
+            assertEquals(i, record.getStep());
+            assertEquals(3L * i, record.getClock());
+            assertEquals(0, record.getTransition());
+            assertEquals(0, record.getConsumedPlaces()[0]);
+            assertEquals(1, record.getProducedPlaces()[0]);
+            assertNull(record.getProducedPayloads());
+        }
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    /**
+     * Tests that payloads and timestamps are restored and that seeking lands on the requested step.
+     */
+    @Test
+    public void testPayloadsAndSeek() throws Exception {
+        writeTrace(new BinaryTraceSink(file, true, 64), 500);
+
+        BinaryTraceReader reader = new BinaryTraceReader(file);
+        assertTrue(reader.hasPayloads());
+        assertTrue(reader.seek(321));
+        TraceRecord record = reader.next();
+        assertEquals(321, record.getStep());
+        assertEquals(963, record.getClock());
+        assertEquals("job1", record.getConsumedPayloads()[0]);
+        assertEquals(973, record.getProducedTimestamps()[0]);
+        assertFalse(reader.seek(501));
+        reader.close();
+    }
+}
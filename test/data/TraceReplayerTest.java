@@ -0,0 +1,103 @@
+package data;
+
+import business.FiringEvent;
+import business.PetriNet;
+import business.Place;
+import business.Simulation;
+import business.Token;
+import business.TokenSet;
+import business.Transition;
+import java.io.File;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for TraceReplayer.
+ * This class records a trace that moves tokens from p1 to p2 and verifies that seeking
+ * restores the marking of any step from the chunk keyframes.
+ */
+public class TraceReplayerTest {
+
+    private PetriNet net;
+    private File file;
+    private Place p1;
+    private Place p2;
+
+    /**
+     * Records 1000 firings, each moving one token from p1 to p2, in chunks of 64 firings.
+     */
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("replay", ".pntr");
+        net = new PetriNet();
+        p1 = new Place("p1");
+        p2 = new Place("p2");
+        Transition t1 = new Transition("t1");
+        net.addPlace(p1);
+        net.addPlace(p2);
+        net.addTransition(t1);
+        for (int i = 0; i < 1000; i++) {
+            p1.addToken(new TokenSet(new Token(1)));
+        }
+
+        BinaryTraceSink sink = new BinaryTraceSink(file, true, 64);
+        sink.open(new Simulation(net));
+        ArrayList<FiringEvent> batch = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            FiringEvent event = new FiringEvent(t1, i);
+            event.setStep(i);
+            event.addConsumed(p1, new Token(1));
+            event.addProduced(p2, new Token(1));
+            batch.add(event);
+        }
+        sink.write(batch);
+        sink.close();
+    }
+
+    /**
+     * Removes the temporary trace file.
+     */
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Tests that seeking forwards and backwards restores the marking after the requested step.
+     */
+    @Test
+    public void testSeek() throws Exception {
+        TraceReplayer replayer = new TraceReplayer(file);
+        assertEquals(0, replayer.getStep());
+        assertEquals(1000, replayer.getMarking().getCount(0));
+
+        assertEquals(700, replayer.seek(700));
+        assertEquals(300, replayer.getMarking().getCount(0));
+        assertEquals(700, replayer.getMarking().getCount(1));
+        assertEquals(700, replayer.getClock());
+
+        assertEquals(129, replayer.seek(129));
+        assertEquals(871, replayer.getMarking().getCount(0));
+        assertEquals(129, replayer.getMarking().getTokens(1).size());
+
+        assertEquals(1000, replayer.seek(5000));
+        assertEquals(0, replayer.getMarking().getCount(0));
+        replayer.close();
+    }
+
+    /**
+     * Tests that the replayed marking can be written back into the net.
+     */
+    @Test
+    public void testApplyTo() throws Exception {
+        TraceReplayer replayer = new TraceReplayer(file);
+        replayer.seek(250);
+        replayer.applyTo(net);
+        assertEquals(750, p1.getTokens().size());
+        assertEquals(250, p2.getTokens().size());
+        replayer.close();
+    }
+}